@@ -0,0 +1,27 @@
+package com.financetracker.benchmark;
+
+/**
+ * One operation measured by the BenchmarkRunner
+ */
+public interface BenchmarkCase {
+    /**
+     * Prepare state before each measured run
+     * Not timed
+     */
+    default void setUp() {
+    }
+    
+    /**
+     * Run the measured operations
+     * 
+     * @return Number of operations performed
+     */
+    long run();
+    
+    /**
+     * Restore state after each measured run
+     * Not timed
+     */
+    default void tearDown() {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.financetracker.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs benchmark cases with warmup and measured iterations
+ * Reports time per operation and bytes allocated per operation on the calling thread
+ */
+public class BenchmarkRunner {
+    private int warmupIterations;
+    private int measuredIterations;
+    private List<Result> results;
+    
+    // Allocation counter, or null if the JVM does not provide one
+    private com.sun.management.ThreadMXBean allocationBean;
+    
+    /**
+     * Keeps results from being optimized away
+     */
+    public static volatile Object sink;
+    
+    /**
+     * Constructor for BenchmarkRunner
+     * 
+     * @param warmupIterations Runs before measuring
+     * @param measuredIterations Runs that are measured
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.results = new ArrayList<>();
+        
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            allocationBean = (com.sun.management.ThreadMXBean) bean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+    
+    /**
+     * Run one case and record the result
+     * 
+     * @param group Benchmark group, such as the class under test
+     * @param name Benchmark name
+     * @param ledgerSize Ledger size parameter
+     * @param benchmarkCase Case to run
+     * @return Measured result
+     */
+    public Result run(String group, String name, long ledgerSize, BenchmarkCase benchmarkCase) {
+        for (int i = 0; i < warmupIterations; i++) {
+            runOnce(benchmarkCase);
+        }
+        
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long totalOps = 0;
+        
+        for (int i = 0; i < measuredIterations; i++) {
+            benchmarkCase.setUp();
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            
+            long ops = benchmarkCase.run();
+            
+            totalNanos += System.nanoTime() - start;
+            totalBytes += allocatedBytes() - bytesBefore;
+            totalOps += ops;
+            benchmarkCase.tearDown();
+        }
+        
+        Result result = new Result(group, name, ledgerSize, totalNanos, totalBytes, totalOps);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+    
+    /**
+     * Get every result recorded so far
+     * 
+     * @return Results in the order they were run
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+    
+    /**
+     * Run a case once without measuring it
+     * 
+     * @param benchmarkCase Case to run
+     */
+    private void runOnce(BenchmarkCase benchmarkCase) {
+        benchmarkCase.setUp();
+        benchmarkCase.run();
+        benchmarkCase.tearDown();
+    }
+    
+    /**
+     * Get bytes allocated so far by the calling thread
+     * 
+     * @return Allocated bytes, or 0 if not available
+     */
+    private long allocatedBytes() {
+        if (allocationBean == null) {
+            return 0;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    /**
+     * Measured result of one benchmark case
+     */
+    public static class Result {
+        private String group;
+        private String name;
+        private long ledgerSize;
+        private long totalNanos;
+        private long totalBytes;
+        private long totalOps;
+        
+        /**
+         * Constructor for Result
+         * 
+         * @param group Benchmark group
+         * @param name Benchmark name
+         * @param ledgerSize Ledger size parameter
+         * @param totalNanos Time across measured runs
+         * @param totalBytes Bytes allocated across measured runs
+         * @param totalOps Operations across measured runs
+         */
+        Result(String group, String name, long ledgerSize, long totalNanos, long totalBytes, long totalOps) {
+            this.group = group;
+            this.name = name;
+            this.ledgerSize = ledgerSize;
+            this.totalNanos = totalNanos;
+            this.totalBytes = totalBytes;
+            this.totalOps = Math.max(1, totalOps);
+        }
+        
+        /**
+         * Get average time per operation
+         * 
+         * @return Nanoseconds per operation
+         */
+        public double getNanosPerOp() {
+            return (double) totalNanos / totalOps;
+        }
+        
+        /**
+         * Get average allocation per operation on the calling thread
+         * 
+         * @return Bytes per operation
+         */
+        public double getBytesPerOp() {
+            return (double) totalBytes / totalOps;
+        }
+        
+        /**
+         * Get operations per second
+         * 
+         * @return Throughput
+         */
+        public double getOpsPerSecond() {
+            return totalOps * 1e9 / Math.max(1, totalNanos);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%-20s %-28s %,12d %,16.1f ns/op %,14.0f ops/s %,12.1f B/op",
+                    group, name, ledgerSize, getNanosPerOp(), getOpsPerSecond(), getBytesPerOp());
+        }
+    }
+}
\ No newline at end of file
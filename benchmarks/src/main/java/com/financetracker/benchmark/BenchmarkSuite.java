@@ -0,0 +1,922 @@
+package com.financetracker.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.financetracker.export.LedgerExporter;
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.importer.StatementImporter;
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.model.Budget;
+import com.financetracker.model.Transaction;
+import com.financetracker.persistence.TransactionJournal;
+import com.financetracker.persistence.UserRegistry;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+import com.financetracker.util.FinancialUtility;
+import com.financetracker.util.MonthlyRollups;
+import com.financetracker.util.ReportCache;
+import com.financetracker.util.ReportGenerator;
+import com.financetracker.util.ReportSummary;
+
+/**
+ * Benchmarks for the manager, report and utility layers
+ * Every case is run for each ledger size given on the command line
+ * 
+ * Usage: BenchmarkSuite [--list] [size ...]
+ */
+public class BenchmarkSuite {
+    private static final long[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    
+    // Largest batch used by the add, remove and undo cases
+    private static final int MAX_BATCH = 100_000;
+    
+    // Largest journal replayed by the recovery case, and batch for fsync per record
+    private static final int MAX_JOURNAL = 1_000_000;
+    private static final int MAX_SYNC_BATCH = 1_000;
+    
+    // Users in the registry case, how many ledgers fit its memory budget, and most sessions per run
+    private static final int REGISTRY_USERS = 1_000;
+    private static final int REGISTRY_RESIDENT = 50;
+    private static final int MAX_SESSIONS = 2_000;
+    
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+    
+    private static final PrintStream CONSOLE = System.out;
+    private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+    
+    /**
+     * Run the benchmark suite
+     * 
+     * @param args Optional --list or --partitioned to choose the storage, followed by ledger sizes
+     */
+    public static void main(String[] args) {
+        TransactionManager.StorageMode mode = TransactionManager.StorageMode.COLUMNAR;
+        List<Long> sizes = new ArrayList<>();
+        
+        for (String arg : args) {
+            if (arg.equals("--list")) {
+                mode = TransactionManager.StorageMode.LIST;
+            } else if (arg.equals("--partitioned")) {
+                mode = TransactionManager.StorageMode.PARTITIONED;
+            } else {
+                sizes.add(Long.parseLong(arg.replace("_", "")));
+            }
+        }
+        if (sizes.isEmpty()) {
+            for (long size : DEFAULT_SIZES) {
+                sizes.add(size);
+            }
+        }
+        
+        BenchmarkRunner runner = new BenchmarkRunner(WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+        System.out.println("Storage mode: " + mode);
+        
+        for (long size : sizes) {
+            System.out.printf("%n===== Ledger size %,d =====%n", size);
+            
+            LedgerGenerator generator = new LedgerGenerator(size);
+            TransactionManager manager = new TransactionManager(mode);
+            generator.fill(manager, size);
+            
+            benchmarkTransactionManager(runner, manager, generator, mode, size);
+            benchmarkBudgetManager(runner, manager, size);
+            benchmarkReports(runner, manager, size);
+            benchmarkUtility(runner, manager, size);
+            benchmarkJournal(runner, generator, size);
+            benchmarkSegment(runner, manager, size);
+            benchmarkPartitions(runner, manager, size);
+            benchmarkExport(runner, manager, size);
+            benchmarkRegistry(runner, generator, size);
+        }
+    }
+    
+    /**
+     * Benchmark TransactionManager mutations, queries and aggregation
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param generator Generator that filled the ledger
+     * @param mode Storage mode
+     * @param size Ledger size
+     */
+    private static void benchmarkTransactionManager(BenchmarkRunner runner, TransactionManager manager,
+            LedgerGenerator generator, TransactionManager.StorageMode mode, long size) {
+        String group = "TransactionManager";
+        int batchSize = (int) Math.min(size, MAX_BATCH);
+        
+        // One at a time and bulk ingestion of the same rows into an empty ledger
+        runner.run(group, "addTransaction", size, new BenchmarkCase() {
+            private TransactionManager target;
+            private List<Transaction> rows;
+            
+            @Override
+            public void setUp() {
+                target = new TransactionManager(mode);
+                rows = generator.generate(batchSize);
+            }
+            
+            @Override
+            public long run() {
+                for (Transaction t : rows) {
+                    target.addTransaction(t);
+                }
+                return rows.size();
+            }
+        });
+        
+        runner.run(group, "addTransactions (bulk)", size, new BenchmarkCase() {
+            private TransactionManager target;
+            private List<Transaction> rows;
+            
+            @Override
+            public void setUp() {
+                target = new TransactionManager(mode);
+                rows = generator.generate(batchSize);
+            }
+            
+            @Override
+            public long run() {
+                BenchmarkRunner.sink = target.addTransactions(rows);
+                return rows.size();
+            }
+        });
+        
+        // Remove and undo random transactions, leaving the ledger as it was
+        // Older undo entries spill to a file, so every removal can be undone
+        Path historyFile;
+        try {
+            historyFile = Files.createTempFile("benchmark", ".history");
+            manager.setHistorySpillFile(historyFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int[] ids = manager.stream().mapToInt(Transaction::getId).toArray();
+        int removeCount = Math.max(1, Math.min(ids.length / 10, MAX_BATCH / 10));
+        Random random = new Random(size);
+        
+        runner.run(group, "removeTransaction", size, new BenchmarkCase() {
+            private int removed;
+            
+            @Override
+            public long run() {
+                removed = 0;
+                for (int i = 0; i < removeCount; i++) {
+                    if (manager.removeTransaction(ids[random.nextInt(ids.length)])) {
+                        removed++;
+                    }
+                }
+                return removeCount;
+            }
+            
+            @Override
+            public void tearDown() {
+                for (int i = 0; i < removed; i++) {
+                    manager.undoDelete();
+                }
+            }
+        });
+        
+        runner.run(group, "undoDelete", size, new BenchmarkCase() {
+            private int removed;
+            
+            @Override
+            public void setUp() {
+                removed = 0;
+                for (int i = 0; i < removeCount; i++) {
+                    if (manager.removeTransaction(ids[random.nextInt(ids.length)])) {
+                        removed++;
+                    }
+                }
+            }
+            
+            @Override
+            public long run() {
+                for (int i = 0; i < removed; i++) {
+                    manager.undoDelete();
+                }
+                return removed;
+            }
+        });
+        
+        runner.run(group, "undo + redo", size, new BenchmarkCase() {
+            private int removed;
+            
+            @Override
+            public void setUp() {
+                removed = 0;
+                for (int i = 0; i < removeCount; i++) {
+                    if (manager.removeTransaction(ids[random.nextInt(ids.length)])) {
+                        removed++;
+                    }
+                }
+            }
+            
+            @Override
+            public long run() {
+                for (int i = 0; i < removed; i++) {
+                    manager.undo();
+                }
+                for (int i = 0; i < removed; i++) {
+                    manager.redo();
+                }
+                return 2L * removed;
+            }
+            
+            @Override
+            public void tearDown() {
+                for (int i = 0; i < removed; i++) {
+                    manager.undo();
+                }
+            }
+        });
+        try {
+            manager.setHistorySpillFile(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deleteQuietly(historyFile);
+        
+        // Thirty-day windows at random points in the ledger's history
+        runner.run(group, "getTransactionsByDateRange", size, () -> {
+            int queries = 100;
+            for (int i = 0; i < queries; i++) {
+                int start = generator.getFirstDay() + random.nextInt(generator.getDaySpan());
+                BenchmarkRunner.sink = manager.getTransactionsByDateRange(
+                        DateUtility.fromEpochDay(start), DateUtility.fromEpochDay(start + 30));
+            }
+            return queries;
+        });
+        
+        runner.run(group, "getExpensesByCategory", size, () -> {
+            int calls = 1000;
+            for (int i = 0; i < calls; i++) {
+                BenchmarkRunner.sink = manager.getExpensesByCategory();
+            }
+            return calls;
+        });
+        
+        runner.run(group, "getExpensesByCategory (last 12 months)", size, () -> {
+            int calls = 1000;
+            YearMonth last = YearMonth.now();
+            for (int i = 0; i < calls; i++) {
+                BenchmarkRunner.sink = manager.getExpensesByCategory(last.minusMonths(11), last);
+            }
+            return calls;
+        });
+        
+        runner.run(group, "rebuildTotals (sequential)", size, new BenchmarkCase() {
+            @Override
+            public void setUp() {
+                manager.setParallelThreshold(Integer.MAX_VALUE);
+            }
+            
+            @Override
+            public long run() {
+                manager.rebuildTotals();
+                return 1;
+            }
+        });
+        
+        runner.run(group, "rebuildTotals (fork/join)", size, new BenchmarkCase() {
+            @Override
+            public void setUp() {
+                manager.setParallelThreshold(0);
+            }
+            
+            @Override
+            public long run() {
+                manager.rebuildTotals();
+                return 1;
+            }
+            
+            @Override
+            public void tearDown() {
+                manager.setParallelThreshold(TransactionManager.DEFAULT_PARALLEL_THRESHOLD);
+            }
+        });
+        
+        runner.run(group, "expenseAmounts().sum()", size, () -> {
+            BenchmarkRunner.sink = manager.expenseAmounts().sum();
+            return 1;
+        });
+    }
+    
+    /**
+     * Benchmark BudgetManager.getRemainingBudgets
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkBudgetManager(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "BudgetManager";
+        BudgetManager budgets = new BudgetManager(manager.getCategoryDictionary());
+        for (String category : CategoryDictionary.EXPENSE_CATEGORIES) {
+            budgets.setCategoryBudget(category, 1000.0);
+        }
+        
+        runner.run(group, "getRemainingBudgets(Map)", size, () -> {
+            int calls = 1000;
+            for (int i = 0; i < calls; i++) {
+                Map<String, Double> expenses = manager.getExpensesByCategory();
+                BenchmarkRunner.sink = budgets.getRemainingBudgets(expenses);
+            }
+            return calls;
+        });
+        
+        runner.run(group, "getRemainingBudgets(ledger)", size, () -> {
+            int calls = 1000;
+            for (int i = 0; i < calls; i++) {
+                BenchmarkRunner.sink = budgets.getRemainingBudgets(manager);
+            }
+            return calls;
+        });
+        
+        runner.run(group, "getRemainingBudgets(ledger, month)", size, () -> {
+            int calls = 1000;
+            for (int i = 0; i < calls; i++) {
+                BenchmarkRunner.sink = budgets.getRemainingBudgets(manager, YearMonth.now());
+            }
+            return calls;
+        });
+    }
+    
+    /**
+     * Benchmark ReportGenerator reports with console output discarded
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkReports(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "ReportGenerator";
+        ReportGenerator reports = new ReportGenerator(manager);
+        
+        runner.run(group, "generateIncomeSummary", size, () -> quietly(reports::generateIncomeSummary));
+        runner.run(group, "generateExpenseSummary", size, () -> quietly(reports::generateExpenseSummary));
+        runner.run(group, "generateMonthlyOverview", size, () -> quietly(reports::generateMonthlyOverview));
+        
+        // One renderer and buffer reused for every report, as when writing reports for many users
+        ReportRenderer json = ReportRenderer.create(ReportRenderer.Format.JSON,
+                Channels.newChannel(OutputStream.nullOutputStream()));
+        runner.run("ReportRenderer", "renderMonthlyOverview x1000 (JSON)", size, () -> {
+            int reportCount = 1000;
+            try {
+                for (int i = 0; i < reportCount; i++) {
+                    reports.renderMonthlyOverview(json);
+                }
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return reportCount;
+        });
+        
+        // Repeat requests with no writes in between replay the cached recording
+        ReportCache cache = new ReportCache();
+        ReportGenerator cachedReports = new ReportGenerator(manager, null, cache, 1);
+        runner.run("ReportCache", "renderExpenseSummary x1000 (cached, JSON)", size, () -> {
+            int reportCount = 1000;
+            try {
+                for (int i = 0; i < reportCount; i++) {
+                    cachedReports.renderExpenseSummary(json);
+                }
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            BenchmarkRunner.sink = cache.getHitRate();
+            return reportCount;
+        });
+        runner.run("ReportCache", "renderExpenseSummary x1000 (uncached, JSON)", size, () -> {
+            int reportCount = 1000;
+            try {
+                for (int i = 0; i < reportCount; i++) {
+                    reports.renderExpenseSummary(json);
+                }
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return reportCount;
+        });
+        
+        runner.run("ReportRenderer", "displayAllTransactions (console)", size,
+                () -> quietly(manager::displayAllTransactions));
+        runner.run("ReportRenderer", "renderTransactions (JSON)", size, () -> {
+            try {
+                manager.renderTransactions(json);
+                json.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return 1;
+        });
+        
+        runner.run("ReportSummary", "of (one pass)", size, () -> {
+            BenchmarkRunner.sink = ReportSummary.of(manager);
+            return 1;
+        });
+        
+        // A fresh cache each run totals every month; the shared one serves them from memory
+        MonthlyRollups rollups = new MonthlyRollups(manager);
+        runner.run("MonthlyRollups", "trailing 12 months (cold)", size, () -> {
+            BenchmarkRunner.sink = new MonthlyRollups(manager).trailing(YearMonth.now(), 12);
+            return 12;
+        });
+        runner.run("MonthlyRollups", "trailing 12 months (cached)", size, () -> {
+            BenchmarkRunner.sink = rollups.trailing(YearMonth.now(), 12);
+            return 12;
+        });
+    }
+    
+    /**
+     * Benchmark FinancialUtility list operations
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkUtility(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "FinancialUtility";
+        List<Transaction> transactions = manager.getAllTransactions();
+        List<Double> amounts = new ArrayList<>(transactions.size());
+        List<Budget> entities = new ArrayList<>(transactions.size());
+        
+        for (Transaction t : transactions) {
+            amounts.add(t.getAmount());
+            entities.add(new Budget(t.getCategory(), t.getDescription(), t.getAmount()));
+        }
+        
+        FinancialUtility.AmountFilter amountFilter = new FinancialUtility.AmountFilter(100.0, 200.0);
+        runner.run(group, "filter(AmountFilter)", size, () -> {
+            BenchmarkRunner.sink = FinancialUtility.filter(transactions, amountFilter);
+            return 1;
+        });
+        
+        Date end = new Date();
+        FinancialUtility.DateFilter dateFilter = new FinancialUtility.DateFilter(
+                DateUtility.fromEpochDay(DateUtility.toEpochDay(end) - 30), end);
+        runner.run(group, "filter(list, DateFilter)", size, () -> {
+            BenchmarkRunner.sink = FinancialUtility.filter(transactions, dateFilter);
+            return 1;
+        });
+        runner.run(group, "filter(ledger, DateFilter)", size, () -> {
+            BenchmarkRunner.sink = FinancialUtility.filter(manager, dateFilter);
+            return 1;
+        });
+        
+        runner.run(group, "findMax", size, () -> {
+            BenchmarkRunner.sink = FinancialUtility.findMax(amounts);
+            return 1;
+        });
+        
+        runner.run(group, "computeAverage", size, () -> {
+            BenchmarkRunner.sink = FinancialUtility.computeAverage(entities);
+            return 1;
+        });
+    }
+    
+    /**
+     * Benchmark journal write throughput and recovery after a simulated crash
+     * 
+     * @param runner Runner to record results
+     * @param generator Generator for journaled rows
+     * @param size Ledger size
+     */
+    private static void benchmarkJournal(BenchmarkRunner runner, LedgerGenerator generator, long size) {
+        String group = "TransactionJournal";
+        int batchSize = (int) Math.min(size, MAX_BATCH);
+        
+        runner.run(group, "append (group commit)", size,
+                journalAppend(generator, batchSize, TransactionJournal.DEFAULT_GROUP_COMMIT_MILLIS));
+        runner.run(group, "append (fsync per record)", size,
+                journalAppend(generator, Math.min(batchSize, MAX_SYNC_BATCH), 0));
+        
+        // Journal a ledger, tear its last record as a crash would, then time replay
+        int journalSize = (int) Math.min(size, MAX_JOURNAL);
+        Path path = createJournal(generator, journalSize);
+        runner.run(group, "replay after crash", size, () -> {
+            try {
+                TransactionJournal.ReplayResult result = TransactionJournal.replay(path, new TransactionManager(), null);
+                BenchmarkRunner.sink = result;
+                return result.getRecordCount();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        deleteQuietly(path);
+    }
+    
+    /**
+     * Benchmark saving a ledger as a segment file and opening it again
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkSegment(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "TransactionSegment";
+        Path path;
+        try {
+            path = Files.createTempFile("benchmark", ".segment");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        runner.run(group, "writeSegment", size, () -> {
+            try {
+                return manager.writeSegment(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        runner.run(group, "openSegment + getBalance", size, () -> {
+            try {
+                BenchmarkRunner.sink = TransactionManager.openSegment(path).getBalance();
+                return 1;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        deleteQuietly(path);
+    }
+    
+    /**
+     * Benchmark month-pruned queries on a ledger saved as monthly partitions, with every
+     * month before the current one unloaded to its segment file, then the same months
+     * compressed into archive files
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkPartitions(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "PartitionedTransactionStore";
+        Path directory;
+        TransactionManager partitioned;
+        try {
+            directory = Files.createTempDirectory("benchmark-partitions");
+            partitioned = TransactionManager.openPartitioned(directory);
+            List<Transaction> batch = new ArrayList<>(MAX_BATCH);
+            manager.stream().forEach(transaction -> {
+                batch.add(transaction);
+                if (batch.size() == MAX_BATCH) {
+                    partitioned.addTransactions(batch);
+                    batch.clear();
+                }
+            });
+            partitioned.addTransactions(batch);
+            partitioned.savePartitions();
+            partitioned.unloadPartitionsBefore(new Date());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        Date end = new Date();
+        Date monthStart = DateUtility.fromEpochDay(DateUtility.toEpochDay(end) - 30);
+        Date yearStart = DateUtility.fromEpochDay(DateUtility.toEpochDay(end) - 365);
+        ReportGenerator reports = new ReportGenerator(partitioned);
+        
+        runner.run(group, "generateMonthlyOverview", size, () -> quietly(reports::generateMonthlyOverview));
+        runner.run(group, "getTransactionsByDateRange (last 30 days)", size,
+                () -> partitioned.getTransactionsByDateRange(monthStart, end).size());
+        runner.run(group, "getExpensesBetween (last 365 days)", size, () -> {
+            BenchmarkRunner.sink = partitioned.getExpensesBetween(yearStart, end);
+            return 1;
+        });
+        runner.run(group, "getExpensesBetween (last 365 days, flat)", size, () -> {
+            BenchmarkRunner.sink = manager.getExpensesBetween(yearStart, end);
+            return 1;
+        });
+        runner.run(group, "getExpensesForMonths (last 12 months, flat)", size, () -> {
+            BenchmarkRunner.sink = manager.getExpensesForMonths(YearMonth.now().minusMonths(11), YearMonth.now());
+            return 1;
+        });
+        
+        benchmarkArchive(runner, partitioned, directory, size);
+        
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            // Left behind in the temporary directory
+        }
+        deleteQuietly(directory);
+    }
+    
+    /**
+     * Benchmark archiving the unloaded months of a partitioned ledger, and queries that
+     * decompress archived months or read only their totals
+     * 
+     * @param runner Runner to record results
+     * @param partitioned Ledger with every month before the current one unloaded
+     * @param directory Directory of the ledger's files
+     * @param size Ledger size
+     */
+    private static void benchmarkArchive(BenchmarkRunner runner, TransactionManager partitioned, Path directory,
+            long size) {
+        String group = "TransactionArchive";
+        Date now = new Date();
+        YearMonth current = YearMonth.now();
+        Date currentStart = DateUtility.fromEpochDay((int) current.atDay(1).toEpochDay());
+        int archivedRows = partitioned.getTransactionCount()
+                - partitioned.getTransactionsByDateRange(currentStart, now).size();
+        
+        try {
+            long segmentBytes = fileBytes(directory, "*.seg");
+            partitioned.archivePartitionsBefore(now);
+            long archiveBytes = fileBytes(directory, "*.arc");
+            segmentBytes -= fileBytes(directory, "*.seg");
+            System.out.printf("  archived %,d rows: %,d segment bytes -> %,d archive bytes (%.1fx, %.1f bytes/row)%n",
+                    archivedRows, segmentBytes, archiveBytes, (double) segmentBytes / Math.max(1, archiveBytes),
+                    (double) archiveBytes / Math.max(1, archivedRows));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        // Whole archived months, so range totals come from the month totals alone
+        Date yearStart = DateUtility.fromEpochDay((int) current.minusMonths(12).atDay(1).toEpochDay());
+        Date yearEnd = DateUtility.fromEpochDay((int) current.atDay(1).toEpochDay() - 1);
+        
+        runner.run(group, "getTransactionsByDateRange (archived year, decompress)", size, () -> {
+            try {
+                partitioned.archivePartitionsBefore(now);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return partitioned.getTransactionsByDateRange(yearStart, yearEnd).size();
+        });
+        runner.run(group, "getTransactionsByDateRange (archived year, decompressed)", size,
+                () -> partitioned.getTransactionsByDateRange(yearStart, yearEnd).size());
+        runner.run(group, "getExpensesBetween (archived year, month totals)", size, () -> {
+            BenchmarkRunner.sink = partitioned.getExpensesBetween(yearStart, yearEnd);
+            return 1;
+        });
+    }
+    
+    /**
+     * Benchmark streaming a ledger to CSV and JSON files, and importing the CSV back
+     * 
+     * @param runner Runner to record results
+     * @param manager Filled ledger
+     * @param size Ledger size
+     */
+    private static void benchmarkExport(BenchmarkRunner runner, TransactionManager manager, long size) {
+        String group = "LedgerExporter";
+        Path path;
+        try {
+            path = Files.createTempFile("benchmark", ".export");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        Date end = new Date();
+        Date start = DateUtility.fromEpochDay(DateUtility.toEpochDay(end) - 30);
+        runner.run(group, "export CSV", size, exportCase(manager, LedgerExporter.Format.CSV, null, null, path));
+        runner.run(group, "export JSON", size, exportCase(manager, LedgerExporter.Format.JSON, null, null, path));
+        runner.run(group, "export CSV (last 30 days)", size,
+                exportCase(manager, LedgerExporter.Format.CSV, start, end, path));
+        
+        // Import the full CSV export back into an empty ledger each iteration
+        exportCase(manager, LedgerExporter.Format.CSV, null, null, path).run();
+        runner.run("StatementImporter", "import CSV", size, () -> {
+            try {
+                return new StatementImporter(new TransactionManager())
+                        .format(StatementImporter.Format.CSV).importFile(path).getImportedCount();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        deleteQuietly(path);
+    }
+    
+    /**
+     * Benchmark sessions on a registry holding more users than its memory budget fits
+     * Most sessions go to a small set of active users, as they would on a server
+     * 
+     * @param runner Runner to record results
+     * @param generator Generator for added rows
+     * @param size Ledger size
+     */
+    private static void benchmarkRegistry(BenchmarkRunner runner, LedgerGenerator generator, long size) {
+        String group = "UserRegistry";
+        int sessions = (int) Math.min(size, MAX_SESSIONS);
+        List<Transaction> rows = generator.generate(sessions);
+        Path directory;
+        UserRegistry registry;
+        int firstId;
+        try {
+            directory = Files.createTempDirectory("benchmark-registry");
+            
+            // Budget for the estimated size of REGISTRY_RESIDENT ledgers
+            registry = new UserRegistry(directory, REGISTRY_RESIDENT * 200L * 1024);
+            firstId = registry.register("user0", "user0@example.com").getId();
+            for (int i = 1; i < REGISTRY_USERS; i++) {
+                registry.register("user" + i, "user" + i + "@example.com");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        
+        Random random = new Random(size);
+        runner.run(group, "open + add + close (90% to 2% of users)", size, () -> {
+            try {
+                for (Transaction row : rows) {
+                    int user = random.nextInt(10) < 9 ? random.nextInt(REGISTRY_USERS / 50)
+                            : random.nextInt(REGISTRY_USERS);
+                    try (UserRegistry.Session session = registry.open(firstId + user)) {
+                        session.getTransactionManager().addTransaction(row);
+                    }
+                }
+                return rows.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        System.out.printf("  registry: %,d users, %,d loaded, %,d hits, %,d misses, %,d evictions%n",
+                registry.getUserCount(), registry.getLoadedCount(), registry.getHitCount(), registry.getMissCount(),
+                registry.getEvictionCount());
+        
+        try {
+            registry.close();
+        } catch (IOException e) {
+            // Left behind in the temporary directory
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(BenchmarkSuite::deleteQuietly);
+        } catch (IOException e) {
+            // Left behind in the temporary directory
+        }
+    }
+    
+    /**
+     * Create a case that exports a ledger to a file
+     * 
+     * @param manager Ledger to export
+     * @param format Output format
+     * @param start First day to export, or null
+     * @param end Last day to export, or null
+     * @param path File to write
+     * @return Benchmark case
+     */
+    private static BenchmarkCase exportCase(TransactionManager manager, LedgerExporter.Format format, Date start,
+            Date end, Path path) {
+        LedgerExporter exporter = new LedgerExporter(manager, null).format(format).dateRange(start, end);
+        return () -> {
+            try {
+                return exporter.export(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+    
+    /**
+     * Create a case that journals a batch of added transactions and waits for them to be durable
+     * 
+     * @param generator Generator for journaled rows
+     * @param batchSize Rows per iteration
+     * @param groupCommitMillis Group commit delay, 0 to force every record
+     * @return Benchmark case
+     */
+    private static BenchmarkCase journalAppend(LedgerGenerator generator, int batchSize, long groupCommitMillis) {
+        return new BenchmarkCase() {
+            private Path path;
+            private TransactionJournal journal;
+            private TransactionManager target;
+            private List<Transaction> rows;
+            
+            @Override
+            public void setUp() {
+                try {
+                    path = Files.createTempFile("benchmark", ".journal");
+                    target = new TransactionManager();
+                    journal = TransactionJournal.open(path, target, null, groupCommitMillis);
+                    rows = generator.generate(batchSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            
+            @Override
+            public long run() {
+                for (Transaction t : rows) {
+                    target.addTransaction(t);
+                }
+                try {
+                    journal.sync();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return rows.size();
+            }
+            
+            @Override
+            public void tearDown() {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                deleteQuietly(path);
+            }
+        };
+    }
+    
+    /**
+     * Write a journal of generated rows and cut its last record short
+     * 
+     * @param generator Generator for journaled rows
+     * @param rows Number of rows
+     * @return Path of the journal
+     */
+    private static Path createJournal(LedgerGenerator generator, int rows) {
+        try {
+            Path path = Files.createTempFile("benchmark", ".journal");
+            TransactionManager source = new TransactionManager();
+            try (TransactionJournal journal = TransactionJournal.open(path, source, null)) {
+                for (int written = 0; written < rows; written += MAX_BATCH) {
+                    for (Transaction t : generator.generate(Math.min(MAX_BATCH, rows - written))) {
+                        source.addTransaction(t);
+                    }
+                }
+                // Every record must be on disk before the last one is cut short
+                journal.sync();
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 3);
+            }
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Add up the sizes of the files in a directory matching a pattern
+     * 
+     * @param directory Directory to list
+     * @param glob File name pattern
+     * @return Total size in bytes
+     * @throws IOException If the directory cannot be listed
+     */
+    private static long fileBytes(Path directory, String glob) throws IOException {
+        long bytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Delete a temporary file, ignoring failures
+     * 
+     * @param path File to delete
+     */
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Left behind in the temporary directory
+        }
+    }
+    
+    /**
+     * Run a report with System.out discarded
+     * 
+     * @param report Report to run
+     * @return Number of operations (always 1)
+     */
+    private static long quietly(Runnable report) {
+        System.setOut(QUIET);
+        try {
+            report.run();
+        } finally {
+            System.setOut(CONSOLE);
+        }
+        return 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.financetracker.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.financetracker.manager.ConcurrentTransactionManager;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Stress test for ConcurrentTransactionManager
+ * Writers add and remove transactions while readers query totals, categories and date ranges;
+ * afterwards the ledger must hold exactly the transactions the writers left, and its running
+ * totals must match a recount
+ * 
+ * Usage: ConcurrencyStress [writers] [readers] [operations per writer]
+ * Exits with status 1 if a check fails
+ */
+public class ConcurrencyStress {
+    private static final int DEFAULT_WRITERS = 8;
+    private static final int DEFAULT_READERS = 4;
+    private static final int DEFAULT_OPERATIONS = 50_000;
+    
+    // Every this many adds a writer removes one of its own transactions, and adds a batch
+    private static final int REMOVE_EVERY = 5;
+    private static final int BATCH_EVERY = 50;
+    private static final int BATCH_SIZE = 20;
+    
+    /**
+     * Run the stress test
+     * 
+     * @param args Optional writer count, reader count and operations per writer
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WRITERS;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_READERS;
+        int operations = args.length > 2 ? Integer.parseInt(args[2].replace("_", "")) : DEFAULT_OPERATIONS;
+        
+        ConcurrentTransactionManager manager = new ConcurrentTransactionManager();
+        List<Set<Integer>> live = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        
+        List<Thread> writerThreads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            Set<Integer> ids = new HashSet<>();
+            live.add(ids);
+            LedgerGenerator generator = new LedgerGenerator(w);
+            writerThreads.add(start(failure, start, () -> write(manager, generator, operations, ids)));
+        }
+        
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            Random random = new Random(r);
+            readerThreads.add(start(failure, start, () -> {
+                while (writing.get()) {
+                    read(manager, random);
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread thread : writerThreads) {
+            thread.join();
+        }
+        writing.set(false);
+        for (Thread thread : readerThreads) {
+            thread.join();
+        }
+        long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        
+        List<String> problems = new ArrayList<>();
+        if (failure.get() != null) {
+            problems.add("thread failed: " + failure.get());
+        }
+        check(manager, live, problems);
+        
+        System.out.printf("%d writers x %,d operations, %d readers (%,d reads) in %,d ms: %,d transactions%n",
+                writers, operations, readers, reads.get(), elapsedMillis, manager.getTransactionCount());
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                System.out.println("FAIL: " + problem);
+            }
+            System.exit(1);
+        }
+        System.out.println("PASS");
+    }
+    
+    /**
+     * Add transactions, some in batches, and remove some of them again
+     * 
+     * @param manager Ledger under test
+     * @param generator Source of transactions
+     * @param operations Number of adds
+     * @param ids IDs this writer leaves in the ledger
+     */
+    private static void write(ConcurrentTransactionManager manager, LedgerGenerator generator, int operations,
+            Set<Integer> ids) {
+        List<Integer> added = new ArrayList<>();
+        for (int i = 1; i <= operations; i++) {
+            Transaction transaction = generator.next();
+            manager.addTransaction(transaction);
+            added.add(transaction.getId());
+            
+            if (i % BATCH_EVERY == 0) {
+                List<Transaction> batch = generator.generate(BATCH_SIZE);
+                if (!manager.addTransactions(batch).isComplete()) {
+                    throw new IllegalStateException("Batch rows rejected");
+                }
+                for (Transaction row : batch) {
+                    added.add(row.getId());
+                }
+            }
+            if (i % REMOVE_EVERY == 0) {
+                int id = added.remove(added.size() / 2);
+                if (!manager.removeTransaction(id)) {
+                    throw new IllegalStateException("Could not remove transaction " + id);
+                }
+            }
+        }
+        ids.addAll(added);
+    }
+    
+    /**
+     * Run one of the read queries
+     * 
+     * @param manager Ledger under test
+     * @param random Picks the query and date range
+     */
+    private static void read(ConcurrentTransactionManager manager, Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                BenchmarkRunner.sink = manager.getBalance();
+                break;
+            case 1:
+                BenchmarkRunner.sink = manager.getExpensesByCategory();
+                break;
+            case 2:
+                int day = DateUtility.toEpochDay(new Date()) - random.nextInt(3650);
+                BenchmarkRunner.sink = manager.getTransactionsByDateRange(DateUtility.fromEpochDay(day),
+                        DateUtility.fromEpochDay(day + 30));
+                break;
+            case 3:
+                BenchmarkRunner.sink = manager.stream().count();
+                break;
+            default:
+                // A consistent copy never holds the same ID twice
+                List<Transaction> all = manager.getAllTransactions();
+                Set<Integer> seen = new HashSet<>();
+                for (Transaction transaction : all) {
+                    if (!seen.add(transaction.getId())) {
+                        throw new IllegalStateException("Duplicate transaction " + transaction.getId());
+                    }
+                }
+                break;
+        }
+    }
+    
+    /**
+     * Check the ledger holds exactly the writers' remaining transactions and its totals are right
+     * 
+     * @param manager Ledger under test
+     * @param live IDs each writer left in the ledger
+     * @param problems Failed checks are added here
+     */
+    private static void check(ConcurrentTransactionManager manager, List<Set<Integer>> live, List<String> problems) {
+        Set<Integer> expected = new HashSet<>();
+        for (Set<Integer> ids : live) {
+            expected.addAll(ids);
+        }
+        
+        List<Transaction> all = manager.getAllTransactions();
+        Set<Integer> actual = new HashSet<>();
+        double balance = 0;
+        for (Transaction transaction : all) {
+            if (!actual.add(transaction.getId())) {
+                problems.add("duplicate transaction " + transaction.getId());
+            }
+            balance += transaction.getSignedAmount();
+        }
+        
+        if (manager.getTransactionCount() != expected.size()) {
+            problems.add("expected " + expected.size() + " transactions, counted " + manager.getTransactionCount());
+        }
+        if (!actual.equals(expected)) {
+            Set<Integer> missing = new HashSet<>(expected);
+            missing.removeAll(actual);
+            actual.removeAll(expected);
+            problems.add(missing.size() + " transactions missing, " + actual.size() + " unexpected");
+        }
+        if (!manager.verifyTotals()) {
+            problems.add("running totals do not match a recount");
+        }
+        if (Math.abs(manager.getBalance() - balance) > 0.005) {
+            problems.add("balance " + manager.getBalance() + " but transactions sum to " + balance);
+        }
+    }
+    
+    /**
+     * Start a thread that waits for the start signal, recording the first failure
+     * 
+     * @param failure Where the first failure is kept
+     * @param start Start signal
+     * @param body Work to run
+     * @return Started thread
+     */
+    private static Thread start(AtomicReference<Throwable> failure, CountDownLatch start, Runnable body) {
+        Thread thread = new Thread(() -> {
+            try {
+                start.await();
+                body.run();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+}
\ No newline at end of file
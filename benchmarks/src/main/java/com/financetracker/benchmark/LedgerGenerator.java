@@ -0,0 +1,106 @@
+package com.financetracker.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Generates synthetic ledgers for benchmarks
+ * Output is repeatable for a given seed
+ */
+public class LedgerGenerator {
+    // Rows added per bulk load when filling a manager
+    private static final int CHUNK_SIZE = 100_000;
+    
+    private Random random;
+    private int firstDay;
+    private int daySpan;
+    
+    /**
+     * Constructor for LedgerGenerator
+     * Dates cover the ten years before today
+     * 
+     * @param seed Random seed
+     */
+    public LedgerGenerator(long seed) {
+        this.random = new Random(seed);
+        this.daySpan = 3650;
+        this.firstDay = DateUtility.toEpochDay(new Date()) - daySpan;
+    }
+    
+    /**
+     * Get the first day transactions can fall on
+     * 
+     * @return Epoch day
+     */
+    public int getFirstDay() {
+        return firstDay;
+    }
+    
+    /**
+     * Get the number of days transactions are spread over
+     * 
+     * @return Number of days
+     */
+    public int getDaySpan() {
+        return daySpan;
+    }
+    
+    /**
+     * Generate one transaction
+     * About one in five rows is income; the rest are expenses
+     * 
+     * @return New transaction
+     */
+    public Transaction next() {
+        int day = firstDay + random.nextInt(daySpan);
+        
+        if (random.nextInt(5) == 0) {
+            String category = CategoryDictionary.INCOME_CATEGORIES.get(random.nextInt(CategoryDictionary.INCOME_CATEGORIES.size()));
+            double amount = (50_000 + random.nextInt(500_000)) / 100.0;
+            return new Income(amount, "Generated income", category, DateUtility.fromEpochDay(day));
+        }
+        
+        String category = CategoryDictionary.EXPENSE_CATEGORIES.get(random.nextInt(CategoryDictionary.EXPENSE_CATEGORIES.size()));
+        double amount = (100 + random.nextInt(50_000)) / 100.0;
+        return new Expense(amount, "Generated expense", category, DateUtility.fromEpochDay(day), random.nextInt(10) == 0);
+    }
+    
+    /**
+     * Generate a list of transactions
+     * 
+     * @param count Number of transactions
+     * @return New transactions
+     */
+    public List<Transaction> generate(int count) {
+        List<Transaction> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(next());
+        }
+        return rows;
+    }
+    
+    /**
+     * Fill a manager with generated transactions in chunks
+     * Never holds more than one chunk of Transaction objects at once
+     * 
+     * @param manager Manager to fill
+     * @param count Number of transactions
+     */
+    public void fill(TransactionManager manager, long count) {
+        long remaining = count;
+        while (remaining > 0) {
+            int chunk = (int) Math.min(CHUNK_SIZE, remaining);
+            manager.addTransactions(generate(chunk));
+            remaining -= chunk;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.financetracker.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.financetracker.model.Income;
+import com.financetracker.model.User;
+import com.financetracker.persistence.UserRegistry;
+
+/**
+ * Restart check for UserRegistry
+ * Registers a user and saves a transaction, then opens a new registry on the same directory:
+ * the user must come back with their ledger, and a user registered afterwards must get a new ID
+ * and an empty ledger rather than the first user's, and a user's managers must not be usable
+ * without a session
+ * 
+ * Usage: UserRegistryCheck
+ * Exits with status 1 if a check fails
+ */
+public class UserRegistryCheck {
+    /**
+     * Run the check
+     * 
+     * @param args Not used
+     * @throws IOException If the registry cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Files.createTempDirectory("registry-check");
+        List<String> problems = new ArrayList<>();
+        try {
+            check(directory, problems);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                System.out.println("FAIL: " + problem);
+            }
+            System.exit(1);
+        }
+        System.out.println("PASS");
+    }
+    
+    /**
+     * Register, save, restart and check
+     * 
+     * @param directory Registry directory
+     * @param problems Failed checks are added here
+     * @throws IOException If the registry cannot be read or written
+     */
+    private static void check(Path directory, List<String> problems) throws IOException {
+        int aliceId;
+        User alice;
+        try (UserRegistry registry = new UserRegistry(directory)) {
+            alice = registry.register("Alice", "alice@example.com");
+            aliceId = alice.getId();
+            checkNotLoaded(alice, "before a session", problems);
+            try (UserRegistry.Session session = registry.open(aliceId)) {
+                session.getTransactionManager().addTransaction(new Income(5000, "Salary", "Salary", new Date()));
+            }
+        }
+        checkNotLoaded(alice, "after the registry closed", problems);
+        
+        try (UserRegistry registry = new UserRegistry(directory)) {
+            if (registry.getUserCount() != 1) {
+                problems.add("expected 1 user after restart, found " + registry.getUserCount());
+            }
+            alice = registry.getUser(aliceId);
+            if (alice == null || !"Alice".equals(alice.getName()) || !"alice@example.com".equals(alice.getEmail())) {
+                problems.add("user " + aliceId + " not restored: " + alice);
+            }
+            
+            User bob = registry.register("Bob", null);
+            if (bob.getId() == aliceId) {
+                problems.add("new user reused ID " + aliceId);
+            }
+            try (UserRegistry.Session session = registry.open(bob.getId())) {
+                if (session.getTransactionManager().getTransactionCount() != 0) {
+                    problems.add("new user opened a ledger with "
+                            + session.getTransactionManager().getTransactionCount() + " transactions");
+                }
+            }
+            if (alice != null) {
+                try (UserRegistry.Session session = registry.open(aliceId)) {
+                    if (session.getTransactionManager().getTransactionCount() != 1
+                            || session.getTransactionManager().getBalance() != 5000) {
+                        problems.add("user " + aliceId + " ledger not restored");
+                    }
+                }
+            }
+        }
+        
+        try (UserRegistry registry = new UserRegistry(directory)) {
+            if (registry.getUserCount() != 2) {
+                problems.add("expected 2 users after second restart, found " + registry.getUserCount());
+            }
+            User bob = registry.getUser(aliceId + 1);
+            if (bob == null || bob.getEmail() != null) {
+                problems.add("null email not restored: " + bob);
+            }
+            if (registry.register("Carol", "carol@example.com").getId() <= aliceId + 1) {
+                problems.add("ID handed out again after second restart");
+            }
+        }
+    }
+    
+    /**
+     * Check that a user's managers cannot be used without a session
+     * 
+     * @param user Registered user
+     * @param when When the check is made, for the failure message
+     * @param problems Failed checks are added here
+     */
+    private static void checkNotLoaded(User user, String when, List<String> problems) {
+        try {
+            user.getTransactionManager();
+            problems.add("user " + user.getId() + " has a transaction manager " + when);
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        try {
+            user.getBudgetManager();
+            problems.add("user " + user.getId() + " has a budget manager " + when);
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+}
\ No newline at end of file
@@ -1,6 +1,13 @@
 package com.financetracker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
 import java.util.InputMismatchException;
 
@@ -10,6 +17,13 @@ import com.financetracker.model.Expense;
 import com.financetracker.model.Transaction;
 import com.financetracker.manager.TransactionManager;
 import com.financetracker.manager.BudgetManager;
+import com.financetracker.export.LedgerExporter;
+import com.financetracker.importer.ImportResult;
+import com.financetracker.importer.StatementImporter;
+import com.financetracker.persistence.LedgerPersistence;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+import com.financetracker.util.ReportCache;
 import com.financetracker.util.ReportGenerator;
 import com.financetracker.exception.InvalidAmountException;
 
@@ -30,6 +44,12 @@ public class Main {
     // User account
     private static User currentUser;
     
+    // Snapshots and journals that save the user's ledger between runs
+    private static LedgerPersistence persistence;
+    
+    // Computed reports, reused until the user's transactions or budgets change
+    private static ReportCache reportCache = new ReportCache();
+    
     /**
      * Main method - entry point of the application
      * @param args command line arguments (not used)
@@ -45,6 +65,7 @@ public class Main {
             System.out.println("An unexpected error occurred: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            closePersistence();
             scanner.close();
             System.out.println("Thank you for using " + APP_NAME);
         }
@@ -63,6 +84,65 @@ public class Main {
         // Create new user with unique ID
         currentUser = new User(name, email);
         System.out.println("\nWelcome, " + currentUser.getName() + "!");
+        
+        openPersistence(email);
+    }
+    
+    /**
+     * Open the user's ledger directory, restoring transactions and budgets saved in earlier runs
+     * 
+     * @param email User's email, used to name the ledger directory
+     */
+    private static void openPersistence(String email) {
+        Path path = Paths.get("ledger-" + email.replaceAll("[^A-Za-z0-9._-]", "_"));
+        
+        try {
+            persistence = LedgerPersistence.open(path, currentUser.getTransactionManager(),
+                    currentUser.getBudgetManager());
+            if (persistence.getRestoredGeneration() >= 0 || persistence.getReplayedRecordCount() > 0) {
+                System.out.println("Restored " + currentUser.getTransactionManager().getTransactionCount()
+                        + " transactions from " + path);
+            }
+            if (persistence.getDamagedSnapshotCount() > 0) {
+                System.out.println("Skipped " + persistence.getDamagedSnapshotCount()
+                        + " damaged snapshot(s) in " + path);
+            }
+            if (persistence.getJournal().getReplayResult().isTruncated()) {
+                System.out.println("Discarded an incomplete change from the end of the journal in " + path);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not open " + path + ", changes will not be saved: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Snapshot the user's ledger once enough changes have been journaled
+     */
+    private static void checkpointIfDue() {
+        if (persistence == null) {
+            return;
+        }
+        
+        try {
+            persistence.checkpointIfDue();
+        } catch (UncheckedIOException e) {
+            System.out.println("Could not start a new journal: " + e.getCause().getMessage());
+        }
+    }
+    
+    /**
+     * Finish any snapshot, then flush and close the user's journal
+     */
+    private static void closePersistence() {
+        if (persistence == null) {
+            return;
+        }
+        
+        try {
+            persistence.close();
+        } catch (IOException e) {
+            System.out.println("Error saving changes: " + e.getMessage());
+        }
     }
     
     /**
@@ -109,6 +189,7 @@ public class Main {
                     default:
                         System.out.println("Invalid option. Please try again.");
                 }
+                checkpointIfDue();
             } catch (InputMismatchException e) {
                 System.out.println("Please enter a valid number.");
                 scanner.nextLine(); // consume invalid input
@@ -123,6 +204,7 @@ public class Main {
         System.out.println("\n----- Add Transaction -----");
         System.out.println("1. Add Income");
         System.out.println("2. Add Expense");
+        System.out.println("3. Import Bank Statement");
         System.out.println("0. Back to Main Menu");
         System.out.print("Choose an option: ");
         
@@ -137,6 +219,9 @@ public class Main {
                 case 2:
                     addExpense();
                     break;
+                case 3:
+                    importStatement();
+                    break;
                 case 0:
                     return;
                 default:
@@ -254,11 +339,36 @@ public class Main {
         }
     }
     
+    /**
+     * Import transactions from a CSV or OFX bank statement
+     */
+    private static void importStatement() {
+        System.out.println("\n----- Import Bank Statement -----");
+        System.out.print("Statement file (.csv, .ofx or .qfx): ");
+        Path path = Paths.get(scanner.nextLine().trim());
+        
+        try {
+            ImportResult result = new StatementImporter(currentUser.getTransactionManager()).importFile(path);
+            System.out.println("Imported " + result.getImportedCount() + " transactions from " + path);
+            if (!result.isComplete()) {
+                System.out.println("Skipped " + result.getErrorCount() + " rows:");
+                List<ImportResult.ImportError> errors = result.getErrors();
+                for (int k = 0; k < Math.min(errors.size(), 10); k++) {
+                    System.out.println("  " + errors.get(k));
+                }
+                if (result.getErrorCount() > 10) {
+                    System.out.println("  ...");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not import " + path + ": " + e.getMessage());
+        }
+    }
+    
     /**
      * View all transactions
      */
     private static void viewTransactions() {
-        System.out.println("\n----- Transaction History -----");
         currentUser.getTransactionManager().displayAllTransactions();
     }
     
@@ -277,7 +387,8 @@ public class Main {
             int choice = scanner.nextInt();
             scanner.nextLine(); // consume newline
             
-            ReportGenerator reportGenerator = new ReportGenerator(currentUser.getTransactionManager());
+            ReportGenerator reportGenerator = new ReportGenerator(currentUser.getTransactionManager(),
+                    currentUser.getBudgetManager(), reportCache, currentUser.getId());
             
             switch (choice) {
                 case 1:
@@ -371,7 +482,7 @@ public class Main {
      * Set budgets for specific categories
      */
     private static void setCategoryBudgets(BudgetManager budgetManager, double totalAmount) {
-        String[] categories = {"Food", "Transportation", "Housing", "Entertainment", "Healthcare", "Other"};
+        List<String> categories = CategoryDictionary.EXPENSE_CATEGORIES;
         double remainingAmount = totalAmount;
         
         for (String category : categories) {
@@ -407,7 +518,6 @@ public class Main {
      * View current budget information
      */
     private static void viewBudget(BudgetManager budgetManager) {
-        System.out.println("\n----- Current Budget -----");
         budgetManager.displayBudgetSummary();
     }
     
@@ -466,12 +576,74 @@ public class Main {
     }
     
     /**
-     * Export user data to file
+     * Export user data to a CSV or JSON file
      */
     private static void exportData() {
         System.out.println("\n----- Export Data -----");
-        System.out.println("This would export your financial data to a file.");
-        System.out.println("Feature not implemented in this version.");
+        System.out.println("1. CSV");
+        System.out.println("2. JSON");
+        System.out.print("Choose a format: ");
+        
+        LedgerExporter.Format format;
+        try {
+            int choice = scanner.nextInt();
+            scanner.nextLine(); // consume newline
+            if (choice != 1 && choice != 2) {
+                System.out.println("Invalid option.");
+                return;
+            }
+            format = choice == 1 ? LedgerExporter.Format.CSV : LedgerExporter.Format.JSON;
+        } catch (InputMismatchException e) {
+            System.out.println("Please enter a valid number.");
+            scanner.nextLine(); // consume invalid input
+            return;
+        }
+        
+        Date startDate;
+        Date endDate;
+        try {
+            startDate = readOptionalDate("Start date (yyyy-mm-dd, blank for none): ");
+            endDate = readOptionalDate("End date (yyyy-mm-dd, blank for none): ");
+        } catch (DateTimeParseException e) {
+            System.out.println("Please enter dates as yyyy-mm-dd.");
+            return;
+        }
+        
+        System.out.print("Category (blank for all): ");
+        String category = scanner.nextLine().trim();
+        
+        String extension = format == LedgerExporter.Format.CSV ? ".csv" : ".json";
+        System.out.print("File name (blank for finance-export" + extension + "): ");
+        String fileName = scanner.nextLine().trim();
+        Path path = Paths.get(fileName.isEmpty() ? "finance-export" + extension : fileName);
+        
+        LedgerExporter exporter = new LedgerExporter(currentUser.getTransactionManager(),
+                currentUser.getBudgetManager())
+                .format(format)
+                .dateRange(startDate, endDate)
+                .category(category.isEmpty() ? null : category);
+        try {
+            int rows = exporter.export(path);
+            System.out.println("Exported " + rows + " transactions to " + path);
+        } catch (IOException e) {
+            System.out.println("Could not export to " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Read a date, or nothing if the user leaves it blank
+     * 
+     * @param prompt Prompt to show
+     * @return Date at local midnight, or null if blank
+     * @throws DateTimeParseException If the input is not yyyy-mm-dd
+     */
+    private static Date readOptionalDate(String prompt) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        if (input.isEmpty()) {
+            return null;
+        }
+        return DateUtility.fromEpochDay((int) LocalDate.parse(input).toEpochDay());
     }
     
     /**
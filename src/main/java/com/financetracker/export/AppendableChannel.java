@@ -0,0 +1,78 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Channel that decodes UTF-8 bytes onto an Appendable
+ * Lets a ChannelWriter feed a StringBuilder, Writer or PrintStream through one reusable char buffer
+ * Writes must end on a character boundary, which ChannelWriter guarantees
+ */
+class AppendableChannel implements WritableByteChannel {
+    private final Appendable out;
+    private final CharsetDecoder decoder;
+    private final CharBuffer chars;
+    private boolean open;
+    
+    /**
+     * Constructor for AppendableChannel
+     * 
+     * @param out Destination for the decoded text
+     * @param bufferSize Size of the char buffer
+     */
+    AppendableChannel(Appendable out, int bufferSize) {
+        this.out = out;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(Math.max(bufferSize, 64));
+        this.open = true;
+    }
+    
+    /**
+     * Decode bytes and append them
+     * 
+     * @param source Bytes to write
+     * @return Number of bytes written
+     * @throws IOException If appending fails
+     */
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        int written = source.remaining();
+        decoder.reset();
+        CoderResult result;
+        do {
+            result = decoder.decode(source, chars, true);
+            if (result.isOverflow() || !source.hasRemaining()) {
+                chars.flip();
+                out.append(chars);
+                chars.clear();
+            }
+        } while (result.isOverflow());
+        return written - source.remaining();
+    }
+    
+    /**
+     * Check if the channel is open
+     * 
+     * @return true until closed
+     */
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+    
+    /**
+     * Close the channel, leaving the Appendable open
+     */
+    @Override
+    public void close() {
+        open = false;
+    }
+}
\ No newline at end of file
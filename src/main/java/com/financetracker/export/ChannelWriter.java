@@ -0,0 +1,333 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes text to a channel through one reusable byte array
+ * Numbers, amounts, dates and escaped strings are encoded straight into the buffer,
+ * so writing a row creates no objects
+ */
+class ChannelWriter {
+    // Longest encoding of one char: the six-byte JSON escape for a control character
+    private static final int MAX_CHAR_BYTES = 6;
+    
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    
+    private WritableByteChannel channel;
+    
+    // Bytes not yet written, with a ByteBuffer over them for channel writes
+    private final byte[] buffer;
+    private final ByteBuffer view;
+    private int position;
+    
+    // Digits of a number, filled from the end
+    private final byte[] digits;
+    
+    /**
+     * Constructor for ChannelWriter
+     * 
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     */
+    ChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = new byte[Math.max(bufferSize, 64)];
+        this.view = ByteBuffer.wrap(buffer);
+        this.digits = new byte[20];
+    }
+    
+    /**
+     * Write one ASCII character
+     * 
+     * @param c Character to write
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter ascii(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+        return this;
+    }
+    
+    /**
+     * Write an ASCII string without escaping
+     * 
+     * @param text Text to write, containing only ASCII characters
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter ascii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+    
+    /**
+     * Write a whole number
+     * 
+     * @param value Number to write
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter number(long value) throws IOException {
+        ensure(digits.length);
+        if (value < 0) {
+            buffer[position++] = (byte) '-';
+        }
+        // Work with the negative value, which also covers Long.MIN_VALUE
+        putDigits(value > 0 ? -value : value, 1);
+        return this;
+    }
+    
+    /**
+     * Write an amount in cents as a decimal with two places
+     * 
+     * @param cents Amount in cents
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter cents(long cents) throws IOException {
+        return decimal(cents, 2);
+    }
+    
+    /**
+     * Write a scaled whole number as a decimal
+     * 
+     * @param value Number scaled by 10 to the power of places
+     * @param places Number of decimal places, 1 to 18
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter decimal(long value, int places) throws IOException {
+        long scale = 1;
+        for (int i = 0; i < places; i++) {
+            scale *= 10;
+        }
+        
+        ensure(digits.length + 2);
+        if (value < 0) {
+            buffer[position++] = (byte) '-';
+        }
+        long negative = value > 0 ? -value : value;
+        putDigits(negative / scale, 1);
+        buffer[position++] = (byte) '.';
+        putDigits(negative % scale, places);
+        return this;
+    }
+    
+    /**
+     * Write an epoch day as an ISO date, yyyy-MM-dd
+     * 
+     * @param epochDay Days since 1970-01-01
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter date(int epochDay) throws IOException {
+        // Civil calendar from days, counting eras of 400 years from 0000-03-01
+        long days = epochDay + 719468L;
+        long era = (days >= 0 ? days : days - 146096) / 146097;
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        
+        ensure(digits.length + 6);
+        if (year < 0) {
+            buffer[position++] = (byte) '-';
+        }
+        putDigits(year > 0 ? -year : year, 4);
+        buffer[position++] = (byte) '-';
+        putDigits(-month, 2);
+        buffer[position++] = (byte) '-';
+        putDigits(-day, 2);
+        return this;
+    }
+    
+    /**
+     * Write text as UTF-8 without escaping
+     * 
+     * @param text Text to write
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter text(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensure(MAX_CHAR_BYTES);
+            i = putChar(text, i);
+        }
+        return this;
+    }
+    
+    /**
+     * Write a CSV field, quoting it if it contains a comma, quote or line break
+     * 
+     * @param text Field value, or null for an empty field
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter csv(String text) throws IOException {
+        if (text == null) {
+            return this;
+        }
+        
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        
+        if (quote) {
+            ascii('"');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+            if (c == '"') {
+                buffer[position++] = (byte) '"';
+            }
+            i = putChar(text, i);
+        }
+        if (quote) {
+            ascii('"');
+        }
+        return this;
+    }
+    
+    /**
+     * Write a JSON string in quotes
+     * 
+     * @param text String value, or null for JSON null
+     * @return This writer
+     * @throws IOException If the channel write fails
+     */
+    ChannelWriter json(String text) throws IOException {
+        if (text == null) {
+            return ascii("null");
+        }
+        
+        ascii('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = (byte) '\\';
+                buffer[position++] = (byte) c;
+            } else if (c == '\n') {
+                buffer[position++] = (byte) '\\';
+                buffer[position++] = (byte) 'n';
+            } else if (c == '\r') {
+                buffer[position++] = (byte) '\\';
+                buffer[position++] = (byte) 'r';
+            } else if (c == '\t') {
+                buffer[position++] = (byte) '\\';
+                buffer[position++] = (byte) 't';
+            } else if (c < 0x20) {
+                buffer[position++] = (byte) '\\';
+                buffer[position++] = (byte) 'u';
+                buffer[position++] = (byte) '0';
+                buffer[position++] = (byte) '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xF];
+            } else {
+                i = putChar(text, i);
+            }
+        }
+        return ascii('"');
+    }
+    
+    /**
+     * Write everything still in the buffer to the channel
+     * 
+     * @throws IOException If the channel write fails
+     */
+    void flush() throws IOException {
+        view.clear().limit(position);
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        position = 0;
+    }
+    
+    /**
+     * Write everything still in the buffer, then send later writes to another channel
+     * 
+     * @param channel Channel to write to from now on
+     * @throws IOException If the write to the old channel fails
+     */
+    void setChannel(WritableByteChannel channel) throws IOException {
+        flush();
+        this.channel = channel;
+    }
+    
+    /**
+     * Make room in the buffer, writing it out if needed
+     * 
+     * @param bytes Number of bytes about to be put
+     * @throws IOException If the channel write fails
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            flush();
+        }
+    }
+    
+    /**
+     * Put the digits of a non-positive number, padded with zeros to a minimum width
+     * 
+     * @param negative Number to put, negated
+     * @param width Minimum number of digits
+     */
+    private void putDigits(long negative, int width) {
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        } while (negative != 0);
+        while (digits.length - start < width) {
+            digits[--start] = '0';
+        }
+        System.arraycopy(digits, start, buffer, position, digits.length - start);
+        position += digits.length - start;
+    }
+    
+    /**
+     * Put one character as UTF-8, joining a surrogate pair into one code point
+     * 
+     * @param text Text being written
+     * @param index Index of the character
+     * @return Index of the last character consumed
+     */
+    private int putChar(String text, int index) {
+        char c = text.charAt(index);
+        if (c < 0x80) {
+            buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[position++] = (byte) (0xC0 | c >> 6);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && index + 1 < text.length()
+                && Character.isLowSurrogate(text.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+            buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            buffer[position++] = (byte) '?';  // Unpaired surrogate
+        } else {
+            buffer[position++] = (byte) (0xE0 | c >> 12);
+            buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+            buffer[position++] = (byte) (0x80 | c & 0x3F);
+        }
+        return index;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.financetracker.interfaces.TransactionStore;
+
+/**
+ * Renders reports as CSV, one row per entry
+ * Every row names its report and section, so many reports can share one file;
+ * the header is written before the first report sent to each target
+ */
+class CsvReportRenderer extends ReportRenderer {
+    private static final String HEADER = "report,section,label,type,date,category,amount,percent,count,value\n";
+    
+    private String title;
+    private String section;
+    private boolean headerWritten;
+    
+    /**
+     * Constructor for CsvReportRenderer
+     * 
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     */
+    CsvReportRenderer(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+    
+    @Override
+    public void beginReport(String title) throws IOException {
+        if (!headerWritten) {
+            out.ascii(HEADER);
+            headerWritten = true;
+        }
+        this.title = title;
+        this.section = null;
+    }
+    
+    @Override
+    public void section(String name) {
+        section = name;
+    }
+    
+    @Override
+    public void text(String label, String value) throws IOException {
+        row(label).ascii(",,,,,,").csv(value).ascii('\n');
+    }
+    
+    @Override
+    public void amount(String label, long cents) throws IOException {
+        row(label).ascii(",,,").cents(cents).ascii(",,,\n");
+    }
+    
+    @Override
+    public void count(String label, long count) throws IOException {
+        row(label).ascii(",,,,,").number(count).ascii(",\n");
+    }
+    
+    @Override
+    public void date(String label, int epochDay) throws IOException {
+        row(label).ascii(',').date(epochDay).ascii(",,,,,\n");
+    }
+    
+    @Override
+    public void share(String label, long cents, long totalCents, int count) throws IOException {
+        row(label).ascii(",,,").cents(cents).ascii(',');
+        out.decimal(tenthsOfPercent(cents, totalCents), 1).ascii(',').number(count).ascii(",\n");
+    }
+    
+    @Override
+    public void note(String text) throws IOException {
+        row(null).ascii(",,,,,,,").csv(text).ascii('\n');
+    }
+    
+    @Override
+    public void transaction(TransactionStore store, int slot) throws IOException {
+        row(null);
+        out.number(store.getId(slot)).ascii(',');
+        out.ascii(store.isExpense(slot) ? "Expense," : "Income,");
+        out.date(store.getEpochDay(slot)).ascii(',');
+        out.csv(store.getCategoryDictionary().nameOf(store.getCategoryId(slot))).ascii(',');
+        out.cents(store.getAmountCents(slot)).ascii(",,,");
+        out.csv(store.getDescription(slot)).ascii('\n');
+    }
+    
+    @Override
+    public void endReport() {
+        title = null;
+        section = null;
+    }
+    
+    @Override
+    void retarget() {
+        headerWritten = false;
+    }
+    
+    /**
+     * Start a row with the report, section and label columns
+     * 
+     * @param label Entry label, or null to leave the column for the caller
+     * @return Writer, ready for the type column, or for the label column if label is null
+     * @throws IOException If the write fails
+     */
+    private ChannelWriter row(String label) throws IOException {
+        out.csv(title).ascii(',').csv(section).ascii(',');
+        if (label != null) {
+            out.csv(label).ascii(',');
+        }
+        return out;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.financetracker.interfaces.TransactionStore;
+
+/**
+ * Renders each report as one line of JSON
+ * A report is {"title":...,"sections":[{"name":...,"entries":[...]}]}, with entries before
+ * the first section in a section named null; transactions use the same fields as LedgerExporter
+ */
+class JsonReportRenderer extends ReportRenderer {
+    private boolean sectionOpen;
+    private boolean firstSection;
+    private boolean firstEntry;
+    
+    /**
+     * Constructor for JsonReportRenderer
+     * 
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     */
+    JsonReportRenderer(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+    
+    @Override
+    public void beginReport(String title) throws IOException {
+        out.ascii("{\"title\":").json(title).ascii(",\"sections\":[");
+        sectionOpen = false;
+        firstSection = true;
+    }
+    
+    @Override
+    public void section(String name) throws IOException {
+        closeSection();
+        openSection(name);
+    }
+    
+    @Override
+    public void text(String label, String value) throws IOException {
+        entry(label).ascii(",\"value\":").json(value).ascii('}');
+    }
+    
+    @Override
+    public void amount(String label, long cents) throws IOException {
+        entry(label).ascii(",\"amount\":").cents(cents).ascii('}');
+    }
+    
+    @Override
+    public void count(String label, long count) throws IOException {
+        entry(label).ascii(",\"count\":").number(count).ascii('}');
+    }
+    
+    @Override
+    public void date(String label, int epochDay) throws IOException {
+        entry(label).ascii(",\"date\":\"").date(epochDay).ascii("\"}");
+    }
+    
+    @Override
+    public void share(String label, long cents, long totalCents, int count) throws IOException {
+        entry(label).ascii(",\"amount\":").cents(cents);
+        out.ascii(",\"percent\":").decimal(tenthsOfPercent(cents, totalCents), 1);
+        out.ascii(",\"count\":").number(count).ascii('}');
+    }
+    
+    @Override
+    public void note(String text) throws IOException {
+        startEntry();
+        out.ascii("{\"note\":").json(text).ascii('}');
+    }
+    
+    @Override
+    public void transaction(TransactionStore store, int slot) throws IOException {
+        startEntry();
+        out.ascii("{\"id\":").number(store.getId(slot));
+        out.ascii(",\"date\":\"").date(store.getEpochDay(slot));
+        out.ascii(store.isExpense(slot) ? "\",\"type\":\"Expense\"" : "\",\"type\":\"Income\"");
+        out.ascii(",\"category\":").json(store.getCategoryDictionary().nameOf(store.getCategoryId(slot)));
+        out.ascii(",\"amount\":").cents(store.getAmountCents(slot));
+        out.ascii(store.isRecurring(slot) ? ",\"recurring\":true" : ",\"recurring\":false");
+        out.ascii(",\"description\":").json(store.getDescription(slot)).ascii('}');
+    }
+    
+    @Override
+    public void endReport() throws IOException {
+        closeSection();
+        out.ascii("]}\n");
+    }
+    
+    /**
+     * Start a labelled entry object
+     * 
+     * @param label Entry label
+     * @return Writer, ready for the entry's other fields
+     * @throws IOException If the write fails
+     */
+    private ChannelWriter entry(String label) throws IOException {
+        startEntry();
+        return out.ascii("{\"label\":").json(label);
+    }
+    
+    /**
+     * Separate an entry from the one before, opening the unnamed section if needed
+     * 
+     * @throws IOException If the write fails
+     */
+    private void startEntry() throws IOException {
+        if (!sectionOpen) {
+            openSection(null);
+        }
+        if (!firstEntry) {
+            out.ascii(',');
+        }
+        firstEntry = false;
+    }
+    
+    /**
+     * Open a section object
+     * 
+     * @param name Section name, or null
+     * @throws IOException If the write fails
+     */
+    private void openSection(String name) throws IOException {
+        if (!firstSection) {
+            out.ascii(',');
+        }
+        out.ascii("{\"name\":").json(name).ascii(",\"entries\":[");
+        firstSection = false;
+        firstEntry = true;
+        sectionOpen = true;
+    }
+    
+    /**
+     * Close the open section, if any
+     * 
+     * @throws IOException If the write fails
+     */
+    private void closeSection() throws IOException {
+        if (sectionOpen) {
+            out.ascii("]}");
+            sectionOpen = false;
+        }
+    }
+}
\ No newline at end of file
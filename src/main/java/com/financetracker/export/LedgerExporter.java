@@ -0,0 +1,399 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Streams a user's transactions, category totals and budgets to CSV or JSON
+ * Rows are read from storage one slot at a time and encoded into a reused buffer,
+ * so memory use stays the same however many transactions are exported
+ * 
+ * CSV output has three tables separated by blank lines: transactions, categories and totals.
+ * Category and overall totals cover the exported transactions only.
+ */
+public class LedgerExporter {
+    /**
+     * Output formats
+     */
+    public enum Format {
+        /** Comma-separated values */
+        CSV,
+        /** One JSON object */
+        JSON
+    }
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final TransactionManager transactionManager;
+    private final BudgetManager budgetManager;
+    private Format format;
+    private Date startDate;
+    private Date endDate;
+    private String category;
+    
+    /**
+     * Constructor for LedgerExporter
+     * Exports everything as CSV until told otherwise
+     * 
+     * @param transactionManager Transactions to export
+     * @param budgetManager Budgets to export, may be null
+     */
+    public LedgerExporter(TransactionManager transactionManager, BudgetManager budgetManager) {
+        this.transactionManager = transactionManager;
+        this.budgetManager = budgetManager;
+        this.format = Format.CSV;
+    }
+    
+    /**
+     * Set the output format
+     * 
+     * @param format Format to write
+     * @return This exporter
+     */
+    public LedgerExporter format(Format format) {
+        this.format = format;
+        return this;
+    }
+    
+    /**
+     * Export only transactions between two days, inclusive
+     * Bounded exports use the date index and list transactions in date order
+     * 
+     * @param startDate First day, or null for no lower bound
+     * @param endDate Last day, or null for no upper bound
+     * @return This exporter
+     */
+    public LedgerExporter dateRange(Date startDate, Date endDate) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        return this;
+    }
+    
+    /**
+     * Export only one category
+     * 
+     * @param category Category to export, or null for every category
+     * @return This exporter
+     */
+    public LedgerExporter category(String category) {
+        this.category = category;
+        return this;
+    }
+    
+    /**
+     * Export to a file, replacing it if it exists
+     * 
+     * @param path File to write
+     * @return Number of transactions exported
+     * @throws IOException If the file cannot be written
+     */
+    public int export(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(channel);
+        }
+    }
+    
+    /**
+     * Export to a channel
+     * The channel is left open
+     * 
+     * @param channel Channel to write
+     * @return Number of transactions exported
+     * @throws IOException If the channel cannot be written
+     */
+    public int export(WritableByteChannel channel) throws IOException {
+        ChannelWriter out = new ChannelWriter(channel, BUFFER_SIZE);
+        CategoryTotals totals = new CategoryTotals();
+        boolean json = format == Format.JSON;
+        
+        if (json) {
+            out.ascii("{\"transactions\":[");
+        } else {
+            out.ascii("id,date,type,category,amount,recurring,description\n");
+        }
+        
+        int rows;
+        try {
+            rows = transactionManager.scanSlots(startDate, endDate, category, (store, slot) -> {
+                try {
+                    int categoryId = store.getCategoryId(slot);
+                    boolean first = totals.isEmpty();
+                    totals.add(categoryId, store.isExpense(slot), store.getAmountCents(slot));
+                    if (json) {
+                        writeJsonRow(out, store, slot, categoryId, first);
+                    } else {
+                        writeCsvRow(out, store, slot, categoryId);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        if (json) {
+            out.ascii("\n],\"categories\":[");
+            writeCategories(out, totals, true);
+            out.ascii("\n],\"totals\":");
+            writeTotals(out, totals, true);
+            out.ascii("}\n");
+        } else {
+            out.ascii("\ncategory,income,expenses,budget\n");
+            writeCategories(out, totals, false);
+            out.ascii("\nincome,expenses,balance,budget\n");
+            writeTotals(out, totals, false);
+        }
+        out.flush();
+        return rows;
+    }
+    
+    /**
+     * Write one transaction as a CSV line
+     * 
+     * @param out Writer
+     * @param store Store holding the transaction
+     * @param slot Slot of the transaction
+     * @param categoryId Category ID of the transaction
+     * @throws IOException If the write fails
+     */
+    private void writeCsvRow(ChannelWriter out, TransactionStore store, int slot, int categoryId)
+            throws IOException {
+        out.number(store.getId(slot)).ascii(',');
+        out.date(store.getEpochDay(slot)).ascii(',');
+        out.ascii(store.isExpense(slot) ? "Expense," : "Income,");
+        out.csv(store.getCategoryDictionary().nameOf(categoryId)).ascii(',');
+        out.cents(store.getAmountCents(slot)).ascii(',');
+        out.ascii(store.isRecurring(slot) ? "true," : "false,");
+        out.csv(store.getDescription(slot)).ascii('\n');
+    }
+    
+    /**
+     * Write one transaction as a JSON object
+     * 
+     * @param out Writer
+     * @param store Store holding the transaction
+     * @param slot Slot of the transaction
+     * @param categoryId Category ID of the transaction
+     * @param first true if this is the first object in the array
+     * @throws IOException If the write fails
+     */
+    private void writeJsonRow(ChannelWriter out, TransactionStore store, int slot, int categoryId, boolean first)
+            throws IOException {
+        out.ascii(first ? "\n{\"id\":" : ",\n{\"id\":").number(store.getId(slot));
+        out.ascii(",\"date\":\"").date(store.getEpochDay(slot));
+        out.ascii(store.isExpense(slot) ? "\",\"type\":\"Expense\"" : "\",\"type\":\"Income\"");
+        out.ascii(",\"category\":").json(store.getCategoryDictionary().nameOf(categoryId));
+        out.ascii(",\"amount\":").cents(store.getAmountCents(slot));
+        out.ascii(store.isRecurring(slot) ? ",\"recurring\":true" : ",\"recurring\":false");
+        out.ascii(",\"description\":").json(store.getDescription(slot)).ascii('}');
+    }
+    
+    /**
+     * Write the income, expenses and budget of each exported or budgeted category
+     * 
+     * @param out Writer
+     * @param totals Totals of the exported transactions
+     * @param json true for JSON, false for CSV
+     * @throws IOException If the write fails
+     */
+    private void writeCategories(ChannelWriter out, CategoryTotals totals, boolean json) throws IOException {
+        CategoryDictionary categories = transactionManager.getCategoryDictionary();
+        Map<String, Double> budgets = budgetManager != null
+                ? budgetManager.getAllCategoryBudgets() : Collections.emptyMap();
+        boolean first = true;
+        
+        for (int id = 0; id < categories.size(); id++) {
+            String name = categories.nameOf(id);
+            if (totals.getCount(id) > 0 || (budgets.containsKey(name) && includes(name))) {
+                writeCategory(out, name, totals.getIncome(id), totals.getExpenses(id), budgets.get(name), json, first);
+                first = false;
+            }
+        }
+        
+        // Budgets for categories with no transactions at all
+        for (Map.Entry<String, Double> entry : budgets.entrySet()) {
+            if (categories.find(entry.getKey()) == CategoryDictionary.UNKNOWN && includes(entry.getKey())) {
+                writeCategory(out, entry.getKey(), 0, 0, entry.getValue(), json, first);
+                first = false;
+            }
+        }
+    }
+    
+    /**
+     * Write one category line or object
+     * 
+     * @param out Writer
+     * @param name Category name
+     * @param incomeCents Exported income in cents
+     * @param expenseCents Exported expenses in cents
+     * @param budget Budget, or null if the category has none
+     * @param json true for JSON, false for CSV
+     * @param first true if this is the first category written
+     * @throws IOException If the write fails
+     */
+    private void writeCategory(ChannelWriter out, String name, long incomeCents, long expenseCents, Double budget,
+            boolean json, boolean first) throws IOException {
+        if (json) {
+            out.ascii(first ? "\n{\"category\":" : ",\n{\"category\":").json(name);
+            out.ascii(",\"income\":").cents(incomeCents);
+            out.ascii(",\"expenses\":").cents(expenseCents);
+            out.ascii(",\"budget\":");
+            if (budget == null) {
+                out.ascii("null");
+            } else {
+                out.cents(Math.round(budget * 100));
+            }
+            out.ascii('}');
+        } else {
+            out.csv(name).ascii(',').cents(incomeCents).ascii(',').cents(expenseCents).ascii(',');
+            if (budget != null) {
+                out.cents(Math.round(budget * 100));
+            }
+            out.ascii('\n');
+        }
+    }
+    
+    /**
+     * Write the overall totals of the exported transactions and the total budget
+     * 
+     * @param out Writer
+     * @param totals Totals of the exported transactions
+     * @param json true for JSON, false for CSV
+     * @throws IOException If the write fails
+     */
+    private void writeTotals(ChannelWriter out, CategoryTotals totals, boolean json) throws IOException {
+        long income = totals.getTotalIncome();
+        long expenses = totals.getTotalExpenses();
+        long budget = budgetManager != null ? Math.round(budgetManager.getTotalBudget() * 100) : 0;
+        
+        if (json) {
+            out.ascii("{\"income\":").cents(income);
+            out.ascii(",\"expenses\":").cents(expenses);
+            out.ascii(",\"balance\":").cents(income - expenses);
+            out.ascii(",\"budget\":").cents(budget).ascii('}');
+        } else {
+            out.cents(income).ascii(',').cents(expenses).ascii(',').cents(income - expenses).ascii(',');
+            out.cents(budget).ascii('\n');
+        }
+    }
+    
+    /**
+     * Check if a category passes the category filter
+     * 
+     * @param name Category name
+     * @return true if the category is exported
+     */
+    private boolean includes(String name) {
+        return category == null || category.equals(name);
+    }
+    
+    /**
+     * Income and expense totals per category ID, grown as new IDs appear
+     */
+    private static class CategoryTotals {
+        private long[] income = new long[16];
+        private long[] expenses = new long[16];
+        private int[] counts = new int[16];
+        private long totalIncome;
+        private long totalExpenses;
+        private int rows;
+        
+        /**
+         * Count one exported transaction
+         * 
+         * @param categoryId Category ID
+         * @param expense true for an expense, false for income
+         * @param cents Amount in cents
+         */
+        void add(int categoryId, boolean expense, long cents) {
+            if (categoryId >= counts.length) {
+                int length = Math.max(categoryId + 1, counts.length * 2);
+                income = Arrays.copyOf(income, length);
+                expenses = Arrays.copyOf(expenses, length);
+                counts = Arrays.copyOf(counts, length);
+            }
+            
+            if (expense) {
+                expenses[categoryId] += cents;
+                totalExpenses += cents;
+            } else {
+                income[categoryId] += cents;
+                totalIncome += cents;
+            }
+            counts[categoryId]++;
+            rows++;
+        }
+        
+        /**
+         * Check if nothing has been counted yet
+         * 
+         * @return true before the first transaction
+         */
+        boolean isEmpty() {
+            return rows == 0;
+        }
+        
+        /**
+         * Get the number of transactions counted in a category
+         * 
+         * @param categoryId Category ID
+         * @return Transaction count
+         */
+        int getCount(int categoryId) {
+            return categoryId < counts.length ? counts[categoryId] : 0;
+        }
+        
+        /**
+         * Get the income counted in a category
+         * 
+         * @param categoryId Category ID
+         * @return Income in cents
+         */
+        long getIncome(int categoryId) {
+            return categoryId < income.length ? income[categoryId] : 0;
+        }
+        
+        /**
+         * Get the expenses counted in a category
+         * 
+         * @param categoryId Category ID
+         * @return Expenses in cents
+         */
+        long getExpenses(int categoryId) {
+            return categoryId < expenses.length ? expenses[categoryId] : 0;
+        }
+        
+        /**
+         * Get the income counted in every category
+         * 
+         * @return Income in cents
+         */
+        long getTotalIncome() {
+            return totalIncome;
+        }
+        
+        /**
+         * Get the expenses counted in every category
+         * 
+         * @return Expenses in cents
+         */
+        long getTotalExpenses() {
+            return totalExpenses;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.storage.ListTransactionStore;
+
+/**
+ * Report kept as the sequence of calls that wrote it, so it can be replayed into any renderer
+ * Recording a report once lets it be served again in any format without reading the ledger;
+ * transactions are copied, so the recording does not change with the ledger
+ */
+public class ReportRecording extends ReportRenderer {
+    private static final byte BEGIN = 0;
+    private static final byte SECTION = 1;
+    private static final byte TEXT = 2;
+    private static final byte AMOUNT = 3;
+    private static final byte COUNT = 4;
+    private static final byte DATE = 5;
+    private static final byte SHARE = 6;
+    private static final byte NOTE = 7;
+    private static final byte TRANSACTION = 8;
+    private static final byte END = 9;
+    
+    // One entry per call: its kind, then whichever arguments it takes
+    private byte[] kinds;
+    private String[] labels;
+    private String[] texts;
+    private long[] values;
+    private long[] totals;
+    private int[] counts;
+    private int size;
+    
+    // Copies of recorded transactions, referred to by slot from counts
+    private ListTransactionStore transactions;
+    
+    /**
+     * Constructor for ReportRecording
+     */
+    public ReportRecording() {
+        this.kinds = new byte[16];
+        this.labels = new String[16];
+        this.texts = new String[16];
+        this.values = new long[16];
+        this.totals = new long[16];
+        this.counts = new int[16];
+    }
+    
+    /**
+     * Write the recorded report to a renderer
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    public void replay(ReportRenderer renderer) throws IOException {
+        for (int i = 0; i < size; i++) {
+            switch (kinds[i]) {
+                case BEGIN:
+                    renderer.beginReport(labels[i]);
+                    break;
+                case SECTION:
+                    renderer.section(labels[i]);
+                    break;
+                case TEXT:
+                    renderer.text(labels[i], texts[i]);
+                    break;
+                case AMOUNT:
+                    renderer.amount(labels[i], values[i]);
+                    break;
+                case COUNT:
+                    renderer.count(labels[i], values[i]);
+                    break;
+                case DATE:
+                    renderer.date(labels[i], (int) values[i]);
+                    break;
+                case SHARE:
+                    renderer.share(labels[i], values[i], totals[i], counts[i]);
+                    break;
+                case NOTE:
+                    renderer.note(texts[i]);
+                    break;
+                case TRANSACTION:
+                    renderer.transaction(transactions, counts[i]);
+                    break;
+                case END:
+                    renderer.endReport();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown entry kind " + kinds[i]);
+            }
+        }
+    }
+    
+    /**
+     * Get the number of recorded calls
+     * 
+     * @return Entry count
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * A recording has no output of its own
+     * 
+     * @param channel Ignored
+     * @return Never returns
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public ReportRenderer to(WritableByteChannel channel) {
+        throw new UnsupportedOperationException("A report recording has no output; replay it instead");
+    }
+    
+    /**
+     * Nothing is buffered, so there is nothing to flush
+     */
+    @Override
+    public void flush() {
+    }
+    
+    @Override
+    public void beginReport(String title) {
+        add(BEGIN, title, null, 0, 0, 0);
+    }
+    
+    @Override
+    public void section(String name) {
+        add(SECTION, name, null, 0, 0, 0);
+    }
+    
+    @Override
+    public void text(String label, String value) {
+        add(TEXT, label, value, 0, 0, 0);
+    }
+    
+    @Override
+    public void amount(String label, long cents) {
+        add(AMOUNT, label, null, cents, 0, 0);
+    }
+    
+    @Override
+    public void count(String label, long count) {
+        add(COUNT, label, null, count, 0, 0);
+    }
+    
+    @Override
+    public void date(String label, int epochDay) {
+        add(DATE, label, null, epochDay, 0, 0);
+    }
+    
+    @Override
+    public void share(String label, long cents, long totalCents, int count) {
+        add(SHARE, label, null, cents, totalCents, count);
+    }
+    
+    @Override
+    public void note(String text) {
+        add(NOTE, null, text, 0, 0, 0);
+    }
+    
+    @Override
+    public void transaction(TransactionStore store, int slot) {
+        if (transactions == null) {
+            transactions = new ListTransactionStore(store.getCategoryDictionary());
+        }
+        add(TRANSACTION, null, null, 0, 0, transactions.add(store.get(slot)));
+    }
+    
+    @Override
+    public void endReport() {
+        add(END, null, null, 0, 0, 0);
+    }
+    
+    /**
+     * Append one entry
+     * 
+     * @param kind Kind of call
+     * @param label Label, title or section name
+     * @param text Text value or note
+     * @param value Amount, count or epoch day
+     * @param total Total for a share
+     * @param count Count for a share, or slot for a transaction
+     */
+    private void add(byte kind, String label, String text, long value, long total, int count) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            values = Arrays.copyOf(values, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        
+        kinds[size] = kind;
+        labels[size] = label;
+        texts[size] = text;
+        values[size] = value;
+        totals[size] = total;
+        counts[size] = count;
+        size++;
+    }
+}
\ No newline at end of file
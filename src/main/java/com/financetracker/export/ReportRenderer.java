@@ -0,0 +1,270 @@
+package com.financetracker.export;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+
+import com.financetracker.interfaces.TransactionStore;
+
+/**
+ * Writes reports as a sequence of titled sections and labelled entries
+ * Reports describe their content once and the renderer picks the layout: plain text, JSON or CSV
+ * Everything goes through one reusable buffer, so a renderer can write many reports in a row,
+ * switching targets between them with to(...)
+ */
+public abstract class ReportRenderer implements Flushable {
+    /**
+     * Output formats
+     */
+    public enum Format {
+        /** Console-style text */
+        TEXT,
+        /** One JSON object per report, one report per line */
+        JSON,
+        /** One row per entry, with a header before the first report */
+        CSV
+    }
+    
+    /**
+     * Report content, written to a renderer
+     */
+    @FunctionalInterface
+    public interface Report {
+        /**
+         * Write the report
+         * 
+         * @param renderer Renderer to write to
+         * @throws IOException If the renderer cannot write
+         */
+        void render(ReportRenderer renderer) throws IOException;
+    }
+    
+    /**
+     * Default buffer size in bytes
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    // Console reports are short, so the console gets a smaller buffer
+    private static final int CONSOLE_BUFFER_SIZE = 4 * 1024;
+    
+    final ChannelWriter out;
+    private final int bufferSize;
+    
+    /**
+     * Constructor for ReportRenderer
+     * 
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     */
+    ReportRenderer(WritableByteChannel channel, int bufferSize) {
+        this.out = new ChannelWriter(channel, bufferSize);
+        this.bufferSize = bufferSize;
+    }
+    
+    /**
+     * Constructor for a renderer with no output of its own, such as a recording
+     */
+    ReportRenderer() {
+        this.out = null;
+        this.bufferSize = 0;
+    }
+    
+    /**
+     * Create a renderer that writes to a channel
+     * The channel is left open
+     * 
+     * @param format Output format
+     * @param channel Channel to write to
+     * @return New renderer
+     */
+    public static ReportRenderer create(Format format, WritableByteChannel channel) {
+        return create(format, channel, DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Create a renderer that writes to an Appendable, such as a StringBuilder, Writer or PrintStream
+     * 
+     * @param format Output format
+     * @param out Destination for the text
+     * @return New renderer
+     */
+    public static ReportRenderer create(Format format, Appendable out) {
+        return create(format, new AppendableChannel(out, DEFAULT_BUFFER_SIZE), DEFAULT_BUFFER_SIZE);
+    }
+    
+    /**
+     * Create a renderer with a given buffer size
+     * 
+     * @param format Output format
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     * @return New renderer
+     */
+    private static ReportRenderer create(Format format, WritableByteChannel channel, int bufferSize) {
+        switch (format) {
+            case JSON:
+                return new JsonReportRenderer(channel, bufferSize);
+            case CSV:
+                return new CsvReportRenderer(channel, bufferSize);
+            default:
+                return new TextReportRenderer(channel, bufferSize);
+        }
+    }
+    
+    /**
+     * Render a report as text on the console
+     * 
+     * @param report Report to print
+     */
+    public static void printToConsole(Report report) {
+        ReportRenderer renderer = create(Format.TEXT, new AppendableChannel(System.out, CONSOLE_BUFFER_SIZE),
+                CONSOLE_BUFFER_SIZE);
+        try {
+            report.render(renderer);
+            renderer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.flush();
+    }
+    
+    /**
+     * Write everything buffered so far, then send later reports to another channel
+     * The buffer is kept, so one renderer can serve many targets
+     * 
+     * @param channel Channel to write to from now on
+     * @return This renderer
+     * @throws IOException If the buffered output cannot be written
+     */
+    public ReportRenderer to(WritableByteChannel channel) throws IOException {
+        out.setChannel(channel);
+        retarget();
+        return this;
+    }
+    
+    /**
+     * Write everything buffered so far, then send later reports to an Appendable
+     * 
+     * @param appendable Destination for the text from now on
+     * @return This renderer
+     * @throws IOException If the buffered output cannot be written
+     */
+    public ReportRenderer to(Appendable appendable) throws IOException {
+        return to(new AppendableChannel(appendable, bufferSize));
+    }
+    
+    /**
+     * Write everything buffered so far
+     * 
+     * @throws IOException If the write fails
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    /**
+     * Start a report
+     * 
+     * @param title Report title
+     * @throws IOException If the write fails
+     */
+    public abstract void beginReport(String title) throws IOException;
+    
+    /**
+     * Start a section; entries after this belong to it until the next section
+     * 
+     * @param name Section name
+     * @throws IOException If the write fails
+     */
+    public abstract void section(String name) throws IOException;
+    
+    /**
+     * Write a text entry
+     * 
+     * @param label Entry label
+     * @param value Text value
+     * @throws IOException If the write fails
+     */
+    public abstract void text(String label, String value) throws IOException;
+    
+    /**
+     * Write an amount entry
+     * 
+     * @param label Entry label
+     * @param cents Amount in cents
+     * @throws IOException If the write fails
+     */
+    public abstract void amount(String label, long cents) throws IOException;
+    
+    /**
+     * Write a count entry
+     * 
+     * @param label Entry label
+     * @param count Count
+     * @throws IOException If the write fails
+     */
+    public abstract void count(String label, long count) throws IOException;
+    
+    /**
+     * Write a date entry
+     * 
+     * @param label Entry label
+     * @param epochDay Days since 1970-01-01
+     * @throws IOException If the write fails
+     */
+    public abstract void date(String label, int epochDay) throws IOException;
+    
+    /**
+     * Write one part of a total, such as a category's share of all expenses
+     * 
+     * @param label Entry label
+     * @param cents Amount in cents
+     * @param totalCents Total the amount is part of, in cents
+     * @param count Number of transactions in the amount
+     * @throws IOException If the write fails
+     */
+    public abstract void share(String label, long cents, long totalCents, int count) throws IOException;
+    
+    /**
+     * Write a free-text note
+     * 
+     * @param text Note text
+     * @throws IOException If the write fails
+     */
+    public abstract void note(String text) throws IOException;
+    
+    /**
+     * Write a transaction entry
+     * 
+     * @param store Store holding the transaction
+     * @param slot Live slot of the transaction
+     * @throws IOException If the write fails
+     */
+    public abstract void transaction(TransactionStore store, int slot) throws IOException;
+    
+    /**
+     * Finish a report
+     * 
+     * @throws IOException If the write fails
+     */
+    public abstract void endReport() throws IOException;
+    
+    /**
+     * Called after the target changes
+     */
+    void retarget() {
+    }
+    
+    /**
+     * Get a share of a total in tenths of a percent
+     * 
+     * @param cents Amount in cents
+     * @param totalCents Total in cents
+     * @return Share, rounded to a tenth of a percent
+     */
+    static long tenthsOfPercent(long cents, long totalCents) {
+        return totalCents == 0 ? 0 : Math.round(cents * 1000.0 / totalCents);
+    }
+}
\ No newline at end of file
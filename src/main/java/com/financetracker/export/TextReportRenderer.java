@@ -0,0 +1,108 @@
+package com.financetracker.export;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+
+import com.financetracker.interfaces.TransactionStore;
+
+/**
+ * Renders reports as console text
+ * Entries are "label: value" lines, bulleted inside a section, and transactions
+ * read the same as Transaction.toString
+ */
+class TextReportRenderer extends ReportRenderer {
+    // Entries after a section heading are bulleted
+    private boolean inSection;
+    
+    /**
+     * Constructor for TextReportRenderer
+     * 
+     * @param channel Channel to write to
+     * @param bufferSize Size of the buffer in bytes
+     */
+    TextReportRenderer(WritableByteChannel channel, int bufferSize) {
+        super(channel, bufferSize);
+    }
+    
+    @Override
+    public void beginReport(String title) throws IOException {
+        out.ascii("\n===== ").text(title.toUpperCase(Locale.ROOT)).ascii(" =====\n");
+        inSection = false;
+    }
+    
+    @Override
+    public void section(String name) throws IOException {
+        out.ascii('\n').text(name).ascii(":\n");
+        inSection = true;
+    }
+    
+    @Override
+    public void text(String label, String value) throws IOException {
+        label(label).text(value).ascii('\n');
+    }
+    
+    @Override
+    public void amount(String label, long cents) throws IOException {
+        label(label).ascii('$').cents(cents).ascii('\n');
+    }
+    
+    @Override
+    public void count(String label, long count) throws IOException {
+        label(label).number(count).ascii('\n');
+    }
+    
+    @Override
+    public void date(String label, int epochDay) throws IOException {
+        label(label).date(epochDay).ascii('\n');
+    }
+    
+    @Override
+    public void share(String label, long cents, long totalCents, int count) throws IOException {
+        label(label).ascii('$').cents(cents);
+        out.ascii(" (").decimal(tenthsOfPercent(cents, totalCents), 1).ascii("%, ");
+        out.number(count).ascii(" transactions)\n");
+    }
+    
+    @Override
+    public void note(String text) throws IOException {
+        if (inSection) {
+            out.ascii("- ");
+        }
+        out.text(text).ascii('\n');
+    }
+    
+    @Override
+    public void transaction(TransactionStore store, int slot) throws IOException {
+        boolean recurring = store.isRecurring(slot);
+        out.ascii('[').date(store.getEpochDay(slot)).ascii("] ");
+        if (!store.isExpense(slot)) {
+            out.ascii("Income");
+        } else {
+            out.ascii(recurring ? "Expense (Recurring)" : "Expense");
+        }
+        out.ascii(": $").cents(store.getAmountCents(slot));
+        out.ascii(" - ").text(String.valueOf(store.getDescription(slot)));
+        out.ascii(" (").text(store.getCategoryDictionary().nameOf(store.getCategoryId(slot))).ascii(')');
+        out.ascii(store.isExpense(slot) && recurring ? " [Recurring]\n" : "\n");
+    }
+    
+    @Override
+    public void endReport() {
+        inSection = false;
+    }
+    
+    /**
+     * Write an entry label, bulleted inside a section
+     * 
+     * @param label Entry label
+     * @return Writer, ready for the value
+     * @throws IOException If the write fails
+     */
+    private ChannelWriter label(String label) throws IOException {
+        if (inSection) {
+            out.ascii("- ");
+        }
+        return out.text(label).ascii(": ");
+    }
+}
\ No newline at end of file
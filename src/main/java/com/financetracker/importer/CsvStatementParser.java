@@ -0,0 +1,450 @@
+package com.financetracker.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Parser for CSV bank statements
+ * Columns are found by name in the header row, which may follow a few lines of account details.
+ * Rows without a type column are expenses when the amount is negative, and a blank line
+ * ends the transactions, so files written by LedgerExporter import cleanly.
+ */
+class CsvStatementParser extends StatementParser {
+    // Lines searched for the header row
+    private static final int MAX_PREAMBLE_LINES = 50;
+    
+    private int dateColumn;
+    private int amountColumn;
+    private int debitColumn;
+    private int creditColumn;
+    private int typeColumn;
+    private int categoryColumn;
+    private int descriptionColumn;
+    private int recurringColumn;
+    
+    // Fields a row needs to reach every column found in the header
+    private int requiredFields;
+    
+    private int firstLine;
+    
+    /**
+     * Constructor for CsvStatementParser
+     * 
+     * @param data Whole statement file
+     * @param defaultCategory Category given to rows without one
+     */
+    CsvStatementParser(ByteBuffer data, String defaultCategory) {
+        super(data, defaultCategory);
+    }
+    
+    @Override
+    int start() throws IOException {
+        int position = 0;
+        if (data.limit() >= 3 && data.get(0) == (byte) 0xEF && data.get(1) == (byte) 0xBB
+                && data.get(2) == (byte) 0xBF) {
+            position = 3;  // UTF-8 byte order mark
+        }
+        
+        Fields fields = new Fields();
+        StatementChunk scratch = new StatementChunk(0);
+        int lines = 0;
+        for (int i = 0; i < MAX_PREAMBLE_LINES && position < data.limit(); i++) {
+            int next = readRecord(position, data.limit(), fields);
+            lines += fields.lineBreaks;
+            if (readHeader(fields, scratch)) {
+                firstLine = lines + 1;
+                return next;
+            }
+            position = next;
+        }
+        throw new IOException("No header row with date and amount columns found");
+    }
+    
+    @Override
+    int getFirstLine() {
+        return firstLine;
+    }
+    
+    @Override
+    int[] split(int start, int chunkSize) {
+        int end = data.limit();
+        int count = (int) Math.max(1, ((long) end - start + chunkSize - 1) / chunkSize);
+        int[] raw = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            raw[i] = (int) (start + (long) (end - start) * i / count);
+        }
+        
+        // A quoted field can hold a line break, so find out in parallel whether each
+        // split point falls inside quotes from the parity of the quotes before it
+        boolean[] oddQuotes = new boolean[count];
+        IntStream.range(0, count).parallel().forEach(i -> oddQuotes[i] = countQuotes(raw[i], raw[i + 1]) % 2 == 1);
+        
+        int[] boundaries = new int[count + 1];
+        boundaries[0] = start;
+        boundaries[count] = end;
+        boolean inQuotes = false;
+        for (int i = 1; i < count; i++) {
+            inQuotes ^= oddQuotes[i - 1];
+            boundaries[i] = Math.max(boundaries[i - 1], nextRecord(raw[i], end, inQuotes));
+        }
+        return boundaries;
+    }
+    
+    @Override
+    StatementChunk parse(int from, int to) {
+        StatementChunk chunk = new StatementChunk((to - from) / 64);
+        Fields fields = new Fields();
+        int line = 0;
+        
+        for (int position = from; position < to; ) {
+            int next = readRecord(position, to, fields);
+            int recordLine = line;
+            line += fields.lineBreaks;
+            position = next;
+            
+            if (fields.count == 1 && isBlank(fields.starts[0], fields.ends[0])) {
+                chunk.endTable();
+                break;
+            }
+            parseRow(fields, recordLine, chunk);
+        }
+        
+        chunk.setLineCount(line);
+        return chunk;
+    }
+    
+    /**
+     * Turn one record into a row or an error
+     * 
+     * @param fields Fields of the record
+     * @param line Line the record starts on, counted from the start of the chunk
+     * @param chunk Chunk to add to
+     */
+    private void parseRow(Fields fields, int line, StatementChunk chunk) {
+        if (fields.count < requiredFields) {
+            chunk.error(line, "Expected " + requiredFields + " fields but found " + fields.count);
+            return;
+        }
+        
+        int epochDay = parseEpochDay(fields.starts[dateColumn], fields.ends[dateColumn]);
+        if (epochDay == INVALID_DATE) {
+            chunk.error(line, "Invalid date '" + field(fields, dateColumn, chunk) + "'");
+            return;
+        }
+        
+        long cents;
+        if (amountColumn >= 0) {
+            cents = parseCents(fields.starts[amountColumn], fields.ends[amountColumn]);
+            if (cents == INVALID_AMOUNT) {
+                chunk.error(line, "Invalid amount '" + field(fields, amountColumn, chunk) + "'");
+                return;
+            }
+        } else {
+            // Separate columns for money out and money in
+            long debit = optionalCents(fields, debitColumn);
+            long credit = optionalCents(fields, creditColumn);
+            if (debit == INVALID_AMOUNT || credit == INVALID_AMOUNT) {
+                chunk.error(line, "Invalid amount '" + field(fields, debit == INVALID_AMOUNT
+                        ? debitColumn : creditColumn, chunk) + "'");
+                return;
+            }
+            cents = Math.abs(credit) - Math.abs(debit);
+        }
+        if (cents == 0) {
+            chunk.error(line, "Amount is zero");
+            return;
+        }
+        
+        boolean expense = cents < 0;
+        if (typeColumn >= 0 && !isBlank(fields.starts[typeColumn], fields.ends[typeColumn])) {
+            int first = firstByte(fields.starts[typeColumn], fields.ends[typeColumn]) | 0x20;
+            if (first == 'e' || first == 'd') {
+                expense = true;  // Expense or debit
+            } else if (first == 'i' || first == 'c') {
+                expense = false;  // Income or credit
+            } else {
+                chunk.error(line, "Unknown type '" + field(fields, typeColumn, chunk) + "'");
+                return;
+            }
+        }
+        
+        boolean recurring = false;
+        if (expense && recurringColumn >= 0 && !isBlank(fields.starts[recurringColumn], fields.ends[recurringColumn])) {
+            int first = firstByte(fields.starts[recurringColumn], fields.ends[recurringColumn]) | 0x20;
+            recurring = first == 't' || first == 'y' || first == '1';
+        }
+        
+        String category = categoryColumn >= 0 ? field(fields, categoryColumn, chunk) : "";
+        String description = descriptionColumn >= 0 ? field(fields, descriptionColumn, chunk) : "";
+        chunk.add(line, Math.abs(cents), epochDay, expense, recurring,
+                category.isEmpty() ? defaultCategory : category, description);
+    }
+    
+    /**
+     * Find the columns in a header row
+     * 
+     * @param fields Fields of the row
+     * @param chunk Chunk whose scratch buffer is used to read the names
+     * @return true if the row names a date column and an amount, debit or credit column
+     */
+    private boolean readHeader(Fields fields, StatementChunk chunk) {
+        dateColumn = -1;
+        amountColumn = -1;
+        debitColumn = -1;
+        creditColumn = -1;
+        typeColumn = -1;
+        categoryColumn = -1;
+        descriptionColumn = -1;
+        recurringColumn = -1;
+        
+        for (int i = 0; i < fields.count; i++) {
+            switch (field(fields, i, chunk).toLowerCase(Locale.ROOT)) {
+                case "date":
+                case "transaction date":
+                case "posted date":
+                case "posting date":
+                    dateColumn = first(dateColumn, i);
+                    break;
+                case "amount":
+                    amountColumn = first(amountColumn, i);
+                    break;
+                case "debit":
+                case "withdrawal":
+                    debitColumn = first(debitColumn, i);
+                    break;
+                case "credit":
+                case "deposit":
+                    creditColumn = first(creditColumn, i);
+                    break;
+                case "type":
+                    typeColumn = first(typeColumn, i);
+                    break;
+                case "category":
+                    categoryColumn = first(categoryColumn, i);
+                    break;
+                case "description":
+                case "memo":
+                case "payee":
+                case "details":
+                    descriptionColumn = first(descriptionColumn, i);
+                    break;
+                case "recurring":
+                    recurringColumn = first(recurringColumn, i);
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        if (dateColumn < 0 || (amountColumn < 0 && debitColumn < 0 && creditColumn < 0)) {
+            return false;
+        }
+        requiredFields = 1 + Math.max(Math.max(Math.max(dateColumn, amountColumn), Math.max(debitColumn, creditColumn)),
+                Math.max(Math.max(typeColumn, categoryColumn), Math.max(descriptionColumn, recurringColumn)));
+        return true;
+    }
+    
+    /**
+     * Read one record, splitting it into fields
+     * 
+     * @param position Start of the record
+     * @param end End of the data to read
+     * @param fields Fields to fill
+     * @return Start of the next record
+     */
+    private int readRecord(int position, int end, Fields fields) {
+        fields.clear();
+        int i = position;
+        
+        while (true) {
+            int fieldStart = i;
+            int fieldEnd;
+            boolean escaped = false;
+            
+            if (i < end && data.get(i) == '"') {
+                fieldStart = ++i;
+                while (i < end) {
+                    byte b = data.get(i);
+                    if (b == '"') {
+                        if (i + 1 < end && data.get(i + 1) == '"') {
+                            escaped = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    if (b == '\n') {
+                        fields.lineBreaks++;
+                    }
+                    i++;
+                }
+                fieldEnd = i;
+                
+                // Skip the closing quote and anything before the next delimiter
+                while (i < end && data.get(i) != ',' && data.get(i) != '\n') {
+                    i++;
+                }
+            } else {
+                while (i < end && data.get(i) != ',' && data.get(i) != '\n') {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            
+            fields.add(fieldStart, fieldEnd, escaped);
+            if (i >= end) {
+                return end;
+            }
+            if (data.get(i) == '\n') {
+                fields.lineBreaks++;
+                return i + 1;
+            }
+            i++;
+        }
+    }
+    
+    /**
+     * Find the start of the next record after a position
+     * 
+     * @param position Position to search from
+     * @param end End of the data
+     * @param inQuotes true if the position is inside a quoted field
+     * @return Start of the next record, or end
+     */
+    private int nextRecord(int position, int end, boolean inQuotes) {
+        for (int i = position; i < end; i++) {
+            byte b = data.get(i);
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n' && !inQuotes) {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+    
+    /**
+     * Count the quote characters in a range
+     * 
+     * @param from Start of the range
+     * @param to End of the range
+     * @return Number of quotes
+     */
+    private int countQuotes(int from, int to) {
+        int quotes = 0;
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+    
+    /**
+     * Parse an amount that may be left blank
+     * 
+     * @param fields Fields of the record
+     * @param column Column to read, or -1 if the file has none
+     * @return Amount in cents, 0 if blank or missing, or INVALID_AMOUNT
+     */
+    private long optionalCents(Fields fields, int column) {
+        if (column < 0 || isBlank(fields.starts[column], fields.ends[column])) {
+            return 0;
+        }
+        return parseCents(fields.starts[column], fields.ends[column]);
+    }
+    
+    /**
+     * Decode one field
+     * 
+     * @param fields Fields of the record
+     * @param column Column to read
+     * @param chunk Chunk whose scratch buffer is used
+     * @return Field text, trimmed
+     */
+    private String field(Fields fields, int column, StatementChunk chunk) {
+        return text(fields.starts[column], fields.ends[column], fields.escaped[column], chunk);
+    }
+    
+    /**
+     * Check if a range holds only whitespace
+     * 
+     * @param from Start of the range
+     * @param to End of the range
+     * @return true if blank
+     */
+    private boolean isBlank(int from, int to) {
+        return firstByte(from, to) < 0;
+    }
+    
+    /**
+     * Get the first byte in a range that is not whitespace
+     * 
+     * @param from Start of the range
+     * @param to End of the range
+     * @return Byte value, or -1 if the range is blank
+     */
+    private int firstByte(int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = data.get(i);
+            if (!isSpace(b)) {
+                return b & 0xFF;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Keep the first column found for a name
+     * 
+     * @param current Column found so far, or -1
+     * @param column Column just found
+     * @return Column to use
+     */
+    private static int first(int current, int column) {
+        return current >= 0 ? current : column;
+    }
+    
+    /**
+     * Field positions of one record, reused from record to record
+     */
+    private static final class Fields {
+        private int count;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private boolean[] escaped = new boolean[16];
+        
+        // Line breaks in the record, including the one that ends it
+        private int lineBreaks;
+        
+        /**
+         * Forget the previous record
+         */
+        void clear() {
+            count = 0;
+            lineBreaks = 0;
+        }
+        
+        /**
+         * Add a field
+         * 
+         * @param start Start of the field, after any opening quote
+         * @param end End of the field, before any closing quote
+         * @param hasEscapes true if the field contains doubled quotes
+         */
+        void add(int start, int end, boolean hasEscapes) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+                escaped = Arrays.copyOf(escaped, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            escaped[count] = hasEscapes;
+            count++;
+        }
+    }
+}
\ No newline at end of file
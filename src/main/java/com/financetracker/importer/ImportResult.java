@@ -0,0 +1,167 @@
+package com.financetracker.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Outcome of a statement import
+ * Holds the number of imported rows and the rows that were skipped, by line number
+ */
+public class ImportResult {
+    /**
+     * Most errors kept in the report; later ones are only counted
+     */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private int importedCount;
+    private int errorCount;
+    private List<ImportError> errors;
+    private int chunkCount;
+    private long elapsedNanos;
+    
+    /**
+     * Constructor for ImportResult
+     */
+    ImportResult() {
+        this.importedCount = 0;
+        this.errorCount = 0;
+        this.errors = new ArrayList<>();
+    }
+    
+    /**
+     * Record imported rows
+     * 
+     * @param count Number of rows added to the ledger
+     */
+    void imported(int count) {
+        importedCount += count;
+    }
+    
+    /**
+     * Record a skipped row
+     * 
+     * @param line Line the row starts on
+     * @param message Why the row was skipped
+     */
+    void error(int line, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new ImportError(line, message));
+        }
+    }
+    
+    /**
+     * Record how the import ran, and put the errors in line order
+     * 
+     * @param chunkCount Number of chunks the file was parsed in
+     * @param elapsedNanos Time taken
+     */
+    void finish(int chunkCount, long elapsedNanos) {
+        this.chunkCount = chunkCount;
+        this.elapsedNanos = elapsedNanos;
+        errors.sort(Comparator.comparingInt(ImportError::getLine));
+    }
+    
+    /**
+     * Get number of rows added to the ledger
+     * 
+     * @return Imported row count
+     */
+    public int getImportedCount() {
+        return importedCount;
+    }
+    
+    /**
+     * Get number of rows that were skipped
+     * 
+     * @return Error count, including errors not kept in the report
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+    
+    /**
+     * Get the skipped rows
+     * 
+     * @return Up to MAX_REPORTED_ERRORS errors in line order
+     */
+    public List<ImportError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+    
+    /**
+     * Check if every row was imported
+     * 
+     * @return true if nothing was skipped
+     */
+    public boolean isComplete() {
+        return errorCount == 0;
+    }
+    
+    /**
+     * Get number of chunks the file was parsed in
+     * 
+     * @return Chunk count
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+    
+    /**
+     * Get the time taken to parse and load the file
+     * 
+     * @return Elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("ImportResult{imported=%d, errors=%d}", importedCount, errorCount);
+    }
+    
+    /**
+     * A statement row that was not imported
+     */
+    public static class ImportError {
+        private int line;
+        private String message;
+        
+        /**
+         * Constructor for ImportError
+         * 
+         * @param line Line the row starts on
+         * @param message Why the row was skipped
+         */
+        ImportError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        /**
+         * Get the line the row starts on
+         * 
+         * @return One-based line number
+         */
+        public int getLine() {
+            return line;
+        }
+        
+        /**
+         * Get why the row was skipped
+         * 
+         * @return Error message
+         */
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
\ No newline at end of file
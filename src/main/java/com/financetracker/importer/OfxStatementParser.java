@@ -0,0 +1,225 @@
+package com.financetracker.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser for OFX and QFX bank statements, in both the SGML and the XML form
+ * Each STMTTRN aggregate becomes one row: a negative TRNAMT is an expense,
+ * NAME (or MEMO when there is no NAME) is the description, and the category is the default
+ */
+class OfxStatementParser extends StatementParser {
+    private static final byte[] OPEN = ascii("<STMTTRN>");
+    private static final byte[] CLOSE = ascii("</STMTTRN>");
+    private static final byte[] DTPOSTED = ascii("DTPOSTED");
+    private static final byte[] TRNAMT = ascii("TRNAMT");
+    private static final byte[] NAME = ascii("NAME");
+    private static final byte[] MEMO = ascii("MEMO");
+    
+    /**
+     * Constructor for OfxStatementParser
+     * 
+     * @param data Whole statement file
+     * @param defaultCategory Category given to every row
+     */
+    OfxStatementParser(ByteBuffer data, String defaultCategory) {
+        super(data, defaultCategory);
+    }
+    
+    @Override
+    int start() throws IOException {
+        int first = indexOf(OPEN, 0, data.limit());
+        if (first < 0 && indexOf(ascii("<OFX>"), 0, data.limit()) < 0) {
+            throw new IOException("Not an OFX statement");
+        }
+        return 0;
+    }
+    
+    @Override
+    int getFirstLine() {
+        return 1;
+    }
+    
+    @Override
+    int[] split(int start, int chunkSize) {
+        int end = data.limit();
+        int count = (int) Math.max(1, ((long) end - start + chunkSize - 1) / chunkSize);
+        int[] boundaries = new int[count + 1];
+        boundaries[0] = start;
+        boundaries[count] = end;
+        
+        for (int i = 1; i < count; i++) {
+            int raw = (int) (start + (long) (end - start) * i / count);
+            int next = indexOf(OPEN, Math.max(raw, boundaries[i - 1]), end);
+            boundaries[i] = next < 0 ? end : next;
+        }
+        return boundaries;
+    }
+    
+    @Override
+    StatementChunk parse(int from, int to) {
+        StatementChunk chunk = new StatementChunk((to - from) / 256);
+        int line = 0;
+        int position = from;
+        
+        for (int start = indexOf(OPEN, from, to); start >= 0; start = indexOf(OPEN, position, to)) {
+            line += countLines(position, start);
+            
+            // SGML files may leave the aggregate unclosed, so the next one also ends it
+            int end = indexOf(CLOSE, start + OPEN.length, data.limit());
+            int nextOpen = indexOf(OPEN, start + OPEN.length, data.limit());
+            if (end < 0 || (nextOpen >= 0 && nextOpen < end)) {
+                end = nextOpen >= 0 ? nextOpen : data.limit();
+            }
+            parseTransaction(start + OPEN.length, end, line, chunk);
+            
+            line += countLines(start, end);
+            position = end;
+        }
+        
+        chunk.setLineCount(line + countLines(position, Math.max(position, to)));
+        return chunk;
+    }
+    
+    /**
+     * Turn one STMTTRN aggregate into a row or an error
+     * 
+     * @param from Start of the aggregate's contents
+     * @param to End of the aggregate's contents
+     * @param line Line the aggregate starts on, counted from the start of the chunk
+     * @param chunk Chunk to add to
+     */
+    private void parseTransaction(int from, int to, int line, StatementChunk chunk) {
+        int dateStart = -1;
+        int dateEnd = -1;
+        int amountStart = -1;
+        int amountEnd = -1;
+        int nameStart = -1;
+        int nameEnd = -1;
+        int memoStart = -1;
+        int memoEnd = -1;
+        
+        for (int i = from; i < to; i++) {
+            if (data.get(i) != '<' || i + 1 >= to || data.get(i + 1) == '/') {
+                continue;
+            }
+            
+            int nameFrom = i + 1;
+            int tagEnd = nameFrom;
+            while (tagEnd < to && data.get(tagEnd) != '>') {
+                tagEnd++;
+            }
+            int valueStart = tagEnd + 1;
+            int valueEnd = valueStart;
+            while (valueEnd < to && data.get(valueEnd) != '<' && data.get(valueEnd) != '\n') {
+                valueEnd++;
+            }
+            
+            if (matches(DTPOSTED, nameFrom, tagEnd)) {
+                dateStart = valueStart;
+                dateEnd = valueEnd;
+            } else if (matches(TRNAMT, nameFrom, tagEnd)) {
+                amountStart = valueStart;
+                amountEnd = valueEnd;
+            } else if (matches(NAME, nameFrom, tagEnd)) {
+                nameStart = valueStart;
+                nameEnd = valueEnd;
+            } else if (matches(MEMO, nameFrom, tagEnd)) {
+                memoStart = valueStart;
+                memoEnd = valueEnd;
+            }
+            i = valueEnd - 1;
+        }
+        
+        if (dateStart < 0 || amountStart < 0) {
+            chunk.error(line, dateStart < 0 ? "Transaction has no DTPOSTED" : "Transaction has no TRNAMT");
+            return;
+        }
+        int epochDay = parseEpochDay(dateStart, dateEnd);
+        if (epochDay == INVALID_DATE) {
+            chunk.error(line, "Invalid date '" + text(dateStart, dateEnd, false, chunk) + "'");
+            return;
+        }
+        long cents = parseCents(amountStart, amountEnd);
+        if (cents == INVALID_AMOUNT) {
+            chunk.error(line, "Invalid amount '" + text(amountStart, amountEnd, false, chunk) + "'");
+            return;
+        }
+        if (cents == 0) {
+            chunk.error(line, "Amount is zero");
+            return;
+        }
+        
+        String description = "";
+        if (nameStart >= 0) {
+            description = unescape(text(nameStart, nameEnd, false, chunk));
+        }
+        if (description.isEmpty() && memoStart >= 0) {
+            description = unescape(text(memoStart, memoEnd, false, chunk));
+        }
+        chunk.add(line, Math.abs(cents), epochDay, cents < 0, false, defaultCategory, description);
+    }
+    
+    /**
+     * Check if a tag name in the file equals a name
+     * 
+     * @param name Name to compare with
+     * @param from Start of the tag name
+     * @param to End of the tag name
+     * @return true if equal
+     */
+    private boolean matches(byte[] name, int from, int to) {
+        if (to - from != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (data.get(from + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Find a byte sequence
+     * 
+     * @param pattern Bytes to find
+     * @param from Position to search from
+     * @param to Position the match must start before
+     * @return Position of the match, or -1
+     */
+    private int indexOf(byte[] pattern, int from, int to) {
+        int last = Math.min(to, data.limit() - pattern.length + 1);
+        for (int i = from; i < last; i++) {
+            if (data.get(i) == pattern[0] && matches(pattern, i, i + pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Replace the character entities OFX allows in text
+     * 
+     * @param text Text from the file
+     * @return Text with entities replaced
+     */
+    private static String unescape(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&nbsp;", " ").replace("&amp;", "&");
+    }
+    
+    /**
+     * Encode a constant as ASCII bytes
+     * 
+     * @param text Text to encode
+     * @return Bytes
+     */
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.financetracker.importer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Rows parsed from one chunk of a statement, held as primitive columns
+ * Line numbers are counted from the start of the chunk until the importer
+ * knows how many lines came before it
+ */
+class StatementChunk {
+    private static final byte EXPENSE = 1;
+    private static final byte RECURRING = 2;
+    
+    private int size;
+    private int[] lines;
+    private long[] cents;
+    private int[] epochDays;
+    private byte[] flags;
+    private String[] categories;
+    private String[] descriptions;
+    
+    private final List<ImportResult.ImportError> errors;
+    
+    // Line breaks in the chunk, so the next chunk knows its first line
+    private int lineCount;
+    
+    // Set when a blank line ended the transactions before the end of the chunk
+    private boolean endOfTable;
+    
+    // Reused to copy text out of the file before decoding it
+    private byte[] scratch;
+    
+    /**
+     * Constructor for StatementChunk
+     * 
+     * @param expectedRows Initial capacity
+     */
+    StatementChunk(int expectedRows) {
+        int capacity = Math.max(expectedRows, 16);
+        this.lines = new int[capacity];
+        this.cents = new long[capacity];
+        this.epochDays = new int[capacity];
+        this.flags = new byte[capacity];
+        this.categories = new String[capacity];
+        this.descriptions = new String[capacity];
+        this.errors = new ArrayList<>();
+        this.scratch = new byte[256];
+    }
+    
+    /**
+     * Add a parsed row
+     * 
+     * @param line Line the row starts on, counted from the start of the chunk
+     * @param amountCents Amount in cents, positive
+     * @param epochDay Date as days since 1970-01-01
+     * @param expense true for an expense, false for income
+     * @param recurring true for a recurring expense
+     * @param category Category
+     * @param description Description
+     */
+    void add(int line, long amountCents, int epochDay, boolean expense, boolean recurring, String category,
+            String description) {
+        if (size == cents.length) {
+            int capacity = size + (size >> 1);
+            lines = Arrays.copyOf(lines, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        
+        lines[size] = line;
+        cents[size] = amountCents;
+        epochDays[size] = epochDay;
+        flags[size] = (byte) ((expense ? EXPENSE : 0) | (recurring ? RECURRING : 0));
+        categories[size] = category;
+        descriptions[size] = description;
+        size++;
+    }
+    
+    /**
+     * Record a row that could not be parsed
+     * 
+     * @param line Line the row starts on, counted from the start of the chunk
+     * @param message What was wrong
+     */
+    void error(int line, String message) {
+        errors.add(new ImportResult.ImportError(line, message));
+    }
+    
+    /**
+     * Build the transaction for a row
+     * Called in file order, so transaction IDs follow the file
+     * 
+     * @param row Row index
+     * @return Income or Expense
+     */
+    Transaction create(int row) {
+        double amount = cents[row] / 100.0;
+        if ((flags[row] & EXPENSE) != 0) {
+            return new Expense(amount, descriptions[row], categories[row], DateUtility.fromEpochDay(epochDays[row]),
+                    (flags[row] & RECURRING) != 0);
+        }
+        return new Income(amount, descriptions[row], categories[row], DateUtility.fromEpochDay(epochDays[row]));
+    }
+    
+    /**
+     * Get number of parsed rows
+     * 
+     * @return Row count
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Get the line a row starts on
+     * 
+     * @param row Row index
+     * @return Line counted from the start of the chunk
+     */
+    int getLine(int row) {
+        return lines[row];
+    }
+    
+    /**
+     * Get the rows that could not be parsed
+     * 
+     * @return Errors with lines counted from the start of the chunk
+     */
+    List<ImportResult.ImportError> getErrors() {
+        return errors;
+    }
+    
+    /**
+     * Set the number of line breaks in the chunk
+     * 
+     * @param lineCount Line break count
+     */
+    void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+    
+    /**
+     * Get the number of line breaks in the chunk
+     * 
+     * @return Line break count
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+    
+    /**
+     * Mark that the transactions ended inside this chunk
+     */
+    void endTable() {
+        this.endOfTable = true;
+    }
+    
+    /**
+     * Check if the transactions ended inside this chunk
+     * 
+     * @return true if later chunks hold no transactions
+     */
+    boolean isEndOfTable() {
+        return endOfTable;
+    }
+    
+    /**
+     * Get a scratch buffer of at least the given size
+     * 
+     * @param length Bytes needed
+     * @return Scratch buffer
+     */
+    byte[] scratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        return scratch;
+    }
+}
\ No newline at end of file
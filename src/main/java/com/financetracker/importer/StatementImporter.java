@@ -0,0 +1,240 @@
+package com.financetracker.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.financetracker.manager.BulkLoadResult;
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.model.Transaction;
+
+/**
+ * Imports CSV and OFX bank statements into a TransactionManager
+ * The file is memory-mapped and split into chunks at record boundaries, the chunks are
+ * parsed in parallel, and the rows are added to the ledger in file order in batches.
+ * Rows that cannot be parsed or are rejected by the ledger are reported by line number
+ * instead of stopping the import.
+ */
+public class StatementImporter {
+    /**
+     * Statement formats
+     */
+    public enum Format {
+        /** Comma-separated values with a header row */
+        CSV,
+        /** Open Financial Exchange, including QFX */
+        OFX
+    }
+    
+    /**
+     * Default chunk size for parallel parsing
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    
+    /**
+     * Default number of rows added to the ledger at once
+     */
+    public static final int DEFAULT_BATCH_SIZE = 16 * 1024;
+    
+    // Bytes read from the start of a file to recognise OFX
+    private static final int SNIFF_LENGTH = 1024;
+    
+    private final TransactionManager transactionManager;
+    private Format format;
+    private String defaultCategory;
+    private int chunkSize;
+    private int batchSize;
+    
+    /**
+     * Constructor for StatementImporter
+     * Detects the format of each file, and files rows without a category under Other
+     * 
+     * @param transactionManager Ledger to import into
+     */
+    public StatementImporter(TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+        this.defaultCategory = "Other";
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+    }
+    
+    /**
+     * Set the statement format
+     * 
+     * @param format Format of the files, or null to detect it from the name and contents
+     * @return This importer
+     */
+    public StatementImporter format(Format format) {
+        this.format = format;
+        return this;
+    }
+    
+    /**
+     * Set the category for rows that do not name one
+     * 
+     * @param category Category name
+     * @return This importer
+     */
+    public StatementImporter defaultCategory(String category) {
+        this.defaultCategory = category;
+        return this;
+    }
+    
+    /**
+     * Set the chunk size for parallel parsing
+     * 
+     * @param bytes Target chunk size in bytes
+     * @return This importer
+     */
+    public StatementImporter chunkSize(int bytes) {
+        this.chunkSize = Math.max(bytes, 1);
+        return this;
+    }
+    
+    /**
+     * Set how many rows are added to the ledger at once
+     * 
+     * @param rows Rows per batch
+     * @return This importer
+     */
+    public StatementImporter batchSize(int rows) {
+        this.batchSize = Math.max(rows, 1);
+        return this;
+    }
+    
+    /**
+     * Import a statement file
+     * 
+     * @param path File to import
+     * @return Number of rows imported and the rows skipped
+     * @throws IOException If the file cannot be read or is not a statement
+     */
+    public ImportResult importFile(Path path) throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Statement too large to import: " + path);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        Format detected = format != null ? format : detect(path, data);
+        StatementParser parser = detected == Format.OFX
+                ? new OfxStatementParser(data, defaultCategory) : new CsvStatementParser(data, defaultCategory);
+        int[] boundaries = parser.split(parser.start(), chunkSize);
+        int chunkCount = boundaries.length - 1;
+        
+        // Parse every chunk in parallel, and load them in order as each one is ready
+        List<CompletableFuture<StatementChunk>> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int from = boundaries[i];
+            int to = boundaries[i + 1];
+            chunks.add(chunkCount == 1
+                    ? CompletableFuture.completedFuture(parser.parse(from, to))
+                    : CompletableFuture.supplyAsync(() -> parser.parse(from, to)));
+        }
+        
+        ImportResult result = new ImportResult();
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        int[] batchLines = new int[batchSize];
+        int line = parser.getFirstLine();
+        for (int i = 0; i < chunkCount; i++) {
+            StatementChunk chunk = join(chunks.get(i));
+            chunks.set(i, null);
+            
+            for (ImportResult.ImportError error : chunk.getErrors()) {
+                result.error(line + error.getLine(), error.getMessage());
+            }
+            for (int row = 0; row < chunk.size(); row++) {
+                batchLines[batch.size()] = line + chunk.getLine(row);
+                batch.add(chunk.create(row));
+                if (batch.size() == batchSize) {
+                    load(batch, batchLines, result);
+                }
+            }
+            line += chunk.getLineCount();
+            
+            if (chunk.isEndOfTable()) {
+                for (int j = i + 1; j < chunkCount; j++) {
+                    chunks.get(j).cancel(false);
+                }
+                break;
+            }
+        }
+        load(batch, batchLines, result);
+        
+        result.finish(chunkCount, System.nanoTime() - start);
+        return result;
+    }
+    
+    /**
+     * Add a batch to the ledger and report the rows it rejects
+     * 
+     * @param batch Transactions to add, emptied afterwards
+     * @param lines Line of each transaction in the file
+     * @param result Result to update
+     */
+    private void load(List<Transaction> batch, int[] lines, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        
+        BulkLoadResult loaded = transactionManager.addTransactions(batch);
+        result.imported(loaded.getAcceptedCount());
+        for (BulkLoadResult.Rejection rejection : loaded.getRejections()) {
+            result.error(lines[rejection.getRowIndex()], rejection.getReason());
+        }
+        batch.clear();
+    }
+    
+    /**
+     * Wait for a chunk to be parsed
+     * 
+     * @param chunk Chunk being parsed
+     * @return Parsed chunk
+     */
+    private static StatementChunk join(CompletableFuture<StatementChunk> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Work out a statement's format from its name, or failing that its first bytes
+     * 
+     * @param path File name
+     * @param data File contents
+     * @return Detected format
+     */
+    private static Format detect(Path path, ByteBuffer data) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ofx") || name.endsWith(".qfx")) {
+            return Format.OFX;
+        }
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        
+        byte[] head = new byte[Math.min(SNIFF_LENGTH, data.limit())];
+        for (int i = 0; i < head.length; i++) {
+            head[i] = data.get(i);
+        }
+        String text = new String(head, StandardCharsets.US_ASCII);
+        return text.contains("OFXHEADER") || text.contains("<OFX>") ? Format.OFX : Format.CSV;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,304 @@
+package com.financetracker.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Base class for the bank statement formats StatementImporter reads
+ * A parser splits the file into chunks that start on record boundaries,
+ * then parses each chunk on its own, so chunks can be parsed in parallel
+ * Only absolute reads are made on the shared buffer, which makes that safe
+ */
+abstract class StatementParser {
+    /**
+     * Value returned by parseCents for text that is not an amount
+     */
+    static final long INVALID_AMOUNT = Long.MIN_VALUE;
+    
+    /**
+     * Value returned by parseEpochDay for text that is not a date
+     */
+    static final int INVALID_DATE = Integer.MIN_VALUE;
+    
+    // Amounts with more whole digits than this are rejected rather than overflowing
+    private static final int MAX_WHOLE_DIGITS = 15;
+    
+    /**
+     * Whole statement file
+     */
+    protected final ByteBuffer data;
+    
+    /**
+     * Category given to rows that do not name one
+     */
+    protected final String defaultCategory;
+    
+    /**
+     * Constructor for StatementParser
+     * 
+     * @param data Whole statement file
+     * @param defaultCategory Category given to rows that do not name one
+     */
+    protected StatementParser(ByteBuffer data, String defaultCategory) {
+        this.data = data;
+        this.defaultCategory = defaultCategory;
+    }
+    
+    /**
+     * Find where the records start, reading any header
+     * 
+     * @return Position of the first record
+     * @throws IOException If the file is not in this format
+     */
+    abstract int start() throws IOException;
+    
+    /**
+     * Get the line number of the position returned by start
+     * 
+     * @return One-based line number
+     */
+    abstract int getFirstLine();
+    
+    /**
+     * Split the records into chunks of about the given size
+     * 
+     * @param start Position of the first record
+     * @param chunkSize Target chunk size in bytes
+     * @return Chunk boundaries, starting with start and ending with the file size
+     */
+    abstract int[] split(int start, int chunkSize);
+    
+    /**
+     * Parse the records in one chunk
+     * 
+     * @param from Start of the chunk, on a record boundary
+     * @param to End of the chunk, on a record boundary
+     * @return Parsed rows and errors
+     */
+    abstract StatementChunk parse(int from, int to);
+    
+    /**
+     * Parse an amount into cents
+     * Accepts a sign or parentheses for negatives, a leading $, thousands separators
+     * and any number of decimal places, rounding half up to whole cents
+     * 
+     * @param from Start of the text
+     * @param to End of the text
+     * @return Amount in cents, or INVALID_AMOUNT
+     */
+    long parseCents(int from, int to) {
+        while (from < to && isSpace(data.get(from))) {
+            from++;
+        }
+        while (to > from && isSpace(data.get(to - 1))) {
+            to--;
+        }
+        
+        boolean negative = false;
+        if (to - from >= 2 && data.get(from) == '(' && data.get(to - 1) == ')') {
+            negative = true;
+            from++;
+            to--;
+        }
+        if (from < to && (data.get(from) == '-' || data.get(from) == '+')) {
+            negative |= data.get(from) == '-';
+            from++;
+        }
+        if (from < to && data.get(from) == '$') {
+            from++;
+        }
+        
+        long whole = 0;
+        int wholeDigits = 0;
+        for (; from < to; from++) {
+            byte b = data.get(from);
+            if (b >= '0' && b <= '9') {
+                if (++wholeDigits > MAX_WHOLE_DIGITS) {
+                    return INVALID_AMOUNT;
+                }
+                whole = whole * 10 + (b - '0');
+            } else if (b != ',' || wholeDigits == 0) {
+                break;
+            }
+        }
+        
+        long fraction = 0;
+        int places = 0;
+        boolean roundUp = false;
+        if (from < to && data.get(from) == '.') {
+            for (from++; from < to && data.get(from) >= '0' && data.get(from) <= '9'; from++) {
+                if (places < 2) {
+                    fraction = fraction * 10 + (data.get(from) - '0');
+                } else if (places == 2) {
+                    roundUp = data.get(from) >= '5';
+                }
+                places++;
+            }
+        }
+        
+        if (from != to || wholeDigits + places == 0) {
+            return INVALID_AMOUNT;
+        }
+        for (int i = Math.min(places, 2); i < 2; i++) {
+            fraction *= 10;
+        }
+        
+        long cents = whole * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+    
+    /**
+     * Parse a date into an epoch day
+     * Accepts yyyy-MM-dd, yyyy/MM/dd, yyyyMMdd with an optional time after it as in OFX,
+     * and MM/dd/yyyy or MM/dd/yy as exported by US banks
+     * 
+     * @param from Start of the text
+     * @param to End of the text
+     * @return Days since 1970-01-01, or INVALID_DATE
+     */
+    int parseEpochDay(int from, int to) {
+        while (from < to && isSpace(data.get(from))) {
+            from++;
+        }
+        
+        int year;
+        int month;
+        int day;
+        if (to - from >= 8 && digits(from, 8) >= 0) {
+            year = digits(from, 4);
+            month = digits(from + 4, 2);
+            day = digits(from + 6, 2);
+        } else {
+            // Three groups of digits separated by the same - / or .
+            int first = 0;
+            int second = 0;
+            int third = 0;
+            int firstLength = 0;
+            int secondLength = 0;
+            int thirdLength = 0;
+            byte separator = 0;
+            int group = 0;
+            for (; from < to; from++) {
+                byte b = data.get(from);
+                if (b >= '0' && b <= '9') {
+                    if (group == 0) {
+                        first = first * 10 + (b - '0');
+                        firstLength++;
+                    } else if (group == 1) {
+                        second = second * 10 + (b - '0');
+                        secondLength++;
+                    } else {
+                        third = third * 10 + (b - '0');
+                        thirdLength++;
+                    }
+                } else if ((b == '-' || b == '/' || b == '.') && group < 2
+                        && (group == 0 ? firstLength : secondLength) > 0 && (separator == 0 || separator == b)) {
+                    separator = b;
+                    group++;
+                } else {
+                    break;
+                }
+            }
+            
+            if (firstLength == 4 && secondLength >= 1 && secondLength <= 2 && thirdLength >= 1 && thirdLength <= 2) {
+                year = first;
+                month = second;
+                day = third;
+            } else if (separator == '/' && firstLength >= 1 && firstLength <= 2 && secondLength >= 1
+                    && secondLength <= 2 && (thirdLength == 4 || thirdLength == 2)) {
+                year = thirdLength == 2 ? 2000 + third : third;
+                month = first;
+                day = second;
+            } else {
+                return INVALID_DATE;
+            }
+        }
+        
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return INVALID_DATE;
+        }
+    }
+    
+    /**
+     * Decode text from the file as UTF-8, trimming surrounding whitespace
+     * 
+     * @param from Start of the text
+     * @param to End of the text
+     * @param unquote true to turn doubled quotes into single ones, as in quoted CSV fields
+     * @param chunk Chunk being parsed, whose scratch buffer the bytes are copied through
+     * @return Decoded text
+     */
+    String text(int from, int to, boolean unquote, StatementChunk chunk) {
+        while (from < to && isSpace(data.get(from))) {
+            from++;
+        }
+        while (to > from && isSpace(data.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return "";
+        }
+        
+        byte[] bytes = chunk.scratch(to - from);
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            byte b = data.get(i);
+            bytes[length++] = b;
+            if (unquote && b == '"' && i + 1 < to && data.get(i + 1) == '"') {
+                i++;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Count the line breaks in a range
+     * 
+     * @param from Start of the range
+     * @param to End of the range
+     * @return Number of \n bytes
+     */
+    int countLines(int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+    
+    /**
+     * Read a fixed number of decimal digits
+     * 
+     * @param from Position of the first digit
+     * @param count Number of digits
+     * @return Value, or -1 if any byte is not a digit
+     */
+    private int digits(int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = data.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+    
+    /**
+     * Check if a byte is a space or tab
+     * 
+     * @param b Byte to check
+     * @return true for whitespace within a line
+     */
+    static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
\ No newline at end of file
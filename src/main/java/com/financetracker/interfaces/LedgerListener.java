@@ -0,0 +1,74 @@
+package com.financetracker.interfaces;
+
+import com.financetracker.manager.LedgerCheckpoint;
+import com.financetracker.model.Transaction;
+
+/**
+ * Interface for objects notified of changes to a user's ledger
+ * TransactionManager and BudgetManager call these after each change is applied
+ */
+public interface LedgerListener {
+    /**
+     * Called before a change is applied
+     * A listener that cannot record the change may throw to reject it, leaving the ledger unchanged
+     */
+    default void beforeChange() {
+    }
+    
+    /**
+     * Called after a transaction is added
+     * 
+     * @param transaction Added transaction
+     */
+    default void transactionAdded(Transaction transaction) {
+    }
+    
+    /**
+     * Called after a transaction is removed
+     * 
+     * @param transactionId ID of the removed transaction
+     */
+    default void transactionRemoved(int transactionId) {
+    }
+    
+    /**
+     * Called after a removed transaction is put back by undo or redo
+     * 
+     * @param transactionId ID of the restored transaction
+     */
+    default void deleteUndone(int transactionId) {
+    }
+    
+    /**
+     * Called after the total budget is set
+     * 
+     * @param amount New total budget
+     */
+    default void totalBudgetSet(double amount) {
+    }
+    
+    /**
+     * Called after a category budget is set
+     * 
+     * @param category Category name
+     * @param amount New category budget
+     */
+    default void categoryBudgetSet(String category, double amount) {
+    }
+    
+    /**
+     * Called after a category budget is removed
+     * 
+     * @param category Category name
+     */
+    default void categoryBudgetRemoved(String category) {
+    }
+    
+    /**
+     * Called when a checkpoint of the ledger is taken, before any later change
+     * 
+     * @param checkpoint Checkpoint taken
+     */
+    default void checkpointTaken(LedgerCheckpoint checkpoint) {
+    }
+}
\ No newline at end of file
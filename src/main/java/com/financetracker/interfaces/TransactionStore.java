@@ -0,0 +1,160 @@
+package com.financetracker.interfaces;
+
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Interface for the storage engine behind TransactionManager
+ * Rows are addressed by slot, and the primitive accessors let callers
+ * scan the store without creating Transaction objects
+ */
+public interface TransactionStore {
+    /**
+     * Get number of stored transactions
+     * 
+     * @return Number of slots in use, including deleted slots
+     */
+    int size();
+    
+    /**
+     * Append a transaction to the end of the store
+     * 
+     * @param transaction Transaction to store
+     * @return Slot the transaction was stored in
+     */
+    int add(Transaction transaction);
+    
+    /**
+     * Make room for at least the given number of slots
+     * Lets bulk loads grow storage once instead of row by row
+     * 
+     * @param capacity Number of slots to hold
+     */
+    void ensureCapacity(int capacity);
+    
+    /**
+     * Insert a transaction at a slot, shifting later slots up
+     * Used to put a transaction back in its original position
+     * Later adds are numbered after the given sequence
+     * 
+     * @param slot Slot to insert at
+     * @param transaction Transaction to store
+     * @param sequence Sequence number the transaction had when first added
+     */
+    void insert(int slot, Transaction transaction, int sequence);
+    
+    /**
+     * Check if the transaction in a slot has been deleted
+     * Deleted slots keep their data until the next compaction
+     * 
+     * @param slot Slot to read
+     * @return true if deleted, false if live
+     */
+    boolean isDeleted(int slot);
+    
+    /**
+     * Mark a slot as deleted or live
+     * 
+     * @param slot Slot to update
+     * @param deleted true to delete, false to restore
+     */
+    void setDeleted(int slot, boolean deleted);
+    
+    /**
+     * Remove all deleted slots, shifting live slots down
+     * Live slots keep their relative order
+     * 
+     * @return Number of slots removed
+     */
+    int compact();
+    
+    /**
+     * Get the sequence number of the slot
+     * Sequence numbers increase in the order transactions were added
+     * 
+     * @param slot Slot to read
+     * @return Sequence number
+     */
+    int getSequence(int slot);
+    
+    /**
+     * Get the transaction stored in a slot
+     * Columnar stores build a new Income or Expense object on each call
+     * 
+     * @param slot Slot to read
+     * @return Transaction in that slot
+     */
+    Transaction get(int slot);
+    
+    /**
+     * Get the transaction ID stored in a slot
+     * 
+     * @param slot Slot to read
+     * @return Transaction ID
+     */
+    int getId(int slot);
+    
+    /**
+     * Get the amount stored in a slot in cents
+     * 
+     * @param slot Slot to read
+     * @return Amount in cents
+     */
+    long getAmountCents(int slot);
+    
+    /**
+     * Get the date stored in a slot as an epoch day
+     * 
+     * @param slot Slot to read
+     * @return Days since 1970-01-01
+     */
+    int getEpochDay(int slot);
+    
+    /**
+     * Check if the slot holds an expense
+     * 
+     * @param slot Slot to read
+     * @return true for expenses, false for income
+     */
+    boolean isExpense(int slot);
+    
+    /**
+     * Check if the slot holds a recurring expense
+     * 
+     * @param slot Slot to read
+     * @return true if recurring, false otherwise
+     */
+    boolean isRecurring(int slot);
+    
+    /**
+     * Get the category stored in a slot
+     * 
+     * @param slot Slot to read
+     * @return Category name
+     */
+    String getCategory(int slot);
+    
+    /**
+     * Get the description stored in a slot
+     * 
+     * @param slot Slot to read
+     * @return Description
+     */
+    String getDescription(int slot);
+    
+    /**
+     * Get the category ID stored in a slot
+     * IDs come from the CategoryDictionary the store was created with
+     * 
+     * @param slot Slot to read
+     * @return Category ID
+     */
+    int getCategoryId(int slot);
+    
+    /**
+     * Get the dictionary that category IDs refer to
+     * 
+     * @return Category dictionary
+     */
+    CategoryDictionary getCategoryDictionary();
+}
\ No newline at end of file
@@ -1,23 +1,59 @@
 package com.financetracker.manager;
 
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.interfaces.LedgerListener;
+import com.financetracker.util.CategoryDictionary;
 
 /**
  * Class for managing user budgets
+ * Category budgets are kept in arrays indexed by category ID
  */
 public class BudgetManager {
     private double totalBudget;
     
-    // Map to store category budgets (requirement 15)
-    private Map<String, Double> categoryBudgets;
+    // Category budgets by category ID, returned as a Map (requirement 15)
+    private double[] categoryBudgets;
+    private boolean[] hasCategoryBudget;
+    private int categoryBudgetCount;
+    
+    private CategoryDictionary categories;
+    
+    // Notified after every budget change
+    private List<LedgerListener> listeners;
+    
+    // Ledger whose undo history records budget changes, or null
+    private TransactionManager history;
+    
+    // Incremented on every budget change, so cached reports can tell they are out of date
+    private long modificationVersion;
     
     /**
      * Constructor for BudgetManager
+     * Uses a new category dictionary
      */
     public BudgetManager() {
+        this(new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for BudgetManager with a category dictionary
+     * 
+     * @param categories Dictionary for category IDs
+     */
+    public BudgetManager(CategoryDictionary categories) {
         this.totalBudget = 0.0;
-        this.categoryBudgets = new HashMap<>();
+        this.categories = categories;
+        this.categoryBudgets = new double[Math.max(16, categories.size())];
+        this.hasCategoryBudget = new boolean[categoryBudgets.length];
+        this.listeners = new CopyOnWriteArrayList<>();
     }
     
     /**
@@ -26,7 +62,11 @@ public class BudgetManager {
      * @param amount Budget amount
      */
     public void setTotalBudget(double amount) {
-        this.totalBudget = amount;
+        admitChange();
+        if (history != null) {
+            history.budgetChanged(CategoryDictionary.UNKNOWN, true, totalBudget, true, amount);
+        }
+        applyTotalBudget(amount);
     }
     
     /**
@@ -45,7 +85,184 @@ public class BudgetManager {
      * @param amount Budget amount
      */
     public void setCategoryBudget(String category, double amount) {
-        categoryBudgets.put(category, amount);
+        admitChange();
+        int id = categories.intern(category);
+        if (id >= categoryBudgets.length) {
+            int capacity = Math.max(id + 1, categoryBudgets.length * 2);
+            categoryBudgets = Arrays.copyOf(categoryBudgets, capacity);
+            hasCategoryBudget = Arrays.copyOf(hasCategoryBudget, capacity);
+        }
+        
+        if (history != null) {
+            history.budgetChanged(id, hasCategoryBudget[id], categoryBudgets[id], true, amount);
+        }
+        applyCategoryBudget(id, amount);
+    }
+    
+    /**
+     * Remove the budget for a category
+     * 
+     * @param category Category name
+     * @return true if removed, false if the category had no budget
+     */
+    public boolean removeCategoryBudget(String category) {
+        int id = categories.find(category);
+        if (id == CategoryDictionary.UNKNOWN || id >= hasCategoryBudget.length || !hasCategoryBudget[id]) {
+            return false;
+        }
+        
+        admitChange();
+        if (history != null) {
+            history.budgetChanged(id, true, categoryBudgets[id], false, 0.0);
+        }
+        applyRemoval(id);
+        return true;
+    }
+    
+    /**
+     * Set the ledger whose undo history records budget changes
+     * Called by TransactionManager.trackBudgets
+     * 
+     * @param transactionManager Ledger to record in
+     */
+    void setHistory(TransactionManager transactionManager) {
+        this.history = transactionManager;
+    }
+    
+    /**
+     * Move the category budgets to another dictionary, translating their IDs by name
+     * Called by TransactionManager.trackBudgets, so budgets and ledger share category IDs
+     * 
+     * @param dictionary Dictionary to use from now on
+     */
+    void useCategories(CategoryDictionary dictionary) {
+        if (dictionary == categories) {
+            return;
+        }
+        double[] budgets = new double[Math.max(16, dictionary.size())];
+        boolean[] present = new boolean[budgets.length];
+        for (int id = 0; id < hasCategoryBudget.length; id++) {
+            if (!hasCategoryBudget[id]) {
+                continue;
+            }
+            int newId = dictionary.intern(categories.nameOf(id));
+            if (newId >= budgets.length) {
+                int capacity = Math.max(newId + 1, budgets.length * 2);
+                budgets = Arrays.copyOf(budgets, capacity);
+                present = Arrays.copyOf(present, capacity);
+            }
+            budgets[newId] = categoryBudgets[id];
+            present[newId] = true;
+        }
+        categories = dictionary;
+        categoryBudgets = budgets;
+        hasCategoryBudget = present;
+    }
+    
+    /**
+     * Put a budget back as it was on one side of a recorded change, without recording it again
+     * Called by TransactionManager on undo and redo
+     * 
+     * @param categoryId Category ID, or CategoryDictionary.UNKNOWN for the total budget
+     * @param present Whether the budget was set
+     * @param amount Budget amount
+     */
+    void restoreBudget(int categoryId, boolean present, double amount) {
+        if (categoryId == CategoryDictionary.UNKNOWN) {
+            applyTotalBudget(amount);
+        } else if (present) {
+            applyCategoryBudget(categoryId, amount);
+        } else if (hasCategoryBudget[categoryId]) {
+            applyRemoval(categoryId);
+        }
+    }
+    
+    /**
+     * Give every listener the chance to reject a change before it is applied
+     */
+    private void admitChange() {
+        for (LedgerListener listener : listeners) {
+            listener.beforeChange();
+        }
+    }
+    
+    /**
+     * Set the total budget and notify listeners
+     * 
+     * @param amount Budget amount
+     */
+    private void applyTotalBudget(double amount) {
+        this.totalBudget = amount;
+        modificationVersion++;
+        
+        for (LedgerListener listener : listeners) {
+            listener.totalBudgetSet(amount);
+        }
+    }
+    
+    /**
+     * Set a category budget and notify listeners
+     * 
+     * @param id Category ID, within the budget arrays
+     * @param amount Budget amount
+     */
+    private void applyCategoryBudget(int id, double amount) {
+        if (!hasCategoryBudget[id]) {
+            hasCategoryBudget[id] = true;
+            categoryBudgetCount++;
+        }
+        categoryBudgets[id] = amount;
+        modificationVersion++;
+        
+        String category = categories.nameOf(id);
+        for (LedgerListener listener : listeners) {
+            listener.categoryBudgetSet(category, amount);
+        }
+    }
+    
+    /**
+     * Remove a category budget and notify listeners
+     * 
+     * @param id Category ID with a budget
+     */
+    private void applyRemoval(int id) {
+        hasCategoryBudget[id] = false;
+        categoryBudgets[id] = 0.0;
+        categoryBudgetCount--;
+        modificationVersion++;
+        
+        String category = categories.nameOf(id);
+        for (LedgerListener listener : listeners) {
+            listener.categoryBudgetRemoved(category);
+        }
+    }
+    
+    /**
+     * Get the modification version
+     * Changes whenever a budget is set, removed, undone or redone
+     * 
+     * @return Current version
+     */
+    public long getModificationVersion() {
+        return modificationVersion;
+    }
+    
+    /**
+     * Register a listener to be notified after every budget change
+     * 
+     * @param listener Listener to add
+     */
+    public void addListener(LedgerListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Stop notifying a listener
+     * 
+     * @param listener Listener to remove
+     */
+    public void removeListener(LedgerListener listener) {
+        listeners.remove(listener);
     }
     
     /**
@@ -55,7 +272,11 @@ public class BudgetManager {
      * @return Budget amount for category
      */
     public double getCategoryBudget(String category) {
-        return categoryBudgets.getOrDefault(category, 0.0);
+        int id = categories.find(category);
+        if (id == CategoryDictionary.UNKNOWN || id >= categoryBudgets.length) {
+            return 0.0;
+        }
+        return categoryBudgets[id];
     }
     
     /**
@@ -64,7 +285,15 @@ public class BudgetManager {
      * @return Map of all category budgets
      */
     public Map<String, Double> getAllCategoryBudgets() {
-        return new HashMap<>(categoryBudgets);
+        Map<String, Double> budgets = new HashMap<>();
+        
+        for (int id = 0; id < hasCategoryBudget.length; id++) {
+            if (hasCategoryBudget[id]) {
+                budgets.put(categories.nameOf(id), categoryBudgets[id]);
+            }
+        }
+        
+        return budgets;
     }
     
     /**
@@ -74,21 +303,75 @@ public class BudgetManager {
      * @return Remaining budget by category
      */
     public Map<String, Double> getRemainingBudgets(Map<String, Double> expensesByCategory) {
+        double[] remaining = Arrays.copyOf(categoryBudgets, Math.max(categoryBudgets.length, categories.size()));
+        boolean[] present = Arrays.copyOf(hasCategoryBudget, remaining.length);
         Map<String, Double> remainingBudgets = new HashMap<>();
         
-        // First, add all category budgets to the result
-        for (Map.Entry<String, Double> entry : categoryBudgets.entrySet()) {
-            remainingBudgets.put(entry.getKey(), entry.getValue());
-        }
-        
         // Subtract expenses from corresponding budgets
         for (Map.Entry<String, Double> entry : expensesByCategory.entrySet()) {
-            String category = entry.getKey();
-            double expense = entry.getValue();
-            double budget = remainingBudgets.getOrDefault(category, 0.0);
-            remainingBudgets.put(category, budget - expense);
+            int id = categories.find(entry.getKey());
+            if (id == CategoryDictionary.UNKNOWN || id >= remaining.length) {
+                remainingBudgets.put(entry.getKey(), -entry.getValue());
+            } else {
+                remaining[id] -= entry.getValue();
+                present[id] = true;
+            }
         }
         
+        addBudgets(remainingBudgets, remaining, present);
+        return remainingBudgets;
+    }
+    
+    /**
+     * Calculate remaining budget after a ledger's expenses
+     * Reads the ledger's per-category totals as an array, without building a Map first,
+     * when the ledger tracks these budgets and so shares their category IDs
+     * 
+     * @param transactionManager Ledger to read expenses from
+     * @return Remaining budget by category
+     */
+    public Map<String, Double> getRemainingBudgets(TransactionManager transactionManager) {
+        if (transactionManager.getCategoryDictionary() != categories) {
+            return getRemainingBudgets(transactionManager.getExpensesByCategory());
+        }
+        return remainingAfter(transactionManager.getExpenseCentsByCategoryId());
+    }
+    
+    /**
+     * Calculate remaining budget after one month of a ledger's expenses
+     * Reads the ledger's month by category table, so the month's transactions are not scanned
+     * 
+     * @param transactionManager Ledger to read expenses from
+     * @param month Month to budget
+     * @return Remaining budget by category
+     */
+    public Map<String, Double> getRemainingBudgets(TransactionManager transactionManager, YearMonth month) {
+        if (transactionManager.getCategoryDictionary() != categories) {
+            return getRemainingBudgets(transactionManager.getExpensesByCategory(month, month));
+        }
+        return remainingAfter(transactionManager.getExpenseCentsByCategoryId(month, month));
+    }
+    
+    /**
+     * Subtract per-category expenses from the category budgets
+     * 
+     * @param expenseCents Expenses in cents, indexed by category ID
+     * @return Remaining budget by category
+     */
+    private Map<String, Double> remainingAfter(long[] expenseCents) {
+        int length = Math.max(categoryBudgets.length, expenseCents.length);
+        double[] remaining = Arrays.copyOf(categoryBudgets, length);
+        boolean[] present = Arrays.copyOf(hasCategoryBudget, length);
+        
+        for (int id = 0; id < expenseCents.length; id++) {
+            if (expenseCents[id] != 0) {
+                remaining[id] -= expenseCents[id] / 100.0;
+                present[id] = true;
+            }
+        }
+        
+        Map<String, Double> remainingBudgets = new HashMap<>();
+        addBudgets(remainingBudgets, remaining, present);
         return remainingBudgets;
     }
     
@@ -118,17 +401,46 @@ public class BudgetManager {
      * Display budget summary
      */
     public void displayBudgetSummary() {
-        // Print using printf (requirement 25)
-        System.out.printf("Total Budget: $%.2f\n", totalBudget);
+        ReportRenderer.printToConsole(this::renderBudgetSummary);
+    }
+    
+    /**
+     * Write the budget summary report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    public void renderBudgetSummary(ReportRenderer renderer) throws IOException {
+        renderer.beginReport("Current Budget");
+        renderer.amount("Total Budget", Math.round(totalBudget * 100));
         
-        if (categoryBudgets.isEmpty()) {
-            System.out.println("No category budgets set.");
+        if (categoryBudgetCount == 0) {
+            renderer.note("No category budgets set.");
+            renderer.endReport();
             return;
         }
         
-        System.out.println("\nCategory Budgets:");
-        for (Map.Entry<String, Double> entry : categoryBudgets.entrySet()) {
-            System.out.printf("- %s: $%.2f\n", entry.getKey(), entry.getValue());
+        renderer.section("Category Budgets");
+        for (int id = 0; id < hasCategoryBudget.length; id++) {
+            if (hasCategoryBudget[id]) {
+                renderer.amount(categories.nameOf(id), Math.round(categoryBudgets[id] * 100));
+            }
+        }
+        renderer.endReport();
+    }
+    
+    /**
+     * Copy the flagged entries of a per-category array into a Map
+     * 
+     * @param target Map to fill
+     * @param amounts Amounts by category ID
+     * @param present Which category IDs to copy
+     */
+    private void addBudgets(Map<String, Double> target, double[] amounts, boolean[] present) {
+        for (int id = 0; id < present.length; id++) {
+            if (present[id]) {
+                target.put(categories.nameOf(id), amounts[id]);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.financetracker.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.financetracker.model.Transaction;
+
+/**
+ * Outcome of a bulk load into a TransactionManager
+ * Holds the number of accepted rows and one entry for each rejected row
+ */
+public class BulkLoadResult {
+    private int acceptedCount;
+    private List<Rejection> rejections;
+    
+    /**
+     * Constructor for BulkLoadResult
+     */
+    BulkLoadResult() {
+        this.acceptedCount = 0;
+        this.rejections = new ArrayList<>();
+    }
+    
+    /**
+     * Record an accepted row
+     */
+    void accept() {
+        acceptedCount++;
+    }
+    
+    /**
+     * Record a rejected row
+     * 
+     * @param rowIndex Position of the row in the batch
+     * @param transaction Rejected transaction
+     * @param reason Why the row was rejected
+     */
+    void reject(int rowIndex, Transaction transaction, String reason) {
+        rejections.add(new Rejection(rowIndex, transaction, reason));
+    }
+    
+    /**
+     * Get number of rows added to the ledger
+     * 
+     * @return Accepted row count
+     */
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+    
+    /**
+     * Get number of rows that were not added
+     * 
+     * @return Rejected row count
+     */
+    public int getRejectedCount() {
+        return rejections.size();
+    }
+    
+    /**
+     * Get the rejected rows
+     * 
+     * @return Rejected rows in batch order
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+    
+    /**
+     * Check if every row was accepted
+     * 
+     * @return true if nothing was rejected
+     */
+    public boolean isComplete() {
+        return rejections.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BulkLoadResult{accepted=%d, rejected=%d}", acceptedCount, rejections.size());
+    }
+    
+    /**
+     * A row that was not added to the ledger
+     */
+    public static class Rejection {
+        private int rowIndex;
+        private Transaction transaction;
+        private String reason;
+        
+        /**
+         * Constructor for Rejection
+         * 
+         * @param rowIndex Position of the row in the batch
+         * @param transaction Rejected transaction
+         * @param reason Why the row was rejected
+         */
+        Rejection(int rowIndex, Transaction transaction, String reason) {
+            this.rowIndex = rowIndex;
+            this.transaction = transaction;
+            this.reason = reason;
+        }
+        
+        /**
+         * Get position of the row in the batch
+         * 
+         * @return Zero-based row index
+         */
+        public int getRowIndex() {
+            return rowIndex;
+        }
+        
+        /**
+         * Get the rejected transaction
+         * 
+         * @return Rejected transaction, or null if the row was null
+         */
+        public Transaction getTransaction() {
+            return transaction;
+        }
+        
+        /**
+         * Get why the row was rejected
+         * 
+         * @return Rejection reason
+         */
+        public String getReason() {
+            return reason;
+        }
+        
+        @Override
+        public String toString() {
+            return "Row " + rowIndex + ": " + reason;
+        }
+    }
+}
\ No newline at end of file
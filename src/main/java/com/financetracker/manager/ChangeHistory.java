@@ -0,0 +1,821 @@
+package com.financetracker.manager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Bounded undo and redo history for a TransactionManager
+ * Entries are kept field by field in two primitive ring buffers. When either ring is full,
+ * its oldest half is written to a spill file if one is set, or its oldest entry is dropped if not,
+ * and spilled entries are read back once the ring runs empty. Undo entries spill to the file given,
+ * redo entries to a temporary file beside it. Every operation therefore takes constant amortized
+ * time, and the history never grows the heap past its capacity.
+ * 
+ * undo() and redo() move one entry between the rings and select it, so the caller can read its
+ * fields and apply the change.
+ */
+class ChangeHistory {
+    // Entry kinds
+    static final byte ADD = 1;
+    static final byte DELETE = 2;
+    static final byte TOTAL_BUDGET = 3;
+    static final byte CATEGORY_BUDGET = 4;
+    
+    /**
+     * Default number of entries kept in memory by each ring
+     */
+    static final int DEFAULT_CAPACITY = 1024;
+    
+    // Entries allocated when a ring is first used, so idle ledgers stay small
+    private static final int INITIAL_CAPACITY = 16;
+    
+    // Flag bits: the transaction's type, or whether a budget was set before and after the change
+    private static final byte EXPENSE_FLAG = 1;
+    private static final byte RECURRING_FLAG = 2;
+    private static final byte BEFORE_FLAG = 4;
+    private static final byte AFTER_FLAG = 8;
+    
+    // Spilled record: kind, flags, id, day, category, sequence, amount, previous, description
+    // length, description bytes, then the record length again so the file can be read backwards
+    private static final int RECORD_FIXED_SIZE = 1 + 1 + 4 + 4 + 4 + 4 + 8 + 8 + 4;
+    private static final int READ_CHUNK = 64 * 1024;
+    
+    private final Ring undo;
+    private final Ring redo;
+    
+    // Selected entry, read by the field accessors
+    private Ring selectedRing;
+    private int selected;
+    
+    // Older entries of each ring, oldest first; without a spill file they are dropped
+    private final Spill undoSpill;
+    private final Spill redoSpill;
+    
+    /**
+     * Constructor for ChangeHistory
+     * 
+     * @param capacity Entries kept in memory by each ring, rounded up to a power of two
+     */
+    ChangeHistory(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.undo = new Ring(size);
+        this.redo = new Ring(size);
+        this.undoSpill = new Spill("undo");
+        this.redoSpill = new Spill("redo");
+    }
+    
+    /**
+     * Record a change to a transaction, clearing the redo history
+     * 
+     * @param kind ADD or DELETE
+     * @param store Store holding the transaction
+     * @param slot Slot of the transaction
+     */
+    void record(byte kind, TransactionStore store, int slot) {
+        byte flags = 0;
+        if (store.isExpense(slot)) {
+            flags |= EXPENSE_FLAG;
+        }
+        if (store.isRecurring(slot)) {
+            flags |= RECURRING_FLAG;
+        }
+        
+        clearRedo();
+        undo.set(pushUndo(), kind, flags, store.getId(slot), store.getEpochDay(slot), store.getCategoryId(slot),
+                store.getSequence(slot), store.getAmountCents(slot), 0, store.getDescription(slot));
+    }
+    
+    /**
+     * Record a deleted transaction, clearing the redo history
+     * Used to rebuild the history from a checkpoint
+     * 
+     * @param transaction Deleted transaction
+     * @param categoryId Dictionary ID of its category
+     * @param sequence Sequence number of its slot
+     */
+    void recordDelete(Transaction transaction, int categoryId, int sequence) {
+        byte flags = 0;
+        if (transaction instanceof Expense) {
+            flags |= EXPENSE_FLAG;
+            if (((Expense) transaction).isRecurring()) {
+                flags |= RECURRING_FLAG;
+            }
+        }
+        
+        clearRedo();
+        undo.set(pushUndo(), DELETE, flags, transaction.getId(), DateUtility.toEpochDay(transaction.getDate()),
+                categoryId, sequence, Math.round(transaction.getAmount() * 100), 0, transaction.getDescription());
+    }
+    
+    /**
+     * Record a budget change, clearing the redo history
+     * 
+     * @param categoryId Category ID, or CategoryDictionary.UNKNOWN for the total budget
+     * @param hadBudget Whether a budget was set before the change
+     * @param before Budget before the change
+     * @param hasBudget Whether a budget is set after the change
+     * @param after Budget after the change
+     */
+    void recordBudget(int categoryId, boolean hadBudget, double before, boolean hasBudget, double after) {
+        byte flags = (byte) ((hadBudget ? BEFORE_FLAG : 0) | (hasBudget ? AFTER_FLAG : 0));
+        byte kind = categoryId == CategoryDictionary.UNKNOWN ? TOTAL_BUDGET : CATEGORY_BUDGET;
+        
+        clearRedo();
+        undo.set(pushUndo(), kind, flags, categoryId, 0, categoryId, 0, Double.doubleToRawLongBits(after),
+                Double.doubleToRawLongBits(before), null);
+    }
+    
+    /**
+     * Move the most recent change to the redo history and select it
+     * 
+     * @return true if there was a change to undo
+     */
+    boolean undo() {
+        if (!has(undo, undoSpill)) {
+            return false;
+        }
+        
+        int from = undo.removeLast();
+        int to = push(redo, redoSpill);
+        redo.copy(to, undo, from);
+        select(redo, to);
+        return true;
+    }
+    
+    /**
+     * Move the most recently undone change back to the undo history and select it
+     * 
+     * @return true if there was a change to redo
+     */
+    boolean redo() {
+        if (!has(redo, redoSpill)) {
+            return false;
+        }
+        
+        int from = redo.removeLast();
+        int to = push(undo, undoSpill);
+        undo.copy(to, redo, from);
+        select(undo, to);
+        return true;
+    }
+    
+    /**
+     * Select the most recent change without undoing it
+     * 
+     * @return true if there is a change to undo
+     */
+    boolean selectLast() {
+        if (!has(undo, undoSpill)) {
+            return false;
+        }
+        select(undo, undo.physical(undo.count - 1));
+        return true;
+    }
+    
+    /**
+     * Select the most recent change in memory to a transaction
+     * Spilled entries are not searched
+     * 
+     * @param transactionId Transaction ID
+     * @return true if found
+     */
+    boolean find(int transactionId) {
+        for (int i = undo.count - 1; i >= 0; i--) {
+            int index = undo.physical(i);
+            if (undo.ids[index] == transactionId && undo.kinds[index] <= DELETE) {
+                select(undo, index);
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Select an undo entry held in memory
+     * 
+     * @param position Position, 0 for the oldest entry in memory
+     */
+    void selectUndo(int position) {
+        select(undo, undo.physical(position));
+    }
+    
+    /**
+     * Get number of undo entries held in memory
+     * 
+     * @return Entry count
+     */
+    int undoCountInMemory() {
+        return undo.count;
+    }
+    
+    /**
+     * Get number of changes that can be undone, including spilled ones
+     * 
+     * @return Entry count
+     */
+    int undoDepth() {
+        return undo.count + undoSpill.count;
+    }
+    
+    /**
+     * Get number of changes that can be redone, including spilled ones
+     * 
+     * @return Entry count
+     */
+    int redoDepth() {
+        return redo.count + redoSpill.count;
+    }
+    
+    /**
+     * Drop every entry, including spilled ones
+     */
+    void clear() {
+        undo.clear();
+        clearRedo();
+        selectedRing = null;
+        undoSpill.clear();
+    }
+    
+    /**
+     * Start spilling older entries to files, or stop and drop the spilled entries
+     * The undo file is created or emptied; redo entries go to the same path with ".redo" added,
+     * which is deleted when spilling stops
+     * 
+     * @param path Undo spill file, or null to keep only the entries in memory
+     * @throws IOException If a file cannot be opened
+     */
+    void setSpillFile(Path path) throws IOException {
+        undoSpill.open(path, false);
+        redoSpill.open(path == null ? null : path.resolveSibling(path.getFileName() + ".redo"), true);
+    }
+    
+    /**
+     * Get the spill file
+     * 
+     * @return Spill file, or null if older entries are dropped
+     */
+    Path getSpillFile() {
+        return undoSpill.path;
+    }
+    
+    /**
+     * Get the kind of the selected entry
+     * 
+     * @return ADD, DELETE, TOTAL_BUDGET or CATEGORY_BUDGET
+     */
+    byte kind() {
+        return selectedRing.kinds[selected];
+    }
+    
+    /**
+     * Get the transaction ID of the selected entry
+     * 
+     * @return Transaction ID
+     */
+    int id() {
+        return selectedRing.ids[selected];
+    }
+    
+    /**
+     * Get the sequence number of the selected transaction's slot
+     * 
+     * @return Sequence number
+     */
+    int sequence() {
+        return selectedRing.sequences[selected];
+    }
+    
+    /**
+     * Get the category ID of the selected entry
+     * 
+     * @return Category ID, or CategoryDictionary.UNKNOWN for a total budget change
+     */
+    int categoryId() {
+        return selectedRing.categoryIds[selected];
+    }
+    
+    /**
+     * Check if the selected budget change had a budget on one side
+     * 
+     * @param after true for after the change, false for before
+     * @return true if a budget was set
+     */
+    boolean hasBudget(boolean after) {
+        return (selectedRing.flags[selected] & (after ? AFTER_FLAG : BEFORE_FLAG)) != 0;
+    }
+    
+    /**
+     * Get the budget on one side of the selected budget change
+     * 
+     * @param after true for after the change, false for before
+     * @return Budget amount
+     */
+    double budget(boolean after) {
+        return Double.longBitsToDouble(after ? selectedRing.amounts[selected] : selectedRing.previous[selected]);
+    }
+    
+    /**
+     * Create the selected transaction
+     * 
+     * @param categories Dictionary the category ID refers to
+     * @return Income or Expense
+     */
+    Transaction transaction(CategoryDictionary categories) {
+        Ring ring = selectedRing;
+        int index = selected;
+        double amount = ring.amounts[index] / 100.0;
+        String category = categories.nameOf(ring.categoryIds[index]);
+        Date date = DateUtility.fromEpochDay(ring.days[index]);
+        
+        if ((ring.flags[index] & EXPENSE_FLAG) != 0) {
+            return new Expense(ring.ids[index], amount, ring.descriptions[index], category, date,
+                    (ring.flags[index] & RECURRING_FLAG) != 0);
+        }
+        return new Income(ring.ids[index], amount, ring.descriptions[index], category, date);
+    }
+    
+    /**
+     * Select an entry for the field accessors
+     * 
+     * @param ring Ring holding the entry
+     * @param index Physical index in the ring
+     */
+    private void select(Ring ring, int index) {
+        selectedRing = ring;
+        selected = index;
+    }
+    
+    /**
+     * Check for an entry in a ring, reading spilled entries back if the ring is empty
+     * 
+     * @param ring Undo or redo ring
+     * @param spill The ring's spill file
+     * @return true if there is an entry
+     */
+    private boolean has(Ring ring, Spill spill) {
+        if (ring.count == 0 && spill.count > 0) {
+            spill.read(ring);
+        }
+        return ring.count > 0;
+    }
+    
+    /**
+     * Make room for a new undo entry and add it
+     * 
+     * @return Physical index of the new entry
+     */
+    private int pushUndo() {
+        selectedRing = null;
+        return push(undo, undoSpill);
+    }
+    
+    /**
+     * Make room for a new entry after the newest one and add it
+     * 
+     * @param ring Undo or redo ring
+     * @param spill The ring's spill file
+     * @return Physical index of the new entry
+     */
+    private int push(Ring ring, Spill spill) {
+        if (ring.isFull()) {
+            if (spill.channel != null) {
+                spill.write(ring, ring.capacity() / 2);
+            } else {
+                ring.removeFirst();
+            }
+        }
+        return ring.addLast();
+    }
+    
+    /**
+     * Drop every redo entry, including spilled ones
+     */
+    private void clearRedo() {
+        redo.clear();
+        redoSpill.clear();
+    }
+    
+    /**
+     * File holding the oldest entries of one ring, read back newest first
+     */
+    private static class Spill {
+        // Ring the file belongs to, for error messages
+        private final String name;
+        
+        // Spill file, or null to drop entries
+        Path path;
+        FileChannel channel;
+        private long size;
+        int count;
+        
+        /**
+         * Constructor for Spill
+         * 
+         * @param name "undo" or "redo"
+         */
+        Spill(String name) {
+            this.name = name;
+        }
+        
+        /**
+         * Close the current file and start using another
+         * 
+         * @param file File to create or empty, or null to drop entries
+         * @param temporary true to delete the file when it is closed
+         * @throws IOException If the file cannot be opened
+         */
+        void open(Path file, boolean temporary) throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            count = 0;
+            size = 0;
+            path = file;
+            if (file != null) {
+                channel = temporary
+                        ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                                StandardOpenOption.DELETE_ON_CLOSE)
+                        : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+        }
+        
+        /**
+         * Drop every spilled entry
+         */
+        void clear() {
+            if (count > 0 || size > 0) {
+                truncate(0);
+            }
+            count = 0;
+        }
+        
+        /**
+         * Write the oldest entries of a ring to the end of the file
+         * 
+         * @param ring Ring to take entries from
+         * @param entries Number of entries to spill
+         */
+        void write(Ring ring, int entries) {
+            ByteBuffer buffer = ByteBuffer.allocate(entries * (RECORD_FIXED_SIZE + 4 + 32));
+            for (int i = 0; i < entries; i++) {
+                int index = ring.removeFirst();
+                String description = ring.descriptions[index];
+                byte[] text = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+                int length = RECORD_FIXED_SIZE + (text == null ? 0 : text.length);
+                if (buffer.remaining() < length + 4) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length + 4));
+                    buffer.flip();
+                    buffer = larger.put(buffer);
+                }
+                
+                buffer.put(ring.kinds[index]).put(ring.flags[index]).putInt(ring.ids[index]).putInt(ring.days[index])
+                        .putInt(ring.categoryIds[index]).putInt(ring.sequences[index]).putLong(ring.amounts[index])
+                        .putLong(ring.previous[index]).putInt(text == null ? -1 : text.length);
+                if (text != null) {
+                    buffer.put(text);
+                }
+                buffer.putInt(length);
+                ring.descriptions[index] = null;
+            }
+            
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    size += channel.write(buffer, size);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write " + name + " history to " + path, e);
+            }
+            count += entries;
+        }
+        
+        /**
+         * Read the newest spilled entries back into an empty ring
+         * Half a ring is read at a time, so entries are not spilled again straight away
+         * 
+         * @param ring Ring to fill
+         */
+        void read(Ring ring) {
+            int wanted = ring.capacity() / 2;
+            try {
+                while (wanted > 0 && count > 0) {
+                    // Records are parsed backwards from the end of a chunk read from the end of the file
+                    int length = (int) Math.min(size, READ_CHUNK);
+                    ByteBuffer chunk = read(size - length, length);
+                    int end = length;
+                    while (wanted > 0 && count > 0 && end >= 4) {
+                        int recordLength = chunk.getInt(end - 4);
+                        if (recordLength + 4 > end) {
+                            break;
+                        }
+                        end -= recordLength + 4;
+                        decode(ring, chunk, end);
+                        size -= recordLength + 4;
+                        count--;
+                        wanted--;
+                    }
+                    
+                    // A record larger than a chunk is read on its own
+                    if (end == length && wanted > 0 && count > 0) {
+                        int recordLength = read(size - 4, 4).getInt(0);
+                        decode(ring, read(size - 4 - recordLength, recordLength), 0);
+                        size -= recordLength + 4;
+                        count--;
+                        wanted--;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + name + " history from " + path, e);
+            }
+            truncate(size);
+        }
+        
+        /**
+         * Decode one spilled record into the front of a ring
+         * 
+         * @param ring Ring to add to
+         * @param buffer Buffer holding the record
+         * @param offset Offset of the record
+         */
+        private void decode(Ring ring, ByteBuffer buffer, int offset) {
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset);
+            byte kind = record.get();
+            byte flags = record.get();
+            int id = record.getInt();
+            int day = record.getInt();
+            int categoryId = record.getInt();
+            int sequence = record.getInt();
+            long amount = record.getLong();
+            long previous = record.getLong();
+            int textLength = record.getInt();
+            String description = null;
+            if (textLength >= 0) {
+                byte[] text = new byte[textLength];
+                record.get(text);
+                description = new String(text, StandardCharsets.UTF_8);
+            }
+            
+            ring.set(ring.addFirst(), kind, flags, id, day, categoryId, sequence, amount, previous, description);
+        }
+        
+        /**
+         * Read part of the file
+         * 
+         * @param position File offset
+         * @param length Number of bytes
+         * @return Buffer holding the bytes, positioned at 0
+         * @throws IOException If the file cannot be read
+         */
+        private ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("History file is truncated: " + path);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+        
+        /**
+         * Cut the file to a length
+         * 
+         * @param length New length in bytes
+         */
+        private void truncate(long length) {
+            try {
+                channel.truncate(length);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not truncate " + name + " history file " + path, e);
+            }
+            size = length;
+        }
+    }
+    
+    /**
+     * Double-ended ring buffer of entries, one primitive array per field
+     */
+    private static class Ring {
+        byte[] kinds;
+        byte[] flags;
+        int[] ids;
+        int[] days;
+        int[] categoryIds;
+        int[] sequences;
+        long[] amounts;
+        long[] previous;
+        String[] descriptions;
+        
+        // Most entries the ring holds; the arrays start small and double up to it
+        final int capacity;
+        
+        // Physical index of the oldest entry, and number of entries
+        int head;
+        int count;
+        
+        /**
+         * Constructor for Ring
+         * 
+         * @param capacity Number of entries, a power of two
+         */
+        Ring(int capacity) {
+            this.capacity = capacity;
+            allocate(Math.min(capacity, INITIAL_CAPACITY));
+        }
+        
+        /**
+         * Get the number of entries the ring holds
+         * 
+         * @return Capacity
+         */
+        int capacity() {
+            return capacity;
+        }
+        
+        /**
+         * Check if the ring is full
+         * 
+         * @return true if full
+         */
+        boolean isFull() {
+            return count == capacity;
+        }
+        
+        /**
+         * Get the physical index of an entry
+         * 
+         * @param position Position, 0 for the oldest entry
+         * @return Physical index
+         */
+        int physical(int position) {
+            return (head + position) & (kinds.length - 1);
+        }
+        
+        /**
+         * Add an entry after the newest one
+         * The ring must not be full
+         * 
+         * @return Physical index of the new entry
+         */
+        int addLast() {
+            if (count == kinds.length) {
+                grow();
+            }
+            return physical(count++);
+        }
+        
+        /**
+         * Add an entry before the oldest one
+         * The ring must not be full
+         * 
+         * @return Physical index of the new entry
+         */
+        int addFirst() {
+            if (count == kinds.length) {
+                grow();
+            }
+            head = (head - 1) & (kinds.length - 1);
+            count++;
+            return head;
+        }
+        
+        /**
+         * Remove the newest entry
+         * Its fields stay readable until another entry is added
+         * 
+         * @return Physical index of the removed entry
+         */
+        int removeLast() {
+            return physical(--count);
+        }
+        
+        /**
+         * Remove the oldest entry
+         * Its fields stay readable until another entry is added
+         * 
+         * @return Physical index of the removed entry
+         */
+        int removeFirst() {
+            int index = head;
+            head = (head + 1) & (kinds.length - 1);
+            count--;
+            return index;
+        }
+        
+        /**
+         * Remove every entry
+         */
+        void clear() {
+            Arrays.fill(descriptions, null);
+            head = 0;
+            count = 0;
+        }
+        
+        /**
+         * Double the arrays, moving the entries to the front in order
+         */
+        private void grow() {
+            byte[] oldKinds = kinds;
+            byte[] oldFlags = flags;
+            int[] oldIds = ids;
+            int[] oldDays = days;
+            int[] oldCategoryIds = categoryIds;
+            int[] oldSequences = sequences;
+            long[] oldAmounts = amounts;
+            long[] oldPrevious = previous;
+            String[] oldDescriptions = descriptions;
+            int mask = oldKinds.length - 1;
+            
+            allocate(oldKinds.length * 2);
+            for (int i = 0; i < count; i++) {
+                int from = (head + i) & mask;
+                kinds[i] = oldKinds[from];
+                flags[i] = oldFlags[from];
+                ids[i] = oldIds[from];
+                days[i] = oldDays[from];
+                categoryIds[i] = oldCategoryIds[from];
+                sequences[i] = oldSequences[from];
+                amounts[i] = oldAmounts[from];
+                previous[i] = oldPrevious[from];
+                descriptions[i] = oldDescriptions[from];
+            }
+            head = 0;
+        }
+        
+        /**
+         * Replace every array with an empty one
+         * 
+         * @param length Array length, a power of two
+         */
+        private void allocate(int length) {
+            kinds = new byte[length];
+            flags = new byte[length];
+            ids = new int[length];
+            days = new int[length];
+            categoryIds = new int[length];
+            sequences = new int[length];
+            amounts = new long[length];
+            previous = new long[length];
+            descriptions = new String[length];
+        }
+        
+        /**
+         * Write every field of an entry
+         * 
+         * @param index Physical index
+         * @param kind Entry kind
+         * @param flag Flag bits
+         * @param id Transaction ID or category ID
+         * @param day Epoch day
+         * @param categoryId Category ID
+         * @param sequence Sequence number
+         * @param amount Cents, or budget after the change as double bits
+         * @param before Budget before the change as double bits
+         * @param description Description
+         */
+        void set(int index, byte kind, byte flag, int id, int day, int categoryId, int sequence, long amount,
+                long before, String description) {
+            kinds[index] = kind;
+            flags[index] = flag;
+            ids[index] = id;
+            days[index] = day;
+            categoryIds[index] = categoryId;
+            sequences[index] = sequence;
+            amounts[index] = amount;
+            previous[index] = before;
+            descriptions[index] = description;
+        }
+        
+        /**
+         * Copy an entry from another ring
+         * 
+         * @param index Physical index to write
+         * @param source Ring to copy from
+         * @param from Physical index in the source ring
+         */
+        void copy(int index, Ring source, int from) {
+            set(index, source.kinds[from], source.flags[from], source.ids[from], source.days[from],
+                    source.categoryIds[from], source.sequences[from], source.amounts[from], source.previous[from],
+                    source.descriptions[from]);
+            source.descriptions[from] = null;
+        }
+    }
+}
\ No newline at end of file
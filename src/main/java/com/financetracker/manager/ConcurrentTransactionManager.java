@@ -0,0 +1,508 @@
+package com.financetracker.manager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+
+import com.financetracker.exception.InvalidCategoryException;
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Transaction;
+import com.financetracker.storage.MappedTransactionStore;
+import com.financetracker.storage.PartitionedTransactionStore;
+
+/**
+ * Thread-safe TransactionManager for ledgers fed by several threads
+ * Writers take a StampedLock write lock one at a time
+ * Balance and category total reads use optimistic reads and do not block,
+ * falling back to a read lock only if a write happened while reading
+ */
+public class ConcurrentTransactionManager extends TransactionManager {
+    private final StampedLock lock = new StampedLock();
+    
+    /**
+     * Constructor for ConcurrentTransactionManager
+     * Uses columnar storage
+     */
+    public ConcurrentTransactionManager() {
+        super();
+    }
+    
+    /**
+     * Constructor for ConcurrentTransactionManager with a chosen storage engine
+     * 
+     * @param mode Storage engine to use
+     */
+    public ConcurrentTransactionManager(StorageMode mode) {
+        super(mode);
+    }
+    
+    /**
+     * Constructor for ConcurrentTransactionManager over an existing store
+     * 
+     * @param store Store holding the transactions
+     */
+    public ConcurrentTransactionManager(TransactionStore store) {
+        super(store);
+    }
+    
+    /**
+     * Constructor for ConcurrentTransactionManager over a store whose totals are already known
+     * 
+     * @param store Store holding the transactions
+     * @param totals Totals of the store
+     */
+    ConcurrentTransactionManager(TransactionStore store, LedgerTotals totals) {
+        super(store, totals);
+    }
+    
+    /**
+     * Open a ledger saved with writeSegment for use by several threads
+     * 
+     * @param path Segment file
+     * @return Manager over the file
+     * @throws IOException If the file cannot be read or is not a valid segment
+     */
+    public static ConcurrentTransactionManager openSegment(Path path) throws IOException {
+        MappedTransactionStore store = new MappedTransactionStore(path);
+        return new ConcurrentTransactionManager(store, LedgerTotals.fromSegment(store));
+    }
+    
+    /**
+     * Open a ledger partitioned by month for use by several threads
+     * 
+     * @param directory Directory with one segment or archive file per month, created if missing
+     * @return Manager over the partitions
+     * @throws IOException If the directory or a month's file cannot be read
+     */
+    public static ConcurrentTransactionManager openPartitioned(Path directory) throws IOException {
+        PartitionedTransactionStore store = new PartitionedTransactionStore(directory);
+        return new ConcurrentTransactionManager(store, LedgerTotals.fromPartitions(store));
+    }
+    
+    @Override
+    public int writeSegment(Path path) throws IOException {
+        return read(() -> super.writeSegment(path));
+    }
+    
+    @Override
+    public int savePartitions() throws IOException {
+        return write(super::savePartitions);
+    }
+    
+    @Override
+    public int unloadPartitionsBefore(Date date) throws IOException {
+        return write(() -> super.unloadPartitionsBefore(date));
+    }
+    
+    @Override
+    public int archivePartitionsBefore(Date date) throws IOException {
+        return write(() -> super.archivePartitionsBefore(date));
+    }
+    
+    @Override
+    public void addTransaction(Transaction transaction) {
+        long stamp = lock.writeLock();
+        try {
+            super.addTransaction(transaction);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public BulkLoadResult addTransactions(Collection<? extends Transaction> batch) {
+        return write(() -> super.addTransactions(batch));
+    }
+    
+    @Override
+    public boolean removeTransaction(int transactionId) {
+        return write(() -> super.removeTransaction(transactionId));
+    }
+    
+    @Override
+    public boolean undo() {
+        return write(super::undo);
+    }
+    
+    @Override
+    public boolean redo() {
+        return write(super::redo);
+    }
+    
+    @Override
+    public boolean undoDelete() {
+        return write(super::undoDelete);
+    }
+    
+    @Override
+    public boolean restoreTransaction(int transactionId) {
+        return write(() -> super.restoreTransaction(transactionId));
+    }
+    
+    @Override
+    public int getUndoDepth() {
+        return read(super::getUndoDepth);
+    }
+    
+    @Override
+    public int getRedoDepth() {
+        return read(super::getRedoDepth);
+    }
+    
+    @Override
+    public void clearHistory() {
+        long stamp = lock.writeLock();
+        try {
+            super.clearHistory();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public void setHistorySpillFile(Path path) throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            super.setHistorySpillFile(path);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public void trackBudgets(BudgetManager budgetManager) {
+        long stamp = lock.writeLock();
+        try {
+            super.trackBudgets(budgetManager);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    void budgetChanged(int categoryId, boolean hadBudget, double before, boolean hasBudget, double after) {
+        long stamp = lock.writeLock();
+        try {
+            super.budgetChanged(categoryId, hadBudget, before, hasBudget, after);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public void compact() {
+        long stamp = lock.writeLock();
+        try {
+            super.compact();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Take a point-in-time copy of the ledger and undo stack
+     * Writers wait while the storage columns are copied and listeners are told; a journal only
+     * switches buffers then, and forces the records already queued after the lock is released
+     * 
+     * @return New checkpoint
+     */
+    @Override
+    public LedgerCheckpoint checkpoint() {
+        return write(super::checkpoint);
+    }
+    
+    @Override
+    public void restore(LedgerCheckpoint checkpoint) {
+        long stamp = lock.writeLock();
+        try {
+            super.restore(checkpoint);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public List<Transaction> getAllTransactions() {
+        return read(super::getAllTransactions);
+    }
+    
+    @Override
+    public int getTransactionCount() {
+        return readOptimistically(super::getTransactionCount);
+    }
+    
+    /**
+     * Get a stream of all transactions
+     * Other threads may write while the stream runs, so the stream
+     * reads from a copy taken under the read lock
+     * 
+     * @return Stream of transactions in ledger order
+     */
+    @Override
+    public Stream<Transaction> stream() {
+        return getAllTransactions().stream();
+    }
+    
+    @Override
+    public Stream<Transaction> streamByType(String type) {
+        return getTransactionsByType(type).stream();
+    }
+    
+    @Override
+    public Stream<Transaction> streamByCategory(String category) {
+        return getTransactionsByCategory(category).stream();
+    }
+    
+    @Override
+    public DoubleStream incomeAmounts() {
+        return DoubleStream.of(read(() -> super.incomeAmounts().toArray()));
+    }
+    
+    @Override
+    public DoubleStream expenseAmounts() {
+        return DoubleStream.of(read(() -> super.expenseAmounts().toArray()));
+    }
+    
+    @Override
+    public long getModificationVersion() {
+        return readOptimistically(super::getModificationVersion);
+    }
+    
+    @Override
+    public List<Transaction> getTransactionsByType(String type) {
+        return read(() -> super.getTransactionsByType(type));
+    }
+    
+    @Override
+    public List<Transaction> getTransactionsByCategory(String category) {
+        return read(() -> super.getTransactionsByCategory(category));
+    }
+    
+    @Override
+    public List<Transaction> getTransactionsByFilter(Predicate<Transaction> filter) {
+        return read(() -> super.getTransactionsByFilter(filter));
+    }
+    
+    @Override
+    public List<Transaction> getTransactionsByDateRange(Date startDate, Date endDate) {
+        // The date index is brought up to date lazily, so this needs the write lock
+        return write(() -> super.getTransactionsByDateRange(startDate, endDate));
+    }
+    
+    @Override
+    public int scanSlots(Date startDate, Date endDate, String category, ObjIntConsumer<TransactionStore> visitor) {
+        if (startDate == null && endDate == null) {
+            return read(() -> super.scanSlots(null, null, category, visitor));
+        }
+        // The date index is brought up to date lazily, so a date range needs the write lock
+        return write(() -> super.scanSlots(startDate, endDate, category, visitor));
+    }
+    
+    @Override
+    public double getIncomeBetween(Date startDate, Date endDate) {
+        // Date ordering is brought up to date lazily, so this needs the write lock
+        return write(() -> super.getIncomeBetween(startDate, endDate));
+    }
+    
+    @Override
+    public double getExpensesBetween(Date startDate, Date endDate) {
+        return write(() -> super.getExpensesBetween(startDate, endDate));
+    }
+    
+    @Override
+    public double getBalance() {
+        return readOptimistically(super::getBalance);
+    }
+    
+    @Override
+    public double getTotalIncome() {
+        return readOptimistically(super::getTotalIncome);
+    }
+    
+    @Override
+    public double getTotalExpenses() {
+        return readOptimistically(super::getTotalExpenses);
+    }
+    
+    @Override
+    public Map<String, Double> getExpensesByCategory() {
+        return readOptimistically(super::getExpensesByCategory);
+    }
+    
+    @Override
+    public Map<String, Double> getIncomeByCategory() {
+        return readOptimistically(super::getIncomeByCategory);
+    }
+    
+    @Override
+    public double getCategoryExpenses(String category) throws InvalidCategoryException {
+        return readOptimistically(() -> super.getCategoryExpenses(category));
+    }
+    
+    @Override
+    public double getCategoryIncome(String category) throws InvalidCategoryException {
+        return readOptimistically(() -> super.getCategoryIncome(category));
+    }
+    
+    @Override
+    public long[] getExpenseCentsByCategoryId() {
+        return readOptimistically(super::getExpenseCentsByCategoryId);
+    }
+    
+    @Override
+    public long[] getIncomeCentsByCategoryId() {
+        return readOptimistically(super::getIncomeCentsByCategoryId);
+    }
+    
+    @Override
+    public double getIncomeForMonths(YearMonth start, YearMonth end) {
+        // The month by category table is built on first use, so this needs the write lock
+        return write(() -> super.getIncomeForMonths(start, end));
+    }
+    
+    @Override
+    public double getExpensesForMonths(YearMonth start, YearMonth end) {
+        return write(() -> super.getExpensesForMonths(start, end));
+    }
+    
+    @Override
+    public Map<String, Double> getIncomeByCategory(YearMonth start, YearMonth end) {
+        return write(() -> super.getIncomeByCategory(start, end));
+    }
+    
+    @Override
+    public Map<String, Double> getExpensesByCategory(YearMonth start, YearMonth end) {
+        return write(() -> super.getExpensesByCategory(start, end));
+    }
+    
+    @Override
+    public long[] getExpenseCentsByCategoryId(YearMonth start, YearMonth end) {
+        return write(() -> super.getExpenseCentsByCategoryId(start, end));
+    }
+    
+    @Override
+    public boolean verifyTotals() {
+        return read(super::verifyTotals);
+    }
+    
+    @Override
+    public void rebuildTotals() {
+        long stamp = lock.writeLock();
+        try {
+            super.rebuildTotals();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    @Override
+    public void displayAllTransactions() {
+        long stamp = lock.readLock();
+        try {
+            super.displayAllTransactions();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    @Override
+    public void renderTransactions(ReportRenderer renderer) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            super.renderTransactions(renderer);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Operation run under the lock
+     * 
+     * @param <T> Result type
+     * @param <E> Exception type the operation may throw
+     */
+    private interface LockedOperation<T, E extends Exception> {
+        /**
+         * Run the operation
+         * 
+         * @return Result
+         * @throws E If the operation fails
+         */
+        T run() throws E;
+    }
+    
+    /**
+     * Run an operation holding the write lock
+     * 
+     * @param <T> Result type
+     * @param <E> Exception type
+     * @param operation Operation to run
+     * @return Result of the operation
+     * @throws E If the operation fails
+     */
+    private <T, E extends Exception> T write(LockedOperation<T, E> operation) throws E {
+        long stamp = lock.writeLock();
+        try {
+            return operation.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Run an operation holding the read lock
+     * 
+     * @param <T> Result type
+     * @param <E> Exception type
+     * @param operation Operation to run
+     * @return Result of the operation
+     * @throws E If the operation fails
+     */
+    private <T, E extends Exception> T read(LockedOperation<T, E> operation) throws E {
+        long stamp = lock.readLock();
+        try {
+            return operation.run();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Run a read without locking, retrying under the read lock if a write overlapped it
+     * The operation may see half-written state, so its result is only used once validated
+     * 
+     * @param <T> Result type
+     * @param <E> Exception type
+     * @param operation Operation to run
+     * @return Result of the operation
+     * @throws E If the operation fails
+     */
+    private <T, E extends Exception> T readOptimistically(LockedOperation<T, E> operation) throws E {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = operation.run();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // A concurrent write left the state inconsistent; retry under the lock
+                if (lock.validate(stamp)) {
+                    throw e;
+                }
+            }
+        }
+        
+        return read(operation);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.financetracker.manager;
+
+import java.util.Arrays;
+
+import com.financetracker.interfaces.TransactionStore;
+
+/**
+ * Secondary index of store slots ordered by epoch day
+ * Each entry packs the day into the high 32 bits and the slot into the low 32 bits,
+ * so sorting the entries orders them by day and then by slot
+ */
+class DateIndex {
+    private long[] entries;
+    private int size;
+    
+    // Set when an entry arrives out of order; the next query sorts the index
+    private boolean sorted;
+    
+    // Set when slots have moved; the next query rebuilds the index from the store
+    private boolean stale;
+    
+    /**
+     * Constructor for DateIndex
+     * The index starts stale and is built on first use
+     */
+    DateIndex() {
+        this.entries = new long[16];
+        this.size = 0;
+        this.sorted = true;
+        this.stale = true;
+    }
+    
+    /**
+     * Record a newly added slot
+     * 
+     * @param epochDay Day of the transaction
+     * @param slot Slot the transaction was stored in
+     */
+    void add(int epochDay, int slot) {
+        if (stale) {
+            return;  // Picked up by the next rebuild
+        }
+        
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size + (size >> 1));
+        }
+        
+        long entry = pack(epochDay, slot);
+        if (size > 0 && entry < entries[size - 1]) {
+            sorted = false;
+        }
+        entries[size++] = entry;
+    }
+    
+    /**
+     * Record a run of newly added slots
+     * 
+     * @param store Store holding the slots
+     * @param from First slot to add
+     * @param to Slot after the last one to add
+     */
+    void addRange(TransactionStore store, int from, int to) {
+        if (stale) {
+            return;  // Picked up by the next rebuild
+        }
+        
+        if (size + (to - from) > entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(size + (to - from), size + (size >> 1)));
+        }
+        for (int slot = from; slot < to; slot++) {
+            add(store.getEpochDay(slot), slot);
+        }
+    }
+    
+    /**
+     * Mark the index as out of date after slots have moved
+     */
+    void invalidate() {
+        stale = true;
+        size = 0;
+    }
+    
+    /**
+     * Bring the index up to date before a query
+     * 
+     * @param store Store the slots refer to
+     */
+    void refresh(TransactionStore store) {
+        if (stale) {
+            if (entries.length < store.size()) {
+                entries = new long[store.size()];
+            }
+            for (int i = 0; i < store.size(); i++) {
+                entries[i] = pack(store.getEpochDay(i), i);
+            }
+            size = store.size();
+            sorted = false;
+            stale = false;
+        }
+        
+        // Sorting detects the already ordered runs, so a few late entries are cheap
+        if (!sorted) {
+            Arrays.sort(entries, 0, size);
+            sorted = true;
+        }
+    }
+    
+    /**
+     * Find the first entry on or after a day
+     * 
+     * @param epochDay Day to search for
+     * @return Position of the first entry with day &gt;= epochDay
+     */
+    int firstOnOrAfter(int epochDay) {
+        long key = pack(epochDay, 0);
+        int low = 0;
+        int high = size;
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Get number of entries
+     * 
+     * @return Number of entries
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Get the day of an entry
+     * 
+     * @param position Position in the index
+     * @return Epoch day
+     */
+    int dayAt(int position) {
+        return (int) (entries[position] >> 32);
+    }
+    
+    /**
+     * Get the slot of an entry
+     * 
+     * @param position Position in the index
+     * @return Store slot
+     */
+    int slotAt(int position) {
+        return (int) entries[position];
+    }
+    
+    /**
+     * Pack a day and slot into one sortable entry
+     * 
+     * @param epochDay Day of the transaction
+     * @param slot Store slot
+     * @return Packed entry
+     */
+    private static long pack(int epochDay, int slot) {
+        return ((long) epochDay << 32) | (slot & 0xFFFFFFFFL);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.financetracker.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Transaction;
+
+/**
+ * Point-in-time copy of a TransactionManager's ledger and undo stack
+ * Taken by TransactionManager.checkpoint and put back with restore
+ */
+public class LedgerCheckpoint {
+    private final TransactionStore store;
+    private final List<Transaction> undoStack;
+    private final int[] undoSequences;
+    private final long version;
+    
+    /**
+     * Constructor for LedgerCheckpoint
+     * 
+     * @param store Every slot of the ledger, including deleted slots the undo stack can restore
+     * @param undoStack Deleted transactions, oldest first
+     * @param undoSequences Sequence number of each undo entry whose slot was compacted away,
+     *                      or IntIntHashMap.NO_VALUE if its deleted slot is still in the store
+     * @param version Modification version of the ledger when the checkpoint was taken
+     */
+    public LedgerCheckpoint(TransactionStore store, List<Transaction> undoStack, int[] undoSequences, long version) {
+        if (undoStack.size() != undoSequences.length) {
+            throw new IllegalArgumentException("One sequence number is needed per undo entry");
+        }
+        this.store = store;
+        this.undoStack = Collections.unmodifiableList(new ArrayList<>(undoStack));
+        this.undoSequences = undoSequences.clone();
+        this.version = version;
+    }
+    
+    /**
+     * Get the copied ledger
+     * Callers must not modify it
+     * 
+     * @return Store holding every slot
+     */
+    public TransactionStore getStore() {
+        return store;
+    }
+    
+    /**
+     * Get the undo stack
+     * 
+     * @return Deleted transactions, oldest first
+     */
+    public List<Transaction> getUndoStack() {
+        return undoStack;
+    }
+    
+    /**
+     * Get the sequence number of an undo entry whose slot was compacted away
+     * 
+     * @param index Position in the undo stack, oldest first
+     * @return Sequence number, or IntIntHashMap.NO_VALUE if the deleted slot is still in the store
+     */
+    public int getUndoSequence(int index) {
+        return undoSequences[index];
+    }
+    
+    /**
+     * Get the modification version of the ledger when the checkpoint was taken
+     * 
+     * @return Modification version
+     */
+    public long getVersion() {
+        return version;
+    }
+}
\ No newline at end of file
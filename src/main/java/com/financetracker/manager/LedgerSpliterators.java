@@ -0,0 +1,208 @@
+package com.financetracker.manager;
+
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntPredicate;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Transaction;
+
+/**
+ * Spliterators that walk a TransactionManager's store in place
+ * Deleted slots are skipped, and any change to the manager during traversal
+ * raises ConcurrentModificationException instead of giving mixed results
+ */
+class LedgerSpliterators {
+    
+    /**
+     * Shared slot range and modification check
+     */
+    private abstract static class SlotRange {
+        protected final TransactionManager manager;
+        protected final TransactionStore store;
+        protected final IntPredicate slotFilter;
+        protected int index;
+        
+        // Bound on first use, so a stream sees changes made before it runs
+        private int fence;
+        private long expectedVersion;
+        
+        /**
+         * Constructor for SlotRange
+         * 
+         * @param manager Manager that owns the store
+         * @param store Store to walk
+         * @param slotFilter Which live slots to include
+         * @param index First slot
+         * @param fence Slot after the last one, or -1 to bind on first use
+         * @param expectedVersion Manager version the range was bound at
+         */
+        SlotRange(TransactionManager manager, TransactionStore store, IntPredicate slotFilter,
+                int index, int fence, long expectedVersion) {
+            this.manager = manager;
+            this.store = store;
+            this.slotFilter = slotFilter;
+            this.index = index;
+            this.fence = fence;
+            this.expectedVersion = expectedVersion;
+        }
+        
+        /**
+         * Get the end of the range, binding it on first use
+         * 
+         * @return Slot after the last one
+         */
+        protected int getFence() {
+            if (fence < 0) {
+                expectedVersion = manager.getModificationVersion();
+                fence = store.size();
+            }
+            return fence;
+        }
+        
+        /**
+         * Get the version the range was bound at
+         * 
+         * @return Manager version
+         */
+        protected long getExpectedVersion() {
+            return expectedVersion;
+        }
+        
+        /**
+         * Find the next matching slot and move past it
+         * 
+         * @return Slot, or -1 at the end of the range
+         */
+        protected int nextSlot() {
+            int hi = getFence();
+            while (index < hi) {
+                checkVersion();
+                int slot = index++;
+                if (!store.isDeleted(slot) && slotFilter.test(slot)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Split off the first half of the remaining range
+         * 
+         * @return Start of the split-off half, or -1 if too small to split
+         */
+        protected int splitPoint() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            if (lo >= mid) {
+                return -1;
+            }
+            index = mid;
+            return lo;
+        }
+        
+        /**
+         * Throw if the manager changed since the range was bound
+         */
+        protected void checkVersion() {
+            if (manager.getModificationVersion() != expectedVersion) {
+                throw new ConcurrentModificationException();
+            }
+        }
+        
+        /**
+         * Upper bound on the number of remaining elements
+         * 
+         * @return Remaining slots
+         */
+        public long estimateSize() {
+            return getFence() - index;
+        }
+        
+        /**
+         * Characteristics shared by both spliterators
+         * 
+         * @return Spliterator characteristics
+         */
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+    
+    /**
+     * Spliterator of transactions, creating each one only when it is consumed
+     */
+    static class TransactionSpliterator extends SlotRange implements Spliterator<Transaction> {
+        
+        /**
+         * Constructor for TransactionSpliterator
+         * 
+         * @param manager Manager that owns the store
+         * @param store Store to walk
+         * @param slotFilter Which live slots to include
+         */
+        TransactionSpliterator(TransactionManager manager, TransactionStore store, IntPredicate slotFilter) {
+            super(manager, store, slotFilter, 0, -1, 0);
+        }
+        
+        private TransactionSpliterator(TransactionSpliterator parent, int index, int fence) {
+            super(parent.manager, parent.store, parent.slotFilter, index, fence, parent.getExpectedVersion());
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Transaction> action) {
+            int slot = nextSlot();
+            if (slot < 0) {
+                return false;
+            }
+            action.accept(store.get(slot));
+            return true;
+        }
+        
+        @Override
+        public Spliterator<Transaction> trySplit() {
+            int lo = splitPoint();
+            return lo < 0 ? null : new TransactionSpliterator(this, lo, index);
+        }
+    }
+    
+    /**
+     * Spliterator of amounts read straight from the store, with no Transaction objects
+     */
+    static class AmountSpliterator extends SlotRange implements Spliterator.OfDouble {
+        
+        /**
+         * Constructor for AmountSpliterator
+         * 
+         * @param manager Manager that owns the store
+         * @param store Store to walk
+         * @param slotFilter Which live slots to include
+         */
+        AmountSpliterator(TransactionManager manager, TransactionStore store, IntPredicate slotFilter) {
+            super(manager, store, slotFilter, 0, -1, 0);
+        }
+        
+        private AmountSpliterator(AmountSpliterator parent, int index, int fence) {
+            super(parent.manager, parent.store, parent.slotFilter, index, fence, parent.getExpectedVersion());
+        }
+        
+        @Override
+        public boolean tryAdvance(DoubleConsumer action) {
+            int slot = nextSlot();
+            if (slot < 0) {
+                return false;
+            }
+            action.accept(store.getAmountCents(slot) / 100.0);
+            return true;
+        }
+        
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            int lo = splitPoint();
+            return lo < 0 ? null : new AmountSpliterator(this, lo, index);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.financetracker.manager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.storage.MappedTransactionStore;
+import com.financetracker.storage.PartitionedTransactionStore;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Running totals for a TransactionManager
+ * Updated on every add, remove and undo so reads do not scan the ledger
+ * Per-category totals are arrays indexed by category ID
+ */
+class LedgerTotals {
+    private long incomeCents;
+    private long expenseCents;
+    private int incomeCount;
+    private int expenseCount;
+    
+    // Per-category cents and counts, one pair of arrays for each side of the ledger
+    private long[] incomeCentsByCategory;
+    private long[] expenseCentsByCategory;
+    private int[] incomeCountByCategory;
+    private int[] expenseCountByCategory;
+    
+    private CategoryDictionary categories;
+    
+    // Month by category table, built on first use and then kept up to date with the totals
+    private RollupTable rollups;
+    
+    /**
+     * Constructor for LedgerTotals
+     * 
+     * @param categories Dictionary the category IDs refer to
+     */
+    LedgerTotals(CategoryDictionary categories) {
+        this.categories = categories;
+        int capacity = Math.max(16, categories.size());
+        this.incomeCentsByCategory = new long[capacity];
+        this.expenseCentsByCategory = new long[capacity];
+        this.incomeCountByCategory = new int[capacity];
+        this.expenseCountByCategory = new int[capacity];
+    }
+    
+    /**
+     * Create totals from the footer of a freshly opened segment
+     * 
+     * @param store Store over the segment, before any changes
+     * @return Totals of the segment
+     */
+    static LedgerTotals fromSegment(MappedTransactionStore store) {
+        LedgerTotals totals = new LedgerTotals(store.getCategoryDictionary());
+        int categoryCount = store.getCategoryDictionary().size();
+        if (categoryCount > totals.incomeCentsByCategory.length) {
+            totals.grow(categoryCount);
+        }
+        
+        for (int id = 0; id < categoryCount; id++) {
+            totals.incomeCentsByCategory[id] = store.getSegmentCents(false, id);
+            totals.expenseCentsByCategory[id] = store.getSegmentCents(true, id);
+            totals.incomeCountByCategory[id] = store.getSegmentCount(false, id);
+            totals.expenseCountByCategory[id] = store.getSegmentCount(true, id);
+            totals.incomeCents += totals.incomeCentsByCategory[id];
+            totals.expenseCents += totals.expenseCentsByCategory[id];
+            totals.incomeCount += totals.incomeCountByCategory[id];
+            totals.expenseCount += totals.expenseCountByCategory[id];
+        }
+        return totals;
+    }
+    
+    /**
+     * Create totals from the month totals of a freshly opened partitioned store
+     * Archived months are not decompressed
+     * 
+     * @param store Partitioned store, before any changes
+     * @return Totals of the store
+     */
+    static LedgerTotals fromPartitions(PartitionedTransactionStore store) {
+        LedgerTotals totals = new LedgerTotals(store.getCategoryDictionary());
+        int categoryCount = store.getCategoryDictionary().size();
+        if (categoryCount > totals.incomeCentsByCategory.length) {
+            totals.grow(categoryCount);
+        }
+        
+        for (int id = 0; id < categoryCount; id++) {
+            totals.incomeCentsByCategory[id] = store.getCategoryCents(false, id);
+            totals.expenseCentsByCategory[id] = store.getCategoryCents(true, id);
+            totals.incomeCountByCategory[id] = store.getCategoryCount(false, id);
+            totals.expenseCountByCategory[id] = store.getCategoryCount(true, id);
+            totals.incomeCents += totals.incomeCentsByCategory[id];
+            totals.expenseCents += totals.expenseCentsByCategory[id];
+            totals.incomeCount += totals.incomeCountByCategory[id];
+            totals.expenseCount += totals.expenseCountByCategory[id];
+        }
+        return totals;
+    }
+    
+    /**
+     * Add the transaction in a slot to the totals
+     * 
+     * @param store Store holding the transaction
+     * @param slot Slot to add
+     */
+    void add(TransactionStore store, int slot) {
+        apply(store.isExpense(slot), store.getCategoryId(slot), store.getAmountCents(slot), 1);
+        if (rollups != null) {
+            rollups.apply(store.getEpochDay(slot), store.isExpense(slot), store.getCategoryId(slot),
+                    store.getAmountCents(slot), 1);
+        }
+    }
+    
+    /**
+     * Add a run of newly added slots to the totals
+     * 
+     * @param store Store holding the transactions
+     * @param from First slot to add
+     * @param to Slot after the last one to add
+     */
+    void addRange(TransactionStore store, int from, int to) {
+        for (int slot = from; slot < to; slot++) {
+            if (!store.isDeleted(slot)) {
+                add(store, slot);
+            }
+        }
+    }
+    
+    /**
+     * Add another set of totals into this one
+     * 
+     * @param other Totals to add
+     */
+    void merge(LedgerTotals other) {
+        rollups = null;
+        if (other.incomeCentsByCategory.length > incomeCentsByCategory.length) {
+            grow(other.incomeCentsByCategory.length);
+        }
+        
+        incomeCents += other.incomeCents;
+        expenseCents += other.expenseCents;
+        incomeCount += other.incomeCount;
+        expenseCount += other.expenseCount;
+        
+        for (int id = 0; id < other.incomeCentsByCategory.length; id++) {
+            incomeCentsByCategory[id] += other.incomeCentsByCategory[id];
+            expenseCentsByCategory[id] += other.expenseCentsByCategory[id];
+            incomeCountByCategory[id] += other.incomeCountByCategory[id];
+            expenseCountByCategory[id] += other.expenseCountByCategory[id];
+        }
+    }
+    
+    /**
+     * Take the transaction in a slot out of the totals
+     * 
+     * @param store Store holding the transaction
+     * @param slot Slot to remove
+     */
+    void remove(TransactionStore store, int slot) {
+        apply(store.isExpense(slot), store.getCategoryId(slot), store.getAmountCents(slot), -1);
+        if (rollups != null) {
+            rollups.apply(store.getEpochDay(slot), store.isExpense(slot), store.getCategoryId(slot),
+                    store.getAmountCents(slot), -1);
+        }
+    }
+    
+    /**
+     * Recompute the totals from every live slot in a store
+     * 
+     * @param store Store to scan
+     */
+    void rebuild(TransactionStore store) {
+        incomeCents = 0;
+        expenseCents = 0;
+        incomeCount = 0;
+        expenseCount = 0;
+        Arrays.fill(incomeCentsByCategory, 0);
+        Arrays.fill(expenseCentsByCategory, 0);
+        Arrays.fill(incomeCountByCategory, 0);
+        Arrays.fill(expenseCountByCategory, 0);
+        rollups = null;
+        
+        for (int i = 0; i < store.size(); i++) {
+            if (!store.isDeleted(i)) {
+                add(store, i);
+            }
+        }
+    }
+    
+    /**
+     * Get total income in cents
+     * 
+     * @return Total income
+     */
+    long getIncomeCents() {
+        return incomeCents;
+    }
+    
+    /**
+     * Get total expenses in cents
+     * 
+     * @return Total expenses
+     */
+    long getExpenseCents() {
+        return expenseCents;
+    }
+    
+    /**
+     * Get number of income transactions
+     * 
+     * @return Income count
+     */
+    int getIncomeCount() {
+        return incomeCount;
+    }
+    
+    /**
+     * Get number of expense transactions
+     * 
+     * @return Expense count
+     */
+    int getExpenseCount() {
+        return expenseCount;
+    }
+    
+    /**
+     * Get the total for one category in cents
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Category ID
+     * @return Total in cents
+     */
+    long getCategoryCents(boolean expenses, int categoryId) {
+        long[] cents = expenses ? expenseCentsByCategory : incomeCentsByCategory;
+        return categoryId < cents.length ? cents[categoryId] : 0;
+    }
+    
+    /**
+     * Get per-category totals for one side of the ledger as an array
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Copy of the totals in cents, indexed by category ID
+     */
+    long[] getCategoryCents(boolean expenses) {
+        long[] cents = expenses ? expenseCentsByCategory : incomeCentsByCategory;
+        return Arrays.copyOf(cents, categories.size());
+    }
+    
+    /**
+     * Get per-category totals for one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Map of category to total amount
+     */
+    Map<String, Double> getByCategory(boolean expenses) {
+        long[] cents = expenses ? expenseCentsByCategory : incomeCentsByCategory;
+        int[] counts = expenses ? expenseCountByCategory : incomeCountByCategory;
+        Map<String, Double> categoryMap = new HashMap<>();
+        
+        // Only categories with transactions appear, as with a full scan
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                categoryMap.put(categories.nameOf(id), cents[id] / 100.0);
+            }
+        }
+        
+        return categoryMap;
+    }
+    
+    /**
+     * Get the month by category table, building it from the store on first use
+     * 
+     * @param store Store these totals describe
+     * @return Table kept up to date with these totals
+     */
+    RollupTable rollups(TransactionStore store) {
+        if (rollups == null) {
+            rollups = RollupTable.build(store);
+        }
+        return rollups;
+    }
+    
+    /**
+     * Check if these totals match another set exactly
+     * 
+     * @param other Totals to compare with
+     * @return true if every total and count matches
+     */
+    boolean matches(LedgerTotals other) {
+        int length = categories.size();
+        return incomeCents == other.incomeCents
+                && expenseCents == other.expenseCents
+                && incomeCount == other.incomeCount
+                && expenseCount == other.expenseCount
+                && Arrays.equals(Arrays.copyOf(incomeCentsByCategory, length),
+                        Arrays.copyOf(other.incomeCentsByCategory, length))
+                && Arrays.equals(Arrays.copyOf(expenseCentsByCategory, length),
+                        Arrays.copyOf(other.expenseCentsByCategory, length))
+                && Arrays.equals(Arrays.copyOf(incomeCountByCategory, length),
+                        Arrays.copyOf(other.incomeCountByCategory, length))
+                && Arrays.equals(Arrays.copyOf(expenseCountByCategory, length),
+                        Arrays.copyOf(other.expenseCountByCategory, length));
+    }
+    
+    /**
+     * Apply one transaction to the totals
+     * 
+     * @param expense true for an expense, false for income
+     * @param categoryId Category ID
+     * @param cents Amount in cents
+     * @param sign 1 to add, -1 to remove
+     */
+    private void apply(boolean expense, int categoryId, long cents, int sign) {
+        if (categoryId >= incomeCentsByCategory.length) {
+            grow(categoryId + 1);
+        }
+        
+        if (expense) {
+            expenseCents += sign * cents;
+            expenseCount += sign;
+            expenseCentsByCategory[categoryId] += sign * cents;
+            expenseCountByCategory[categoryId] += sign;
+        } else {
+            incomeCents += sign * cents;
+            incomeCount += sign;
+            incomeCentsByCategory[categoryId] += sign * cents;
+            incomeCountByCategory[categoryId] += sign;
+        }
+    }
+    
+    /**
+     * Grow the per-category arrays to hold at least the given number of categories
+     * 
+     * @param minCapacity Required capacity
+     */
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, incomeCentsByCategory.length * 2);
+        incomeCentsByCategory = Arrays.copyOf(incomeCentsByCategory, capacity);
+        expenseCentsByCategory = Arrays.copyOf(expenseCentsByCategory, capacity);
+        incomeCountByCategory = Arrays.copyOf(incomeCountByCategory, capacity);
+        expenseCountByCategory = Arrays.copyOf(expenseCountByCategory, capacity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.financetracker.manager;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Fork/join task that totals a range of store slots
+ * Each leaf fills its own LedgerTotals and the partial results are merged
+ * on the way back up, so tasks never share a map or counter
+ */
+class ParallelAggregator extends RecursiveTask<LedgerTotals> {
+    private static final long serialVersionUID = 1L;
+    
+    // Smallest range worth splitting further
+    private static final int MIN_LEAF_SIZE = 16 * 1024;
+    
+    private final TransactionStore store;
+    private final CategoryDictionary categories;
+    private final int from;
+    private final int to;
+    private final int leafSize;
+    
+    /**
+     * Constructor for ParallelAggregator
+     * 
+     * @param store Store to read
+     * @param categories Dictionary the category IDs refer to
+     * @param from First slot
+     * @param to Slot after the last one
+     * @param leafSize Largest range totalled without splitting
+     */
+    private ParallelAggregator(TransactionStore store, CategoryDictionary categories,
+            int from, int to, int leafSize) {
+        this.store = store;
+        this.categories = categories;
+        this.from = from;
+        this.to = to;
+        this.leafSize = leafSize;
+    }
+    
+    /**
+     * Total every live slot of a store using the common fork/join pool
+     * The store must not change while this runs
+     * 
+     * @param store Store to read
+     * @return Totals for the whole store
+     */
+    static LedgerTotals aggregate(TransactionStore store) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        
+        // Aim for a few leaves per worker so uneven leaves balance out
+        int leafSize = Math.max(MIN_LEAF_SIZE, store.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new ParallelAggregator(store, store.getCategoryDictionary(), 0, store.size(), leafSize));
+    }
+    
+    @Override
+    protected LedgerTotals compute() {
+        if (to - from <= leafSize) {
+            LedgerTotals partial = new LedgerTotals(categories);
+            partial.addRange(store, from, to);
+            return partial;
+        }
+        
+        int mid = (from + to) >>> 1;
+        ParallelAggregator left = new ParallelAggregator(store, categories, from, mid, leafSize);
+        ParallelAggregator right = new ParallelAggregator(store, categories, mid, to, leafSize);
+        
+        left.fork();
+        LedgerTotals result = right.compute();
+        result.merge(left.join());
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,224 @@
+package com.financetracker.manager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.storage.PartitionedTransactionStore;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Materialized totals keyed by calendar month, category ID and type
+ * Once built, LedgerTotals keeps it up to date on every add, remove and undo, so any month
+ * or span of months is read in O(months x categories) without touching the ledger's rows
+ */
+class RollupTable {
+    private final CategoryDictionary categories;
+    
+    // Row for each month from firstMonth on, or null for a month with no transactions
+    private Row[] rows;
+    private int firstMonth;
+    
+    // Epoch days covered by the month last applied, since changes usually arrive in the same month
+    private int cachedStartDay;
+    private int cachedEndDay;
+    private int cachedMonth;
+    
+    /**
+     * Constructor for RollupTable
+     * 
+     * @param categories Dictionary the category IDs refer to
+     */
+    RollupTable(CategoryDictionary categories) {
+        this.categories = categories;
+        this.rows = new Row[0];
+        this.cachedStartDay = 1;
+        this.cachedEndDay = 0;
+    }
+    
+    /**
+     * Build the table from every live slot of a store
+     * A partitioned store is built from its month totals instead, so unloaded and archived
+     * months are not read
+     * 
+     * @param store Store to read
+     * @return Table of the store
+     */
+    static RollupTable build(TransactionStore store) {
+        RollupTable table = new RollupTable(store.getCategoryDictionary());
+        if (store instanceof PartitionedTransactionStore) {
+            PartitionedTransactionStore partitions = (PartitionedTransactionStore) store;
+            int categoryCount = table.categories.size();
+            for (YearMonth month : partitions.getMonths()) {
+                Row row = table.row(monthNumber(month));
+                row.ensureCapacity(categoryCount);
+                for (int id = 0; id < categoryCount; id++) {
+                    row.add(false, id, partitions.getCategoryCents(month, false, id),
+                            partitions.getCategoryCount(month, false, id));
+                    row.add(true, id, partitions.getCategoryCents(month, true, id),
+                            partitions.getCategoryCount(month, true, id));
+                }
+            }
+            return table;
+        }
+        
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (!store.isDeleted(slot)) {
+                table.apply(store.getEpochDay(slot), store.isExpense(slot), store.getCategoryId(slot),
+                        store.getAmountCents(slot), 1);
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Apply one transaction to the table
+     * 
+     * @param epochDay Date of the transaction
+     * @param expense true for an expense, false for income
+     * @param categoryId Category ID
+     * @param cents Amount in cents
+     * @param sign 1 to add, -1 to remove
+     */
+    void apply(int epochDay, boolean expense, int categoryId, long cents, int sign) {
+        if (epochDay < cachedStartDay || epochDay > cachedEndDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            LocalDate first = date.withDayOfMonth(1);
+            cachedStartDay = (int) first.toEpochDay();
+            cachedEndDay = (int) first.plusMonths(1).toEpochDay() - 1;
+            cachedMonth = date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+        
+        Row row = row(cachedMonth);
+        row.ensureCapacity(categoryId + 1);
+        row.add(expense, categoryId, sign * cents, sign);
+    }
+    
+    /**
+     * Get the total for one side of the ledger over a span of months
+     * 
+     * @param start First month
+     * @param end Last month
+     * @param expenses true for expenses, false for income
+     * @return Total in cents
+     */
+    long getCents(YearMonth start, YearMonth end, boolean expenses) {
+        long cents = 0;
+        int last = Math.min(monthNumber(end), firstMonth + rows.length - 1);
+        for (int month = Math.max(monthNumber(start), firstMonth); month <= last; month++) {
+            Row row = rows[month - firstMonth];
+            if (row != null) {
+                cents += expenses ? row.expenseCents : row.incomeCents;
+            }
+        }
+        return cents;
+    }
+    
+    /**
+     * Get per-category totals for one side of the ledger over a span of months
+     * 
+     * @param start First month
+     * @param end Last month
+     * @param expenses true for expenses, false for income
+     * @param cents Filled with totals in cents, indexed by category ID
+     * @param counts Filled with transaction counts, indexed by category ID
+     */
+    void getCategoryTotals(YearMonth start, YearMonth end, boolean expenses, long[] cents, int[] counts) {
+        int side = expenses ? 1 : 0;
+        int last = Math.min(monthNumber(end), firstMonth + rows.length - 1);
+        for (int month = Math.max(monthNumber(start), firstMonth); month <= last; month++) {
+            Row row = rows[month - firstMonth];
+            if (row == null) {
+                continue;
+            }
+            int length = Math.min(cents.length, row.counts.length / 2);
+            for (int id = 0; id < length; id++) {
+                cents[id] += row.cents[id * 2 + side];
+                counts[id] += row.counts[id * 2 + side];
+            }
+        }
+    }
+    
+    /**
+     * Get the row for a month, adding it if needed
+     * 
+     * @param month Month number
+     * @return Row for the month
+     */
+    private Row row(int month) {
+        if (rows.length == 0) {
+            rows = new Row[12];
+            firstMonth = month;
+        } else if (month < firstMonth) {
+            // Grow towards earlier months, leaving room for a few more
+            int shift = Math.max(firstMonth - month, rows.length / 2);
+            Row[] larger = new Row[rows.length + shift];
+            System.arraycopy(rows, 0, larger, shift, rows.length);
+            rows = larger;
+            firstMonth -= shift;
+        } else if (month - firstMonth >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(month - firstMonth + 1, rows.length * 2));
+        }
+        
+        Row row = rows[month - firstMonth];
+        if (row == null) {
+            row = new Row();
+            rows[month - firstMonth] = row;
+        }
+        return row;
+    }
+    
+    /**
+     * Number a month the way partitions do
+     * 
+     * @param month Month
+     * @return Months since the start of year 0
+     */
+    private static int monthNumber(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+    
+    /**
+     * Totals for one month
+     * Per-category cents and counts interleave income and expenses: index categoryId * 2 + (expense ? 1 : 0)
+     */
+    private static class Row {
+        long incomeCents;
+        long expenseCents;
+        long[] cents = new long[0];
+        int[] counts = new int[0];
+        
+        /**
+         * Grow the arrays to hold at least the given number of categories
+         * 
+         * @param categoryCount Required number of categories
+         */
+        void ensureCapacity(int categoryCount) {
+            if (categoryCount * 2 > counts.length) {
+                int capacity = Math.max(categoryCount * 2, Math.max(counts.length * 2, 32));
+                cents = Arrays.copyOf(cents, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+        }
+        
+        /**
+         * Add to one category's totals
+         * 
+         * @param expense true for expenses, false for income
+         * @param categoryId Category ID, within capacity
+         * @param amount Cents to add, negative to remove
+         * @param count Transactions to add, negative to remove
+         */
+        void add(boolean expense, int categoryId, long amount, int count) {
+            int index = categoryId * 2 + (expense ? 1 : 0);
+            cents[index] += amount;
+            counts[index] += count;
+            if (expense) {
+                expenseCents += amount;
+            } else {
+                incomeCents += amount;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,34 +1,251 @@
 package com.financetracker.manager;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
+import java.util.stream.DoubleStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.financetracker.exception.InvalidCategoryException;
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.interfaces.LedgerListener;
+import com.financetracker.interfaces.TransactionStore;
 import com.financetracker.model.Transaction;
-import com.financetracker.model.Income;
-import com.financetracker.model.Expense;
+import com.financetracker.storage.ColumnarTransactionStore;
+import com.financetracker.storage.ListTransactionStore;
+import com.financetracker.storage.MappedTransactionStore;
+import com.financetracker.storage.PartitionedTransactionStore;
+import com.financetracker.storage.TransactionSegment;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+import com.financetracker.util.IntIntHashMap;
 
 /**
  * Class for managing user transactions
- * Uses ArrayList and Stack data structures
+ * Uses a pluggable TransactionStore and a bounded undo/redo history
  */
 public class TransactionManager {
-    // ArrayList for storing transactions (requirement 13)
-    private ArrayList<Transaction> transactions;
+    /**
+     * Storage engines available to TransactionManager
+     */
+    public enum StorageMode {
+        /** Transaction objects in an ArrayList */
+        LIST,
+        /** Primitive arrays, one per field */
+        COLUMNAR,
+        /** Primitive arrays, one store per calendar month */
+        PARTITIONED
+    }
     
-    // Stack for undo functionality (requirement 14)
-    private Stack<Transaction> recentlyDeletedTransactions;
+    // Compaction runs once this many slots are deleted and they make up a quarter of the store
+    private static final int COMPACTION_THRESHOLD = 1024;
+    
+    /**
+     * Default ledger size at which totals are recomputed with fork/join
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 1024;
+    
+    // Storage for transactions (requirement 13)
+    private TransactionStore transactions;
+    
+    // Undo and redo history of adds, deletes and tracked budget changes (requirement 14)
+    private ChangeHistory history;
+    
+    // Budgets whose changes are recorded in the history, or null
+    private BudgetManager budgets;
+    
+    // Transaction ID to slot, for live and deleted slots
+    // Null until first needed when the manager was opened from a segment file
+    private IntIntHashMap idIndex;
+    
+    private int deletedCount;
+    
+    // Incremented on every change, so iterators and caches can tell when the ledger moved
+    private long modificationVersion;
+    
+    // Running totals kept up to date on every change
+    private LedgerTotals totals;
+    
+    // Slots ordered by date for range queries
+    private DateIndex dateIndex;
+    
+    // Ledgers with at least this many slots recompute totals in parallel
+    private int parallelThreshold;
+    
+    // Notified after every change, for example by a journal
+    private List<LedgerListener> listeners;
     
     /**
      * Constructor for TransactionManager
+     * Uses columnar storage
      */
     public TransactionManager() {
-        this.transactions = new ArrayList<>();
-        this.recentlyDeletedTransactions = new Stack<>();
+        this(StorageMode.COLUMNAR);
+    }
+    
+    /**
+     * Constructor for TransactionManager with a chosen storage engine
+     * 
+     * @param mode Storage engine to use
+     */
+    public TransactionManager(StorageMode mode) {
+        this(mode == StorageMode.LIST ? new ListTransactionStore()
+                : mode == StorageMode.PARTITIONED ? new PartitionedTransactionStore() : new ColumnarTransactionStore());
+    }
+    
+    /**
+     * Constructor for TransactionManager over an existing store
+     * 
+     * @param store Store holding the transactions
+     */
+    public TransactionManager(TransactionStore store) {
+        this(store, null);
+    }
+    
+    /**
+     * Constructor for TransactionManager over a store whose totals are already known
+     * The store must not have deleted slots, and the ID index is built the first time it is needed
+     * 
+     * @param store Store holding the transactions
+     * @param totals Totals of the store, or null to count them
+     */
+    TransactionManager(TransactionStore store, LedgerTotals totals) {
+        this.transactions = store;
+        this.history = new ChangeHistory(ChangeHistory.DEFAULT_CAPACITY);
+        this.deletedCount = 0;
+        this.dateIndex = new DateIndex();
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.listeners = new CopyOnWriteArrayList<>();
+        
+        if (totals != null) {
+            this.totals = totals;
+            return;
+        }
+        
+        this.totals = new LedgerTotals(store.getCategoryDictionary());
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isDeleted(i)) {
+                deletedCount++;
+            }
+        }
+        ids();
+        this.totals = computeTotals();
+    }
+    
+    /**
+     * Open a ledger saved with writeSegment
+     * Transactions are read in place from the memory-mapped file, and totals come from the
+     * file's footer, so opening takes the same time however many transactions it holds
+     * 
+     * @param path Segment file
+     * @return Manager over the file
+     * @throws IOException If the file cannot be read or is not a valid segment
+     */
+    public static TransactionManager openSegment(Path path) throws IOException {
+        MappedTransactionStore store = new MappedTransactionStore(path);
+        return new TransactionManager(store, LedgerTotals.fromSegment(store));
+    }
+    
+    /**
+     * Open a ledger partitioned by month over a directory of segment files
+     * Months already saved there start unloaded and are read in place from their files,
+     * and archived months stay compressed until a query reaches them
+     * 
+     * @param directory Directory with one segment or archive file per month, created if missing
+     * @return Manager over the partitions
+     * @throws IOException If the directory or a month's file cannot be read
+     */
+    public static TransactionManager openPartitioned(Path directory) throws IOException {
+        PartitionedTransactionStore store = new PartitionedTransactionStore(directory);
+        return new TransactionManager(store, LedgerTotals.fromPartitions(store));
+    }
+    
+    /**
+     * Save the live transactions to a segment file that openSegment can map
+     * 
+     * @param path File to write
+     * @return Number of transactions written
+     * @throws IOException If the file cannot be written
+     */
+    public int writeSegment(Path path) throws IOException {
+        return TransactionSegment.write(path, transactions);
+    }
+    
+    /**
+     * Write each month changed since it was last saved to its segment file
+     * 
+     * @return Number of files written
+     * @throws IOException If a file cannot be written
+     * @throws IllegalStateException If the ledger was not opened with openPartitioned
+     */
+    public int savePartitions() throws IOException {
+        return partitions().save();
+    }
+    
+    /**
+     * Release the memory of every month before the one containing a date
+     * The months stay queryable, read in place from their segment files
+     * Deleted slots are compacted first, since the files leave them out
+     * 
+     * @param date Date in the first month to keep loaded
+     * @return Number of months unloaded
+     * @throws IOException If a file cannot be written or mapped
+     * @throws IllegalStateException If the ledger was not opened with openPartitioned
+     */
+    public int unloadPartitionsBefore(Date date) throws IOException {
+        PartitionedTransactionStore store = partitions();
+        YearMonth keep = YearMonth.from(LocalDate.ofEpochDay(DateUtility.toEpochDay(date)));
+        if (deletedCount > 0) {
+            compactSlots();
+        }
+        
+        int unloaded = 0;
+        for (YearMonth month : store.getMonths()) {
+            if (month.isBefore(keep) && store.unload(month)) {
+                unloaded++;
+            }
+        }
+        return unloaded;
+    }
+    
+    /**
+     * Compress every month before the one containing a date into its archive file
+     * Only the IDs and totals of those months stay in memory; a query that reaches one
+     * decompresses it, and calling this again compresses it again
+     * Deleted slots are compacted first, since the archives leave them out
+     * 
+     * @param date Date in the first month to keep uncompressed
+     * @return Number of months archived
+     * @throws IOException If an archive cannot be written
+     * @throws IllegalStateException If the ledger was not opened with openPartitioned
+     */
+    public int archivePartitionsBefore(Date date) throws IOException {
+        PartitionedTransactionStore store = partitions();
+        YearMonth keep = YearMonth.from(LocalDate.ofEpochDay(DateUtility.toEpochDay(date)));
+        if (deletedCount > 0) {
+            compactSlots();
+        }
+        
+        int archived = 0;
+        for (YearMonth month : store.getMonths()) {
+            if (month.isBefore(keep) && store.archive(month)) {
+                archived++;
+            }
+        }
+        return archived;
     }
     
     /**
@@ -37,50 +254,565 @@ public class TransactionManager {
      * @param transaction Transaction to add
      */
     public void addTransaction(Transaction transaction) {
-        transactions.add(transaction);
+        admitChange();
+        int slot = transactions.add(transaction);
+        if (idIndex != null) {
+            idIndex.put(transaction.getId(), slot);
+        }
+        totals.add(transactions, slot);
+        dateIndex.add(transactions.getEpochDay(slot), slot);
+        history.record(ChangeHistory.ADD, transactions, slot);
+        modificationVersion++;
+        
+        for (LedgerListener listener : listeners) {
+            listener.transactionAdded(transaction);
+        }
+    }
+    
+    /**
+     * Add a batch of transactions
+     * Storage is grown once for the whole batch, and invalid rows are
+     * collected in the result instead of stopping the load
+     * 
+     * @param batch Transactions to add, in order
+     * @return Accepted count and rejected rows
+     */
+    public BulkLoadResult addTransactions(Collection<? extends Transaction> batch) {
+        BulkLoadResult result = new BulkLoadResult();
+        if (!batch.isEmpty()) {
+            admitChange();
+        }
+        int first = transactions.size();
+        
+        transactions.ensureCapacity(first + batch.size());
+        IntIntHashMap index = ids();
+        index.ensureCapacity(index.size() + batch.size());
+        
+        int row = 0;
+        for (Transaction transaction : batch) {
+            String problem = validate(transaction);
+            if (problem == null) {
+                int slot = transactions.add(transaction);
+                index.put(transaction.getId(), slot);
+                history.record(ChangeHistory.ADD, transactions, slot);
+                result.accept();
+            } else {
+                result.reject(row, transaction, problem);
+            }
+            row++;
+        }
+        
+        // Indexes and totals are updated once for the accepted rows
+        totals.addRange(transactions, first, transactions.size());
+        dateIndex.addRange(transactions, first, transactions.size());
+        modificationVersion++;
+        
+        if (!listeners.isEmpty()) {
+            for (int slot = first; slot < transactions.size(); slot++) {
+                Transaction added = transactions.get(slot);
+                for (LedgerListener listener : listeners) {
+                    listener.transactionAdded(added);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Start a bulk load into this manager
+     * 
+     * @return New BulkLoader
+     */
+    public BulkLoader bulkLoader() {
+        return new BulkLoader(this);
     }
     
     /**
      * Remove a transaction by ID
+     * The slot is marked deleted and reclaimed by a later compaction
      * 
      * @param transactionId ID of transaction to remove
      * @return true if successful, false otherwise
      */
     public boolean removeTransaction(int transactionId) {
-        for (int i = 0; i < transactions.size(); i++) {
-            if (transactions.get(i).getId() == transactionId) {
-                // Push to undo stack before removing
-                recentlyDeletedTransactions.push(transactions.get(i));
-                transactions.remove(i);
-                return true;
-            }
+        int slot = ids().get(transactionId);
+        if (slot == IntIntHashMap.NO_VALUE || transactions.isDeleted(slot)) {
+            return false;
+        }
+        
+        // Record in the history before removing
+        admitChange();
+        history.record(ChangeHistory.DELETE, transactions, slot);
+        delete(slot);
+        return true;
+    }
+    
+    /**
+     * Undo the most recent change: an add, a delete, or a change to tracked budgets
+     * Runs in constant amortized time
+     * 
+     * @return true if successful, false if there is no change to undo
+     */
+    public boolean undo() {
+        admitChange();
+        return undoLast();
+    }
+    
+    /**
+     * Redo the most recently undone change
+     * Any new change clears the changes that can be redone. Without a history spill file only the
+     * most recent undos held in memory can be redone; with one, every undone change can be
+     * 
+     * @return true if successful, false if there is no change to redo
+     */
+    public boolean redo() {
+        admitChange();
+        if (!history.redo()) {
+            return false;
         }
-        return false;
+        apply(true);
+        return true;
     }
     
     /**
-     * Undo the most recent transaction deletion
-     * Uses Stack data structure (requirement 14)
+     * Undo the most recent change if it is a transaction deletion
+     * The transaction goes back to its original position
      * 
-     * @return true if successful, false if no transaction to restore
+     * @return true if successful, false if the most recent change was not a deletion
      */
     public boolean undoDelete() {
-        if (recentlyDeletedTransactions.isEmpty()) {
+        admitChange();
+        return history.selectLast() && history.kind() == ChangeHistory.DELETE && undoLast();
+    }
+    
+    /**
+     * Put a removed transaction back in its original position
+     * Used to replay a journal: when the most recent change removed the transaction it is undone,
+     * so the history matches; otherwise its deleted slot, or failing that the history's copy, is restored
+     * 
+     * @param transactionId ID of the removed transaction
+     * @return true if restored, false if it is not removed or cannot be found
+     */
+    public boolean restoreTransaction(int transactionId) {
+        admitChange();
+        if (history.selectLast() && history.kind() == ChangeHistory.DELETE && history.id() == transactionId) {
+            return undoLast();
+        }
+        
+        int slot = ids().get(transactionId);
+        if (slot != IntIntHashMap.NO_VALUE && transactions.isDeleted(slot)) {
+            undelete(slot);
+        } else if (slot == IntIntHashMap.NO_VALUE && history.find(transactionId)) {
+            restore();
+        } else {
             return false;
         }
         
-        Transaction transaction = recentlyDeletedTransactions.pop();
-        transactions.add(transaction);
+        for (LedgerListener listener : listeners) {
+            listener.deleteUndone(transactionId);
+        }
+        return true;
+    }
+    
+    /**
+     * Get number of changes that can be undone
+     * 
+     * @return Undo depth, including entries spilled to the history file
+     */
+    public int getUndoDepth() {
+        return history.undoDepth();
+    }
+    
+    /**
+     * Get number of changes that can be redone
+     * 
+     * @return Redo depth, including entries spilled to the history file
+     */
+    public int getRedoDepth() {
+        return history.redoDepth();
+    }
+    
+    /**
+     * Forget every change that could be undone or redone
+     * Used once a ledger has been replayed from disk, so undo only covers this session's changes
+     */
+    public void clearHistory() {
+        history.clear();
+    }
+    
+    /**
+     * Start writing older undo and redo entries to files once the history's memory is full,
+     * instead of dropping them
+     * The file is created or emptied, and redo entries go to a temporary file beside it with
+     * ".redo" added to the name. Passing null stops spilling and drops the spilled entries.
+     * 
+     * @param path Spill file, or null
+     * @throws IOException If the file cannot be opened
+     */
+    public void setHistorySpillFile(Path path) throws IOException {
+        history.setSpillFile(path);
+    }
+    
+    /**
+     * Record a budget manager's changes in this ledger's history, so undo and redo cover them
+     * The budgets move to this ledger's category dictionary, so both use the same category IDs
+     * 
+     * @param budgetManager Budgets to track
+     */
+    public void trackBudgets(BudgetManager budgetManager) {
+        this.budgets = budgetManager;
+        budgetManager.useCategories(transactions.getCategoryDictionary());
+        budgetManager.setHistory(this);
+    }
+    
+    /**
+     * Record a change made to the tracked budgets
+     * Called by BudgetManager
+     * 
+     * @param categoryId Category ID, or CategoryDictionary.UNKNOWN for the total budget
+     * @param hadBudget Whether a budget was set before the change
+     * @param before Budget before the change
+     * @param hasBudget Whether a budget is set after the change
+     * @param after Budget after the change
+     */
+    void budgetChanged(int categoryId, boolean hadBudget, double before, boolean hasBudget, double after) {
+        history.recordBudget(categoryId, hadBudget, before, hasBudget, after);
+    }
+    
+    /**
+     * Give every listener the chance to reject a change before it is applied
+     */
+    private void admitChange() {
+        for (LedgerListener listener : listeners) {
+            listener.beforeChange();
+        }
+    }
+    
+    /**
+     * Undo the most recent change
+     * Public methods call this rather than undo(), which a subclass may wrap in a lock
+     * 
+     * @return true if successful, false if there is no change to undo
+     */
+    private boolean undoLast() {
+        if (!history.undo()) {
+            return false;
+        }
+        apply(false);
         return true;
     }
     
     /**
-     * Get all transactions
+     * Apply the history entry just undone or redone
+     * 
+     * @param redo true to apply the change again, false to reverse it
+     */
+    private void apply(boolean redo) {
+        byte kind = history.kind();
+        if (kind == ChangeHistory.TOTAL_BUDGET || kind == ChangeHistory.CATEGORY_BUDGET) {
+            if (budgets != null) {
+                budgets.restoreBudget(history.categoryId(), history.hasBudget(redo), history.budget(redo));
+            }
+            return;
+        }
+        
+        // Undoing an add and redoing a delete both remove the transaction
+        int id = history.id();
+        if ((kind == ChangeHistory.ADD) != redo) {
+            int slot = ids().get(id);
+            if (slot != IntIntHashMap.NO_VALUE && !transactions.isDeleted(slot)) {
+                delete(slot);
+            }
+            return;
+        }
+        
+        restore();
+        for (LedgerListener listener : listeners) {
+            listener.deleteUndone(id);
+        }
+    }
+    
+    /**
+     * Mark a slot deleted and notify listeners
+     * 
+     * @param slot Live slot to delete
+     */
+    private void delete(int slot) {
+        int transactionId = transactions.getId(slot);
+        totals.remove(transactions, slot);
+        transactions.setDeleted(slot, true);
+        deletedCount++;
+        modificationVersion++;
+        
+        if (deletedCount >= COMPACTION_THRESHOLD && deletedCount * 4 >= transactions.size()) {
+            compactSlots();
+        }
+        
+        for (LedgerListener listener : listeners) {
+            listener.transactionRemoved(transactionId);
+        }
+    }
+    
+    /**
+     * Clear the deleted mark of a slot
+     * 
+     * @param slot Deleted slot
+     */
+    private void undelete(int slot) {
+        transactions.setDeleted(slot, false);
+        totals.add(transactions, slot);
+        deletedCount--;
+        modificationVersion++;
+    }
+    
+    /**
+     * Put the selected history entry's transaction back in its original position
+     */
+    private void restore() {
+        int id = history.id();
+        IntIntHashMap index = ids();
+        int slot = index.get(id);
+        
+        // Usual case: the deleted slot has not been compacted yet
+        if (slot != IntIntHashMap.NO_VALUE && transactions.isDeleted(slot)) {
+            undelete(slot);
+            return;
+        }
+        
+        Transaction transaction = history.transaction(transactions.getCategoryDictionary());
+        if (slot != IntIntHashMap.NO_VALUE) {
+            // The same transaction was added again since it was deleted
+            int addedSlot = transactions.add(transaction);
+            index.put(id, addedSlot);
+            totals.add(transactions, addedSlot);
+            dateIndex.add(transactions.getEpochDay(addedSlot), addedSlot);
+            modificationVersion++;
+            return;
+        }
+        
+        // The slot was compacted away, so insert it before the first later sequence
+        int position = findSequence(history.sequence());
+        transactions.insert(position, transaction, history.sequence());
+        totals.add(transactions, position);
+        dateIndex.invalidate();
+        for (int i = position; i < transactions.size(); i++) {
+            index.put(transactions.getId(i), i);
+        }
+        modificationVersion++;
+    }
+    
+    /**
+     * Reclaim the slots of deleted transactions
+     * Runs automatically once enough slots are deleted
+     * Deleted transactions can still be restored with undo()
+     */
+    public void compact() {
+        compactSlots();
+    }
+    
+    /**
+     * Reclaim the slots of deleted transactions
+     * Public methods call this rather than compact(), which a subclass may wrap in a lock
+     */
+    private void compactSlots() {
+        if (deletedCount == 0) {
+            return;
+        }
+        
+        IntIntHashMap index = ids();
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                index.remove(transactions.getId(i));
+            }
+        }
+        
+        transactions.compact();
+        dateIndex.invalidate();
+        deletedCount = 0;
+        modificationVersion++;
+        
+        for (int i = 0; i < transactions.size(); i++) {
+            index.put(transactions.getId(i), i);
+        }
+    }
+    
+    /**
+     * Take a point-in-time copy of the ledger and undo stack
+     * Only the storage columns are copied here, so a snapshot can be written from the
+     * checkpoint in the background while the ledger keeps changing
+     * The undo stack holds the deletions in the history's memory; adds, budget changes,
+     * spilled entries and the redo history are not kept
+     * Listeners are told before any later change is made
+     * 
+     * @return New checkpoint
+     */
+    public LedgerCheckpoint checkpoint() {
+        List<Transaction> undoStack = new ArrayList<>();
+        int[] undoSequences = new int[history.undoCountInMemory()];
+        CategoryDictionary categories = transactions.getCategoryDictionary();
+        for (int i = 0; i < undoSequences.length; i++) {
+            history.selectUndo(i);
+            if (history.kind() == ChangeHistory.DELETE) {
+                int slot = ids().get(history.id());
+                boolean inStore = slot != IntIntHashMap.NO_VALUE && transactions.isDeleted(slot);
+                undoSequences[undoStack.size()] = inStore ? IntIntHashMap.NO_VALUE : history.sequence();
+                undoStack.add(history.transaction(categories));
+            }
+        }
+        undoSequences = Arrays.copyOf(undoSequences, undoStack.size());
+        
+        LedgerCheckpoint checkpoint = new LedgerCheckpoint(ColumnarTransactionStore.copyOf(transactions),
+                undoStack, undoSequences, modificationVersion);
+        for (LedgerListener listener : listeners) {
+            listener.checkpointTaken(checkpoint);
+        }
+        return checkpoint;
+    }
+    
+    /**
+     * Replace the ledger and undo stack with the contents of a checkpoint
+     * Listeners are not notified, so a journal does not record the restore
+     * 
+     * @param checkpoint Checkpoint to restore
+     */
+    public void restore(LedgerCheckpoint checkpoint) {
+        // Keep this ledger's dictionary, so tracked budgets keep their category IDs
+        transactions = ColumnarTransactionStore.copyOf(checkpoint.getStore(), transactions.getCategoryDictionary());
+        deletedCount = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                deletedCount++;
+            }
+        }
+        idIndex = null;
+        IntIntHashMap index = ids();
+        
+        // Deleted slots still in the store keep their own sequence numbers
+        history.clear();
+        CategoryDictionary categories = transactions.getCategoryDictionary();
+        List<Transaction> undoStack = checkpoint.getUndoStack();
+        for (int i = 0; i < undoStack.size(); i++) {
+            Transaction transaction = undoStack.get(i);
+            int sequence = checkpoint.getUndoSequence(i);
+            if (sequence == IntIntHashMap.NO_VALUE) {
+                int slot = index.get(transaction.getId());
+                sequence = slot == IntIntHashMap.NO_VALUE ? Integer.MAX_VALUE : transactions.getSequence(slot);
+            }
+            history.recordDelete(transaction, categories.intern(transaction.getCategory()), sequence);
+        }
+        totals = computeTotals();
+        dateIndex.invalidate();
+        modificationVersion++;
+    }
+    
+    /**
+     * Get all transactions
+     * 
+     * @return List of all transactions
+     */
+    public List<Transaction> getAllTransactions() {
+        List<Transaction> result = new ArrayList<>(getTransactionCount());
+        
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                continue;
+            }
+            result.add(transactions.get(i));
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Get number of transactions, not counting deleted ones
+     * 
+     * @return Number of transactions
+     */
+    public int getTransactionCount() {
+        return transactions.size() - deletedCount;
+    }
+    
+    /**
+     * Get a lazy stream of all transactions
+     * Transactions are read from storage as the stream consumes them, without copying the ledger
+     * Changing the manager while the stream runs raises ConcurrentModificationException
+     * 
+     * @return Stream of transactions in ledger order
+     */
+    public Stream<Transaction> stream() {
+        return streamSlots(slot -> true);
+    }
+    
+    /**
+     * Get a lazy stream of transactions of one type
+     * 
+     * @param type Transaction type (Income or Expense)
+     * @return Stream of matching transactions
+     */
+    public Stream<Transaction> streamByType(String type) {
+        return streamSlots(slot -> getType(slot).equals(type));
+    }
+    
+    /**
+     * Get a lazy stream of transactions in one category
+     * 
+     * @param category Transaction category
+     * @return Stream of matching transactions
+     */
+    public Stream<Transaction> streamByCategory(String category) {
+        int categoryId = transactions.getCategoryDictionary().find(category);
+        if (categoryId == CategoryDictionary.UNKNOWN) {
+            return Stream.empty();
+        }
+        return streamSlots(slot -> transactions.getCategoryId(slot) == categoryId);
+    }
+    
+    /**
+     * Get a lazy stream of income amounts
+     * Amounts are read straight from storage without creating transactions
+     * 
+     * @return Stream of income amounts
+     */
+    public DoubleStream incomeAmounts() {
+        return streamAmounts(slot -> !transactions.isExpense(slot));
+    }
+    
+    /**
+     * Get a lazy stream of expense amounts
+     * Amounts are read straight from storage without creating transactions
+     * 
+     * @return Stream of expense amounts
+     */
+    public DoubleStream expenseAmounts() {
+        return streamAmounts(slot -> transactions.isExpense(slot));
+    }
+    
+    /**
+     * Register a listener to be notified after every change
+     * 
+     * @param listener Listener to add
+     */
+    public void addListener(LedgerListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Stop notifying a listener
+     * 
+     * @param listener Listener to remove
+     */
+    public void removeListener(LedgerListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Get the modification version
+     * Changes whenever a transaction is added, removed or restored
      * 
-     * @return List of all transactions
+     * @return Current version
      */
-    public List<Transaction> getAllTransactions() {
-        return new ArrayList<>(transactions);
+    public long getModificationVersion() {
+        return modificationVersion;
     }
     
     /**
@@ -92,9 +824,12 @@ public class TransactionManager {
     public List<Transaction> getTransactionsByType(String type) {
         List<Transaction> result = new ArrayList<>();
         
-        for (Transaction t : transactions) {
-            if (t.getType().equals(type)) {
-                result.add(t);
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                continue;
+            }
+            if (getType(i).equals(type)) {
+                result.add(transactions.get(i));
             }
         }
         
@@ -109,10 +844,17 @@ public class TransactionManager {
      */
     public List<Transaction> getTransactionsByCategory(String category) {
         List<Transaction> result = new ArrayList<>();
+        int categoryId = transactions.getCategoryDictionary().find(category);
+        if (categoryId == CategoryDictionary.UNKNOWN) {
+            return result;
+        }
         
-        for (Transaction t : transactions) {
-            if (t.getCategory().equals(category)) {
-                result.add(t);
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                continue;
+            }
+            if (transactions.getCategoryId(i) == categoryId) {
+                result.add(transactions.get(i));
             }
         }
         
@@ -129,7 +871,11 @@ public class TransactionManager {
     public List<Transaction> getTransactionsByFilter(Predicate<Transaction> filter) {
         List<Transaction> result = new ArrayList<>();
         
-        for (Transaction t : transactions) {
+        for (int i = 0; i < transactions.size(); i++) {
+            if (transactions.isDeleted(i)) {
+                continue;
+            }
+            Transaction t = transactions.get(i);
             if (filter.test(t)) {
                 result.add(t);
             }
@@ -140,30 +886,105 @@ public class TransactionManager {
     
     /**
      * Get transactions by date range
+     * Compares whole days, so every transaction on the start and end day is included
+     * Uses the date index, or on a partitioned ledger only the months it overlaps,
+     * so the cost depends on the size of the range
      * 
      * @param startDate Start date
      * @param endDate End date
-     * @return List of matching transactions
+     * @return List of matching transactions in date order
      */
     public List<Transaction> getTransactionsByDateRange(Date startDate, Date endDate) {
-        return getTransactionsByFilter(t -> 
-            !t.getDate().before(startDate) && !t.getDate().after(endDate)
-        );
+        List<Transaction> result = new ArrayList<>();
+        
+        scanDays(DateUtility.toEpochDay(startDate), DateUtility.toEpochDay(endDate), slot -> {
+            if (transactions.isDeleted(slot)) {
+                return false;
+            }
+            result.add(transactions.get(slot));
+            return true;
+        });
+        
+        return result;
     }
     
     /**
-     * Calculate total balance (income - expenses)
+     * Visit the live slots in a date range and category without creating transactions
+     * The visitor reads fields through the store it is given and must not change it
+     * With a date bound the date index is used and slots arrive in date order,
+     * otherwise they arrive in ledger order
      * 
-     * @return Current balance
+     * @param startDate First day to include, or null for no lower bound
+     * @param endDate Last day to include, or null for no upper bound
+     * @param category Category to include, or null for every category
+     * @param visitor Called with the store and each matching slot
+     * @return Number of slots visited
      */
-    public double getBalance() {
-        double balance = 0.0;
+    public int scanSlots(Date startDate, Date endDate, String category, ObjIntConsumer<TransactionStore> visitor) {
+        int categoryId = CategoryDictionary.UNKNOWN;
+        if (category != null) {
+            categoryId = transactions.getCategoryDictionary().find(category);
+            if (categoryId == CategoryDictionary.UNKNOWN) {
+                return 0;
+            }
+        }
         
-        for (Transaction t : transactions) {
-            balance += t.getSignedAmount();
+        int visited = 0;
+        if (startDate == null && endDate == null) {
+            for (int slot = 0; slot < transactions.size(); slot++) {
+                if (matches(slot, categoryId)) {
+                    visitor.accept(transactions, slot);
+                    visited++;
+                }
+            }
+            return visited;
         }
         
-        return balance;
+        int startDay = startDate == null ? Integer.MIN_VALUE : DateUtility.toEpochDay(startDate);
+        int endDay = endDate == null ? Integer.MAX_VALUE : DateUtility.toEpochDay(endDate);
+        int matchCategory = categoryId;
+        return scanDays(startDay, endDay, slot -> {
+            if (!matches(slot, matchCategory)) {
+                return false;
+            }
+            visitor.accept(transactions, slot);
+            return true;
+        });
+    }
+    
+    /**
+     * Get total income dated within a range
+     * Compares whole days, like getTransactionsByDateRange
+     * A partitioned ledger adds up whole months from their stored totals
+     * 
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Income in the range
+     */
+    public double getIncomeBetween(Date startDate, Date endDate) {
+        return sumCentsBetween(startDate, endDate, false) / 100.0;
+    }
+    
+    /**
+     * Get total expenses dated within a range
+     * Compares whole days, like getTransactionsByDateRange
+     * A partitioned ledger adds up whole months from their stored totals
+     * 
+     * @param startDate Start date
+     * @param endDate End date
+     * @return Expenses in the range
+     */
+    public double getExpensesBetween(Date startDate, Date endDate) {
+        return sumCentsBetween(startDate, endDate, true) / 100.0;
+    }
+    
+    /**
+     * Calculate total balance (income - expenses)
+     * 
+     * @return Current balance
+     */
+    public double getBalance() {
+        return (totals.getIncomeCents() - totals.getExpenseCents()) / 100.0;
     }
     
     /**
@@ -172,15 +993,7 @@ public class TransactionManager {
      * @return Total income amount
      */
     public double getTotalIncome() {
-        double total = 0.0;
-        
-        for (Transaction t : transactions) {
-            if (t instanceof Income) {
-                total += t.getAmount();
-            }
-        }
-        
-        return total;
+        return totals.getIncomeCents() / 100.0;
     }
     
     /**
@@ -189,15 +1002,7 @@ public class TransactionManager {
      * @return Total expense amount
      */
     public double getTotalExpenses() {
-        double total = 0.0;
-        
-        for (Transaction t : transactions) {
-            if (t instanceof Expense) {
-                total += t.getAmount();
-            }
-        }
-        
-        return total;
+        return totals.getExpenseCents() / 100.0;
     }
     
     /**
@@ -207,54 +1012,489 @@ public class TransactionManager {
      * @return Map of category to total amount
      */
     public Map<String, Double> getExpensesByCategory() {
-        Map<String, Double> categoryMap = new HashMap<>();
+        return totals.getByCategory(true);
+    }
+    
+    /**
+     * Get income grouped by category
+     * Uses Map data structure (requirement 15)
+     * 
+     * @return Map of category to total amount
+     */
+    public Map<String, Double> getIncomeByCategory() {
+        return totals.getByCategory(false);
+    }
+    
+    /**
+     * Get total expenses for one category
+     * 
+     * @param category Category name
+     * @return Total expense amount for the category
+     * @throws InvalidCategoryException If the category is unknown
+     */
+    public double getCategoryExpenses(String category) throws InvalidCategoryException {
+        return totals.getCategoryCents(true, getCategoryDictionary().idOf(category)) / 100.0;
+    }
+    
+    /**
+     * Get total income for one category
+     * 
+     * @param category Category name
+     * @return Total income amount for the category
+     * @throws InvalidCategoryException If the category is unknown
+     */
+    public double getCategoryIncome(String category) throws InvalidCategoryException {
+        return totals.getCategoryCents(false, getCategoryDictionary().idOf(category)) / 100.0;
+    }
+    
+    /**
+     * Get expenses for every category as an array
+     * 
+     * @return Expense totals in cents, indexed by category ID
+     */
+    public long[] getExpenseCentsByCategoryId() {
+        return totals.getCategoryCents(true);
+    }
+    
+    /**
+     * Get income for every category as an array
+     * 
+     * @return Income totals in cents, indexed by category ID
+     */
+    public long[] getIncomeCentsByCategoryId() {
+        return totals.getCategoryCents(false);
+    }
+    
+    /**
+     * Get total income for a span of months
+     * Read from the month by category table, which is built on first use
+     * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @return Income in the span
+     */
+    public double getIncomeForMonths(YearMonth start, YearMonth end) {
+        return totals.rollups(transactions).getCents(start, end, false) / 100.0;
+    }
+    
+    /**
+     * Get total expenses for a span of months
+     * Read from the month by category table, which is built on first use
+     * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @return Expenses in the span
+     */
+    public double getExpensesForMonths(YearMonth start, YearMonth end) {
+        return totals.rollups(transactions).getCents(start, end, true) / 100.0;
+    }
+    
+    /**
+     * Get income grouped by category for a span of months
+     * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @return Map of category to total amount
+     */
+    public Map<String, Double> getIncomeByCategory(YearMonth start, YearMonth end) {
+        return byCategoryForMonths(start, end, false);
+    }
+    
+    /**
+     * Get expenses grouped by category for a span of months
+     * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @return Map of category to total amount
+     */
+    public Map<String, Double> getExpensesByCategory(YearMonth start, YearMonth end) {
+        return byCategoryForMonths(start, end, true);
+    }
+    
+    /**
+     * Get expenses for every category over a span of months as an array
+     * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @return Expense totals in cents, indexed by category ID
+     */
+    public long[] getExpenseCentsByCategoryId(YearMonth start, YearMonth end) {
+        int categoryCount = getCategoryDictionary().size();
+        long[] cents = new long[categoryCount];
+        totals.rollups(transactions).getCategoryTotals(start, end, true, cents, new int[categoryCount]);
+        return cents;
+    }
+    
+    /**
+     * Get the dictionary that category IDs refer to
+     * 
+     * @return Category dictionary
+     */
+    public CategoryDictionary getCategoryDictionary() {
+        return transactions.getCategoryDictionary();
+    }
+    
+    /**
+     * Check the running totals against a full recount of the ledger
+     * 
+     * @return true if the running totals are exact
+     */
+    public boolean verifyTotals() {
+        return totals.matches(computeTotals());
+    }
+    
+    /**
+     * Replace the running totals with a full recount of the ledger
+     */
+    public void rebuildTotals() {
+        totals = computeTotals();
+    }
+    
+    /**
+     * Set the ledger size at which full recounts use fork/join
+     * Smaller ledgers are recounted on the calling thread
+     * Totals are summed in whole cents, so both paths give identical results
+     * 
+     * @param threshold Minimum number of slots for a parallel recount
+     */
+    public void setParallelThreshold(int threshold) {
+        this.parallelThreshold = threshold;
+    }
+    
+    /**
+     * Get the ledger size at which full recounts use fork/join
+     * 
+     * @return Minimum number of slots for a parallel recount
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+    
+    /**
+     * Display all transactions
+     */
+    public void displayAllTransactions() {
+        ReportRenderer.printToConsole(this::writeTransactions);
+    }
+    
+    /**
+     * Write every transaction as a report, followed by the count and balance
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    public void renderTransactions(ReportRenderer renderer) throws IOException {
+        writeTransactions(renderer);
+    }
+    
+    
+    /**
+     * Write every live transaction as a report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    private void writeTransactions(ReportRenderer renderer) throws IOException {
+        renderer.beginReport("Transaction History");
+        int count = transactions.size() - deletedCount;
+        if (count == 0) {
+            renderer.note("No transactions to display.");
+            renderer.endReport();
+            return;
+        }
         
-        for (Transaction t : transactions) {
-            if (t instanceof Expense) {
-                String category = t.getCategory();
-                Double currentAmount = categoryMap.getOrDefault(category, 0.0);
-                categoryMap.put(category, currentAmount + t.getAmount());
+        for (int i = 0; i < transactions.size(); i++) {
+            if (!transactions.isDeleted(i)) {
+                renderer.transaction(transactions, i);
             }
         }
         
-        return categoryMap;
+        renderer.section("Summary");
+        renderer.count("Transactions", count);
+        renderer.amount("Balance", totals.getIncomeCents() - totals.getExpenseCents());
+        renderer.endReport();
     }
     
     /**
-     * Get income grouped by category
-     * Uses Map data structure (requirement 15)
+     * Group one side of the ledger by category for a span of months
+     * Only categories with transactions in the span appear
      * 
+     * @param start First month
+     * @param end Last month, inclusive
+     * @param expenses true for expenses, false for income
      * @return Map of category to total amount
      */
-    public Map<String, Double> getIncomeByCategory() {
+    private Map<String, Double> byCategoryForMonths(YearMonth start, YearMonth end, boolean expenses) {
+        CategoryDictionary categories = getCategoryDictionary();
+        long[] cents = new long[categories.size()];
+        int[] counts = new int[cents.length];
+        totals.rollups(transactions).getCategoryTotals(start, end, expenses, cents, counts);
+        
         Map<String, Double> categoryMap = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                categoryMap.put(categories.nameOf(id), cents[id] / 100.0);
+            }
+        }
+        return categoryMap;
+    }
+    
+    /**
+     * Recount the totals from every live slot
+     * Uses fork/join with per-task partial totals for large ledgers
+     * 
+     * @return New totals
+     */
+    private LedgerTotals computeTotals() {
+        if (transactions.size() >= parallelThreshold) {
+            return ParallelAggregator.aggregate(transactions);
+        }
+        
+        LedgerTotals recount = new LedgerTotals(transactions.getCategoryDictionary());
+        recount.rebuild(transactions);
+        return recount;
+    }
+    
+    /**
+     * Build a lazy stream over the live slots that pass a filter
+     * 
+     * @param slotFilter Which slots to include
+     * @return Stream of transactions
+     */
+    private Stream<Transaction> streamSlots(IntPredicate slotFilter) {
+        return StreamSupport.stream(
+                new LedgerSpliterators.TransactionSpliterator(this, transactions, slotFilter), false);
+    }
+    
+    /**
+     * Build a lazy stream of amounts over the live slots that pass a filter
+     * 
+     * @param slotFilter Which slots to include
+     * @return Stream of amounts
+     */
+    private DoubleStream streamAmounts(IntPredicate slotFilter) {
+        return StreamSupport.doubleStream(
+                new LedgerSpliterators.AmountSpliterator(this, transactions, slotFilter), false);
+    }
+    
+    /**
+     * Visit the slots dated within a range, in date order, including deleted slots
+     * A partitioned ledger only reads the months overlapping the range; otherwise the date index is used
+     * 
+     * @param startDay First epoch day to include
+     * @param endDay Last epoch day to include
+     * @param visitor Called with each slot, returning true if the slot counts
+     * @return Number of slots the visitor counted
+     */
+    private int scanDays(int startDay, int endDay, IntPredicate visitor) {
+        if (transactions instanceof PartitionedTransactionStore) {
+            return ((PartitionedTransactionStore) transactions).scanRange(startDay, endDay, visitor);
+        }
+        
+        int counted = 0;
+        dateIndex.refresh(transactions);
+        for (int i = dateIndex.firstOnOrAfter(startDay); i < dateIndex.size() && dateIndex.dayAt(i) <= endDay; i++) {
+            if (visitor.test(dateIndex.slotAt(i))) {
+                counted++;
+            }
+        }
+        return counted;
+    }
+    
+    /**
+     * Add up the live income or expenses dated within a range
+     * 
+     * @param startDate Start date
+     * @param endDate End date
+     * @param expenses true for expenses, false for income
+     * @return Total in cents
+     */
+    private long sumCentsBetween(Date startDate, Date endDate, boolean expenses) {
+        int startDay = DateUtility.toEpochDay(startDate);
+        int endDay = DateUtility.toEpochDay(endDate);
+        if (transactions instanceof PartitionedTransactionStore) {
+            return ((PartitionedTransactionStore) transactions).sumCents(startDay, endDay, expenses);
+        }
         
-        for (Transaction t : transactions) {
-            if (t instanceof Income) {
-                String category = t.getCategory();
-                Double currentAmount = categoryMap.getOrDefault(category, 0.0);
-                categoryMap.put(category, currentAmount + t.getAmount());
+        long[] cents = new long[1];
+        scanDays(startDay, endDay, slot -> {
+            if (transactions.isDeleted(slot) || transactions.isExpense(slot) != expenses) {
+                return false;
             }
+            cents[0] += transactions.getAmountCents(slot);
+            return true;
+        });
+        return cents[0];
+    }
+    
+    /**
+     * Get the store as a partitioned store
+     * 
+     * @return Partitioned store
+     * @throws IllegalStateException If the ledger is not partitioned with a directory
+     */
+    private PartitionedTransactionStore partitions() {
+        if (!(transactions instanceof PartitionedTransactionStore)
+                || ((PartitionedTransactionStore) transactions).getDirectory() == null) {
+            throw new IllegalStateException("Ledger was not opened with openPartitioned");
+        }
+        return (PartitionedTransactionStore) transactions;
+    }
+    
+    /**
+     * Check a transaction before a bulk load adds it
+     * 
+     * @param transaction Transaction to check
+     * @return Reason the transaction is invalid, or null if it is valid
+     */
+    private String validate(Transaction transaction) {
+        if (transaction == null) {
+            return "Missing transaction";
         }
         
-        return categoryMap;
+        double amount = transaction.getAmount();
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            return "Amount must be positive";
+        }
+        if (transaction.getDate() == null) {
+            return "Missing date";
+        }
+        if (transaction.getCategory() == null) {
+            return "Missing category";
+        }
+        
+        int slot = ids().get(transaction.getId());
+        if (slot != IntIntHashMap.NO_VALUE && !transactions.isDeleted(slot)) {
+            return "Duplicate transaction ID " + transaction.getId();
+        }
+        return null;
     }
     
     /**
-     * Display all transactions
+     * Get the ID index, building it from the store if it has not been built yet
+     * 
+     * @return Transaction ID to slot map
      */
-    public void displayAllTransactions() {
-        if (transactions.isEmpty()) {
-            System.out.println("No transactions to display.");
-            return;
+    private IntIntHashMap ids() {
+        if (idIndex == null) {
+            idIndex = new IntIntHashMap(transactions.size());
+            for (int i = 0; i < transactions.size(); i++) {
+                idIndex.put(transactions.getId(i), i);
+            }
+        }
+        return idIndex;
+    }
+    
+    /**
+     * Check if a slot is live and in a category
+     * 
+     * @param slot Slot to check
+     * @param categoryId Category ID to match, or CategoryDictionary.UNKNOWN for every category
+     * @return true if the slot matches
+     */
+    private boolean matches(int slot, int categoryId) {
+        if (transactions.isDeleted(slot)) {
+            return false;
+        }
+        return categoryId == CategoryDictionary.UNKNOWN || transactions.getCategoryId(slot) == categoryId;
+    }
+    
+    /**
+     * Get the type name of the transaction in a slot without creating it
+     * Matches Transaction.getType()
+     * 
+     * @param slot Slot to read
+     * @return Transaction type
+     */
+    private String getType(int slot) {
+        if (!transactions.isExpense(slot)) {
+            return "Income";
+        }
+        return transactions.isRecurring(slot) ? "Expense (Recurring)" : "Expense";
+    }
+    
+    /**
+     * Find the first slot whose sequence number is greater than the given one
+     * Slots are always in ascending sequence order
+     * 
+     * @param sequence Sequence number to search for
+     * @return Slot to insert at
+     */
+    private int findSequence(int sequence) {
+        int low = 0;
+        int high = transactions.size();
+        
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transactions.getSequence(mid) < sequence) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        
+        return low;
+    }
+    
+    /**
+     * Builder that collects rows and adds them to a TransactionManager in one batch
+     */
+    public static class BulkLoader {
+        private TransactionManager manager;
+        private ArrayList<Transaction> rows;
+        
+        /**
+         * Constructor for BulkLoader
+         * 
+         * @param manager Manager to load into
+         */
+        private BulkLoader(TransactionManager manager) {
+            this.manager = manager;
+            this.rows = new ArrayList<>();
+        }
+        
+        /**
+         * Set the expected number of rows so the buffer is sized once
+         * 
+         * @param expectedRows Expected number of rows
+         * @return This loader
+         */
+        public BulkLoader expectedSize(int expectedRows) {
+            rows.ensureCapacity(expectedRows);
+            return this;
+        }
+        
+        /**
+         * Add one row to the batch
+         * 
+         * @param transaction Transaction to add
+         * @return This loader
+         */
+        public BulkLoader add(Transaction transaction) {
+            rows.add(transaction);
+            return this;
         }
         
-        for (Transaction t : transactions) {
-            System.out.println(t);
+        /**
+         * Add several rows to the batch
+         * 
+         * @param transactions Transactions to add
+         * @return This loader
+         */
+        public BulkLoader addAll(Collection<? extends Transaction> transactions) {
+            rows.addAll(transactions);
+            return this;
         }
         
-        // Print summary using printf (requirement 25)
-        System.out.printf("\nSummary: %d transactions, Balance: $%.2f\n", 
-                          transactions.size(), getBalance());
+        /**
+         * Add the collected rows to the manager and clear the batch
+         * 
+         * @return Accepted count and rejected rows
+         */
+        public BulkLoadResult load() {
+            BulkLoadResult result = manager.addTransactions(rows);
+            rows = new ArrayList<>();
+            return result;
+        }
     }
 }
\ No newline at end of file
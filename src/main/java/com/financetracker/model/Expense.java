@@ -1,6 +1,7 @@
 package com.financetracker.model;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class representing expense transactions
@@ -11,7 +12,7 @@ public class Expense extends Transaction {
     private boolean isRecurring;
     
     // Static variable for count tracking (requirement 22)
-    private static int totalExpenseTransactions = 0;
+    private static final AtomicInteger totalExpenseTransactions = new AtomicInteger();
     
     /**
      * Constructor for Expense
@@ -26,7 +27,7 @@ public class Expense extends Transaction {
         // Using super keyword (requirement 17)
         super(amount, description, category, date);
         this.isRecurring = false;
-        totalExpenseTransactions++;  // Increment static counter
+        totalExpenseTransactions.incrementAndGet();  // Increment static counter
     }
     
     /**
@@ -42,7 +43,23 @@ public class Expense extends Transaction {
     public Expense(double amount, String description, String category, Date date, boolean isRecurring) {
         super(amount, description, category, date);
         this.isRecurring = isRecurring;
-        totalExpenseTransactions++;  // Increment static counter
+        totalExpenseTransactions.incrementAndGet();  // Increment static counter
+    }
+    
+    /**
+     * Constructor for restoring a stored expense with its original ID
+     * Does not count as a new expense transaction
+     * 
+     * @param id Existing transaction ID
+     * @param amount Expense amount
+     * @param description Expense description
+     * @param category Expense category
+     * @param date Date of transaction
+     * @param isRecurring Whether expense is recurring
+     */
+    public Expense(int id, double amount, String description, String category, Date date, boolean isRecurring) {
+        super(id, amount, description, category, date);
+        this.isRecurring = isRecurring;
     }
     
     /**
@@ -52,7 +69,7 @@ public class Expense extends Transaction {
      * @return Count of expense transactions
      */
     public static int getTotalExpenseTransactions() {
-        return totalExpenseTransactions;
+        return totalExpenseTransactions.get();
     }
     
     /**
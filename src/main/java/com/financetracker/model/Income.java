@@ -1,6 +1,7 @@
 package com.financetracker.model;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class representing income transactions
@@ -8,7 +9,7 @@ import java.util.Date;
  */
 public class Income extends Transaction {
     // Static variable for count tracking (requirement 22)
-    private static int totalIncomeTransactions = 0;
+    private static final AtomicInteger totalIncomeTransactions = new AtomicInteger();
     
     /**
      * Constructor for Income
@@ -22,7 +23,21 @@ public class Income extends Transaction {
     public Income(double amount, String description, String category, Date date) {
         // Using super keyword (requirement 17)
         super(amount, description, category, date);
-        totalIncomeTransactions++;  // Increment static counter
+        totalIncomeTransactions.incrementAndGet();  // Increment static counter
+    }
+    
+    /**
+     * Constructor for restoring a stored income with its original ID
+     * Does not count as a new income transaction
+     * 
+     * @param id Existing transaction ID
+     * @param amount Income amount
+     * @param description Income description
+     * @param category Income category
+     * @param date Date of transaction
+     */
+    public Income(int id, double amount, String description, String category, Date date) {
+        super(id, amount, description, category, date);
     }
     
     /**
@@ -32,7 +47,7 @@ public class Income extends Transaction {
      * @return Count of income transactions
      */
     public static int getTotalIncomeTransactions() {
-        return totalIncomeTransactions;
+        return totalIncomeTransactions.get();
     }
     
     /**
@@ -2,6 +2,7 @@ package com.financetracker.model;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract class representing a financial transaction
@@ -9,8 +10,8 @@ import java.util.Date;
  * (requirement 8 - Abstract Class)
  */
 public abstract class Transaction {
-    // Static counter for transaction IDs
-    private static int nextId = 1;
+    // Static counter for transaction IDs, safe to use from several threads
+    private static final AtomicInteger nextId = new AtomicInteger(1);
     
     /**
      * Unique identifier for the transaction
@@ -46,13 +47,33 @@ public abstract class Transaction {
      * @param date Date of transaction
      */
     public Transaction(double amount, String description, String category, Date date) {
-        this.id = nextId++;  // Assign the next available ID and increment
+        this.id = nextId.getAndIncrement();  // Assign the next available ID and increment
         this.amount = amount;
         this.description = description;
         this.category = category;
         this.date = date;
     }
     
+    /**
+     * Constructor for restoring a stored transaction with its original ID
+     * 
+     * @param id Existing transaction ID
+     * @param amount Transaction amount
+     * @param description Transaction description
+     * @param category Transaction category
+     * @param date Date of transaction
+     */
+    protected Transaction(int id, double amount, String description, String category, Date date) {
+        this.id = id;
+        this.amount = amount;
+        this.description = description;
+        this.category = category;
+        this.date = date;
+        
+        // Never hand out a restored ID to a new transaction
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+    
     /**
      * Get the transaction ID
      * 
@@ -1,5 +1,7 @@
 package com.financetracker.model;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.financetracker.manager.TransactionManager;
 import com.financetracker.manager.BudgetManager;
 
@@ -8,8 +10,8 @@ import com.financetracker.manager.BudgetManager;
  * Implements encapsulation through private fields with getters/setters.
  */
 public class User {
-    // Static counter for user IDs
-    private static int nextUserId = 1;
+    // Static counter for user IDs, safe to use from several threads
+    private static final AtomicInteger nextUserId = new AtomicInteger(1);
     
     /**
      * Unique identifier for the user
@@ -27,15 +29,20 @@ public class User {
     private String email;
     
     /**
-     * Manager for user's transactions
+     * Manager for user's transactions, created on first access
      */
     private TransactionManager transactionManager;
     
     /**
-     * Manager for user's budget
+     * Manager for user's budget, created on first access
      */
     private BudgetManager budgetManager;
     
+    /**
+     * Whether the managers were detached, after which they are only attached by their owner
+     */
+    private boolean detached;
+    
     /**
      * Constructor for User class
      * (requirement 16)
@@ -45,11 +52,9 @@ public class User {
      */
     public User(String name, String email) {
         // Using this keyword (requirement 23)
-        this.id = nextUserId++;
+        this.id = nextUserId.getAndIncrement();
         this.name = name;
         this.email = email;
-        this.transactionManager = new TransactionManager();
-        this.budgetManager = new BudgetManager();
     }
     
     /**
@@ -64,8 +69,6 @@ public class User {
         this.id = id;
         this.name = name;
         this.email = email;
-        this.transactionManager = new TransactionManager();
-        this.budgetManager = new BudgetManager();
     }
     
     /**
@@ -115,22 +118,76 @@ public class User {
     
     /**
      * Get the user's transaction manager
+     * Creates empty managers if none were ever attached
      * 
      * @return The transaction manager associated with this user
+     * @throws IllegalStateException If the managers were detached and not attached again
      */
-    public TransactionManager getTransactionManager() {
+    public synchronized TransactionManager getTransactionManager() {
+        createManagersIfNeeded();
         return transactionManager;
     }
     
     /**
      * Get the user's budget manager
+     * Creates empty managers if none were ever attached
      * 
      * @return The budget manager associated with this user
+     * @throws IllegalStateException If the managers were detached and not attached again
      */
-    public BudgetManager getBudgetManager() {
+    public synchronized BudgetManager getBudgetManager() {
+        createManagersIfNeeded();
         return budgetManager;
     }
     
+    /**
+     * Check if the user's managers are in memory
+     * 
+     * @return true if managers are attached
+     */
+    public synchronized boolean isLoaded() {
+        return transactionManager != null;
+    }
+    
+    /**
+     * Attach managers, for example ones loaded from storage
+     * Budget changes are recorded in the transaction manager's undo history
+     * 
+     * @param transactionManager Manager for the user's transactions
+     * @param budgetManager Manager for the user's budget
+     */
+    public synchronized void attachManagers(TransactionManager transactionManager, BudgetManager budgetManager) {
+        transactionManager.trackBudgets(budgetManager);
+        this.transactionManager = transactionManager;
+        this.budgetManager = budgetManager;
+    }
+    
+    /**
+     * Drop the user's managers so they can be garbage collected
+     * Until others are attached, accessing them throws rather than creating empty ones whose
+     * changes would be lost
+     */
+    public synchronized void detachManagers() {
+        this.transactionManager = null;
+        this.budgetManager = null;
+        this.detached = true;
+    }
+    
+    /**
+     * Create empty managers if none were ever attached
+     * 
+     * @throws IllegalStateException If the managers were detached and not attached again
+     */
+    private void createManagersIfNeeded() {
+        if (transactionManager != null) {
+            return;
+        }
+        if (detached) {
+            throw new IllegalStateException("Ledger of user " + id + " is not loaded");
+        }
+        attachManagers(new TransactionManager(), new BudgetManager());
+    }
+    
     /**
      * Returns a string representation of the User
      * Overrides toString method from Object class
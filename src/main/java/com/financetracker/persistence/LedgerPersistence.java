@@ -0,0 +1,394 @@
+package com.financetracker.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.financetracker.interfaces.LedgerListener;
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.LedgerCheckpoint;
+import com.financetracker.manager.TransactionManager;
+
+/**
+ * Durable storage for one user's ledger in a directory of snapshots and journals
+ * 
+ * Journal generation N holds the changes made after snapshot N; generation 0 starts from an empty ledger.
+ * A checkpoint starts a new journal generation at the moment the ledger is copied, writes the snapshot
+ * in the background, and then deletes generations older than the previous snapshot. That snapshot
+ * and the journals after it are kept so a damaged newest snapshot can be skipped on startup.
+ */
+public class LedgerPersistence implements LedgerListener, Closeable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    
+    /**
+     * Default journal size at which checkpointIfDue takes a checkpoint
+     */
+    public static final long DEFAULT_CHECKPOINT_BYTES = 4 * 1024 * 1024;
+    
+    private final Path directory;
+    private final TransactionManager transactionManager;
+    private final BudgetManager budgetManager;
+    private final TransactionJournal journal;
+    private final ExecutorService snapshotWriter;
+    private long checkpointBytes;
+    
+    // Current journal generation
+    private long generation;
+    
+    // Latest snapshot write, completed before the first checkpoint
+    private volatile Future<?> lastSnapshot;
+    
+    // What happened on startup
+    private final long restoredGeneration;
+    private final int damagedSnapshots;
+    private final long replayedRecords;
+    private final long recoveryNanos;
+    
+    /**
+     * Constructor for LedgerPersistence
+     * 
+     * @param directory Directory holding the files
+     * @param transactionManager Ledger being saved
+     * @param budgetManager Budgets being saved, may be null
+     * @param journal Journal for the current generation
+     * @param generation Current generation
+     * @param restoredGeneration Generation of the snapshot loaded on startup, or -1
+     * @param damagedSnapshots Number of snapshots skipped because they were damaged
+     * @param replayedRecords Number of journal records replayed on startup
+     * @param recoveryNanos Time taken to start up
+     */
+    private LedgerPersistence(Path directory, TransactionManager transactionManager, BudgetManager budgetManager,
+            TransactionJournal journal, long generation, long restoredGeneration, int damagedSnapshots,
+            long replayedRecords, long recoveryNanos) {
+        this.directory = directory;
+        this.transactionManager = transactionManager;
+        this.budgetManager = budgetManager;
+        this.journal = journal;
+        this.generation = generation;
+        this.restoredGeneration = restoredGeneration;
+        this.damagedSnapshots = damagedSnapshots;
+        this.replayedRecords = replayedRecords;
+        this.recoveryNanos = recoveryNanos;
+        this.checkpointBytes = DEFAULT_CHECKPOINT_BYTES;
+        this.lastSnapshot = CompletableFuture.completedFuture(null);
+        this.snapshotWriter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "ledger-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Open a ledger directory with the default group commit delay
+     * 
+     * @param directory Directory holding the files, created if missing
+     * @param transactionManager Empty manager to load into and record from
+     * @param budgetManager Empty manager to load budgets into and record from, may be null
+     * @return Open persistence listening to both managers
+     * @throws IOException If the files cannot be read or no consistent history remains
+     */
+    public static LedgerPersistence open(Path directory, TransactionManager transactionManager,
+            BudgetManager budgetManager) throws IOException {
+        return open(directory, transactionManager, budgetManager, TransactionJournal.DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+    
+    /**
+     * Open a ledger directory, load the newest valid snapshot and replay the journals after it
+     * The managers start with an empty undo history, so undo never reaches into an earlier session
+     * 
+     * @param directory Directory holding the files, created if missing
+     * @param transactionManager Empty manager to load into and record from
+     * @param budgetManager Empty manager to load budgets into and record from, may be null
+     * @param groupCommitMillis Maximum delay before a journal record is forced to disk
+     * @return Open persistence listening to both managers
+     * @throws IOException If the files cannot be read or no consistent history remains
+     */
+    public static LedgerPersistence open(Path directory, TransactionManager transactionManager,
+            BudgetManager budgetManager, long groupCommitMillis) throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(directory);
+        TreeSet<Long> snapshots = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        TreeSet<Long> journals = generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+        
+        // Newest snapshot that passes its checksum
+        long restored = -1;
+        int damaged = 0;
+        for (long snapshotGeneration : snapshots.descendingSet()) {
+            LedgerSnapshot snapshot;
+            try {
+                snapshot = LedgerSnapshot.read(snapshotPath(directory, snapshotGeneration));
+            } catch (IOException e) {
+                damaged++;
+                continue;
+            }
+            
+            // Budgets first, so restoring the checkpoint also drops their entries from the undo history
+            if (budgetManager != null) {
+                budgetManager.setTotalBudget(snapshot.getTotalBudget());
+                for (Map.Entry<String, Double> entry : snapshot.getCategoryBudgets().entrySet()) {
+                    budgetManager.setCategoryBudget(entry.getKey(), entry.getValue());
+                }
+            }
+            transactionManager.restore(snapshot.getCheckpoint());
+            restored = snapshotGeneration;
+            break;
+        }
+        
+        // Every journal from the snapshot on must still be there
+        long first = Math.max(restored, 0);
+        long last = journals.isEmpty() ? first : Math.max(first, journals.last());
+        long replayed = 0;
+        for (long journalGeneration = first; journalGeneration < last; journalGeneration++) {
+            Path path = journalPath(directory, journalGeneration);
+            if (!journals.contains(journalGeneration)) {
+                throw new IOException("Cannot recover " + directory + ": journal " + path.getFileName()
+                        + " is missing and no later snapshot is readable");
+            }
+            
+            TransactionJournal.ReplayResult result = TransactionJournal.replay(path, transactionManager, budgetManager);
+            if (result.isTruncated()) {
+                throw new IOException("Cannot recover " + directory + ": journal " + path.getFileName()
+                        + " is damaged and no later snapshot is readable");
+            }
+            replayed += result.getRecordCount();
+        }
+        
+        TransactionJournal journal = TransactionJournal.open(journalPath(directory, last), transactionManager,
+                budgetManager, groupCommitMillis);
+        replayed += journal.getReplayResult().getRecordCount();
+        
+        // Replayed records went through the public methods, which recorded them as undoable changes
+        transactionManager.clearHistory();
+        
+        LedgerPersistence persistence = new LedgerPersistence(directory, transactionManager, budgetManager,
+                journal, last, restored, damaged, replayed, System.nanoTime() - start);
+        transactionManager.addListener(persistence);
+        return persistence;
+    }
+    
+    /**
+     * Take a checkpoint and write its snapshot in the background
+     * 
+     * @return Completes when the snapshot is on disk and old files are deleted
+     */
+    public Future<?> checkpoint() {
+        transactionManager.checkpoint();
+        return lastSnapshot;
+    }
+    
+    /**
+     * Wait until every change made so far is on disk
+     * Changes are written in the background, so callers that need durability confirmed call this
+     * 
+     * @throws IOException If writing to the journal failed
+     */
+    public void flush() throws IOException {
+        journal.sync();
+    }
+    
+    /**
+     * Take a checkpoint if the current journal has grown past the checkpoint size
+     * 
+     * @return true if a checkpoint was taken
+     */
+    public boolean checkpointIfDue() {
+        if (journal.getSize() < checkpointBytes || !lastSnapshot.isDone()) {
+            return false;
+        }
+        checkpoint();
+        return true;
+    }
+    
+    /**
+     * Start a new journal generation and queue the snapshot that precedes it
+     * Runs inside TransactionManager.checkpoint, before any later change is journaled; the rotation
+     * does not wait for the disk, as the journal's flusher finishes the old file in the background
+     * 
+     * @param checkpoint Checkpoint taken
+     */
+    @Override
+    public synchronized void checkpointTaken(LedgerCheckpoint checkpoint) {
+        long next = generation + 1;
+        try {
+            journal.rotate(journalPath(directory, next));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        generation = next;
+        
+        double totalBudget = budgetManager != null ? budgetManager.getTotalBudget() : 0.0;
+        Map<String, Double> categoryBudgets = budgetManager != null
+                ? budgetManager.getAllCategoryBudgets() : Collections.emptyMap();
+        lastSnapshot = snapshotWriter.submit(() -> {
+            writeSnapshot(next, checkpoint, totalBudget, categoryBudgets);
+            return null;
+        });
+    }
+    
+    /**
+     * Set the journal size at which checkpointIfDue takes a checkpoint
+     * 
+     * @param bytes Journal size in bytes
+     */
+    public void setCheckpointBytes(long bytes) {
+        this.checkpointBytes = bytes;
+    }
+    
+    /**
+     * Get the journal the managers are recorded to
+     * 
+     * @return Current journal
+     */
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+    
+    /**
+     * Get the current journal generation
+     * 
+     * @return Generation number
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Get the generation of the snapshot loaded on startup
+     * 
+     * @return Generation number, or -1 if the ledger was rebuilt from journals alone
+     */
+    public long getRestoredGeneration() {
+        return restoredGeneration;
+    }
+    
+    /**
+     * Get the number of snapshots skipped on startup because they were damaged
+     * 
+     * @return Damaged snapshot count
+     */
+    public int getDamagedSnapshotCount() {
+        return damagedSnapshots;
+    }
+    
+    /**
+     * Get the number of journal records replayed on startup
+     * 
+     * @return Replayed record count
+     */
+    public long getReplayedRecordCount() {
+        return replayedRecords;
+    }
+    
+    /**
+     * Get the time taken to load the snapshot and replay the journals
+     * 
+     * @return Recovery time in nanoseconds
+     */
+    public long getRecoveryNanos() {
+        return recoveryNanos;
+    }
+    
+    /**
+     * Finish any snapshot being written, stop listening and close the journal
+     * 
+     * @throws IOException If the journal cannot be flushed
+     */
+    @Override
+    public void close() throws IOException {
+        transactionManager.removeListener(this);
+        snapshotWriter.shutdown();
+        try {
+            snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+    
+    /**
+     * Write a snapshot, then delete files the previous snapshot no longer needs
+     * 
+     * @param snapshotGeneration Generation the snapshot starts
+     * @param checkpoint Ledger and undo stack
+     * @param totalBudget Total budget
+     * @param categoryBudgets Budget for each category
+     * @throws IOException If the snapshot cannot be written
+     */
+    private void writeSnapshot(long snapshotGeneration, LedgerCheckpoint checkpoint, double totalBudget,
+            Map<String, Double> categoryBudgets) throws IOException {
+        LedgerSnapshot.write(snapshotPath(directory, snapshotGeneration), snapshotGeneration, checkpoint,
+                totalBudget, categoryBudgets);
+        
+        // Keep the previous snapshot and the journals after it as a fallback
+        Long previous = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).lower(snapshotGeneration);
+        if (previous == null) {
+            return;
+        }
+        for (long old : generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headSet(previous)) {
+            Files.deleteIfExists(snapshotPath(directory, old));
+        }
+        for (long old : generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX).headSet(previous)) {
+            Files.deleteIfExists(journalPath(directory, old));
+        }
+    }
+    
+    /**
+     * List the generation numbers of the files with a prefix and suffix
+     * 
+     * @param directory Directory to list
+     * @param prefix File name prefix
+     * @param suffix File name suffix
+     * @return Generation numbers in ascending order
+     * @throws IOException If the directory cannot be listed
+     */
+    private static TreeSet<Long> generations(Path directory, String prefix, String suffix) throws IOException {
+        TreeSet<Long> result = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    result.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Get the path of a snapshot file
+     * 
+     * @param directory Directory holding the files
+     * @param generation Generation number
+     * @return Snapshot path
+     */
+    private static Path snapshotPath(Path directory, long generation) {
+        return directory.resolve(String.format("%s%08d%s", SNAPSHOT_PREFIX, generation, SNAPSHOT_SUFFIX));
+    }
+    
+    /**
+     * Get the path of a journal file
+     * 
+     * @param directory Directory holding the files
+     * @param generation Generation number
+     * @return Journal path
+     */
+    private static Path journalPath(Path directory, long generation) {
+        return directory.resolve(String.format("%s%08d%s", JOURNAL_PREFIX, generation, JOURNAL_SUFFIX));
+    }
+}
\ No newline at end of file
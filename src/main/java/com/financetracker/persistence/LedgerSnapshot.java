@@ -0,0 +1,374 @@
+package com.financetracker.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.manager.LedgerCheckpoint;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.storage.ColumnarTransactionStore;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Point-in-time snapshot of a user's ledger, undo stack and budgets
+ * The file ends with a CRC32C of everything before it, so a torn or damaged
+ * snapshot is detected when it is read
+ */
+public class LedgerSnapshot {
+    // File header: magic number "FTSS" followed by the format version
+    private static final int MAGIC = 0x46545353;
+    private static final int VERSION = 1;
+    
+    // Flags stored with each transaction
+    private static final byte EXPENSE = 1;
+    private static final byte RECURRING = 2;
+    private static final byte DELETED = 4;
+    
+    // String length marking a null string
+    private static final int NULL_STRING = -1;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private final long generation;
+    private final LedgerCheckpoint checkpoint;
+    private final double totalBudget;
+    private final Map<String, Double> categoryBudgets;
+    
+    /**
+     * Constructor for LedgerSnapshot
+     * 
+     * @param generation Journal generation the snapshot starts
+     * @param checkpoint Ledger and undo stack
+     * @param totalBudget Total budget
+     * @param categoryBudgets Budget for each category
+     */
+    private LedgerSnapshot(long generation, LedgerCheckpoint checkpoint, double totalBudget,
+            Map<String, Double> categoryBudgets) {
+        this.generation = generation;
+        this.checkpoint = checkpoint;
+        this.totalBudget = totalBudget;
+        this.categoryBudgets = Collections.unmodifiableMap(categoryBudgets);
+    }
+    
+    /**
+     * Write a snapshot file
+     * The file is written beside the target and moved into place, so a crash leaves the old file intact
+     * 
+     * @param path File to write
+     * @param generation Journal generation the snapshot starts
+     * @param checkpoint Ledger and undo stack
+     * @param totalBudget Total budget
+     * @param categoryBudgets Budget for each category
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path path, long generation, LedgerCheckpoint checkpoint, double totalBudget,
+            Map<String, Double> categoryBudgets) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32C());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, BUFFER_SIZE));
+            
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(generation);
+            out.writeLong(checkpoint.getVersion());
+            
+            TransactionStore store = checkpoint.getStore();
+            out.writeInt(store.size());
+            for (int slot = 0; slot < store.size(); slot++) {
+                byte flags = 0;
+                if (store.isExpense(slot)) {
+                    flags |= EXPENSE;
+                }
+                if (store.isRecurring(slot)) {
+                    flags |= RECURRING;
+                }
+                if (store.isDeleted(slot)) {
+                    flags |= DELETED;
+                }
+                
+                out.writeInt(store.getId(slot));
+                out.writeLong(store.getAmountCents(slot));
+                out.writeInt(store.getEpochDay(slot));
+                out.writeByte(flags);
+                out.writeInt(store.getSequence(slot));
+                writeString(out, store.getCategory(slot));
+                writeString(out, store.getDescription(slot));
+            }
+            
+            List<Transaction> undoStack = checkpoint.getUndoStack();
+            out.writeInt(undoStack.size());
+            for (int i = 0; i < undoStack.size(); i++) {
+                Transaction transaction = undoStack.get(i);
+                byte flags = 0;
+                if (transaction instanceof Expense) {
+                    flags |= EXPENSE;
+                    if (((Expense) transaction).isRecurring()) {
+                        flags |= RECURRING;
+                    }
+                }
+                
+                out.writeInt(transaction.getId());
+                out.writeDouble(transaction.getAmount());
+                out.writeLong(transaction.getDate().getTime());
+                out.writeByte(flags);
+                out.writeInt(checkpoint.getUndoSequence(i));
+                writeString(out, transaction.getCategory());
+                writeString(out, transaction.getDescription());
+            }
+            
+            out.writeDouble(totalBudget);
+            out.writeInt(categoryBudgets.size());
+            for (Map.Entry<String, Double> entry : categoryBudgets.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+            
+            // The checksum covers everything written before it
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Read and verify a snapshot file
+     * 
+     * @param path File to read
+     * @return Snapshot read
+     * @throws IOException If the file cannot be read or fails its checksum
+     */
+    public static LedgerSnapshot read(Path path) throws IOException {
+        long fileSize = Files.size(path);
+        
+        // Check the whole file first, so nothing from a damaged snapshot reaches the category dictionary
+        verifyChecksum(path, fileSize);
+        
+        try (InputStream file = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file, BUFFER_SIZE));
+            
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a ledger snapshot: " + path);
+            }
+            long generation = in.readLong();
+            long version = in.readLong();
+            
+            int rowCount = readCount(in, fileSize);
+            ColumnarTransactionStore store = new ColumnarTransactionStore();
+            store.ensureCapacity(rowCount);
+            for (int slot = 0; slot < rowCount; slot++) {
+                int id = in.readInt();
+                double amount = in.readLong() / 100.0;
+                Date date = DateUtility.fromEpochDay(in.readInt());
+                byte flags = in.readByte();
+                int sequence = in.readInt();
+                String category = readString(in, fileSize);
+                String description = readString(in, fileSize);
+                
+                store.insert(slot, create(id, amount, description, category, date, flags), sequence);
+                if ((flags & DELETED) != 0) {
+                    store.setDeleted(slot, true);
+                }
+            }
+            
+            int undoCount = readCount(in, fileSize);
+            List<Transaction> undoStack = new ArrayList<>(undoCount);
+            int[] undoSequences = new int[undoCount];
+            for (int i = 0; i < undoCount; i++) {
+                int id = in.readInt();
+                double amount = in.readDouble();
+                Date date = new Date(in.readLong());
+                byte flags = in.readByte();
+                undoSequences[i] = in.readInt();
+                String category = readString(in, fileSize);
+                String description = readString(in, fileSize);
+                undoStack.add(create(id, amount, description, category, date, flags));
+            }
+            
+            double totalBudget = in.readDouble();
+            int budgetCount = readCount(in, fileSize);
+            Map<String, Double> categoryBudgets = new LinkedHashMap<>();
+            for (int i = 0; i < budgetCount; i++) {
+                String category = readString(in, fileSize);
+                categoryBudgets.put(category, in.readDouble());
+            }
+            
+            LedgerCheckpoint checkpoint = new LedgerCheckpoint(store, undoStack, undoSequences, version);
+            return new LedgerSnapshot(generation, checkpoint, totalBudget, categoryBudgets);
+        } catch (EOFException e) {
+            throw new IOException("Ledger snapshot is truncated: " + path, e);
+        }
+    }
+    
+    /**
+     * Check the CRC32C at the end of a snapshot file against its contents
+     * 
+     * @param path File to check
+     * @param fileSize Size of the file
+     * @throws IOException If the file cannot be read or the checksum does not match
+     */
+    private static void verifyChecksum(Path path, long fileSize) throws IOException {
+        if (fileSize < 4) {
+            throw new IOException("Ledger snapshot is truncated: " + path);
+        }
+        
+        try (InputStream file = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32C());
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = fileSize - 4;
+            while (remaining > 0) {
+                int read = checked.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Ledger snapshot is truncated: " + path);
+                }
+                remaining -= read;
+            }
+            
+            int expected = (int) checked.getChecksum().getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Ledger snapshot failed its checksum: " + path);
+            }
+        }
+    }
+    
+    /**
+     * Get the journal generation this snapshot starts
+     * Changes in that generation's journal and later ones come after the snapshot
+     * 
+     * @return Generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+    
+    /**
+     * Get the ledger and undo stack
+     * 
+     * @return Checkpoint to restore
+     */
+    public LedgerCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+    
+    /**
+     * Get the total budget
+     * 
+     * @return Total budget
+     */
+    public double getTotalBudget() {
+        return totalBudget;
+    }
+    
+    /**
+     * Get the category budgets
+     * 
+     * @return Budget for each category
+     */
+    public Map<String, Double> getCategoryBudgets() {
+        return categoryBudgets;
+    }
+    
+    /**
+     * Create a transaction from stored fields with its original ID
+     * 
+     * @param id Transaction ID
+     * @param amount Amount
+     * @param description Description
+     * @param category Category
+     * @param date Date
+     * @param flags Stored flags
+     * @return Income or Expense
+     */
+    private static Transaction create(int id, double amount, String description, String category, Date date,
+            byte flags) {
+        if ((flags & EXPENSE) != 0) {
+            return new Expense(id, amount, description, category, date, (flags & RECURRING) != 0);
+        }
+        return new Income(id, amount, description, category, date);
+    }
+    
+    /**
+     * Write a length-prefixed UTF-8 string, with length NULL_STRING for null
+     * 
+     * @param out Stream to write
+     * @param value String to write, or null
+     * @throws IOException If the write fails
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    /**
+     * Read a length-prefixed UTF-8 string
+     * 
+     * @param in Stream to read
+     * @param fileSize Size of the file, bounding the length
+     * @return String read, or null if written as null
+     * @throws IOException If the read fails or the length is impossible
+     */
+    private static String readString(DataInputStream in, long fileSize) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > fileSize) {
+            throw new IOException("Ledger snapshot is damaged: bad length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Read a count or length, rejecting values a damaged file could produce
+     * 
+     * @param in Stream to read
+     * @param fileSize Size of the file, bounding the value
+     * @return Value read
+     * @throws IOException If the read fails or the value is impossible
+     */
+    private static int readCount(DataInputStream in, long fileSize) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > fileSize) {
+            throw new IOException("Ledger snapshot is damaged: bad length " + count);
+        }
+        return count;
+    }
+}
\ No newline at end of file
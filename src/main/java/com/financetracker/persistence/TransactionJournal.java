@@ -0,0 +1,955 @@
+package com.financetracker.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import com.financetracker.interfaces.LedgerListener;
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+
+/**
+ * Append-only write-ahead log for a user's ledger
+ * Records every transaction and budget change as a binary record with a CRC,
+ * and replays them into fresh managers on startup
+ * 
+ * Records are buffered and forced to disk in groups: a record is durable at most
+ * the group commit delay after it is appended, and sync() waits for everything so far
+ * 
+ * Appended records queue in a buffer that grows up to the queue capacity, so a burst of changes
+ * is written in one large sequential write. When the queue is full, the backpressure policy
+ * either blocks the change until the writer makes room, or rejects it before it is applied.
+ */
+public class TransactionJournal implements LedgerListener, Closeable {
+    // File header: magic number "FTJ1" followed by the format version
+    private static final int MAGIC = 0x46544A31;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    
+    // Record layout: int length, int CRC32C, then length bytes of type and body
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    
+    // String length marking a null string
+    private static final int NULL_STRING = -1;
+    
+    // Record types
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte UNDO = 3;
+    private static final byte TOTAL_BUDGET = 4;
+    private static final byte CATEGORY_BUDGET = 5;
+    private static final byte CATEGORY_BUDGET_REMOVED = 6;
+    
+    // Flags stored with added transactions
+    private static final byte EXPENSE = 1;
+    private static final byte RECURRING = 2;
+    
+    /**
+     * Default group commit delay in milliseconds
+     */
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 10;
+    
+    /**
+     * Default number of bytes that can wait for the writer before backpressure applies
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024 * 1024;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * What a change does when the journal's queue is full
+     */
+    public enum Backpressure {
+        /**
+         * Wait for the writer to make room
+         */
+        BLOCK,
+        
+        /**
+         * Reject the change with a RejectedExecutionException before it is applied
+         */
+        FAIL_FAST
+    }
+    
+    // Current log file, replaced by rotate
+    private FileChannel channel;
+    
+    // After a rotate, the next file and the records still to be written to the current one, until
+    // the flusher has forced and closed the current file and opened the next
+    private Path nextPath;
+    private ByteBuffer previousPending;
+    private long previousRecords;
+    private final long groupCommitNanos;
+    private final Thread flusher;
+    private final ReplayResult replayResult;
+    
+    // Managers this journal listens to
+    private TransactionManager transactionManager;
+    private BudgetManager budgetManager;
+    
+    // Records not yet handed to the channel, and the spare the flusher writes from
+    private ByteBuffer pending;
+    private ByteBuffer spare;
+    
+    // Offset in the current file after the last appended record
+    private long appendedPosition;
+    
+    private long firstPendingNanos;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+    
+    private int queueCapacity;
+    private Backpressure backpressure;
+    
+    private long recordCount;
+    private long commitCount;
+    
+    // Records in the pending buffer, and records forced to disk
+    private long pendingRecords;
+    private long durableRecords;
+    
+    private long maxQueueDepth;
+    private long maxBatchRecords;
+    private long rejectedCount;
+    
+    /**
+     * Constructor for TransactionJournal
+     * 
+     * @param channel Channel positioned at the end of the valid log
+     * @param groupCommitMillis Maximum delay before a record is forced to disk, 0 to force every record
+     * @param replayResult Result of replaying the existing log
+     * @throws IOException If the channel position cannot be read
+     */
+    private TransactionJournal(FileChannel channel, long groupCommitMillis, ReplayResult replayResult) throws IOException {
+        this.channel = channel;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        this.replayResult = replayResult;
+        this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+        this.spare = ByteBuffer.allocate(BUFFER_SIZE);
+        this.queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        this.backpressure = Backpressure.BLOCK;
+        this.appendedPosition = channel.position();
+        
+        this.flusher = new Thread(this::runFlusher, "transaction-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    /**
+     * Open a journal with the default group commit delay
+     * 
+     * @param path Journal file, created if missing
+     * @param transactionManager Manager to replay transactions into and record from
+     * @param budgetManager Manager to replay budgets into and record from, may be null
+     * @return Open journal listening to both managers
+     * @throws IOException If the file cannot be opened or is not a journal
+     */
+    public static TransactionJournal open(Path path, TransactionManager transactionManager,
+            BudgetManager budgetManager) throws IOException {
+        return open(path, transactionManager, budgetManager, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+    
+    /**
+     * Open a journal, replay it into the managers and start recording their changes
+     * A torn or corrupt tail left by a crash is discarded
+     * 
+     * @param path Journal file, created if missing
+     * @param transactionManager Manager to replay transactions into and record from
+     * @param budgetManager Manager to replay budgets into and record from, may be null
+     * @param groupCommitMillis Maximum delay before a record is forced to disk, 0 to force every record
+     * @return Open journal listening to both managers
+     * @throws IOException If the file cannot be opened or is not a journal
+     */
+    public static TransactionJournal open(Path path, TransactionManager transactionManager,
+            BudgetManager budgetManager, long groupCommitMillis) throws IOException {
+        if (groupCommitMillis < 0) {
+            throw new IllegalArgumentException("Group commit delay cannot be negative");
+        }
+        
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        TransactionJournal journal;
+        try {
+            ReplayResult result = replay(channel, transactionManager, budgetManager);
+            if (result.getValidLength() == 0) {
+                writeHeader(channel);
+            } else if (result.getDiscardedBytes() > 0) {
+                channel.truncate(result.getValidLength());
+                channel.force(true);
+            }
+            channel.position(channel.size());
+            journal = new TransactionJournal(channel, groupCommitMillis, result);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        
+        journal.transactionManager = transactionManager;
+        journal.budgetManager = budgetManager;
+        transactionManager.addListener(journal);
+        if (budgetManager != null) {
+            budgetManager.addListener(journal);
+        }
+        return journal;
+    }
+    
+    /**
+     * Replay a journal file into the managers without opening it for writing
+     * 
+     * @param path Journal file
+     * @param transactionManager Manager to replay transactions into
+     * @param budgetManager Manager to replay budgets into, may be null
+     * @return Replay result
+     * @throws IOException If the file cannot be read or is not a journal
+     */
+    public static ReplayResult replay(Path path, TransactionManager transactionManager,
+            BudgetManager budgetManager) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return replay(channel, transactionManager, budgetManager);
+        }
+    }
+    
+    /**
+     * Replay records from the start of a channel until the end or the first bad record
+     * 
+     * @param channel Channel to read
+     * @param transactionManager Manager to replay transactions into
+     * @param budgetManager Manager to replay budgets into, may be null
+     * @return Replay result
+     * @throws IOException If the channel cannot be read or is not a journal
+     */
+    private static ReplayResult replay(FileChannel channel, TransactionManager transactionManager,
+            BudgetManager budgetManager) throws IOException {
+        long start = System.nanoTime();
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE) {
+            // Empty, or the header itself was torn before anything was logged
+            return new ReplayResult(0, 0, fileSize, System.nanoTime() - start);
+        }
+        
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a transaction journal: unknown header");
+        }
+        
+        CRC32C crc = new CRC32C();
+        byte[] record = new byte[256];
+        long position = HEADER_SIZE;
+        long applied = 0;
+        
+        while (position + RECORD_HEADER_SIZE <= fileSize) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                in.readFully(record, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            
+            apply(ByteBuffer.wrap(record, 0, length), transactionManager, budgetManager);
+            position += RECORD_HEADER_SIZE + length;
+            applied++;
+        }
+        return new ReplayResult(applied, position, fileSize - position, System.nanoTime() - start);
+    }
+    
+    /**
+     * Apply one verified record to the managers
+     * 
+     * @param record Record type and body
+     * @param transactionManager Manager to replay transactions into
+     * @param budgetManager Manager to replay budgets into, may be null
+     * @throws IOException If the record type is unknown
+     */
+    private static void apply(ByteBuffer record, TransactionManager transactionManager,
+            BudgetManager budgetManager) throws IOException {
+        byte type = record.get();
+        switch (type) {
+            case ADD:
+                int id = record.getInt();
+                double amount = record.getDouble();
+                Date date = new Date(record.getLong());
+                byte flags = record.get();
+                String category = getString(record);
+                String description = getString(record);
+                Transaction transaction = (flags & EXPENSE) != 0
+                        ? new Expense(id, amount, description, category, date, (flags & RECURRING) != 0)
+                        : new Income(id, amount, description, category, date);
+                transactionManager.addTransaction(transaction);
+                break;
+            case REMOVE:
+                transactionManager.removeTransaction(record.getInt());
+                break;
+            case UNDO:
+                transactionManager.restoreTransaction(record.getInt());
+                break;
+            case TOTAL_BUDGET:
+                double total = record.getDouble();
+                if (budgetManager != null) {
+                    budgetManager.setTotalBudget(total);
+                }
+                break;
+            case CATEGORY_BUDGET:
+                String budgetCategory = getString(record);
+                double budget = record.getDouble();
+                if (budgetManager != null) {
+                    budgetManager.setCategoryBudget(budgetCategory, budget);
+                }
+                break;
+            case CATEGORY_BUDGET_REMOVED:
+                String removedCategory = getString(record);
+                if (budgetManager != null) {
+                    budgetManager.removeCategoryBudget(removedCategory);
+                }
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+    
+    /**
+     * Reject a change if the journal has failed, or if its queue is full under FAIL_FAST
+     * A change let through is always recorded, so the queue may pass its capacity by one change
+     */
+    @Override
+    public synchronized void beforeChange() {
+        checkUsable();
+        if (backpressure == Backpressure.FAIL_FAST && pending.position() >= queueCapacity) {
+            rejectedCount++;
+            throw new RejectedExecutionException("Journal queue is full: " + pending.position() + " bytes waiting");
+        }
+    }
+    
+    @Override
+    public void transactionAdded(Transaction transaction) {
+        byte[] category = bytes(transaction.getCategory());
+        byte[] description = bytes(transaction.getDescription());
+        byte flags = 0;
+        if (transaction instanceof Expense) {
+            flags |= EXPENSE;
+            if (((Expense) transaction).isRecurring()) {
+                flags |= RECURRING;
+            }
+        }
+        
+        ByteBuffer record = record(ADD, 4 + 8 + 8 + 1 + 4 + length(category) + 4 + length(description));
+        record.putInt(transaction.getId());
+        record.putDouble(transaction.getAmount());
+        record.putLong(transaction.getDate().getTime());
+        record.put(flags);
+        putString(record, category);
+        putString(record, description);
+        append(record);
+    }
+    
+    @Override
+    public void transactionRemoved(int transactionId) {
+        append(record(REMOVE, 4).putInt(transactionId));
+    }
+    
+    @Override
+    public void deleteUndone(int transactionId) {
+        append(record(UNDO, 4).putInt(transactionId));
+    }
+    
+    @Override
+    public void totalBudgetSet(double amount) {
+        append(record(TOTAL_BUDGET, 8).putDouble(amount));
+    }
+    
+    @Override
+    public void categoryBudgetSet(String category, double amount) {
+        byte[] name = bytes(category);
+        append(putString(record(CATEGORY_BUDGET, 4 + length(name) + 8), name).putDouble(amount));
+    }
+    
+    @Override
+    public void categoryBudgetRemoved(String category) {
+        byte[] name = bytes(category);
+        append(putString(record(CATEGORY_BUDGET_REMOVED, 4 + length(name)), name));
+    }
+    
+    /**
+     * Wait until every record appended so far is on disk
+     * 
+     * @throws IOException If writing to the journal failed
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = recordCount;
+            flushRequested = true;
+            notifyAll();
+            try {
+                while (durableRecords < target) {
+                    if (failure != null) {
+                        throw new IOException("Journal write failed", failure);
+                    }
+                    if (!flusher.isAlive()) {
+                        throw new IOException("Journal is closed");
+                    }
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for journal sync");
+            }
+        }
+    }
+    
+    /**
+     * Force any remaining records to disk, stop listening and close the file
+     * 
+     * @throws IOException If the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        transactionManager.removeListener(this);
+        if (budgetManager != null) {
+            budgetManager.removeListener(this);
+        }
+        
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        
+        synchronized (this) {
+            if (failure != null) {
+                throw new IOException("Journal write failed", failure);
+            }
+        }
+    }
+    
+    /**
+     * Continue the log in a new file
+     * Records appended so far stay in the current file: the flusher forces and closes it, then creates
+     * the new file, before any later record is written. Nothing waits for the disk here, so a caller
+     * holding a lock is not held up, unless the previous rotation is still being finished
+     * 
+     * @param path New journal file, replacing any existing file
+     * @throws IOException If the journal has failed or is closed
+     */
+    public void rotate(Path path) throws IOException {
+        ByteBuffer nextPending = ByteBuffer.allocate(BUFFER_SIZE);
+        synchronized (this) {
+            try {
+                while (nextPath != null) {
+                    checkRotatable();
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the previous journal rotation");
+            }
+            checkRotatable();
+            
+            nextPath = path;
+            previousPending = pending;
+            previousRecords = pendingRecords;
+            pending = nextPending;
+            pendingRecords = 0;
+            appendedPosition = HEADER_SIZE;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Make sure the journal can still be rotated
+     * 
+     * @throws IOException If the journal has failed or is closed
+     */
+    private void checkRotatable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal write failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+    
+    /**
+     * Get the result of replaying the log when the journal was opened
+     * 
+     * @return Replay result
+     */
+    public ReplayResult getReplayResult() {
+        return replayResult;
+    }
+    
+    /**
+     * Get number of records appended since the journal was opened
+     * 
+     * @return Record count
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Get number of group commits (forced writes) since the journal was opened
+     * 
+     * @return Commit count
+     */
+    public synchronized long getCommitCount() {
+        return commitCount;
+    }
+    
+    /**
+     * Get number of records appended but not yet forced to disk
+     * 
+     * @return Queue depth in records
+     */
+    public synchronized long getQueueDepth() {
+        return recordCount - durableRecords;
+    }
+    
+    /**
+     * Get the largest queue depth seen since the journal was opened
+     * 
+     * @return Queue depth in records
+     */
+    public synchronized long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+    
+    /**
+     * Get average number of records written per group commit
+     * 
+     * @return Records per batch, or 0 before the first commit
+     */
+    public synchronized double getAverageBatchSize() {
+        return commitCount == 0 ? 0 : (double) durableRecords / commitCount;
+    }
+    
+    /**
+     * Get the largest number of records written in one group commit
+     * 
+     * @return Records in the largest batch
+     */
+    public synchronized long getMaxBatchSize() {
+        return maxBatchRecords;
+    }
+    
+    /**
+     * Get number of changes rejected because the queue was full
+     * 
+     * @return Rejected count
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Set the number of bytes that can wait for the writer before backpressure applies
+     * 
+     * @param bytes Queue capacity
+     */
+    public synchronized void setQueueCapacity(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.queueCapacity = bytes;
+        notifyAll();
+    }
+    
+    /**
+     * Get the number of bytes that can wait for the writer before backpressure applies
+     * 
+     * @return Queue capacity
+     */
+    public synchronized int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    /**
+     * Set what a change does when the queue is full
+     * 
+     * @param backpressure BLOCK or FAIL_FAST
+     */
+    public synchronized void setBackpressure(Backpressure backpressure) {
+        this.backpressure = backpressure;
+        notifyAll();
+    }
+    
+    /**
+     * Get what a change does when the queue is full
+     * 
+     * @return Backpressure policy
+     */
+    public synchronized Backpressure getBackpressure() {
+        return backpressure;
+    }
+    
+    /**
+     * Get size of the log including records not yet on disk
+     * 
+     * @return Log size in bytes
+     */
+    public synchronized long getSize() {
+        return appendedPosition;
+    }
+    
+    /**
+     * Start a record with room for its header, type and body
+     * 
+     * @param type Record type
+     * @param bodyLength Length of the record body
+     * @return Buffer positioned after the type
+     */
+    private static ByteBuffer record(byte type, int bodyLength) {
+        int length = 1 + bodyLength;
+        if (length > MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("Journal record too large: " + length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        record.putInt(length).putInt(0).put(type);
+        return record;
+    }
+    
+    /**
+     * Checksum a finished record and add it to the pending buffer
+     * Waits for the flusher when the buffer is full, and for the disk when every record is forced
+     * 
+     * @param record Finished record
+     */
+    private void append(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_SIZE, record.position() - RECORD_HEADER_SIZE);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        
+        synchronized (this) {
+            checkUsable();
+            try {
+                while (pending.remaining() < record.remaining()) {
+                    // Grow the queue up to its capacity, or past it for an admitted change under FAIL_FAST
+                    int needed = pending.position() + record.remaining();
+                    if (pending.position() == 0 || pending.capacity() < queueCapacity
+                            || backpressure == Backpressure.FAIL_FAST) {
+                        ByteBuffer larger = ByteBuffer.allocate(
+                                Math.max(needed, Math.min(pending.capacity() * 2, queueCapacity)));
+                        pending.flip();
+                        pending = larger.put(pending);
+                        break;
+                    }
+                    // Queue is full: have the flusher write it out now
+                    flushRequested = true;
+                    notifyAll();
+                    wait();
+                    checkUsable();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for journal space"));
+            }
+            
+            if (pending.position() == 0) {
+                firstPendingNanos = System.nanoTime();
+                notifyAll();
+            }
+            appendedPosition += record.remaining();
+            pending.put(record);
+            recordCount++;
+            pendingRecords++;
+            maxQueueDepth = Math.max(maxQueueDepth, recordCount - durableRecords);
+        }
+        
+        if (groupCommitNanos == 0) {
+            try {
+                sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    /**
+     * Make sure records can still be appended
+     */
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException(new IOException("Journal write failed", failure));
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+    
+    /**
+     * Body of the flusher thread
+     * Writes the pending buffer once the oldest record has waited the group commit delay,
+     * when it fills up, or when sync() or close() asks, then forces it to disk
+     */
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer batch;
+            long batchRecords;
+            FileChannel target;
+            Path rotateTo;
+            synchronized (this) {
+                try {
+                    while (true) {
+                        // The current file is finished first, so it never misses a record the next one has
+                        if (nextPath != null) {
+                            break;
+                        }
+                        if (pending.position() == 0) {
+                            if (closed) {
+                                return;
+                            }
+                            wait();
+                            continue;
+                        }
+                        if (flushRequested || closed) {
+                            break;
+                        }
+                        long remaining = firstPendingNanos + groupCommitNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            break;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    // Only close() stops the flusher
+                    continue;
+                }
+                
+                target = channel;
+                rotateTo = nextPath;
+                if (rotateTo != null) {
+                    batch = previousPending;
+                    batchRecords = previousRecords;
+                } else {
+                    // Swap buffers so appends can continue while this batch is written
+                    batch = pending;
+                    pending = spare;
+                    spare = batch;
+                    batchRecords = pendingRecords;
+                    pendingRecords = 0;
+                    flushRequested = false;
+                }
+                notifyAll();
+            }
+            
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                target.force(false);
+                batch.clear();
+                if (rotateTo != null) {
+                    target.close();
+                    FileChannel next = FileChannel.open(rotateTo, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    try {
+                        writeHeader(next);
+                        next.position(HEADER_SIZE);
+                    } catch (IOException e) {
+                        next.close();
+                        throw e;
+                    }
+                    synchronized (this) {
+                        channel = next;
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            
+            synchronized (this) {
+                if (rotateTo != null) {
+                    nextPath = null;
+                    previousPending = null;
+                    previousRecords = 0;
+                }
+                durableRecords += batchRecords;
+                maxBatchRecords = Math.max(maxBatchRecords, batchRecords);
+                commitCount++;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Write the file header to an empty or torn log file and force it to disk
+     * 
+     * @param channel Channel to write
+     * @throws IOException If the write fails
+     */
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.truncate(HEADER_SIZE);
+        channel.force(true);
+    }
+    
+    /**
+     * Read a length-prefixed UTF-8 string
+     * 
+     * @param buffer Buffer to read
+     * @return String read, or null if written as null
+     */
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+    
+    /**
+     * Write a length-prefixed string, with length NULL_STRING for null
+     * 
+     * @param buffer Buffer to write
+     * @param bytes Encoded string, or null
+     * @return The buffer
+     */
+    private static ByteBuffer putString(ByteBuffer buffer, byte[] bytes) {
+        return bytes == null ? buffer.putInt(NULL_STRING) : buffer.putInt(bytes.length).put(bytes);
+    }
+    
+    /**
+     * Encode a string as UTF-8
+     * 
+     * @param value String to encode
+     * @return Encoded bytes, or null for null
+     */
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Get the encoded length of a string
+     * 
+     * @param bytes Encoded string, or null
+     * @return Bytes after the length prefix
+     */
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+    
+    /**
+     * Class describing the outcome of replaying a journal
+     */
+    public static class ReplayResult {
+        private final long recordCount;
+        private final long validLength;
+        private final long discardedBytes;
+        private final long elapsedNanos;
+        
+        /**
+         * Constructor for ReplayResult
+         * 
+         * @param recordCount Number of records applied
+         * @param validLength Length of the log up to the last good record
+         * @param discardedBytes Bytes after the last good record
+         * @param elapsedNanos Time taken to replay
+         */
+        ReplayResult(long recordCount, long validLength, long discardedBytes, long elapsedNanos) {
+            this.recordCount = recordCount;
+            this.validLength = validLength;
+            this.discardedBytes = discardedBytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        /**
+         * Get number of records applied
+         * 
+         * @return Record count
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+        
+        /**
+         * Get length of the log up to the last good record
+         * 
+         * @return Valid length in bytes
+         */
+        public long getValidLength() {
+            return validLength;
+        }
+        
+        /**
+         * Get number of bytes discarded after the last good record
+         * Non-zero after a crash tore the final write
+         * 
+         * @return Discarded bytes
+         */
+        public long getDiscardedBytes() {
+            return discardedBytes;
+        }
+        
+        /**
+         * Check whether a torn or corrupt tail was found
+         * 
+         * @return True if bytes were discarded
+         */
+        public boolean isTruncated() {
+            return discardedBytes > 0;
+        }
+        
+        /**
+         * Get time taken to replay
+         * 
+         * @return Elapsed time in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,786 @@
+package com.financetracker.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.ConcurrentTransactionManager;
+import com.financetracker.manager.TransactionManager;
+import com.financetracker.model.User;
+
+/**
+ * Registry of users whose ledgers are loaded on first use and evicted when memory runs short
+ * 
+ * Every user's profile stays in memory, but their managers are only loaded from their own
+ * directory under the registry directory, named by user ID, when a session is opened. Loaded
+ * ledgers are kept in least recently used order, and once their estimated size passes the memory
+ * budget the oldest ones nobody has open are flushed to disk and dropped.
+ * 
+ * Registered users are appended to an index file in the registry directory and read back when the
+ * registry is created, so user IDs, and with them ledger directories, are never handed out twice.
+ * The index keeps each profile as it was registered.
+ * 
+ * Methods are thread-safe. Ledgers are read from disk and flushed without holding the registry lock,
+ * so other users can be served while that happens; a user whose evicted ledger is still being
+ * flushed waits for it before their ledger is loaded again. Sessions on the same user share one ledger, whose transaction
+ * manager is a ConcurrentTransactionManager; its budget manager is not thread-safe.
+ */
+public class UserRegistry implements Closeable {
+    /**
+     * Default memory budget for loaded ledgers
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+    
+    // Index of registered users: magic, then per user its ID and length-prefixed UTF-8 name and email,
+    // with length -1 for null
+    private static final String INDEX_FILE = "users.idx";
+    private static final int INDEX_MAGIC = 0x46545531;  // "FTU1"
+    
+    // Estimated heap used by a loaded ledger: its managers, journal buffers and threads,
+    // plus each stored transaction's columns, index entries and description
+    private static final long BYTES_PER_LEDGER = 160 * 1024;
+    private static final long BYTES_PER_TRANSACTION = 96;
+    
+    private final Path directory;
+    private long memoryBudget;
+    
+    // Every registered user, by ID, and the ID the next new user gets
+    private final Map<Integer, User> users;
+    private final AtomicInteger nextUserId;
+    
+    // Index file, appended to under its own lock so registering never waits on the registry lock
+    private final FileChannel index;
+    
+    // Loaded or loading ledgers, least recently used first
+    private final LinkedHashMap<Integer, Ledger> ledgers;
+    private long ledgerBytes;
+    
+    // Evicted or closed ledgers still being flushed, by user ID
+    private final Map<Integer, Ledger> closing;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean closed;
+    
+    /**
+     * Constructor for UserRegistry with the default memory budget
+     * 
+     * @param directory Directory holding one ledger directory per user, created if missing
+     * @throws IOException If the user index cannot be read
+     */
+    public UserRegistry(Path directory) throws IOException {
+        this(directory, DEFAULT_MEMORY_BUDGET);
+    }
+    
+    /**
+     * Constructor for UserRegistry
+     * Users registered by earlier registries on the same directory are registered again
+     * 
+     * @param directory Directory holding one ledger directory per user, created if missing
+     * @param memoryBudget Estimated bytes loaded ledgers may use before the least recent are evicted
+     * @throws IOException If the user index cannot be read
+     */
+    public UserRegistry(Path directory, long memoryBudget) throws IOException {
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+        this.users = new HashMap<>();
+        this.ledgers = new LinkedHashMap<>(16, 0.75f, true);
+        this.closing = new HashMap<>();
+        
+        Files.createDirectories(directory);
+        this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            readIndex();
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        
+        // Also start past every ledger directory, so an ID whose index entry was lost is not reused
+        int nextId = 1;
+        for (int id : users.keySet()) {
+            nextId = Math.max(nextId, id + 1);
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path entry : entries) {
+                try {
+                    nextId = Math.max(nextId, Integer.parseInt(entry.getFileName().toString()) + 1);
+                } catch (NumberFormatException e) {
+                    // Not a ledger directory
+                }
+            }
+        }
+        this.nextUserId = new AtomicInteger(nextId);
+    }
+    
+    /**
+     * Create and register a new user with the next free ID
+     * 
+     * @param name User's name
+     * @param email User's email address
+     * @return The new user
+     * @throws IOException If the user cannot be added to the index
+     */
+    public User register(String name, String email) throws IOException {
+        User user = new User(nextUserId.getAndIncrement(), name, email);
+        add(user);
+        return user;
+    }
+    
+    /**
+     * Register an existing user and add them to the index
+     * Their ledger is read from the directory named by their ID when first opened; any managers
+     * attached to them now are dropped, and their managers can only be used while a session is open
+     * 
+     * @param user User to register
+     * @throws IOException If the user cannot be added to the index
+     * @throws IllegalArgumentException If another user has the same ID
+     */
+    public void add(User user) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Registry is closed");
+            }
+            User existing = users.putIfAbsent(user.getId(), user);
+            if (existing == user) {
+                return;
+            }
+            if (existing != null) {
+                throw new IllegalArgumentException("User ID already registered: " + user.getId());
+            }
+            
+            // The user's managers are only ever the ones loaded from their directory
+            user.detachManagers();
+        }
+        nextUserId.accumulateAndGet(user.getId() + 1, Math::max);
+        
+        try {
+            appendToIndex(user);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                users.remove(user.getId(), user);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Get a user's profile without loading their ledger
+     * 
+     * @param userId User ID
+     * @return The user, or null if not registered
+     */
+    public synchronized User getUser(int userId) {
+        return users.get(userId);
+    }
+    
+    /**
+     * Get the number of registered users
+     * 
+     * @return User count
+     */
+    public synchronized int getUserCount() {
+        return users.size();
+    }
+    
+    /**
+     * Open a session on a user's ledger, loading it from disk if it is not in memory
+     * The ledger is not evicted while any session on it is open
+     * 
+     * @param userId User ID
+     * @return Open session, to be closed when done
+     * @throws IOException If the ledger cannot be read, or a ledger evicted to make room cannot be flushed
+     * @throws IllegalArgumentException If the user is not registered
+     */
+    public Session open(int userId) throws IOException {
+        Ledger ledger = null;
+        while (ledger == null) {
+            Ledger flushing;
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Registry is closed");
+                }
+                User user = users.get(userId);
+                if (user == null) {
+                    throw new IllegalArgumentException("Unknown user ID: " + userId);
+                }
+                
+                flushing = closing.get(userId);
+                if (flushing == null) {
+                    ledger = ledgers.get(userId);
+                    if (ledger != null) {
+                        hits++;
+                    } else {
+                        misses++;
+                        ledger = new Ledger(user);
+                        ledgers.put(userId, ledger);
+                    }
+                    ledger.sessions++;
+                }
+            }
+            
+            // Reading the ledger before its journal is flushed would miss the last changes
+            if (flushing != null) {
+                flushing.awaitUnloaded();
+            }
+        }
+        
+        try {
+            ledger.load(directory.resolve(Integer.toString(userId)));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                ledger.sessions--;
+                if (ledger.persistence == null && ledger.sessions == 0) {
+                    ledgers.remove(userId, ledger);
+                }
+            }
+            throw e;
+        }
+        
+        List<Ledger> evicted;
+        synchronized (this) {
+            evicted = ledgers.get(userId) == ledger ? resize(ledger) : null;
+        }
+        if (evicted == null) {
+            ledger.unload();
+            throw new IllegalStateException("Registry is closed");
+        }
+        
+        Session session = new Session(ledger);
+        try {
+            unload(evicted);
+        } catch (IOException | RuntimeException e) {
+            try {
+                session.close();
+            } catch (IOException | RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return session;
+    }
+    
+    /**
+     * Check if a user's ledger is in memory
+     * 
+     * @param userId User ID
+     * @return true if loaded
+     */
+    public synchronized boolean isLoaded(int userId) {
+        Ledger ledger = ledgers.get(userId);
+        return ledger != null && ledger.persistence != null;
+    }
+    
+    /**
+     * Get the number of ledgers in memory
+     * 
+     * @return Loaded ledger count
+     */
+    public synchronized int getLoadedCount() {
+        return ledgers.size();
+    }
+    
+    /**
+     * Get the estimated memory used by loaded ledgers
+     * Estimates are updated when a session is opened or closed
+     * 
+     * @return Estimated bytes
+     */
+    public synchronized long getLoadedBytes() {
+        return ledgerBytes;
+    }
+    
+    /**
+     * Get the memory budget
+     * 
+     * @return Estimated bytes loaded ledgers may use
+     */
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+    
+    /**
+     * Set the memory budget, evicting ledgers at once if it is now exceeded
+     * 
+     * @param memoryBudget Estimated bytes loaded ledgers may use
+     * @throws IOException If an evicted ledger cannot be flushed
+     */
+    public void setMemoryBudget(long memoryBudget) throws IOException {
+        List<Ledger> evicted;
+        synchronized (this) {
+            this.memoryBudget = memoryBudget;
+            evicted = evict();
+        }
+        unload(evicted);
+    }
+    
+    /**
+     * Get the number of sessions opened on a ledger already in memory
+     * 
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+    
+    /**
+     * Get the number of sessions that had to load a ledger
+     * 
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+    
+    /**
+     * Get the number of ledgers evicted to stay within the memory budget
+     * 
+     * @return Eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+    
+    /**
+     * Flush and close every loaded ledger, including ones still being evicted
+     * Sessions still open keep working in memory, but their changes are no longer saved
+     * 
+     * @throws IOException If a ledger cannot be flushed
+     */
+    @Override
+    public void close() throws IOException {
+        List<Ledger> loaded;
+        List<Ledger> flushing;
+        synchronized (this) {
+            closed = true;
+            flushing = new ArrayList<>(closing.values());
+            loaded = new ArrayList<>(ledgers.values());
+            for (Ledger ledger : loaded) {
+                closing.put(ledger.user.getId(), ledger);
+            }
+            ledgers.clear();
+            ledgerBytes = 0;
+        }
+        
+        IOException failure = null;
+        try {
+            unload(loaded);
+            for (Ledger ledger : flushing) {
+                ledger.awaitUnloaded();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            synchronized (index) {
+                try {
+                    index.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Register every user in the index, cutting off a record left incomplete by a crash
+     * 
+     * @throws IOException If the index cannot be read or is not a user index
+     */
+    private void readIndex() throws IOException {
+        long size = index.size();
+        if (size == 0) {
+            ByteBuffer magic = ByteBuffer.allocate(4).putInt(0, INDEX_MAGIC);
+            while (magic.hasRemaining()) {
+                index.write(magic, magic.position());
+            }
+            index.force(true);
+            return;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("User index too large: " + directory.resolve(INDEX_FILE));
+        }
+        
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (index.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() < 4 || buffer.getInt() != INDEX_MAGIC) {
+            throw new IOException("Not a user index: " + directory.resolve(INDEX_FILE));
+        }
+        
+        int valid = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                int id = buffer.getInt();
+                String name = readIndexString(buffer);
+                String email = readIndexString(buffer);
+                User user = new User(id, name, email);
+                user.detachManagers();
+                users.put(id, user);
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // Record cut short by a crash while it was appended
+        }
+        if (valid < size) {
+            index.truncate(valid);
+            index.force(true);
+        }
+    }
+    
+    /**
+     * Read a length-prefixed string from the index
+     * 
+     * @param buffer Index contents, positioned at the length
+     * @return String, or null if stored as null
+     * @throws BufferUnderflowException If the string is cut short
+     * @throws IllegalArgumentException If the length is not valid
+     */
+    private static String readIndexString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Append a user to the index and force it to disk
+     * 
+     * @param user User to add
+     * @throws IOException If the index cannot be written
+     */
+    private void appendToIndex(User user) throws IOException {
+        byte[] name = user.getName() == null ? null : user.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.getEmail() == null ? null : user.getEmail().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(12 + (name == null ? 0 : name.length)
+                + (email == null ? 0 : email.length));
+        record.putInt(user.getId());
+        putIndexString(record, name);
+        putIndexString(record, email);
+        record.flip();
+        
+        synchronized (index) {
+            if (!index.isOpen()) {
+                throw new IllegalStateException("Registry is closed");
+            }
+            long position = index.size();
+            while (record.hasRemaining()) {
+                position += index.write(record, position);
+            }
+            index.force(true);
+        }
+    }
+    
+    /**
+     * Write a length-prefixed string to an index record
+     * 
+     * @param record Record being built
+     * @param bytes UTF-8 string, or null
+     */
+    private static void putIndexString(ByteBuffer record, byte[] bytes) {
+        if (bytes == null) {
+            record.putInt(-1);
+        } else {
+            record.putInt(bytes.length).put(bytes);
+        }
+    }
+    
+    
+    /**
+     * Update a ledger's size estimate and evict others if the budget is exceeded
+     * The caller holds the registry lock and unloads the evicted ledgers once it has released it
+     * 
+     * @param ledger Registered ledger to measure
+     * @return Evicted ledgers
+     */
+    private List<Ledger> resize(Ledger ledger) {
+        long bytes = ledger.estimateBytes();
+        ledgerBytes += bytes - ledger.bytes;
+        ledger.bytes = bytes;
+        return evict();
+    }
+    
+    /**
+     * Close a session, evicting ledgers if the budget is exceeded
+     * 
+     * @param ledger Ledger the session was open on
+     * @throws IOException If an evicted ledger cannot be flushed
+     */
+    private void release(Ledger ledger) throws IOException {
+        List<Ledger> evicted;
+        synchronized (this) {
+            ledger.sessions--;
+            evicted = ledgers.get(ledger.user.getId()) == ledger ? resize(ledger) : Collections.emptyList();
+        }
+        unload(evicted);
+    }
+    
+    /**
+     * Drop the least recently used ledgers with no open sessions until the budget is met
+     * The caller holds the registry lock and unloads the evicted ledgers once it has released it;
+     * until then they are kept in closing, so their users wait rather than read a stale journal
+     * 
+     * @return Evicted ledgers
+     */
+    private List<Ledger> evict() {
+        List<Ledger> evicted = new ArrayList<>();
+        Iterator<Ledger> iterator = ledgers.values().iterator();
+        while (ledgerBytes > memoryBudget && iterator.hasNext()) {
+            Ledger ledger = iterator.next();
+            if (ledger.sessions == 0 && ledger.persistence != null) {
+                iterator.remove();
+                ledgerBytes -= ledger.bytes;
+                closing.put(ledger.user.getId(), ledger);
+                evicted.add(ledger);
+                evictions++;
+            }
+        }
+        return evicted;
+    }
+    
+    /**
+     * Flush and close ledgers taken out of the registry, without holding the registry lock
+     * Every ledger is unloaded and released to waiting users even if an earlier one fails
+     * 
+     * @param evicted Ledgers in closing
+     * @throws IOException If a ledger cannot be flushed
+     */
+    private void unload(List<Ledger> evicted) throws IOException {
+        Exception failure = null;
+        for (Ledger ledger : evicted) {
+            try {
+                ledger.unload();
+            } catch (IOException | RuntimeException e) {
+                failure = failure == null ? e : failure;
+            } finally {
+                synchronized (this) {
+                    closing.remove(ledger.user.getId(), ledger);
+                }
+                ledger.unloaded.countDown();
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+    
+    /**
+     * A user's ledger while it is in memory
+     */
+    private static class Ledger {
+        final User user;
+        
+        // Guarded by the ledger; null until loaded
+        LedgerPersistence persistence;
+        TransactionManager transactionManager;
+        BudgetManager budgetManager;
+        
+        // Guarded by the registry
+        int sessions;
+        long bytes;
+        
+        // Released once the ledger has been taken out of the registry and unloaded
+        final CountDownLatch unloaded = new CountDownLatch(1);
+        
+        /**
+         * Constructor for Ledger
+         * 
+         * @param user Owner of the ledger
+         */
+        Ledger(User user) {
+            this.user = user;
+        }
+        
+        /**
+         * Load the ledger from its directory unless it is already loaded
+         * 
+         * @param path Directory holding the ledger
+         * @throws IOException If the ledger cannot be read
+         */
+        synchronized void load(Path path) throws IOException {
+            if (persistence != null) {
+                return;
+            }
+            TransactionManager loadedTransactions = new ConcurrentTransactionManager();
+            BudgetManager loadedBudgets = new BudgetManager();
+            persistence = LedgerPersistence.open(path, loadedTransactions, loadedBudgets);
+            transactionManager = loadedTransactions;
+            budgetManager = loadedBudgets;
+            user.attachManagers(transactionManager, budgetManager);
+        }
+        
+        /**
+         * Write a snapshot if the journal has grown, close the journal and drop the managers
+         * 
+         * @throws IOException If the journal cannot be flushed
+         */
+        synchronized void unload() throws IOException {
+            if (persistence == null) {
+                return;
+            }
+            LedgerPersistence closing = persistence;
+            persistence = null;
+            transactionManager = null;
+            budgetManager = null;
+            user.detachManagers();
+            
+            // A snapshot keeps the next load from replaying a long journal
+            closing.checkpointIfDue();
+            closing.close();
+        }
+        
+        /**
+         * Wait until the ledger has been unloaded after being taken out of the registry
+         * 
+         * @throws InterruptedIOException If interrupted while waiting
+         */
+        void awaitUnloaded() throws InterruptedIOException {
+            try {
+                unloaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for ledger of user "
+                        + user.getId() + " to be flushed");
+            }
+        }
+        
+        /**
+         * Estimate the heap used by the ledger
+         * 
+         * @return Estimated bytes
+         */
+        synchronized long estimateBytes() {
+            if (persistence == null) {
+                return 0;
+            }
+            return BYTES_PER_LEDGER + BYTES_PER_TRANSACTION * transactionManager.getTransactionCount();
+        }
+    }
+    
+    /**
+     * Open use of a user's ledger, keeping it in memory until closed
+     */
+    public class Session implements Closeable {
+        private final Ledger ledger;
+        private boolean released;
+        
+        /**
+         * Constructor for Session
+         * 
+         * @param ledger Ledger the session is open on
+         */
+        private Session(Ledger ledger) {
+            this.ledger = ledger;
+        }
+        
+        /**
+         * Get the user the session is open for
+         * 
+         * @return The user
+         */
+        public User getUser() {
+            return ledger.user;
+        }
+        
+        /**
+         * Get the user's transaction manager
+         * 
+         * @return Loaded transaction manager
+         */
+        public TransactionManager getTransactionManager() {
+            synchronized (ledger) {
+                return ledger.transactionManager;
+            }
+        }
+        
+        /**
+         * Get the user's budget manager
+         * It is shared with the user's other sessions and not thread-safe, so sessions that change
+         * budgets at the same time must synchronize on it
+         * 
+         * @return Loaded budget manager
+         */
+        public BudgetManager getBudgetManager() {
+            synchronized (ledger) {
+                return ledger.budgetManager;
+            }
+        }
+        
+        /**
+         * Wait until every change made to the user's ledger so far is on disk
+         * 
+         * @throws IOException If writing to the journal failed
+         */
+        public void flush() throws IOException {
+            LedgerPersistence persistence;
+            synchronized (ledger) {
+                persistence = ledger.persistence;
+            }
+            if (persistence != null) {
+                persistence.flush();
+            }
+        }
+        
+        /**
+         * Write a snapshot if the user's journal has grown past its threshold
+         * 
+         * @return true if a checkpoint was taken
+         */
+        public boolean checkpointIfDue() {
+            synchronized (ledger) {
+                return ledger.persistence != null && ledger.persistence.checkpointIfDue();
+            }
+        }
+        
+        /**
+         * Close the session, letting the ledger be evicted once no other session is open
+         * 
+         * @throws IOException If a ledger evicted as a result cannot be flushed
+         */
+        @Override
+        public void close() throws IOException {
+            synchronized (UserRegistry.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(ledger);
+        }
+    }
+}
\ No newline at end of file
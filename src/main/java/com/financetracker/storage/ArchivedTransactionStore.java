@@ -0,0 +1,361 @@
+package com.financetracker.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Read-only transaction store over a compressed archive file
+ * Opening decodes only the transaction IDs and the per-category totals. The other columns are
+ * decompressed the first time any row is read, and kept until release() is called.
+ * Changes are not supported; load the rows into another store to change them.
+ */
+public class ArchivedTransactionStore implements TransactionStore {
+    private final Path path;
+    private final CategoryDictionary categories;
+    private final int size;
+    private final long fileSize;
+    
+    // Kept in memory so ID lookups do not decompress the archive
+    private final int[] ids;
+    
+    // Totals stored in the archive footer, indexed by dictionary ID
+    private final long[] incomeCents;
+    private final long[] expenseCents;
+    private final int[] incomeCounts;
+    private final int[] expenseCounts;
+    
+    // Decompressed rows, or null until a row is read
+    // Volatile so readers sharing a read lock see the rows fully built
+    private volatile ColumnarTransactionStore columns;
+    
+    /**
+     * Constructor for ArchivedTransactionStore
+     * Uses a new category dictionary
+     * 
+     * @param path Archive file to open
+     * @throws IOException If the file cannot be read or is not a valid archive
+     */
+    public ArchivedTransactionStore(Path path) throws IOException {
+        this(path, new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for ArchivedTransactionStore with a category dictionary
+     * 
+     * @param path Archive file to open
+     * @param categories Dictionary for category IDs
+     * @throws IOException If the file cannot be read or is not a valid archive
+     */
+    public ArchivedTransactionStore(Path path, CategoryDictionary categories) throws IOException {
+        this.path = path;
+        this.categories = categories;
+        
+        ByteBuffer data = TransactionArchive.read(path);
+        this.fileSize = data.limit();
+        this.size = data.getInt(TransactionArchive.ROW_COUNT_FIELD);
+        TransactionArchive.Decoder[] blocks = TransactionArchive.blocks(data);
+        
+        // Map the archive's category names into the dictionary, then index its totals by dictionary ID
+        TransactionArchive.Decoder footer = blocks[TransactionArchive.FOOTER_BLOCK];
+        int[] categoryIds = new int[data.getInt(TransactionArchive.CATEGORY_COUNT_FIELD)];
+        long[] footerTotals = new long[categoryIds.length * 4];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = categories.intern(footer.text());
+            for (int field = 0; field < 4; field++) {
+                footerTotals[i * 4 + field] = footer.varint();
+            }
+        }
+        
+        int capacity = categories.size();
+        this.incomeCents = new long[capacity];
+        this.expenseCents = new long[capacity];
+        this.incomeCounts = new int[capacity];
+        this.expenseCounts = new int[capacity];
+        for (int i = 0; i < categoryIds.length; i++) {
+            int id = categoryIds[i];
+            incomeCents[id] += footerTotals[i * 4];
+            incomeCounts[id] += (int) footerTotals[i * 4 + 1];
+            expenseCents[id] += footerTotals[i * 4 + 2];
+            expenseCounts[id] += (int) footerTotals[i * 4 + 3];
+        }
+        
+        this.ids = new int[size];
+        TransactionArchive.Decoder idBlock = blocks[TransactionArchive.ID_BLOCK];
+        int id = 0;
+        for (int row = 0; row < size; row++) {
+            id += (int) idBlock.zigZag();
+            ids[row] = id;
+        }
+    }
+    
+    /**
+     * Get the size of the archive file
+     * 
+     * @return File size in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+    
+    /**
+     * Get a total stored in the archive footer
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Dictionary category ID
+     * @return Total in cents
+     */
+    public long getArchiveCents(boolean expenses, int categoryId) {
+        long[] cents = expenses ? expenseCents : incomeCents;
+        return categoryId < cents.length ? cents[categoryId] : 0;
+    }
+    
+    /**
+     * Get a transaction count stored in the archive footer
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Dictionary category ID
+     * @return Transaction count
+     */
+    public int getArchiveCount(boolean expenses, int categoryId) {
+        int[] counts = expenses ? expenseCounts : incomeCounts;
+        return categoryId < counts.length ? counts[categoryId] : 0;
+    }
+    
+    /**
+     * Check if the rows are currently decompressed in memory
+     * 
+     * @return true if decompressed
+     */
+    public boolean isDecompressed() {
+        return columns != null;
+    }
+    
+    /**
+     * Drop the decompressed rows, leaving only the IDs and totals in memory
+     * They are decompressed again the next time a row is read
+     */
+    public void release() {
+        columns = null;
+    }
+    
+    /**
+     * Hand the decompressed rows over to a store that can be changed
+     * This store no longer holds them, and decompresses again if read later
+     * 
+     * @return Columnar store holding the archived rows
+     */
+    public ColumnarTransactionStore toColumnar() {
+        ColumnarTransactionStore rows = columns();
+        columns = null;
+        return rows;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public int add(Transaction transaction) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void ensureCapacity(int capacity) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void insert(int slot, Transaction transaction, int sequence) {
+        throw readOnly();
+    }
+    
+    @Override
+    public boolean isDeleted(int slot) {
+        checkSlot(slot);
+        return false;
+    }
+    
+    @Override
+    public void setDeleted(int slot, boolean deleted) {
+        throw readOnly();
+    }
+    
+    @Override
+    public int compact() {
+        return 0;
+    }
+    
+    @Override
+    public int getSequence(int slot) {
+        checkSlot(slot);
+        return slot;
+    }
+    
+    @Override
+    public Transaction get(int slot) {
+        return columns().get(slot);
+    }
+    
+    @Override
+    public int getId(int slot) {
+        checkSlot(slot);
+        return ids[slot];
+    }
+    
+    @Override
+    public long getAmountCents(int slot) {
+        return columns().getAmountCents(slot);
+    }
+    
+    @Override
+    public int getEpochDay(int slot) {
+        return columns().getEpochDay(slot);
+    }
+    
+    @Override
+    public boolean isExpense(int slot) {
+        return columns().isExpense(slot);
+    }
+    
+    @Override
+    public boolean isRecurring(int slot) {
+        return columns().isRecurring(slot);
+    }
+    
+    @Override
+    public String getCategory(int slot) {
+        return columns().getCategory(slot);
+    }
+    
+    @Override
+    public String getDescription(int slot) {
+        return columns().getDescription(slot);
+    }
+    
+    @Override
+    public int getCategoryId(int slot) {
+        return columns().getCategoryId(slot);
+    }
+    
+    @Override
+    public CategoryDictionary getCategoryDictionary() {
+        return categories;
+    }
+    
+    /**
+     * Get the decompressed rows, decompressing the archive if needed
+     * 
+     * @return Rows in archive order
+     */
+    private ColumnarTransactionStore columns() {
+        ColumnarTransactionStore rows = columns;
+        if (rows == null) {
+            try {
+                rows = decompress();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read transaction archive " + path, e);
+            }
+            columns = rows;
+        }
+        return rows;
+    }
+    
+    /**
+     * Decode every column of the archive
+     * 
+     * @return Rows in archive order
+     * @throws IOException If the file cannot be read or has changed since it was opened
+     */
+    private ColumnarTransactionStore decompress() throws IOException {
+        ByteBuffer data = TransactionArchive.read(path);
+        if (data.getInt(TransactionArchive.ROW_COUNT_FIELD) != size) {
+            throw new IOException("Transaction archive changed since it was opened: " + path);
+        }
+        TransactionArchive.Decoder[] blocks = TransactionArchive.blocks(data);
+        int[] categoryIds = readCategories(data, blocks[TransactionArchive.FOOTER_BLOCK]);
+        
+        TransactionArchive.Decoder table = blocks[TransactionArchive.DESCRIPTION_TABLE_BLOCK];
+        String[] descriptions = new String[data.getInt(TransactionArchive.DESCRIPTION_COUNT_FIELD)];
+        for (int i = 0; i < descriptions.length; i++) {
+            descriptions[i] = table.text();
+        }
+        int nullIndex = data.getInt(TransactionArchive.NULL_DESCRIPTION_FIELD) - 1;
+        if (nullIndex >= 0) {
+            descriptions[nullIndex] = null;
+        }
+        
+        TransactionArchive.Decoder days = blocks[TransactionArchive.DAY_BLOCK];
+        TransactionArchive.Decoder cents = blocks[TransactionArchive.CENTS_BLOCK];
+        TransactionArchive.Decoder flags = blocks[TransactionArchive.FLAG_BLOCK];
+        TransactionArchive.Decoder rowCategories = blocks[TransactionArchive.CATEGORY_BLOCK];
+        TransactionArchive.Decoder rowDescriptions = blocks[TransactionArchive.DESCRIPTION_BLOCK];
+        
+        ColumnarTransactionStore rows = new ColumnarTransactionStore(categories);
+        rows.ensureCapacity(size);
+        int day = 0;
+        int packedFlags = 0;
+        for (int row = 0; row < size; row++) {
+            day += (int) days.zigZag();
+            if ((row & 3) == 0) {
+                packedFlags = flags.get();
+            }
+            int flag = packedFlags >>> ((row & 3) * 2);
+            long category = rowCategories.varint();
+            long description = rowDescriptions.varint();
+            if (category >= categoryIds.length || description >= descriptions.length) {
+                throw new IOException("Corrupt transaction archive row " + row + ": " + path);
+            }
+            
+            rows.append(ids[row], cents.zigZag(), day, (flag & TransactionArchive.EXPENSE_FLAG) != 0,
+                    (flag & TransactionArchive.RECURRING_FLAG) != 0, categoryIds[(int) category],
+                    descriptions[(int) description]);
+        }
+        return rows;
+    }
+    
+    /**
+     * Map the archive's categories into the dictionary
+     * 
+     * @param data Archive contents
+     * @param footer Decoder over the footer block
+     * @return Dictionary ID of each archive category
+     * @throws IOException If the footer is truncated
+     */
+    private int[] readCategories(ByteBuffer data, TransactionArchive.Decoder footer) throws IOException {
+        int[] categoryIds = new int[data.getInt(TransactionArchive.CATEGORY_COUNT_FIELD)];
+        for (int i = 0; i < categoryIds.length; i++) {
+            categoryIds[i] = categories.intern(footer.text());
+            for (int field = 0; field < 4; field++) {
+                footer.varint();
+            }
+        }
+        return categoryIds;
+    }
+    
+    /**
+     * Check that a slot is in use
+     * 
+     * @param slot Slot to check
+     */
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+    }
+    
+    /**
+     * Build the exception thrown by every change
+     * 
+     * @return Exception to throw
+     */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Archived transactions are read-only");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,371 @@
+package com.financetracker.storage;
+
+import java.util.Arrays;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Transaction store that keeps each field in its own primitive array
+ * Income and Expense objects are only created when a caller asks for one
+ */
+public class ColumnarTransactionStore implements TransactionStore {
+    // Flag bits for the flags column
+    private static final byte EXPENSE_FLAG = 1;
+    private static final byte RECURRING_FLAG = 2;
+    private static final byte DELETED_FLAG = 4;
+    
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private int size;
+    private int nextSequence;
+    private int[] ids;
+    private long[] amountCents;
+    private int[] epochDays;
+    private byte[] flags;
+    private int[] categoryIds;
+    private String[] descriptions;
+    private int[] sequences;
+    
+    // Category names stored once and referenced by ID
+    private CategoryDictionary categories;
+    
+    /**
+     * Constructor for ColumnarTransactionStore
+     * Uses a new category dictionary
+     */
+    public ColumnarTransactionStore() {
+        this(new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for ColumnarTransactionStore with a category dictionary
+     * 
+     * @param categories Dictionary for category IDs
+     */
+    public ColumnarTransactionStore(CategoryDictionary categories) {
+        this.size = 0;
+        this.ids = new int[DEFAULT_CAPACITY];
+        this.amountCents = new long[DEFAULT_CAPACITY];
+        this.epochDays = new int[DEFAULT_CAPACITY];
+        this.flags = new byte[DEFAULT_CAPACITY];
+        this.categoryIds = new int[DEFAULT_CAPACITY];
+        this.descriptions = new String[DEFAULT_CAPACITY];
+        this.sequences = new int[DEFAULT_CAPACITY];
+        this.categories = categories;
+    }
+    
+    /**
+     * Copy every slot of a store, including deleted slots and sequence numbers
+     * Columnar stores are copied array by array; others are read through the primitive accessors
+     * 
+     * @param source Store to copy
+     * @return Independent copy
+     */
+    public static ColumnarTransactionStore copyOf(TransactionStore source) {
+        return copyOf(source, source.getCategoryDictionary());
+    }
+    
+    /**
+     * Copy every slot of a store into another category dictionary
+     * Category IDs are translated by name unless the dictionaries are the same
+     * 
+     * @param source Store to copy
+     * @param categories Dictionary for the copy's category IDs
+     * @return Independent copy
+     */
+    public static ColumnarTransactionStore copyOf(TransactionStore source, CategoryDictionary categories) {
+        ColumnarTransactionStore copy = new ColumnarTransactionStore(categories);
+        CategoryDictionary sourceCategories = source.getCategoryDictionary();
+        int count = source.size();
+        
+        if (source instanceof ColumnarTransactionStore && sourceCategories == categories) {
+            ColumnarTransactionStore columns = (ColumnarTransactionStore) source;
+            int capacity = Math.max(count, DEFAULT_CAPACITY);
+            copy.ids = Arrays.copyOf(columns.ids, capacity);
+            copy.amountCents = Arrays.copyOf(columns.amountCents, capacity);
+            copy.epochDays = Arrays.copyOf(columns.epochDays, capacity);
+            copy.flags = Arrays.copyOf(columns.flags, capacity);
+            copy.categoryIds = Arrays.copyOf(columns.categoryIds, capacity);
+            copy.descriptions = Arrays.copyOf(columns.descriptions, capacity);
+            copy.sequences = Arrays.copyOf(columns.sequences, capacity);
+            copy.size = count;
+            copy.nextSequence = columns.nextSequence;
+            return copy;
+        }
+        
+        copy.ensureCapacity(count);
+        for (int slot = 0; slot < count; slot++) {
+            byte flag = 0;
+            if (source.isExpense(slot)) {
+                flag |= EXPENSE_FLAG;
+            }
+            if (source.isRecurring(slot)) {
+                flag |= RECURRING_FLAG;
+            }
+            if (source.isDeleted(slot)) {
+                flag |= DELETED_FLAG;
+            }
+            
+            copy.ids[slot] = source.getId(slot);
+            copy.amountCents[slot] = source.getAmountCents(slot);
+            copy.epochDays[slot] = source.getEpochDay(slot);
+            copy.flags[slot] = flag;
+            copy.categoryIds[slot] = sourceCategories == categories ? source.getCategoryId(slot)
+                    : categories.intern(source.getCategory(slot));
+            copy.descriptions[slot] = source.getDescription(slot);
+            copy.sequences[slot] = source.getSequence(slot);
+            copy.nextSequence = Math.max(copy.nextSequence, copy.sequences[slot] + 1);
+        }
+        copy.size = count;
+        return copy;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public int add(Transaction transaction) {
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        
+        int slot = size++;
+        write(slot, transaction, nextSequence++);
+        return slot;
+    }
+    
+    /**
+     * Append a row from its fields without creating a Transaction
+     * Used by readers that decode stored columns
+     * 
+     * @param id Transaction ID
+     * @param cents Amount in cents
+     * @param epochDay Date as days since 1970-01-01
+     * @param expense true for an expense, false for income
+     * @param recurring true for a recurring expense
+     * @param categoryId Category ID in this store's dictionary
+     * @param description Description
+     * @return Slot the row was stored in
+     */
+    int append(int id, long cents, int epochDay, boolean expense, boolean recurring, int categoryId,
+            String description) {
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        
+        int slot = size++;
+        ids[slot] = id;
+        amountCents[slot] = cents;
+        epochDays[slot] = epochDay;
+        flags[slot] = (byte) ((expense ? EXPENSE_FLAG : 0) | (recurring ? RECURRING_FLAG : 0));
+        categoryIds[slot] = categoryId;
+        descriptions[slot] = description;
+        sequences[slot] = nextSequence++;
+        return slot;
+    }
+    
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            grow(capacity);
+        }
+    }
+    
+    @Override
+    public void insert(int slot, Transaction transaction, int sequence) {
+        if (slot < 0 || slot > size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        
+        int tail = size - slot;
+        System.arraycopy(ids, slot, ids, slot + 1, tail);
+        System.arraycopy(amountCents, slot, amountCents, slot + 1, tail);
+        System.arraycopy(epochDays, slot, epochDays, slot + 1, tail);
+        System.arraycopy(flags, slot, flags, slot + 1, tail);
+        System.arraycopy(categoryIds, slot, categoryIds, slot + 1, tail);
+        System.arraycopy(descriptions, slot, descriptions, slot + 1, tail);
+        System.arraycopy(sequences, slot, sequences, slot + 1, tail);
+        
+        size++;
+        write(slot, transaction, sequence);
+        nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+    
+    @Override
+    public boolean isDeleted(int slot) {
+        checkSlot(slot);
+        return (flags[slot] & DELETED_FLAG) != 0;
+    }
+    
+    @Override
+    public void setDeleted(int slot, boolean deleted) {
+        checkSlot(slot);
+        if (deleted) {
+            flags[slot] |= DELETED_FLAG;
+        } else {
+            flags[slot] &= ~DELETED_FLAG;
+        }
+    }
+    
+    @Override
+    public int compact() {
+        int live = 0;
+        
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & DELETED_FLAG) == 0) {
+                if (live != i) {
+                    ids[live] = ids[i];
+                    amountCents[live] = amountCents[i];
+                    epochDays[live] = epochDays[i];
+                    flags[live] = flags[i];
+                    categoryIds[live] = categoryIds[i];
+                    descriptions[live] = descriptions[i];
+                    sequences[live] = sequences[i];
+                }
+                live++;
+            }
+        }
+        
+        // Let removed descriptions be garbage collected
+        Arrays.fill(descriptions, live, size, null);
+        
+        int removed = size - live;
+        size = live;
+        return removed;
+    }
+    
+    @Override
+    public int getSequence(int slot) {
+        checkSlot(slot);
+        return sequences[slot];
+    }
+    
+    /**
+     * Write every column of a slot
+     * 
+     * @param slot Slot to write
+     * @param transaction Transaction to store
+     * @param sequence Sequence number for the slot
+     */
+    private void write(int slot, Transaction transaction, int sequence) {
+        ids[slot] = transaction.getId();
+        amountCents[slot] = Math.round(transaction.getAmount() * 100);
+        epochDays[slot] = DateUtility.toEpochDay(transaction.getDate());
+        categoryIds[slot] = categories.intern(transaction.getCategory());
+        descriptions[slot] = transaction.getDescription();
+        
+        byte flag = 0;
+        if (transaction instanceof Expense) {
+            flag |= EXPENSE_FLAG;
+            if (((Expense) transaction).isRecurring()) {
+                flag |= RECURRING_FLAG;
+            }
+        }
+        flags[slot] = flag;
+        sequences[slot] = sequence;
+    }
+    
+    @Override
+    public Transaction get(int slot) {
+        checkSlot(slot);
+        double amount = amountCents[slot] / 100.0;
+        String category = categories.nameOf(categoryIds[slot]);
+        
+        if ((flags[slot] & EXPENSE_FLAG) != 0) {
+            return new Expense(ids[slot], amount, descriptions[slot], category,
+                    DateUtility.fromEpochDay(epochDays[slot]), (flags[slot] & RECURRING_FLAG) != 0);
+        }
+        return new Income(ids[slot], amount, descriptions[slot], category,
+                DateUtility.fromEpochDay(epochDays[slot]));
+    }
+    
+    @Override
+    public int getId(int slot) {
+        checkSlot(slot);
+        return ids[slot];
+    }
+    
+    @Override
+    public long getAmountCents(int slot) {
+        checkSlot(slot);
+        return amountCents[slot];
+    }
+    
+    @Override
+    public int getEpochDay(int slot) {
+        checkSlot(slot);
+        return epochDays[slot];
+    }
+    
+    @Override
+    public boolean isExpense(int slot) {
+        checkSlot(slot);
+        return (flags[slot] & EXPENSE_FLAG) != 0;
+    }
+    
+    @Override
+    public boolean isRecurring(int slot) {
+        checkSlot(slot);
+        return (flags[slot] & RECURRING_FLAG) != 0;
+    }
+    
+    @Override
+    public String getCategory(int slot) {
+        checkSlot(slot);
+        return categories.nameOf(categoryIds[slot]);
+    }
+    
+    @Override
+    public String getDescription(int slot) {
+        checkSlot(slot);
+        return descriptions[slot];
+    }
+    
+    @Override
+    public int getCategoryId(int slot) {
+        checkSlot(slot);
+        return categoryIds[slot];
+    }
+    
+    @Override
+    public CategoryDictionary getCategoryDictionary() {
+        return categories;
+    }
+    
+    /**
+     * Grow every column to hold at least the given number of rows
+     * 
+     * @param minCapacity Required capacity
+     */
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+    
+    /**
+     * Check that a slot is in use
+     * 
+     * @param slot Slot to check
+     */
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.financetracker.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Transaction store that keeps every transaction as an object in an ArrayList
+ * This is the original storage layout, kept for comparison
+ */
+public class ListTransactionStore implements TransactionStore {
+    // ArrayList for storing transactions (requirement 13)
+    private ArrayList<Transaction> transactions;
+    
+    // Bookkeeping kept alongside each transaction
+    private int[] sequences;
+    private boolean[] deleted;
+    private int nextSequence;
+    
+    private CategoryDictionary categories;
+    
+    /**
+     * Constructor for ListTransactionStore
+     * Uses a new category dictionary
+     */
+    public ListTransactionStore() {
+        this(new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for ListTransactionStore with a category dictionary
+     * 
+     * @param categories Dictionary for category IDs
+     */
+    public ListTransactionStore(CategoryDictionary categories) {
+        this.transactions = new ArrayList<>();
+        this.sequences = new int[16];
+        this.deleted = new boolean[16];
+        this.nextSequence = 0;
+        this.categories = categories;
+    }
+    
+    @Override
+    public int size() {
+        return transactions.size();
+    }
+    
+    @Override
+    public int add(Transaction transaction) {
+        int slot = transactions.size();
+        ensureBookkeeping(slot + 1);
+        
+        transactions.add(transaction);
+        sequences[slot] = nextSequence++;
+        deleted[slot] = false;
+        return slot;
+    }
+    
+    @Override
+    public void ensureCapacity(int capacity) {
+        transactions.ensureCapacity(capacity);
+        ensureBookkeeping(capacity);
+    }
+    
+    @Override
+    public void insert(int slot, Transaction transaction, int sequence) {
+        int size = transactions.size();
+        ensureBookkeeping(size + 1);
+        
+        transactions.add(slot, transaction);
+        System.arraycopy(sequences, slot, sequences, slot + 1, size - slot);
+        System.arraycopy(deleted, slot, deleted, slot + 1, size - slot);
+        sequences[slot] = sequence;
+        deleted[slot] = false;
+        nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+    
+    @Override
+    public boolean isDeleted(int slot) {
+        checkSlot(slot);
+        return deleted[slot];
+    }
+    
+    @Override
+    public void setDeleted(int slot, boolean isDeleted) {
+        checkSlot(slot);
+        deleted[slot] = isDeleted;
+    }
+    
+    @Override
+    public int compact() {
+        int size = transactions.size();
+        ArrayList<Transaction> live = new ArrayList<>(size);
+        
+        for (int i = 0; i < size; i++) {
+            if (!deleted[i]) {
+                sequences[live.size()] = sequences[i];
+                live.add(transactions.get(i));
+            }
+        }
+        
+        Arrays.fill(deleted, 0, size, false);
+        transactions = live;
+        return size - live.size();
+    }
+    
+    @Override
+    public int getSequence(int slot) {
+        checkSlot(slot);
+        return sequences[slot];
+    }
+    
+    @Override
+    public Transaction get(int slot) {
+        return transactions.get(slot);
+    }
+    
+    @Override
+    public int getId(int slot) {
+        return transactions.get(slot).getId();
+    }
+    
+    @Override
+    public long getAmountCents(int slot) {
+        return Math.round(transactions.get(slot).getAmount() * 100);
+    }
+    
+    @Override
+    public int getEpochDay(int slot) {
+        return DateUtility.toEpochDay(transactions.get(slot).getDate());
+    }
+    
+    @Override
+    public boolean isExpense(int slot) {
+        return transactions.get(slot) instanceof Expense;
+    }
+    
+    @Override
+    public boolean isRecurring(int slot) {
+        Transaction t = transactions.get(slot);
+        return t instanceof Expense && ((Expense) t).isRecurring();
+    }
+    
+    @Override
+    public String getCategory(int slot) {
+        return transactions.get(slot).getCategory();
+    }
+    
+    @Override
+    public String getDescription(int slot) {
+        return transactions.get(slot).getDescription();
+    }
+    
+    @Override
+    public int getCategoryId(int slot) {
+        return categories.intern(transactions.get(slot).getCategory());
+    }
+    
+    @Override
+    public CategoryDictionary getCategoryDictionary() {
+        return categories;
+    }
+    
+    /**
+     * Grow the bookkeeping arrays to hold at least the given number of rows
+     * 
+     * @param minCapacity Required capacity
+     */
+    private void ensureBookkeeping(int minCapacity) {
+        if (minCapacity > sequences.length) {
+            int capacity = Math.max(minCapacity, sequences.length + (sequences.length >> 1));
+            sequences = Arrays.copyOf(sequences, capacity);
+            deleted = Arrays.copyOf(deleted, capacity);
+        }
+    }
+    
+    /**
+     * Check that a slot is in use
+     * 
+     * @param slot Slot to check
+     */
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= transactions.size()) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + transactions.size());
+        }
+    }
+}
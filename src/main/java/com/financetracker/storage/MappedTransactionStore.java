@@ -0,0 +1,466 @@
+package com.financetracker.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.zip.CRC32C;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Expense;
+import com.financetracker.model.Income;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Transaction store that reads a segment file in place through a memory map
+ * Opening only reads the header and category table, so it does not depend on the number of rows
+ * 
+ * The segment itself is never modified. Added transactions go to an in-memory overlay,
+ * deletions are kept in a bitmap, and compaction rewrites a slot-to-row table instead of moving rows.
+ * Save with TransactionSegment.write to fold the changes into a new segment.
+ */
+public class MappedTransactionStore implements TransactionStore {
+    private final MappedByteBuffer rows;
+    private final MappedByteBuffer heap;
+    private final int segmentSize;
+    
+    // Segment category IDs mapped to dictionary IDs
+    private final int[] categoryIds;
+    
+    // Totals stored in the segment footer, indexed by dictionary ID
+    private final long[] segmentIncomeCents;
+    private final long[] segmentExpenseCents;
+    private final int[] segmentIncomeCounts;
+    private final int[] segmentExpenseCounts;
+    
+    // Transactions added since the segment was opened
+    private final ColumnarTransactionStore overlay;
+    
+    // Deleted segment rows, one bit per row, created on first delete
+    private long[] deletedRows;
+    
+    // Slot-to-row table: rows below segmentSize are segment rows, the rest overlay rows
+    // Null until a compaction or insert, meaning slot N is row N
+    private int[] order;
+    private int size;
+    private int nextSequence;
+    
+    private CategoryDictionary categories;
+    
+    /**
+     * Constructor for MappedTransactionStore
+     * Uses a new category dictionary
+     * 
+     * @param path Segment file to open
+     * @throws IOException If the file cannot be read or is not a valid segment
+     */
+    public MappedTransactionStore(Path path) throws IOException {
+        this(path, new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for MappedTransactionStore with a category dictionary
+     * 
+     * @param path Segment file to open
+     * @param categories Dictionary for category IDs
+     * @throws IOException If the file cannot be read or is not a valid segment
+     */
+    public MappedTransactionStore(Path path, CategoryDictionary categories) throws IOException {
+        this.categories = categories;
+        
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < TransactionSegment.HEADER_SIZE) {
+                throw new IOException("Not a transaction segment: " + path);
+            }
+            
+            ByteBuffer header = ByteBuffer.allocate(TransactionSegment.HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != TransactionSegment.MAGIC || header.getInt(4) != TransactionSegment.VERSION) {
+                throw new IOException("Not a transaction segment: " + path);
+            }
+            
+            int rowCount = header.getInt(TransactionSegment.ROW_COUNT_FIELD);
+            int categoryCount = header.getInt(TransactionSegment.CATEGORY_COUNT_FIELD);
+            long heapOffset = header.getLong(TransactionSegment.HEAP_OFFSET_FIELD);
+            long heapLength = header.getLong(TransactionSegment.HEAP_LENGTH_FIELD);
+            long footerOffset = header.getLong(TransactionSegment.FOOTER_OFFSET_FIELD);
+            long footerLength = header.getLong(TransactionSegment.FOOTER_LENGTH_FIELD);
+            if (rowCount < 0 || (long) rowCount * TransactionSegment.ROW_SIZE > Integer.MAX_VALUE
+                    || categoryCount < 0
+                    || heapOffset != TransactionSegment.HEADER_SIZE + (long) rowCount * TransactionSegment.ROW_SIZE
+                    || heapLength < 0 || heapLength > Integer.MAX_VALUE
+                    || footerOffset != heapOffset + heapLength
+                    || footerLength < 0 || footerLength > Integer.MAX_VALUE
+                    || footerOffset + footerLength != fileSize) {
+                throw new IOException("Corrupt transaction segment header: " + path);
+            }
+            
+            ByteBuffer footer = ByteBuffer.allocate((int) footerLength);
+            readFully(channel, footer, footerOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(footer.array());
+            if ((int) crc.getValue() != header.getInt(TransactionSegment.FOOTER_CRC_FIELD)) {
+                throw new IOException("Corrupt transaction segment footer: " + path);
+            }
+            
+            // Map the segment's category names into the dictionary, then index its totals by dictionary ID
+            this.categoryIds = new int[categoryCount];
+            int[] footerPositions = new int[categoryCount];
+            for (int i = 0; i < categoryCount; i++) {
+                byte[] name = new byte[footer.getInt()];
+                footer.get(name);
+                categoryIds[i] = categories.intern(new String(name, StandardCharsets.UTF_8));
+                footerPositions[i] = footer.position();
+                footer.position(footer.position() + 24);
+            }
+            
+            int capacity = categories.size();
+            this.segmentIncomeCents = new long[capacity];
+            this.segmentExpenseCents = new long[capacity];
+            this.segmentIncomeCounts = new int[capacity];
+            this.segmentExpenseCounts = new int[capacity];
+            for (int i = 0; i < categoryCount; i++) {
+                int id = categoryIds[i];
+                int position = footerPositions[i];
+                segmentIncomeCents[id] += footer.getLong(position);
+                segmentIncomeCounts[id] += footer.getInt(position + 8);
+                segmentExpenseCents[id] += footer.getLong(position + 12);
+                segmentExpenseCounts[id] += footer.getInt(position + 20);
+            }
+            
+            this.rows = channel.map(FileChannel.MapMode.READ_ONLY, TransactionSegment.HEADER_SIZE,
+                    (long) rowCount * TransactionSegment.ROW_SIZE);
+            this.heap = channel.map(FileChannel.MapMode.READ_ONLY, heapOffset, heapLength);
+            this.segmentSize = rowCount;
+        }
+        
+        this.overlay = new ColumnarTransactionStore(categories);
+        this.size = segmentSize;
+        this.nextSequence = segmentSize;
+    }
+    
+    /**
+     * Get the number of transactions in the segment file
+     * 
+     * @return Segment row count
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+    
+    /**
+     * Get a total stored in the segment footer
+     * Covers the segment as written, not changes made since
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Dictionary category ID
+     * @return Total in cents
+     */
+    public long getSegmentCents(boolean expenses, int categoryId) {
+        long[] cents = expenses ? segmentExpenseCents : segmentIncomeCents;
+        return categoryId < cents.length ? cents[categoryId] : 0;
+    }
+    
+    /**
+     * Get a transaction count stored in the segment footer
+     * Covers the segment as written, not changes made since
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Dictionary category ID
+     * @return Transaction count
+     */
+    public int getSegmentCount(boolean expenses, int categoryId) {
+        int[] counts = expenses ? segmentExpenseCounts : segmentIncomeCounts;
+        return categoryId < counts.length ? counts[categoryId] : 0;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public int add(Transaction transaction) {
+        int row = appendToOverlay(transaction, nextSequence++);
+        if (order != null) {
+            ensureOrderCapacity(size + 1);
+            order[size] = row;
+        }
+        return size++;
+    }
+    
+    @Override
+    public void ensureCapacity(int capacity) {
+        overlay.ensureCapacity(capacity - segmentSize);
+        if (order != null) {
+            ensureOrderCapacity(capacity);
+        }
+    }
+    
+    @Override
+    public void insert(int slot, Transaction transaction, int sequence) {
+        if (slot < 0 || slot > size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        
+        createOrder();
+        ensureOrderCapacity(size + 1);
+        System.arraycopy(order, slot, order, slot + 1, size - slot);
+        order[slot] = appendToOverlay(transaction, sequence);
+        size++;
+        nextSequence = Math.max(nextSequence, sequence + 1);
+    }
+    
+    @Override
+    public boolean isDeleted(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.isDeleted(row - segmentSize);
+        }
+        return deletedRows != null && (deletedRows[row >>> 6] & (1L << row)) != 0;
+    }
+    
+    @Override
+    public void setDeleted(int slot, boolean deleted) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            overlay.setDeleted(row - segmentSize, deleted);
+            return;
+        }
+        
+        if (deletedRows == null) {
+            if (!deleted) {
+                return;
+            }
+            deletedRows = new long[(segmentSize + 63) >>> 6];
+        }
+        if (deleted) {
+            deletedRows[row >>> 6] |= 1L << row;
+        } else {
+            deletedRows[row >>> 6] &= ~(1L << row);
+        }
+    }
+    
+    @Override
+    public int compact() {
+        createOrder();
+        int live = 0;
+        
+        // Rows stay where they are; only the slots that point at them move
+        for (int slot = 0; slot < size; slot++) {
+            if (!isDeleted(slot)) {
+                order[live++] = order[slot];
+            }
+        }
+        
+        int removed = size - live;
+        size = live;
+        return removed;
+    }
+    
+    @Override
+    public int getSequence(int slot) {
+        int row = row(slot);
+        return row < segmentSize ? row : overlay.getSequence(row - segmentSize);
+    }
+    
+    @Override
+    public Transaction get(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.get(row - segmentSize);
+        }
+        
+        int position = row * TransactionSegment.ROW_SIZE;
+        int id = rows.getInt(position + TransactionSegment.ID_FIELD);
+        double amount = rows.getLong(position + TransactionSegment.CENTS_FIELD) / 100.0;
+        String category = categories.nameOf(segmentCategoryId(position));
+        String description = readDescription(position);
+        byte flags = rows.get(position + TransactionSegment.FLAGS_FIELD);
+        Date date = DateUtility.fromEpochDay(rows.getInt(position + TransactionSegment.EPOCH_DAY_FIELD));
+        
+        if ((flags & TransactionSegment.EXPENSE_FLAG) != 0) {
+            return new Expense(id, amount, description, category, date,
+                    (flags & TransactionSegment.RECURRING_FLAG) != 0);
+        }
+        return new Income(id, amount, description, category, date);
+    }
+    
+    @Override
+    public int getId(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.getId(row - segmentSize);
+        }
+        return rows.getInt(row * TransactionSegment.ROW_SIZE + TransactionSegment.ID_FIELD);
+    }
+    
+    @Override
+    public long getAmountCents(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.getAmountCents(row - segmentSize);
+        }
+        return rows.getLong(row * TransactionSegment.ROW_SIZE + TransactionSegment.CENTS_FIELD);
+    }
+    
+    @Override
+    public int getEpochDay(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.getEpochDay(row - segmentSize);
+        }
+        return rows.getInt(row * TransactionSegment.ROW_SIZE + TransactionSegment.EPOCH_DAY_FIELD);
+    }
+    
+    @Override
+    public boolean isExpense(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.isExpense(row - segmentSize);
+        }
+        return (rows.get(row * TransactionSegment.ROW_SIZE + TransactionSegment.FLAGS_FIELD)
+                & TransactionSegment.EXPENSE_FLAG) != 0;
+    }
+    
+    @Override
+    public boolean isRecurring(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.isRecurring(row - segmentSize);
+        }
+        return (rows.get(row * TransactionSegment.ROW_SIZE + TransactionSegment.FLAGS_FIELD)
+                & TransactionSegment.RECURRING_FLAG) != 0;
+    }
+    
+    @Override
+    public String getCategory(int slot) {
+        return categories.nameOf(getCategoryId(slot));
+    }
+    
+    @Override
+    public String getDescription(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.getDescription(row - segmentSize);
+        }
+        return readDescription(row * TransactionSegment.ROW_SIZE);
+    }
+    
+    @Override
+    public int getCategoryId(int slot) {
+        int row = row(slot);
+        if (row >= segmentSize) {
+            return overlay.getCategoryId(row - segmentSize);
+        }
+        return segmentCategoryId(row * TransactionSegment.ROW_SIZE);
+    }
+    
+    @Override
+    public CategoryDictionary getCategoryDictionary() {
+        return categories;
+    }
+    
+    /**
+     * Find the row behind a slot
+     * 
+     * @param slot Slot to look up
+     * @return Segment row, or segment size plus overlay row
+     */
+    private int row(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        return order == null ? slot : order[slot];
+    }
+    
+    /**
+     * Read the dictionary category ID of a segment row
+     * 
+     * @param position Byte position of the row
+     * @return Dictionary category ID
+     */
+    private int segmentCategoryId(int position) {
+        return categoryIds[rows.getInt(position + TransactionSegment.CATEGORY_FIELD)];
+    }
+    
+    /**
+     * Decode the description of a segment row from the string heap
+     * 
+     * @param position Byte position of the row
+     * @return Description, or null if none was stored
+     */
+    private String readDescription(int position) {
+        int offset = rows.getInt(position + TransactionSegment.DESCRIPTION_OFFSET_FIELD);
+        int length = rows.getInt(position + TransactionSegment.DESCRIPTION_LENGTH_FIELD);
+        if (length == TransactionSegment.NULL_DESCRIPTION) {
+            return null;
+        }
+        byte[] text = new byte[length];
+        heap.duplicate().position(offset).get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Store a transaction in the overlay
+     * 
+     * @param transaction Transaction to store
+     * @param sequence Sequence number for the row
+     * @return Row number, counting segment rows first
+     */
+    private int appendToOverlay(Transaction transaction, int sequence) {
+        int overlayRow = overlay.size();
+        overlay.insert(overlayRow, transaction, sequence);
+        return segmentSize + overlayRow;
+    }
+    
+    /**
+     * Create the slot-to-row table, starting from slot N being row N
+     */
+    private void createOrder() {
+        if (order != null) {
+            return;
+        }
+        
+        order = new int[Math.max(size, 16)];
+        for (int slot = 0; slot < size; slot++) {
+            order[slot] = slot;
+        }
+    }
+    
+    /**
+     * Grow the slot-to-row table to hold at least the given number of slots
+     * 
+     * @param minCapacity Required capacity
+     */
+    private void ensureOrderCapacity(int minCapacity) {
+        if (minCapacity > order.length) {
+            order = Arrays.copyOf(order, Math.max(minCapacity, order.length + (order.length >> 1)));
+        }
+    }
+    
+    /**
+     * Read bytes from a file position until the buffer is full
+     * 
+     * @param channel Channel to read
+     * @param buffer Buffer to fill
+     * @param position File position to read from
+     * @throws IOException If the file ends first
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of transaction segment");
+            }
+        }
+        buffer.flip();
+    }
+}
\ No newline at end of file
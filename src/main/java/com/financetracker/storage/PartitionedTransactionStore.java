@@ -0,0 +1,1048 @@
+package com.financetracker.storage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntPredicate;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.model.Transaction;
+import com.financetracker.util.CategoryDictionary;
+import com.financetracker.util.DateUtility;
+
+/**
+ * Transaction store that keeps each calendar month in its own partition
+ * Every partition has its own store and its own income and expense totals, so date-range
+ * queries and monthly totals only read the months they overlap
+ * 
+ * Slots stay in ledger order across partitions: a slot table maps each slot to its partition
+ * and its position there, and rows keep their relative order inside a partition.
+ * With a directory, each month can be saved as its own segment file and unloaded, after which
+ * it is read in place from the file through a MappedTransactionStore until loaded again.
+ * Months can also be archived to a compressed file, leaving only their IDs and totals in memory;
+ * a query that reaches an archived month decompresses it, and a change loads it back into memory.
+ */
+public class PartitionedTransactionStore implements TransactionStore {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ARCHIVE_SUFFIX = ".arc";
+    private static final int DEFAULT_CAPACITY = 16;
+    
+    private final CategoryDictionary categories;
+    
+    // Directory holding one segment file per month, or null for a store kept only in memory
+    private final Path directory;
+    
+    // Partitions in the order they were created, and the same partitions by month
+    private final List<Partition> partitions;
+    private final NavigableMap<Integer, Partition> byMonth;
+    
+    // Slot table: partition and position in the partition of each slot, plus its sequence number
+    private int size;
+    private int nextSequence;
+    private int[] partitionOf;
+    private int[] positions;
+    private int[] sequences;
+    
+    // Set when slots have moved; each partition's slot list is rebuilt before the next range query
+    private boolean slotsStale;
+    
+    // Partition of the last add, since adds usually arrive in the same month
+    private Partition lastAdded;
+    
+    /**
+     * Constructor for PartitionedTransactionStore
+     * Keeps every partition in memory and uses a new category dictionary
+     */
+    public PartitionedTransactionStore() {
+        this(new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for PartitionedTransactionStore with a category dictionary
+     * Keeps every partition in memory
+     * 
+     * @param categories Dictionary for category IDs
+     */
+    public PartitionedTransactionStore(CategoryDictionary categories) {
+        this.categories = categories;
+        this.directory = null;
+        this.partitions = new ArrayList<>();
+        this.byMonth = new TreeMap<>();
+        this.partitionOf = new int[DEFAULT_CAPACITY];
+        this.positions = new int[DEFAULT_CAPACITY];
+        this.sequences = new int[DEFAULT_CAPACITY];
+    }
+    
+    /**
+     * Constructor for PartitionedTransactionStore over a directory of monthly segment files
+     * Uses a new category dictionary
+     * 
+     * @param directory Directory to read and save partitions in, created if missing
+     * @throws IOException If the directory or a segment file cannot be read
+     */
+    public PartitionedTransactionStore(Path directory) throws IOException {
+        this(directory, new CategoryDictionary());
+    }
+    
+    /**
+     * Constructor for PartitionedTransactionStore over a directory of monthly segment files
+     * Existing months start unloaded and are read in place from their files
+     * 
+     * @param directory Directory to read and save partitions in, created if missing
+     * @param categories Dictionary for category IDs
+     * @throws IOException If the directory or a segment file cannot be read
+     */
+    public PartitionedTransactionStore(Path directory, CategoryDictionary categories) throws IOException {
+        this.categories = categories;
+        this.directory = directory;
+        this.partitions = new ArrayList<>();
+        this.byMonth = new TreeMap<>();
+        
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                "*{" + SEGMENT_SUFFIX + "," + ARCHIVE_SUFFIX + "}")) {
+            for (Path file : stream) {
+                YearMonth month = parseMonth(file.getFileName().toString());
+                if (month == null) {
+                    continue;
+                }
+                
+                // A crash between writing one form of a month and deleting the other leaves both
+                Path other = files.get(monthNumber(month));
+                if (other == null || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(other)) > 0) {
+                    files.put(monthNumber(month), file);
+                }
+            }
+        }
+        
+        // Months are laid out one after another, so the ledger order is month order
+        int total = 0;
+        for (Path file : files.values()) {
+            Partition partition = partition(parseMonth(file.getFileName().toString()));
+            partition.loaded = false;
+            if (file.getFileName().toString().endsWith(ARCHIVE_SUFFIX)) {
+                ArchivedTransactionStore archive = new ArchivedTransactionStore(file, categories);
+                partition.rows = archive;
+                partition.archived = true;
+                for (int id = 0; id < categories.size(); id++) {
+                    partition.apply(false, id, archive.getArchiveCents(false, id), archive.getArchiveCount(false, id));
+                    partition.apply(true, id, archive.getArchiveCents(true, id), archive.getArchiveCount(true, id));
+                }
+            } else {
+                MappedTransactionStore segment = new MappedTransactionStore(file, categories);
+                partition.rows = segment;
+                for (int id = 0; id < categories.size(); id++) {
+                    partition.apply(false, id, segment.getSegmentCents(false, id), segment.getSegmentCount(false, id));
+                    partition.apply(true, id, segment.getSegmentCents(true, id), segment.getSegmentCount(true, id));
+                }
+            }
+            partition.dirty = false;
+            total += partition.rows.size();
+        }
+        
+        int capacity = Math.max(total, DEFAULT_CAPACITY);
+        this.partitionOf = new int[capacity];
+        this.positions = new int[capacity];
+        this.sequences = new int[capacity];
+        for (Partition partition : partitions) {
+            for (int position = 0; position < partition.rows.size(); position++) {
+                partitionOf[size] = partition.number;
+                positions[size] = position;
+                sequences[size] = size;
+                size++;
+            }
+        }
+        this.nextSequence = size;
+        this.slotsStale = true;
+    }
+    
+    /**
+     * Get the months that have a partition
+     * 
+     * @return Months in calendar order
+     */
+    public List<YearMonth> getMonths() {
+        List<YearMonth> months = new ArrayList<>(byMonth.size());
+        for (Partition partition : byMonth.values()) {
+            months.add(partition.month);
+        }
+        return months;
+    }
+    
+    /**
+     * Get number of partitions held in memory
+     * 
+     * @return Loaded partition count
+     */
+    public int getLoadedCount() {
+        int loaded = 0;
+        for (Partition partition : partitions) {
+            if (partition.loaded) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * Get number of archived partitions
+     * 
+     * @return Archived partition count
+     */
+    public int getArchivedCount() {
+        int archived = 0;
+        for (Partition partition : partitions) {
+            if (partition.archived) {
+                archived++;
+            }
+        }
+        return archived;
+    }
+    
+    /**
+     * Check if a month's partition is held in memory
+     * 
+     * @param month Month to check
+     * @return true if loaded, false if read from its file or if there is no partition
+     */
+    public boolean isLoaded(YearMonth month) {
+        Partition partition = byMonth.get(monthNumber(month));
+        return partition != null && partition.loaded;
+    }
+    
+    /**
+     * Check if a month's partition is archived
+     * 
+     * @param month Month to check
+     * @return true if archived, false otherwise or if there is no partition
+     */
+    public boolean isArchived(YearMonth month) {
+        Partition partition = byMonth.get(monthNumber(month));
+        return partition != null && partition.archived;
+    }
+    
+    /**
+     * Get the total of one category across every month
+     * Read from the partition totals, so archived months are not decompressed
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Category ID
+     * @return Total in cents
+     */
+    public long getCategoryCents(boolean expenses, int categoryId) {
+        long cents = 0;
+        for (Partition partition : partitions) {
+            cents += partition.getCategoryCents(expenses, categoryId);
+        }
+        return cents;
+    }
+    
+    /**
+     * Get the number of transactions in one category across every month
+     * Read from the partition totals, so archived months are not decompressed
+     * 
+     * @param expenses true for expenses, false for income
+     * @param categoryId Category ID
+     * @return Transaction count
+     */
+    public int getCategoryCount(boolean expenses, int categoryId) {
+        int count = 0;
+        for (Partition partition : partitions) {
+            count += partition.getCategoryCount(expenses, categoryId);
+        }
+        return count;
+    }
+    
+    /**
+     * Get the total of one category in one month
+     * Read from the partition totals, so archived months are not decompressed
+     * 
+     * @param month Month to read
+     * @param expenses true for expenses, false for income
+     * @param categoryId Category ID
+     * @return Total in cents, 0 if the month has no partition
+     */
+    public long getCategoryCents(YearMonth month, boolean expenses, int categoryId) {
+        Partition partition = byMonth.get(monthNumber(month));
+        return partition == null ? 0 : partition.getCategoryCents(expenses, categoryId);
+    }
+    
+    /**
+     * Get the number of transactions in one category in one month
+     * Read from the partition totals, so archived months are not decompressed
+     * 
+     * @param month Month to read
+     * @param expenses true for expenses, false for income
+     * @param categoryId Category ID
+     * @return Transaction count, 0 if the month has no partition
+     */
+    public int getCategoryCount(YearMonth month, boolean expenses, int categoryId) {
+        Partition partition = byMonth.get(monthNumber(month));
+        return partition == null ? 0 : partition.getCategoryCount(expenses, categoryId);
+    }
+    
+    /**
+     * Get the directory partitions are saved in
+     * 
+     * @return Directory, or null for a store kept only in memory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Write every partition changed since it was last saved to its segment file
+     * Deleted rows are left out of the files
+     * 
+     * @return Number of files written
+     * @throws IOException If a file cannot be written
+     */
+    public int save() throws IOException {
+        requireDirectory();
+        int written = 0;
+        for (Partition partition : partitions) {
+            if (partition.dirty) {
+                writeSegment(partition);
+                written++;
+            }
+        }
+        return written;
+    }
+    
+    /**
+     * Save a month's partition if needed and release its memory
+     * The month stays queryable, read in place from its segment file
+     * 
+     * @param month Month to unload
+     * @return true if unloaded, false if there is no partition or it was not loaded
+     * @throws IOException If the file cannot be written or mapped
+     * @throws IllegalStateException If the partition still has deleted rows; compact first
+     */
+    public boolean unload(YearMonth month) throws IOException {
+        requireDirectory();
+        Partition partition = byMonth.get(monthNumber(month));
+        if (partition == null || !partition.loaded) {
+            return false;
+        }
+        if (partition.deletedCount > 0) {
+            throw new IllegalStateException("Compact the ledger before unloading " + month);
+        }
+        
+        // With no deleted rows the file holds every row in order, so positions do not change
+        Path file = file(partition, SEGMENT_SUFFIX);
+        if (partition.dirty || !Files.exists(file)) {
+            writeSegment(partition);
+        }
+        partition.rows = new MappedTransactionStore(file, categories);
+        partition.loaded = false;
+        return true;
+    }
+    
+    /**
+     * Move a month's partition to a compressed archive file
+     * Only the month's transaction IDs and totals stay in memory. A query that reaches the month
+     * decompresses it, and calling archive again compresses it again.
+     * 
+     * @param month Month to archive
+     * @return true if archived, false if there is no partition or it was already archived
+     * @throws IOException If the archive cannot be written
+     * @throws IllegalStateException If the partition still has deleted rows; compact first
+     */
+    public boolean archive(YearMonth month) throws IOException {
+        requireDirectory();
+        Partition partition = byMonth.get(monthNumber(month));
+        if (partition == null) {
+            return false;
+        }
+        if (partition.archived) {
+            ((ArchivedTransactionStore) partition.rows).release();
+            partition.dayOrder = null;
+            return false;
+        }
+        if (partition.deletedCount > 0) {
+            throw new IllegalStateException("Compact the ledger before archiving " + month);
+        }
+        
+        // As with unloading, the archive holds every row in order, so positions do not change
+        Path file = file(partition, ARCHIVE_SUFFIX);
+        TransactionArchive.write(file, partition.rows);
+        Files.deleteIfExists(file(partition, SEGMENT_SUFFIX));
+        partition.rows = new ArchivedTransactionStore(file, categories);
+        partition.loaded = false;
+        partition.archived = true;
+        partition.dirty = false;
+        partition.dayOrder = null;
+        return true;
+    }
+    
+    /**
+     * Copy a month's partition from its file back into memory
+     * 
+     * @param month Month to load
+     * @return true if loaded, false if there is no partition or it was already loaded
+     */
+    public boolean load(YearMonth month) {
+        Partition partition = byMonth.get(monthNumber(month));
+        if (partition == null || partition.loaded) {
+            return false;
+        }
+        
+        load(partition);
+        return true;
+    }
+    
+    /**
+     * Visit the slots dated within a range, in date order
+     * Only partitions for months overlapping the range are read
+     * Deleted slots are visited too, so the caller can skip them
+     * 
+     * @param startDay First epoch day to include
+     * @param endDay Last epoch day to include
+     * @param visitor Called with each slot, returning true if the slot counts
+     * @return Number of slots the visitor counted
+     */
+    public int scanRange(int startDay, int endDay, IntPredicate visitor) {
+        if (startDay > endDay) {
+            return 0;
+        }
+        refreshSlots();
+        
+        int counted = 0;
+        for (Partition partition : overlapping(startDay, endDay)) {
+            partition.sortDays();
+            int first = startDay <= partition.firstDay ? 0 : partition.firstOnOrAfter(startDay);
+            for (int i = first; i < partition.dayCount && partition.dayAt(i) <= endDay; i++) {
+                if (visitor.test(partition.slots[partition.positionAt(i)])) {
+                    counted++;
+                }
+            }
+        }
+        return counted;
+    }
+    
+    /**
+     * Add up the live income or expenses dated within a range
+     * Months inside the range use their partition totals, so only the months at either end are scanned
+     * 
+     * @param startDay First epoch day to include
+     * @param endDay Last epoch day to include
+     * @param expenses true for expenses, false for income
+     * @return Total in cents
+     */
+    public long sumCents(int startDay, int endDay, boolean expenses) {
+        if (startDay > endDay) {
+            return 0;
+        }
+        
+        long cents = 0;
+        for (Partition partition : overlapping(startDay, endDay)) {
+            if (startDay <= partition.firstDay && endDay >= partition.endDay - 1) {
+                cents += expenses ? partition.expenseCents : partition.incomeCents;
+                continue;
+            }
+            
+            partition.sortDays();
+            TransactionStore rows = partition.rows;
+            int first = startDay <= partition.firstDay ? 0 : partition.firstOnOrAfter(startDay);
+            for (int i = first; i < partition.dayCount && partition.dayAt(i) <= endDay; i++) {
+                int position = partition.positionAt(i);
+                if (!rows.isDeleted(position) && rows.isExpense(position) == expenses) {
+                    cents += rows.getAmountCents(position);
+                }
+            }
+        }
+        return cents;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public int add(Transaction transaction) {
+        Partition partition = writable(partitionFor(transaction));
+        int position = partition.rows.add(transaction);
+        partition.added(position, size);
+        partition.count(position, 1);
+        
+        ensureCapacity(size + 1);
+        partitionOf[size] = partition.number;
+        positions[size] = position;
+        sequences[size] = nextSequence++;
+        return size++;
+    }
+    
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > partitionOf.length) {
+            int grown = Math.max(capacity, partitionOf.length + (partitionOf.length >> 1));
+            partitionOf = Arrays.copyOf(partitionOf, grown);
+            positions = Arrays.copyOf(positions, grown);
+            sequences = Arrays.copyOf(sequences, grown);
+        }
+    }
+    
+    @Override
+    public void insert(int slot, Transaction transaction, int sequence) {
+        if (slot < 0 || slot > size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+        
+        // The row goes after the partition's rows from earlier slots, keeping ledger order inside it
+        Partition partition = writable(partitionFor(transaction));
+        int position = 0;
+        for (int i = 0; i < slot; i++) {
+            if (partitionOf[i] == partition.number) {
+                position++;
+            }
+        }
+        for (int i = slot; i < size; i++) {
+            if (partitionOf[i] == partition.number) {
+                positions[i]++;
+            }
+        }
+        partition.rows.insert(position, transaction, sequence);
+        partition.dayOrder = null;
+        partition.count(position, 1);
+        
+        ensureCapacity(size + 1);
+        int tail = size - slot;
+        System.arraycopy(partitionOf, slot, partitionOf, slot + 1, tail);
+        System.arraycopy(positions, slot, positions, slot + 1, tail);
+        System.arraycopy(sequences, slot, sequences, slot + 1, tail);
+        partitionOf[slot] = partition.number;
+        positions[slot] = position;
+        sequences[slot] = sequence;
+        size++;
+        nextSequence = Math.max(nextSequence, sequence + 1);
+        slotsStale = true;
+    }
+    
+    @Override
+    public boolean isDeleted(int slot) {
+        return rows(slot).isDeleted(positions[slot]);
+    }
+    
+    @Override
+    public void setDeleted(int slot, boolean deleted) {
+        Partition partition = partitions.get(partitionOf(slot));
+        int position = positions[slot];
+        if (partition.rows.isDeleted(position) == deleted) {
+            return;
+        }
+        writable(partition);
+        
+        partition.count(position, deleted ? -1 : 1);
+        partition.rows.setDeleted(position, deleted);
+        partition.deletedCount += deleted ? 1 : -1;
+    }
+    
+    @Override
+    public int compact() {
+        // Renumber the live slots first, while the partitions still hold their deleted rows
+        int[] livePositions = new int[partitions.size()];
+        int live = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int number = partitionOf[slot];
+            if (!partitions.get(number).rows.isDeleted(positions[slot])) {
+                partitionOf[live] = number;
+                positions[live] = livePositions[number]++;
+                sequences[live] = sequences[slot];
+                live++;
+            }
+        }
+        
+        for (Partition partition : partitions) {
+            if (partition.deletedCount > 0) {
+                partition.rows.compact();
+                partition.deletedCount = 0;
+                partition.dayOrder = null;
+            }
+        }
+        
+        int removed = size - live;
+        size = live;
+        slotsStale = true;
+        return removed;
+    }
+    
+    @Override
+    public int getSequence(int slot) {
+        checkSlot(slot);
+        return sequences[slot];
+    }
+    
+    @Override
+    public Transaction get(int slot) {
+        return rows(slot).get(positions[slot]);
+    }
+    
+    @Override
+    public int getId(int slot) {
+        return rows(slot).getId(positions[slot]);
+    }
+    
+    @Override
+    public long getAmountCents(int slot) {
+        return rows(slot).getAmountCents(positions[slot]);
+    }
+    
+    @Override
+    public int getEpochDay(int slot) {
+        return rows(slot).getEpochDay(positions[slot]);
+    }
+    
+    @Override
+    public boolean isExpense(int slot) {
+        return rows(slot).isExpense(positions[slot]);
+    }
+    
+    @Override
+    public boolean isRecurring(int slot) {
+        return rows(slot).isRecurring(positions[slot]);
+    }
+    
+    @Override
+    public String getCategory(int slot) {
+        return rows(slot).getCategory(positions[slot]);
+    }
+    
+    @Override
+    public String getDescription(int slot) {
+        return rows(slot).getDescription(positions[slot]);
+    }
+    
+    @Override
+    public int getCategoryId(int slot) {
+        return rows(slot).getCategoryId(positions[slot]);
+    }
+    
+    @Override
+    public CategoryDictionary getCategoryDictionary() {
+        return categories;
+    }
+    
+    /**
+     * Get the store of the partition holding a slot
+     * 
+     * @param slot Slot to look up
+     * @return Partition store, addressed by positions[slot]
+     */
+    private TransactionStore rows(int slot) {
+        return partitions.get(partitionOf(slot)).rows;
+    }
+    
+    /**
+     * Get the partition number of a slot
+     * 
+     * @param slot Slot to look up
+     * @return Partition number
+     */
+    private int partitionOf(int slot) {
+        checkSlot(slot);
+        return partitionOf[slot];
+    }
+    
+    /**
+     * Check that a slot is in use
+     * 
+     * @param slot Slot to check
+     */
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+    }
+    
+    /**
+     * Load an archived partition back into memory so it can be changed
+     * 
+     * @param partition Partition about to change
+     * @return The same partition
+     */
+    private Partition writable(Partition partition) {
+        if (partition.archived) {
+            load(partition);
+        }
+        return partition;
+    }
+    
+    /**
+     * Copy a partition's rows into memory
+     * 
+     * @param partition Partition that is unloaded or archived
+     */
+    private void load(Partition partition) {
+        if (partition.archived) {
+            partition.rows = ((ArchivedTransactionStore) partition.rows).toColumnar();
+            partition.archived = false;
+        } else {
+            partition.rows = ColumnarTransactionStore.copyOf(partition.rows);
+        }
+        partition.loaded = true;
+    }
+    
+    /**
+     * Write a partition to its segment file, replacing any archive of the month
+     * 
+     * @param partition Partition to write
+     * @throws IOException If the file cannot be written
+     */
+    private void writeSegment(Partition partition) throws IOException {
+        TransactionSegment.write(file(partition, SEGMENT_SUFFIX), partition.rows);
+        Files.deleteIfExists(file(partition, ARCHIVE_SUFFIX));
+        partition.dirty = false;
+    }
+    
+    /**
+     * Get the partition for a transaction's month, creating it if needed
+     * 
+     * @param transaction Transaction to place
+     * @return Partition for its month
+     */
+    private Partition partitionFor(Transaction transaction) {
+        int epochDay = DateUtility.toEpochDay(transaction.getDate());
+        if (lastAdded == null || epochDay < lastAdded.firstDay || epochDay >= lastAdded.endDay) {
+            lastAdded = partition(YearMonth.from(LocalDate.ofEpochDay(epochDay)));
+        }
+        return lastAdded;
+    }
+    
+    /**
+     * Get the partition for a month, creating an empty one in memory if needed
+     * 
+     * @param month Month of the partition
+     * @return Partition
+     */
+    private Partition partition(YearMonth month) {
+        Partition partition = byMonth.get(monthNumber(month));
+        if (partition == null) {
+            partition = new Partition(partitions.size(), month, new ColumnarTransactionStore(categories));
+            partitions.add(partition);
+            byMonth.put(monthNumber(month), partition);
+        }
+        return partition;
+    }
+    
+    /**
+     * Get the partitions for months overlapping a range of days
+     * 
+     * @param startDay First epoch day
+     * @param endDay Last epoch day
+     * @return Partitions in month order
+     */
+    private Iterable<Partition> overlapping(int startDay, int endDay) {
+        if (byMonth.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        // Clamp open-ended ranges to the months that exist before converting to dates
+        int first = startDay <= byMonth.firstEntry().getValue().firstDay
+                ? byMonth.firstKey() : monthNumber(YearMonth.from(LocalDate.ofEpochDay(startDay)));
+        int last = endDay >= byMonth.lastEntry().getValue().endDay
+                ? byMonth.lastKey() : monthNumber(YearMonth.from(LocalDate.ofEpochDay(endDay)));
+        if (first > last) {
+            return Collections.emptyList();
+        }
+        return byMonth.subMap(first, true, last, true).values();
+    }
+    
+    /**
+     * Rebuild every partition's position-to-slot list after slots have moved
+     */
+    private void refreshSlots() {
+        if (!slotsStale) {
+            return;
+        }
+        
+        for (Partition partition : partitions) {
+            if (partition.slots.length < partition.rows.size()) {
+                partition.slots = new int[partition.rows.size()];
+            }
+        }
+        for (int slot = 0; slot < size; slot++) {
+            partitions.get(partitionOf[slot]).slots[positions[slot]] = slot;
+        }
+        slotsStale = false;
+    }
+    
+    /**
+     * Get a file of a partition
+     * 
+     * @param partition Partition
+     * @param suffix SEGMENT_SUFFIX or ARCHIVE_SUFFIX
+     * @return File in the store's directory
+     */
+    private Path file(Partition partition, String suffix) {
+        return directory.resolve(String.format("%04d-%02d%s", partition.month.getYear(),
+                partition.month.getMonthValue(), suffix));
+    }
+    
+    /**
+     * Make sure the store has a directory to save partitions in
+     */
+    private void requireDirectory() {
+        if (directory == null) {
+            throw new IllegalStateException("Store has no directory to save partitions in");
+        }
+    }
+    
+    /**
+     * Read the month from a segment or archive file name
+     * 
+     * @param name File name, such as 2024-03.seg
+     * @return Month, or null if the name is not a partition file
+     */
+    private static YearMonth parseMonth(String name) {
+        if (!name.matches("\\d{4}-\\d{2}(\\" + SEGMENT_SUFFIX + "|\\" + ARCHIVE_SUFFIX + ")")) {
+            return null;
+        }
+        int month = Integer.parseInt(name.substring(5, 7));
+        if (month < 1 || month > 12) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(name.substring(0, 4)), month);
+    }
+    
+    /**
+     * Number a month so that later months have larger numbers
+     * 
+     * @param month Month to number
+     * @return Months since January of year 0
+     */
+    private static int monthNumber(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+    
+    /**
+     * One calendar month of the ledger
+     */
+    private static class Partition {
+        final int number;
+        final YearMonth month;
+        
+        // First epoch day of the month, and first day of the next month
+        final int firstDay;
+        final int endDay;
+        
+        // Rows of the month: a ColumnarTransactionStore when loaded, a MappedTransactionStore when
+        // unloaded, or an ArchivedTransactionStore when archived
+        TransactionStore rows;
+        boolean loaded;
+        boolean archived;
+        
+        // Set when the rows have changed since the segment file was written
+        boolean dirty;
+        
+        long incomeCents;
+        long expenseCents;
+        int incomeCount;
+        int expenseCount;
+        int deletedCount;
+        
+        // The same totals split by category ID
+        long[] incomeCategoryCents = new long[0];
+        long[] expenseCategoryCents = new long[0];
+        int[] incomeCategoryCounts = new int[0];
+        int[] expenseCategoryCounts = new int[0];
+        
+        // Slot of each row, by position in the partition
+        int[] slots;
+        
+        // Positions ordered by day, each packed with its day so sorting orders by day and then position
+        // Null until first needed after the positions change
+        long[] dayOrder;
+        int dayCount;
+        boolean daysSorted;
+        
+        /**
+         * Constructor for Partition
+         * 
+         * @param number Index in the store's partition list
+         * @param month Month held
+         * @param rows Store for the rows
+         */
+        Partition(int number, YearMonth month, TransactionStore rows) {
+            this.number = number;
+            this.month = month;
+            this.firstDay = (int) month.atDay(1).toEpochDay();
+            this.endDay = (int) month.plusMonths(1).atDay(1).toEpochDay();
+            this.rows = rows;
+            this.loaded = true;
+            this.slots = new int[DEFAULT_CAPACITY];
+        }
+        
+        /**
+         * Record a row appended to the partition
+         * 
+         * @param position Position of the row
+         * @param slot Slot of the row in the store
+         */
+        void added(int position, int slot) {
+            if (position >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(position + 1, slots.length + (slots.length >> 1)));
+            }
+            slots[position] = slot;
+            dirty = true;
+            
+            if (dayOrder != null) {
+                if (dayCount == dayOrder.length) {
+                    dayOrder = Arrays.copyOf(dayOrder, dayCount + (dayCount >> 1) + 1);
+                }
+                long entry = pack(rows.getEpochDay(position), position);
+                if (dayCount > 0 && entry < dayOrder[dayCount - 1]) {
+                    daysSorted = false;
+                }
+                dayOrder[dayCount++] = entry;
+            }
+        }
+        
+        /**
+         * Add a row to the totals or take it out
+         * 
+         * @param position Position of the row
+         * @param sign 1 to add, -1 to remove
+         */
+        void count(int position, int sign) {
+            apply(rows.isExpense(position), rows.getCategoryId(position), sign * rows.getAmountCents(position), sign);
+            dirty = true;
+        }
+        
+        /**
+         * Change the totals of one category
+         * 
+         * @param expense true for expenses, false for income
+         * @param categoryId Category ID
+         * @param cents Change in cents
+         * @param count Change in transaction count
+         */
+        void apply(boolean expense, int categoryId, long cents, int count) {
+            if (categoryId >= incomeCategoryCents.length) {
+                int capacity = Math.max(categoryId + 1, incomeCategoryCents.length * 2);
+                incomeCategoryCents = Arrays.copyOf(incomeCategoryCents, capacity);
+                expenseCategoryCents = Arrays.copyOf(expenseCategoryCents, capacity);
+                incomeCategoryCounts = Arrays.copyOf(incomeCategoryCounts, capacity);
+                expenseCategoryCounts = Arrays.copyOf(expenseCategoryCounts, capacity);
+            }
+            
+            if (expense) {
+                expenseCents += cents;
+                expenseCount += count;
+                expenseCategoryCents[categoryId] += cents;
+                expenseCategoryCounts[categoryId] += count;
+            } else {
+                incomeCents += cents;
+                incomeCount += count;
+                incomeCategoryCents[categoryId] += cents;
+                incomeCategoryCounts[categoryId] += count;
+            }
+        }
+        
+        /**
+         * Get the total of one category
+         * 
+         * @param expense true for expenses, false for income
+         * @param categoryId Category ID
+         * @return Total in cents
+         */
+        long getCategoryCents(boolean expense, int categoryId) {
+            long[] cents = expense ? expenseCategoryCents : incomeCategoryCents;
+            return categoryId >= 0 && categoryId < cents.length ? cents[categoryId] : 0;
+        }
+        
+        /**
+         * Get the number of transactions in one category
+         * 
+         * @param expense true for expenses, false for income
+         * @param categoryId Category ID
+         * @return Transaction count
+         */
+        int getCategoryCount(boolean expense, int categoryId) {
+            int[] counts = expense ? expenseCategoryCounts : incomeCategoryCounts;
+            return categoryId >= 0 && categoryId < counts.length ? counts[categoryId] : 0;
+        }
+        
+        /**
+         * Bring the day order up to date before a query
+         */
+        void sortDays() {
+            if (dayOrder == null) {
+                dayCount = rows.size();
+                dayOrder = new long[Math.max(dayCount, DEFAULT_CAPACITY)];
+                for (int position = 0; position < dayCount; position++) {
+                    dayOrder[position] = pack(rows.getEpochDay(position), position);
+                }
+                daysSorted = false;
+            }
+            if (!daysSorted) {
+                Arrays.sort(dayOrder, 0, dayCount);
+                daysSorted = true;
+            }
+        }
+        
+        /**
+         * Find the first entry of the day order on or after a day
+         * 
+         * @param epochDay Day to search for
+         * @return Position in the day order
+         */
+        int firstOnOrAfter(int epochDay) {
+            long key = pack(epochDay, 0);
+            int low = 0;
+            int high = dayCount;
+            
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (dayOrder[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            
+            return low;
+        }
+        
+        /**
+         * Get the day of an entry in the day order
+         * 
+         * @param index Position in the day order
+         * @return Epoch day
+         */
+        int dayAt(int index) {
+            return (int) (dayOrder[index] >> 32);
+        }
+        
+        /**
+         * Get the row position of an entry in the day order
+         * 
+         * @param index Position in the day order
+         * @return Position in the partition
+         */
+        int positionAt(int index) {
+            return (int) dayOrder[index];
+        }
+        
+        /**
+         * Pack a day and position into one sortable entry
+         * 
+         * @param epochDay Day of the row
+         * @param position Position of the row
+         * @return Packed entry
+         */
+        private static long pack(int epochDay, int position) {
+            return ((long) epochDay << 32) | (position & 0xFFFFFFFFL);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,416 @@
+package com.financetracker.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Compressed columnar file format for transaction history that is rarely read
+ * Read by ArchivedTransactionStore
+ * 
+ * Layout:
+ *   header   32 bytes: magic, version, row count, category count, description count, body length, body CRC,
+ *            and one more than the index of the null description, or 0 if no row has one
+ *   body     blocks, each an int length followed by its bytes:
+ *     footer        per category: name, income cents and count, expense cents and count
+ *     ids           zig-zag varint difference from the previous row
+ *     days          zig-zag varint difference from the previous row's epoch day
+ *     cents         zig-zag varint amount
+ *     flags         expense and recurring bits, four rows to a byte
+ *     categories    varint index into the footer's categories
+ *     descriptions  varint length and UTF-8 text of each distinct description, empty for the null one
+ *     description   varint index into the distinct descriptions
+ */
+public final class TransactionArchive {
+    static final int MAGIC = 0x46544131;  // "FTA1"
+    static final int VERSION = 1;
+    
+    // Header fields
+    static final int HEADER_SIZE = 32;
+    static final int ROW_COUNT_FIELD = 8;
+    static final int CATEGORY_COUNT_FIELD = 12;
+    static final int DESCRIPTION_COUNT_FIELD = 16;
+    static final int BODY_LENGTH_FIELD = 20;
+    static final int BODY_CRC_FIELD = 24;
+    static final int NULL_DESCRIPTION_FIELD = 28;
+    
+    // Body blocks, in file order
+    static final int FOOTER_BLOCK = 0;
+    static final int ID_BLOCK = 1;
+    static final int DAY_BLOCK = 2;
+    static final int CENTS_BLOCK = 3;
+    static final int FLAG_BLOCK = 4;
+    static final int CATEGORY_BLOCK = 5;
+    static final int DESCRIPTION_TABLE_BLOCK = 6;
+    static final int DESCRIPTION_BLOCK = 7;
+    static final int BLOCK_COUNT = 8;
+    
+    // Flag bits, two per row
+    static final int EXPENSE_FLAG = 1;
+    static final int RECURRING_FLAG = 2;
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private TransactionArchive() {
+    }
+    
+    /**
+     * Write the live transactions in a store to an archive file
+     * The file is written beside the target and moved into place, so a crash leaves the old file intact
+     * 
+     * @param path File to write
+     * @param store Store to archive
+     * @return Number of rows written
+     * @throws IOException If the file cannot be written
+     */
+    public static int write(Path path, TransactionStore store) throws IOException {
+        CategoryDictionary categories = store.getCategoryDictionary();
+        int[] archiveCategory = new int[categories.size()];
+        Arrays.fill(archiveCategory, -1);
+        int[] categoryOrder = new int[categories.size()];
+        int categoryCount = 0;
+        Map<String, Integer> descriptionIndex = new HashMap<>();
+        
+        Encoder[] blocks = new Encoder[BLOCK_COUNT];
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            blocks[i] = new Encoder();
+        }
+        long[] incomeCents = new long[categories.size()];
+        long[] expenseCents = new long[categories.size()];
+        int[] incomeCounts = new int[categories.size()];
+        int[] expenseCounts = new int[categories.size()];
+        
+        int rowCount = 0;
+        int previousId = 0;
+        int previousDay = 0;
+        int packedFlags = 0;
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.isDeleted(slot)) {
+                continue;
+            }
+            
+            int id = store.getId(slot);
+            int day = store.getEpochDay(slot);
+            long cents = store.getAmountCents(slot);
+            boolean expense = store.isExpense(slot);
+            blocks[ID_BLOCK].zigZag((long) id - previousId);
+            blocks[DAY_BLOCK].zigZag((long) day - previousDay);
+            blocks[CENTS_BLOCK].zigZag(cents);
+            previousId = id;
+            previousDay = day;
+            
+            int flags = (expense ? EXPENSE_FLAG : 0) | (store.isRecurring(slot) ? RECURRING_FLAG : 0);
+            packedFlags |= flags << ((rowCount & 3) * 2);
+            if ((rowCount & 3) == 3) {
+                blocks[FLAG_BLOCK].put(packedFlags);
+                packedFlags = 0;
+            }
+            
+            int categoryId = store.getCategoryId(slot);
+            if (archiveCategory[categoryId] < 0) {
+                categoryOrder[categoryCount] = categoryId;
+                archiveCategory[categoryId] = categoryCount++;
+            }
+            blocks[CATEGORY_BLOCK].varint(archiveCategory[categoryId]);
+            if (expense) {
+                expenseCents[categoryId] += cents;
+                expenseCounts[categoryId]++;
+            } else {
+                incomeCents[categoryId] += cents;
+                incomeCounts[categoryId]++;
+            }
+            
+            // A null description gets a slot of its own, so it is not read back as ""
+            String description = store.getDescription(slot);
+            Integer index = descriptionIndex.get(description);
+            if (index == null) {
+                index = descriptionIndex.size();
+                descriptionIndex.put(description, index);
+                blocks[DESCRIPTION_TABLE_BLOCK].text(description == null ? "" : description);
+            }
+            blocks[DESCRIPTION_BLOCK].varint(index);
+            rowCount++;
+        }
+        if ((rowCount & 3) != 0) {
+            blocks[FLAG_BLOCK].put(packedFlags);
+        }
+        
+        for (int i = 0; i < categoryCount; i++) {
+            int id = categoryOrder[i];
+            Encoder footer = blocks[FOOTER_BLOCK];
+            footer.text(categories.nameOf(id));
+            footer.varint(incomeCents[id]);
+            footer.varint(incomeCounts[id]);
+            footer.varint(expenseCents[id]);
+            footer.varint(expenseCounts[id]);
+        }
+        
+        Encoder body = new Encoder();
+        for (Encoder block : blocks) {
+            body.putInt(block.length);
+            body.put(block.bytes, block.length);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body.bytes, 0, body.length);
+        
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(categoryCount);
+        header.putInt(descriptionIndex.size()).putInt(body.length).putInt((int) crc.getValue());
+        Integer nullIndex = descriptionIndex.get(null);
+        header.putInt(nullIndex == null ? 0 : nullIndex + 1);
+        header.position(HEADER_SIZE);
+        header.flip();
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.wrap(body.bytes, 0, body.length);
+            while (header.hasRemaining() || data.hasRemaining()) {
+                channel.write(new ByteBuffer[] {header, data});
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rowCount;
+    }
+    
+    /**
+     * Read an archive file and check its header and checksum
+     * 
+     * @param path File to read
+     * @return Whole file, positioned at the start of the body
+     * @throws IOException If the file cannot be read or is not a valid archive
+     */
+    static ByteBuffer read(Path path) throws IOException {
+        byte[] file = Files.readAllBytes(path);
+        ByteBuffer data = ByteBuffer.wrap(file);
+        if (file.length < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a transaction archive: " + path);
+        }
+        
+        int bodyLength = data.getInt(BODY_LENGTH_FIELD);
+        if (bodyLength < 0 || HEADER_SIZE + (long) bodyLength != file.length
+                || data.getInt(ROW_COUNT_FIELD) < 0 || data.getInt(CATEGORY_COUNT_FIELD) < 0
+                || data.getInt(DESCRIPTION_COUNT_FIELD) < 0 || data.getInt(NULL_DESCRIPTION_FIELD) < 0
+                || data.getInt(NULL_DESCRIPTION_FIELD) > data.getInt(DESCRIPTION_COUNT_FIELD)) {
+            throw new IOException("Corrupt transaction archive header: " + path);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(file, HEADER_SIZE, bodyLength);
+        if ((int) crc.getValue() != data.getInt(BODY_CRC_FIELD)) {
+            throw new IOException("Corrupt transaction archive: " + path);
+        }
+        
+        data.position(HEADER_SIZE);
+        return data;
+    }
+    
+    /**
+     * Find the start of every block in an archive
+     * 
+     * @param data Archive read with read(), positioned at the start of the body
+     * @return Decoder over each block, indexed by block number
+     * @throws IOException If a block runs past the end of the file
+     */
+    static Decoder[] blocks(ByteBuffer data) throws IOException {
+        Decoder[] blocks = new Decoder[BLOCK_COUNT];
+        int position = data.position();
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            if (position + 4 > data.limit()) {
+                throw new IOException("Truncated transaction archive");
+            }
+            int length = data.getInt(position);
+            position += 4;
+            if (length < 0 || position + (long) length > data.limit()) {
+                throw new IOException("Corrupt transaction archive block " + i);
+            }
+            blocks[i] = new Decoder(data.array(), position, position + length);
+            position += length;
+        }
+        return blocks;
+    }
+    
+    /**
+     * Growable byte array that varints and text are written to
+     */
+    private static class Encoder {
+        byte[] bytes = new byte[256];
+        int length;
+        
+        /**
+         * Write one byte
+         * 
+         * @param value Byte to write, in the low eight bits
+         */
+        void put(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+        
+        /**
+         * Write a run of bytes
+         * 
+         * @param source Bytes to write
+         * @param count Number of bytes from the start of source
+         */
+        void put(byte[] source, int count) {
+            ensure(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+        
+        /**
+         * Write a big-endian int
+         * 
+         * @param value Value to write
+         */
+        void putInt(int value) {
+            put(value >>> 24);
+            put(value >>> 16);
+            put(value >>> 8);
+            put(value);
+        }
+        
+        /**
+         * Write a non-negative value seven bits at a time, low bits first
+         * 
+         * @param value Value to write
+         */
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+        
+        /**
+         * Write a signed value so that small negative numbers stay short
+         * 
+         * @param value Value to write
+         */
+        void zigZag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+        
+        /**
+         * Write a varint length followed by UTF-8 text
+         * 
+         * @param text Text to write
+         */
+        void text(String text) {
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            put(utf8, utf8.length);
+        }
+        
+        /**
+         * Make room for more bytes
+         * 
+         * @param extra Bytes about to be written
+         */
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+            }
+        }
+    }
+    
+    /**
+     * Reader over one block of an archive
+     */
+    static class Decoder {
+        private final byte[] bytes;
+        private int position;
+        private final int end;
+        
+        /**
+         * Constructor for Decoder
+         * 
+         * @param bytes Whole archive
+         * @param position Start of the block
+         * @param end End of the block
+         */
+        Decoder(byte[] bytes, int position, int end) {
+            this.bytes = bytes;
+            this.position = position;
+            this.end = end;
+        }
+        
+        /**
+         * Read one byte
+         * 
+         * @return Byte value from 0 to 255
+         * @throws IOException If the block has ended
+         */
+        int get() throws IOException {
+            if (position >= end) {
+                throw new IOException("Truncated transaction archive block");
+            }
+            return bytes[position++] & 0xFF;
+        }
+        
+        /**
+         * Read a value written with varint
+         * 
+         * @return Value
+         * @throws IOException If the block ends inside the value or the value is too long
+         */
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in transaction archive");
+        }
+        
+        /**
+         * Read a value written with zigZag
+         * 
+         * @return Value
+         * @throws IOException If the block ends inside the value
+         */
+        long zigZag() throws IOException {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+        
+        /**
+         * Read text written with text
+         * 
+         * @return Text
+         * @throws IOException If the block ends inside the text
+         */
+        String text() throws IOException {
+            long length = varint();
+            if (length > end - position) {
+                throw new IOException("Truncated text in transaction archive");
+            }
+            String text = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return text;
+        }
+    }
+}
\ No newline at end of file
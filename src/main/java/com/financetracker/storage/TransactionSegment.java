@@ -0,0 +1,207 @@
+package com.financetracker.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.util.CategoryDictionary;
+
+/**
+ * Fixed-width binary file format for a ledger's transactions
+ * Read in place by MappedTransactionStore
+ * 
+ * Layout:
+ *   header   64 bytes: magic, version, row count, category count, heap and footer positions, footer CRC
+ *   rows     32 bytes each: id, epoch day, cents, category ID, description offset and length, flags;
+ *            a null description has length NULL_DESCRIPTION
+ *   heap     UTF-8 descriptions referenced by the rows
+ *   footer   per category: name, income cents and count, expense cents and count
+ */
+public final class TransactionSegment {
+    static final int MAGIC = 0x46545331;  // "FTS1"
+    static final int VERSION = 1;
+    
+    // Header fields
+    static final int HEADER_SIZE = 64;
+    static final int ROW_COUNT_FIELD = 8;
+    static final int CATEGORY_COUNT_FIELD = 12;
+    static final int HEAP_OFFSET_FIELD = 16;
+    static final int HEAP_LENGTH_FIELD = 24;
+    static final int FOOTER_OFFSET_FIELD = 32;
+    static final int FOOTER_LENGTH_FIELD = 40;
+    static final int FOOTER_CRC_FIELD = 48;
+    
+    // Row fields
+    static final int ROW_SIZE = 32;
+    static final int ID_FIELD = 0;
+    static final int EPOCH_DAY_FIELD = 4;
+    static final int CENTS_FIELD = 8;
+    static final int CATEGORY_FIELD = 16;
+    static final int DESCRIPTION_OFFSET_FIELD = 20;
+    static final int DESCRIPTION_LENGTH_FIELD = 24;
+    static final int FLAGS_FIELD = 28;
+    
+    // Description length marking a null description
+    static final int NULL_DESCRIPTION = -1;
+    
+    // Flag bits for the flags field
+    static final byte EXPENSE_FLAG = 1;
+    static final byte RECURRING_FLAG = 2;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private TransactionSegment() {
+    }
+    
+    /**
+     * Write the live transactions in a store to a segment file
+     * The file is written beside the target and moved into place, so a crash leaves the old file intact
+     * 
+     * @param path File to write
+     * @param store Store to save
+     * @return Number of rows written
+     * @throws IOException If the file cannot be written or the ledger is too large
+     */
+    public static int write(Path path, TransactionStore store) throws IOException {
+        CategoryDictionary categories = store.getCategoryDictionary();
+        int rowCount = 0;
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (!store.isDeleted(slot)) {
+                rowCount++;
+            }
+        }
+        if ((long) rowCount * ROW_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Ledger too large for one segment: " + rowCount + " rows");
+        }
+        
+        int categoryCount = categories.size();
+        long[] incomeCents = new long[categoryCount];
+        long[] expenseCents = new long[categoryCount];
+        int[] incomeCounts = new int[categoryCount];
+        int[] expenseCounts = new int[categoryCount];
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long heapOffset = HEADER_SIZE + (long) rowCount * ROW_SIZE;
+            long rowPosition = HEADER_SIZE;
+            long heapPosition = heapOffset;
+            ByteBuffer rows = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer heap = ByteBuffer.allocate(BUFFER_SIZE);
+            int heapLength = 0;
+            
+            for (int slot = 0; slot < store.size(); slot++) {
+                if (store.isDeleted(slot)) {
+                    continue;
+                }
+                
+                String description = store.getDescription(slot);
+                byte[] text = description == null ? new byte[0] : description.getBytes(StandardCharsets.UTF_8);
+                if ((long) heapLength + text.length > Integer.MAX_VALUE) {
+                    throw new IOException("Descriptions too large for one segment");
+                }
+                
+                int categoryId = store.getCategoryId(slot);
+                long cents = store.getAmountCents(slot);
+                byte flags = 0;
+                if (store.isExpense(slot)) {
+                    flags |= EXPENSE_FLAG;
+                    expenseCents[categoryId] += cents;
+                    expenseCounts[categoryId]++;
+                    if (store.isRecurring(slot)) {
+                        flags |= RECURRING_FLAG;
+                    }
+                } else {
+                    incomeCents[categoryId] += cents;
+                    incomeCounts[categoryId]++;
+                }
+                
+                if (rows.remaining() < ROW_SIZE) {
+                    rowPosition += flush(channel, rows, rowPosition);
+                }
+                rows.putInt(store.getId(slot));
+                rows.putInt(store.getEpochDay(slot));
+                rows.putLong(cents);
+                rows.putInt(categoryId);
+                rows.putInt(heapLength);
+                rows.putInt(description == null ? NULL_DESCRIPTION : text.length);
+                rows.put(flags).put((byte) 0).putShort((short) 0);
+                
+                for (int written = 0; written < text.length; ) {
+                    if (!heap.hasRemaining()) {
+                        heapPosition += flush(channel, heap, heapPosition);
+                    }
+                    int chunk = Math.min(heap.remaining(), text.length - written);
+                    heap.put(text, written, chunk);
+                    written += chunk;
+                }
+                heapLength += text.length;
+            }
+            rowPosition += flush(channel, rows, rowPosition);
+            heapPosition += flush(channel, heap, heapPosition);
+            
+            // Footer: the category table with the totals for each category
+            byte[][] names = new byte[categoryCount][];
+            int footerLength = 0;
+            for (int id = 0; id < categoryCount; id++) {
+                names[id] = categories.nameOf(id).getBytes(StandardCharsets.UTF_8);
+                footerLength += 4 + names[id].length + 24;
+            }
+            
+            ByteBuffer footer = ByteBuffer.allocate(footerLength);
+            for (int id = 0; id < categoryCount; id++) {
+                footer.putInt(names[id].length).put(names[id]);
+                footer.putLong(incomeCents[id]).putInt(incomeCounts[id]);
+                footer.putLong(expenseCents[id]).putInt(expenseCounts[id]);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(footer.array());
+            long footerOffset = heapPosition;
+            flush(channel, footer, footerOffset);
+            
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(categoryCount);
+            header.putLong(heapOffset).putLong(heapLength);
+            header.putLong(footerOffset).putLong(footerLength);
+            header.putInt((int) crc.getValue());
+            header.position(HEADER_SIZE);
+            flush(channel, header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rowCount;
+    }
+    
+    /**
+     * Write a filled buffer at a file position and clear it
+     * 
+     * @param channel Channel to write
+     * @param buffer Buffer in write mode
+     * @param position File position to write at
+     * @return Number of bytes written
+     * @throws IOException If the write fails
+     */
+    private static int flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+        buffer.clear();
+        return length;
+    }
+}
\ No newline at end of file
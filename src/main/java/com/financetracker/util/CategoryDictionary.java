@@ -0,0 +1,137 @@
+package com.financetracker.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.financetracker.exception.InvalidCategoryException;
+
+/**
+ * Dictionary that maps category names to dense int IDs
+ * IDs start at 0 and never change, so they can index primitive arrays
+ * Lookups are lock-free; adding a new name is synchronized
+ * Each ledger has its own dictionary, so categories one user adds never grow another's
+ */
+public class CategoryDictionary {
+    /**
+     * Expense categories offered by the application
+     */
+    public static final List<String> EXPENSE_CATEGORIES = Collections.unmodifiableList(Arrays.asList(
+        "Food", "Transportation", "Housing", "Entertainment", "Healthcare", "Other"));
+    
+    /**
+     * Income categories offered by the application
+     */
+    public static final List<String> INCOME_CATEGORIES = Collections.unmodifiableList(Arrays.asList(
+        "Salary", "Investment", "Gift", "Other"));
+    
+    /**
+     * Value returned by find() for unknown names
+     */
+    public static final int UNKNOWN = -1;
+    
+    private final Map<String, Integer> ids;
+    private volatile String[] names;
+    private volatile int size;
+    
+    /**
+     * Constructor for CategoryDictionary
+     * Seeded with the expense and income categories
+     */
+    public CategoryDictionary() {
+        this.ids = new ConcurrentHashMap<>();
+        this.names = new String[16];
+        this.size = 0;
+        
+        for (String category : EXPENSE_CATEGORIES) {
+            intern(category);
+        }
+        for (String category : INCOME_CATEGORIES) {
+            intern(category);
+        }
+    }
+    
+    /**
+     * Get the ID for a name, adding the name if it is new
+     * 
+     * @param name Category name
+     * @return Category ID
+     */
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            
+            // Publish the name before the ID so readers never see an ID without a name
+            int newId = size;
+            size = newId + 1;
+            ids.put(name, newId);
+            return newId;
+        }
+    }
+    
+    /**
+     * Get the ID for a known name
+     * 
+     * @param name Category name
+     * @return Category ID, or UNKNOWN if the name has never been added
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? UNKNOWN : id;
+    }
+    
+    /**
+     * Get the ID for a known name
+     * 
+     * @param name Category name
+     * @return Category ID
+     * @throws InvalidCategoryException If the name has never been added
+     */
+    public int idOf(String name) throws InvalidCategoryException {
+        Integer id = ids.get(name);
+        if (id == null) {
+            throw new InvalidCategoryException("Unknown category: " + name);
+        }
+        return id;
+    }
+    
+    /**
+     * Get the name for an ID
+     * 
+     * @param id Category ID
+     * @return Category name
+     */
+    public String nameOf(int id) {
+        int count = size;
+        String[] current = names;
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("Category ID: " + id);
+        }
+        return current[id];
+    }
+    
+    /**
+     * Get number of categories
+     * Arrays indexed by category ID need at least this many elements
+     * 
+     * @return Number of categories
+     */
+    public int size() {
+        return size;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.financetracker.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Utility class for converting between Date objects and epoch days
+ * Epoch days are the number of days since 1970-01-01 in the local time zone
+ */
+public class DateUtility {
+    
+    /**
+     * Convert a date to its epoch day in the local time zone
+     * 
+     * @param date Date to convert
+     * @return Days since 1970-01-01
+     */
+    public static int toEpochDay(Date date) {
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+    
+    /**
+     * Convert an epoch day back to a date at local midnight
+     * 
+     * @param epochDay Days since 1970-01-01
+     * @return Date at the start of that day
+     */
+    public static Date fromEpochDay(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
\ No newline at end of file
@@ -5,6 +5,7 @@ import java.util.Date;
 import java.util.List;
 
 import com.financetracker.interfaces.FinancialEntity;
+import com.financetracker.manager.TransactionManager;
 import com.financetracker.model.Transaction;
 
 /**
@@ -34,6 +35,23 @@ public class FinancialUtility {
         return result;
     }
     
+    /**
+     * Filter the transactions held by a TransactionManager
+     * A DateFilter is answered from the manager's date index instead of testing every transaction
+     * 
+     * @param manager TransactionManager to read from
+     * @param filter Filter implementation
+     * @return Filtered list
+     */
+    public static List<Transaction> filter(TransactionManager manager, Filter<Transaction> filter) {
+        if (filter instanceof DateFilter) {
+            DateFilter dateFilter = (DateFilter) filter;
+            return manager.getTransactionsByDateRange(dateFilter.getStartDate(), dateFilter.getEndDate());
+        }
+        
+        return manager.getTransactionsByFilter(filter::accept);
+    }
+    
     /**
      * Generic method to find maximum value in a list
      * 
@@ -135,6 +153,24 @@ public class FinancialUtility {
             this.endDate = endDate;
         }
         
+        /**
+         * Get start date
+         * 
+         * @return Start date
+         */
+        public Date getStartDate() {
+            return startDate;
+        }
+        
+        /**
+         * Get end date
+         * 
+         * @return End date
+         */
+        public Date getEndDate() {
+            return endDate;
+        }
+        
         @Override
         public boolean accept(Transaction transaction) {
             Date transactionDate = transaction.getDate();
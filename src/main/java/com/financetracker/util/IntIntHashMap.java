@@ -0,0 +1,258 @@
+package com.financetracker.util;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to int values without boxing
+ * Uses open addressing with linear probing
+ */
+public class IntIntHashMap {
+    /**
+     * Value returned by get() when a key is not present
+     */
+    public static final int NO_VALUE = -1;
+    
+    // Key used to mark an empty bucket, stored separately when used as a real key
+    private static final int FREE_KEY = 0;
+    
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    
+    private boolean hasFreeKey;
+    private int freeKeyValue;
+    
+    /**
+     * Constructor for IntIntHashMap
+     */
+    public IntIntHashMap() {
+        this(16);
+    }
+    
+    /**
+     * Constructor for IntIntHashMap with an expected number of entries
+     * 
+     * @param expectedSize Number of entries to size the table for
+     */
+    public IntIntHashMap(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+    
+    /**
+     * Get the value for a key
+     * 
+     * @param key Key to look up
+     * @return Value, or NO_VALUE if the key is not present
+     */
+    public int get(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey ? freeKeyValue : NO_VALUE;
+        }
+        
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+    
+    /**
+     * Check if a key is present
+     * 
+     * @param key Key to look up
+     * @return true if present, false otherwise
+     */
+    public boolean containsKey(int key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+    
+    /**
+     * Set the value for a key
+     * 
+     * @param key Key to set
+     * @param value Value to store
+     */
+    public void put(int key, int value) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        
+        // Keep the table at most half full
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+    
+    /**
+     * Remove a key
+     * 
+     * @param key Key to remove
+     * @return Removed value, or NO_VALUE if the key was not present
+     */
+    public int remove(int key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return NO_VALUE;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        
+        int index = hash(key) & mask;
+        while (keys[index] != FREE_KEY) {
+            if (keys[index] == key) {
+                int removed = values[index];
+                shiftKeys(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+    
+    /**
+     * Grow the table so it can hold the given number of entries without rehashing
+     * 
+     * @param expectedSize Number of entries to size the table for
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+    
+    /**
+     * Get number of entries
+     * 
+     * @return Number of entries
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+    
+    /**
+     * Close the gap left by a removed entry so probe chains stay unbroken
+     * 
+     * @param gap Index of the removed entry
+     */
+    private void shiftKeys(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            int key = keys[index];
+            if (key == FREE_KEY) {
+                keys[gap] = FREE_KEY;
+                return;
+            }
+            
+            // Move the entry back if its home bucket is not between the gap and its slot
+            int home = hash(key) & mask;
+            boolean movable = gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+            if (movable) {
+                keys[gap] = key;
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+    }
+    
+    /**
+     * Move every entry into a table of the given size
+     * 
+     * @param capacity New table size (power of two)
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = hash(key) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * Spread key bits so sequential IDs do not cluster
+     * 
+     * @param key Key to hash
+     * @return Mixed hash
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Get a power of two table size that holds the expected entries at half load
+     * 
+     * @param expectedSize Expected number of entries
+     * @return Table size
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
\ No newline at end of file
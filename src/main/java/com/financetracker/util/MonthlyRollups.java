@@ -0,0 +1,176 @@
+package com.financetracker.util;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.financetracker.manager.TransactionManager;
+
+/**
+ * Memoized income, expense and net totals for each calendar month of a ledger
+ * A month is totalled once and reused until the ledger's modification version changes,
+ * so reports that ask for the same months share one computation
+ */
+public class MonthlyRollups {
+    private final TransactionManager transactionManager;
+    
+    // Version the cached months were computed at
+    private long version;
+    private final Map<YearMonth, Rollup> months;
+    
+    private long hits;
+    private long misses;
+    
+    /**
+     * Constructor for MonthlyRollups
+     * 
+     * @param transactionManager Ledger to total
+     */
+    public MonthlyRollups(TransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+        this.version = -1;
+        this.months = new HashMap<>();
+    }
+    
+    /**
+     * Get the totals for one month
+     * 
+     * @param month Month to total
+     * @return Totals for the month
+     */
+    public synchronized Rollup get(YearMonth month) {
+        long current = transactionManager.getModificationVersion();
+        if (current != version) {
+            months.clear();
+            version = current;
+        }
+        
+        Rollup rollup = months.get(month);
+        if (rollup != null) {
+            hits++;
+            return rollup;
+        }
+        misses++;
+        
+        Rollup computed = compute(month);
+        
+        // Only keep totals no change could have raced with
+        if (transactionManager.getModificationVersion() == current) {
+            months.put(month, computed);
+        }
+        return computed;
+    }
+    
+    /**
+     * Get the totals for a run of months ending with the given one
+     * 
+     * @param last Most recent month
+     * @param count Number of months
+     * @return Totals for each month, oldest first
+     */
+    public List<Rollup> trailing(YearMonth last, int count) {
+        List<Rollup> rollups = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            rollups.add(get(last.minusMonths(i)));
+        }
+        return rollups;
+    }
+    
+    /**
+     * Get number of months served from the cache
+     * 
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+    
+    /**
+     * Get number of months that had to be totalled
+     * 
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+    
+    /**
+     * Total one month from the ledger's month by category table
+     * 
+     * @param month Month to total
+     * @return Totals for the month
+     */
+    private Rollup compute(YearMonth month) {
+        return new Rollup(month, Math.round(transactionManager.getIncomeForMonths(month, month) * 100),
+                Math.round(transactionManager.getExpensesForMonths(month, month) * 100));
+    }
+    
+    /**
+     * Income and expense totals for one month
+     */
+    public static class Rollup {
+        private final YearMonth month;
+        private final long incomeCents;
+        private final long expenseCents;
+        
+        /**
+         * Constructor for Rollup
+         * 
+         * @param month Month totalled
+         * @param incomeCents Income in cents
+         * @param expenseCents Expenses in cents
+         */
+        Rollup(YearMonth month, long incomeCents, long expenseCents) {
+            this.month = month;
+            this.incomeCents = incomeCents;
+            this.expenseCents = expenseCents;
+        }
+        
+        /**
+         * Get the month totalled
+         * 
+         * @return Month
+         */
+        public YearMonth getMonth() {
+            return month;
+        }
+        
+        /**
+         * Get the month's income
+         * 
+         * @return Income amount
+         */
+        public double getIncome() {
+            return incomeCents / 100.0;
+        }
+        
+        /**
+         * Get the month's expenses
+         * 
+         * @return Expense amount
+         */
+        public double getExpenses() {
+            return expenseCents / 100.0;
+        }
+        
+        /**
+         * Get income minus expenses for the month
+         * 
+         * @return Net amount
+         */
+        public double getNet() {
+            return (incomeCents - expenseCents) / 100.0;
+        }
+        
+        /**
+         * Check if the month has any income or expenses
+         * 
+         * @return true if either total is non-zero
+         */
+        public boolean hasActivity() {
+            return incomeCents != 0 || expenseCents != 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.financetracker.util;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.financetracker.export.ReportRecording;
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.manager.BudgetManager;
+import com.financetracker.manager.TransactionManager;
+
+/**
+ * Computed reports shared by every user, reused until their ledger or budgets change
+ * Entries are keyed by user, report type and parameters and hold a recording of the report that
+ * can be replayed in any format; an entry is served only while the ledger and budget manager it was
+ * computed from still have the same modification versions, which is checked without reading the ledger
+ * The least recently used entries are evicted once the cache holds its capacity
+ */
+public class ReportCache {
+    /**
+     * Default number of reports kept
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    /**
+     * Reports the cache can hold
+     */
+    public enum ReportType {
+        /** Income by category and statistics */
+        INCOME_SUMMARY,
+        /** Expenses by category and statistics */
+        EXPENSE_SUMMARY,
+        /** This month's totals and analysis, without the tip */
+        MONTHLY_OVERVIEW,
+        /** Total and category budgets */
+        BUDGET_SUMMARY
+    }
+    
+    // Access order, so the first entry is the least recently used
+    private final LinkedHashMap<Key, Entry> entries;
+    private int capacity;
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    /**
+     * Constructor for ReportCache with the default capacity
+     */
+    public ReportCache() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Constructor for ReportCache
+     * 
+     * @param capacity Maximum number of reports kept
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public ReportCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Get a report, computing and keeping it unless an up-to-date copy is cached
+     * The report is computed outside the cache's lock, and only kept if neither manager
+     * changed while it ran
+     * 
+     * @param user User the report belongs to
+     * @param type Report type
+     * @param parameters Anything else the report depends on, such as the date, or null
+     * @param transactionManager Ledger the report reads
+     * @param budgetManager Budgets the report reads, or null if it reads none
+     * @param report Computes the report
+     * @return Recording of the report, to replay into a renderer
+     * @throws IOException If computing the report fails
+     */
+    public ReportRecording get(Object user, ReportType type, Object parameters,
+            TransactionManager transactionManager, BudgetManager budgetManager, ReportRenderer.Report report)
+            throws IOException {
+        Key key = new Key(user, type, parameters);
+        long ledgerVersion = transactionManager.getModificationVersion();
+        long budgetVersion = budgetManager == null ? 0 : budgetManager.getModificationVersion();
+        
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.matches(transactionManager, ledgerVersion, budgetManager, budgetVersion)) {
+                hits++;
+                return entry.recording;
+            }
+            misses++;
+        }
+        
+        ReportRecording recording = new ReportRecording();
+        report.render(recording);
+        
+        // Only keep reports no change could have raced with
+        if (transactionManager.getModificationVersion() == ledgerVersion
+                && (budgetManager == null || budgetManager.getModificationVersion() == budgetVersion)) {
+            synchronized (this) {
+                entries.put(key, new Entry(transactionManager, ledgerVersion, budgetManager, budgetVersion,
+                        recording));
+                trim();
+            }
+        }
+        return recording;
+    }
+    
+    /**
+     * Drop every report of one user
+     * 
+     * @param user User whose reports to drop
+     * @return Number of reports dropped
+     */
+    public synchronized int invalidate(Object user) {
+        int removed = 0;
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (Objects.equals(keys.next().user, user)) {
+                keys.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Drop every report
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+    
+    /**
+     * Get the number of reports kept
+     * 
+     * @return Report count
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Get the maximum number of reports kept
+     * 
+     * @return Capacity
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Set the maximum number of reports kept, evicting the least recently used if over it
+     * 
+     * @param capacity New capacity
+     * @throws IllegalArgumentException If the capacity is not positive
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        trim();
+    }
+    
+    /**
+     * Get number of reports served from the cache
+     * 
+     * @return Hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+    
+    /**
+     * Get number of reports that had to be computed
+     * 
+     * @return Miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+    
+    /**
+     * Get number of reports evicted to stay within capacity
+     * 
+     * @return Eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+    
+    /**
+     * Get the share of requests served from the cache
+     * 
+     * @return Hit rate from 0 to 1, or 0 before any request
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+    
+    /**
+     * Evict the least recently used reports until within capacity
+     */
+    private void trim() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    /**
+     * User, report type and parameters of a cached report
+     */
+    private static class Key {
+        private final Object user;
+        private final ReportType type;
+        private final Object parameters;
+        
+        /**
+         * Constructor for Key
+         * 
+         * @param user User the report belongs to
+         * @param type Report type
+         * @param parameters Other parameters, or null
+         */
+        Key(Object user, ReportType type, Object parameters) {
+            this.user = user;
+            this.type = type;
+            this.parameters = parameters;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return type == key.type && Objects.equals(user, key.user) && Objects.equals(parameters, key.parameters);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, type, parameters);
+        }
+    }
+    
+    /**
+     * Cached report and the state it was computed from
+     * The managers are held weakly so a cached report does not keep an unloaded ledger in memory,
+     * and a ledger loaded again, whose versions start over, never matches a report of the old one
+     */
+    private static class Entry {
+        private final WeakReference<TransactionManager> ledger;
+        private final long ledgerVersion;
+        private final WeakReference<BudgetManager> budgets;
+        private final long budgetVersion;
+        private final ReportRecording recording;
+        
+        /**
+         * Constructor for Entry
+         * 
+         * @param ledger Ledger the report read
+         * @param ledgerVersion Ledger version it was computed at
+         * @param budgets Budgets the report read, or null
+         * @param budgetVersion Budget version it was computed at
+         * @param recording Recorded report
+         */
+        Entry(TransactionManager ledger, long ledgerVersion, BudgetManager budgets, long budgetVersion,
+                ReportRecording recording) {
+            this.ledger = new WeakReference<>(ledger);
+            this.ledgerVersion = ledgerVersion;
+            this.budgets = budgets == null ? null : new WeakReference<>(budgets);
+            this.budgetVersion = budgetVersion;
+            this.recording = recording;
+        }
+        
+        /**
+         * Check if the report is still up to date
+         * 
+         * @param ledger Ledger being reported on
+         * @param ledgerVersion Its current version
+         * @param budgets Budgets being reported on, or null
+         * @param budgetVersion Their current version
+         * @return true if the report was computed from the same managers at the same versions
+         */
+        boolean matches(TransactionManager ledger, long ledgerVersion, BudgetManager budgets, long budgetVersion) {
+            if (this.ledger.get() != ledger || this.ledgerVersion != ledgerVersion) {
+                return false;
+            }
+            if (budgets == null) {
+                return this.budgets == null;
+            }
+            return this.budgets != null && this.budgets.get() == budgets && this.budgetVersion == budgetVersion;
+        }
+    }
+}
\ No newline at end of file
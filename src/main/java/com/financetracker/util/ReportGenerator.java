@@ -1,24 +1,38 @@
 package com.financetracker.util;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.time.YearMonth;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import com.financetracker.export.ReportRenderer;
+import com.financetracker.manager.BudgetManager;
 import com.financetracker.manager.TransactionManager;
-import com.financetracker.model.Expense;
-import com.financetracker.model.Income;
-import com.financetracker.model.Transaction;
 
 /**
  * Class for generating financial reports
  * Uses Java library classes (requirement 21)
  */
 public class ReportGenerator {
+    // Months of history the savings projection averages over
+    private static final int TRAILING_MONTHS = 6;
+    
     private TransactionManager transactionManager;
     
+    // Budgets for the budget summary, or null
+    private BudgetManager budgetManager;
+    
+    // Month totals shared by the monthly overview and the savings projection
+    private MonthlyRollups rollups;
+    
+    // Shared cache of computed reports and the user they are cached for, or null to compute every time
+    private ReportCache cache;
+    private Object user;
+    
     // Using Java library class Random (requirement 21)
     private Random random = new Random();
     
@@ -28,242 +42,247 @@ public class ReportGenerator {
      * @param transactionManager TransactionManager to generate reports from
      */
     public ReportGenerator(TransactionManager transactionManager) {
+        this(transactionManager, null, null, null);
+    }
+    
+    /**
+     * Constructor for ReportGenerator with a report cache
+     * Reports are served from the cache until the ledger or budgets they read change
+     * 
+     * @param transactionManager TransactionManager to generate reports from
+     * @param budgetManager BudgetManager for the budget summary, or null
+     * @param cache Cache shared between users, or null to compute every report
+     * @param user Key the user's reports are cached under, such as the user ID
+     */
+    public ReportGenerator(TransactionManager transactionManager, BudgetManager budgetManager, ReportCache cache,
+            Object user) {
         this.transactionManager = transactionManager;
+        this.budgetManager = budgetManager;
+        this.rollups = new MonthlyRollups(transactionManager);
+        this.cache = cache;
+        this.user = user;
     }
     
     /**
      * Generate income summary report
      */
     public void generateIncomeSummary() {
-        System.out.println("\n===== INCOME SUMMARY REPORT =====");
-        
-        // Get total income
-        double totalIncome = transactionManager.getTotalIncome();
-        
-        // Get income by category
-        Map<String, Double> incomeByCategory = transactionManager.getIncomeByCategory();
-        
-        // Using Java library class Date and Calendar (requirement 21)
-        Calendar calendar = Calendar.getInstance();
-        Date currentDate = calendar.getTime();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        
-        // Print report
-        System.out.println("Date: " + dateFormat.format(currentDate));
-        System.out.printf("Total Income: $%.2f\n\n", totalIncome);
-        
-        if (incomeByCategory.isEmpty()) {
-            System.out.println("No income data available.");
-            return;
-        }
-        
-        System.out.println("Income by Category:");
-        for (Map.Entry<String, Double> entry : incomeByCategory.entrySet()) {
-            String category = entry.getKey();
-            double amount = entry.getValue();
-            double percentage = (amount / totalIncome) * 100;
-            
-            System.out.printf("- %s: $%.2f (%.1f%%)\n", category, amount, percentage);
-        }
-        
-        // Display some statistics
-        System.out.println("\nStatistics:");
-        System.out.printf("- Average Income Per Transaction: $%.2f\n", 
-                         calculateAverageIncomePerTransaction());
+        ReportRenderer.printToConsole(this::renderIncomeSummary);
     }
     
     /**
      * Generate expense summary report
      */
     public void generateExpenseSummary() {
-        System.out.println("\n===== EXPENSE SUMMARY REPORT =====");
-        
-        // Get total expenses
-        double totalExpenses = transactionManager.getTotalExpenses();
+        ReportRenderer.printToConsole(this::renderExpenseSummary);
+    }
+    
+    /**
+     * Generate monthly overview report
+     */
+    public void generateMonthlyOverview() {
+        ReportRenderer.printToConsole(this::renderMonthlyOverview);
+    }
+    
+    /**
+     * Write the income summary report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    public void renderIncomeSummary(ReportRenderer renderer) throws IOException {
+        render(renderer, ReportCache.ReportType.INCOME_SUMMARY, null,
+                target -> renderSummary(target, ReportSummary.of(transactionManager), false));
+    }
+    
+    /**
+     * Write the expense summary report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    public void renderExpenseSummary(ReportRenderer renderer) throws IOException {
+        render(renderer, ReportCache.ReportType.EXPENSE_SUMMARY, null,
+                target -> renderSummary(target, ReportSummary.of(transactionManager), true));
+    }
+    
+    /**
+     * Write the budget summary report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     * @throws IllegalStateException If the generator has no BudgetManager
+     */
+    public void renderBudgetSummary(ReportRenderer renderer) throws IOException {
+        if (budgetManager == null) {
+            throw new IllegalStateException("No budget manager to report on");
+        }
+        render(renderer, ReportCache.ReportType.BUDGET_SUMMARY, budgetManager, budgetManager::renderBudgetSummary);
+    }
+    
+    /**
+     * Write a report, from the cache if it holds an up-to-date copy
+     * Reports depend on today's date, so the date is part of the cache key
+     * 
+     * @param renderer Renderer to write to
+     * @param type Report type
+     * @param budgets Budgets the report reads, or null if it only reads the ledger
+     * @param report Computes the report
+     * @throws IOException If the renderer cannot write
+     */
+    private void render(ReportRenderer renderer, ReportCache.ReportType type, BudgetManager budgets,
+            ReportRenderer.Report report) throws IOException {
+        if (cache == null) {
+            report.render(renderer);
+            return;
+        }
+        int today = DateUtility.toEpochDay(new Date());
+        cache.get(user, type, today, transactionManager, budgets, report).replay(renderer);
+    }
+    
+    /**
+     * Write the summary report for one side of the ledger
+     * Every figure comes from one pass over the ledger
+     * 
+     * @param renderer Renderer to write to
+     * @param summary Summary of the ledger
+     * @param expenses true for the expense report, false for the income report
+     * @throws IOException If the renderer cannot write
+     */
+    private void renderSummary(ReportRenderer renderer, ReportSummary summary, boolean expenses)
+            throws IOException {
+        String label = expenses ? "Expense" : "Income";
+        String plural = expenses ? "Expenses" : "Income";
+        renderer.beginReport(label + " Summary Report");
         
-        // Get expenses by category
-        Map<String, Double> expensesByCategory = transactionManager.getExpensesByCategory();
+        long totalCents = Math.round(summary.getTotal(expenses) * 100);
+        Map<String, Double> byCategory = summary.getByCategory(expenses);
+        Map<String, Integer> countByCategory = summary.getCountByCategory(expenses);
         
         // Using Java library class Date and Calendar (requirement 21)
         Calendar calendar = Calendar.getInstance();
         Date currentDate = calendar.getTime();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
         
-        // Print report
-        System.out.println("Date: " + dateFormat.format(currentDate));
-        System.out.printf("Total Expenses: $%.2f\n\n", totalExpenses);
+        renderer.date("Date", DateUtility.toEpochDay(currentDate));
+        renderer.amount("Total " + plural, totalCents);
         
-        if (expensesByCategory.isEmpty()) {
-            System.out.println("No expense data available.");
+        if (byCategory.isEmpty()) {
+            renderer.note("No " + label.toLowerCase() + " data available.");
+            renderer.endReport();
             return;
         }
         
-        System.out.println("Expenses by Category:");
-        for (Map.Entry<String, Double> entry : expensesByCategory.entrySet()) {
+        renderer.section(plural + " by Category");
+        for (Map.Entry<String, Double> entry : byCategory.entrySet()) {
             String category = entry.getKey();
-            double amount = entry.getValue();
-            double percentage = (amount / totalExpenses) * 100;
-            
-            System.out.printf("- %s: $%.2f (%.1f%%)\n", category, amount, percentage);
+            renderer.share(category, Math.round(entry.getValue() * 100), totalCents, countByCategory.get(category));
         }
         
         // Display some statistics
-        System.out.println("\nStatistics:");
-        System.out.printf("- Average Expense Per Transaction: $%.2f\n", 
-                         calculateAverageExpensePerTransaction());
+        renderer.section("Statistics");
+        renderer.amount("Average " + label + " Per Transaction", Math.round(summary.getAverage(expenses) * 100));
+        renderer.amount("Smallest " + label, Math.round(summary.getSmallest(expenses) * 100));
+        renderer.amount("Largest " + label, Math.round(summary.getLargest(expenses) * 100));
+        renderer.endReport();
     }
     
     /**
-     * Generate monthly overview report
+     * Write the monthly overview report
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
      */
-    public void generateMonthlyOverview() {
-        System.out.println("\n===== MONTHLY OVERVIEW REPORT =====");
+    public void renderMonthlyOverview(ReportRenderer renderer) throws IOException {
+        render(renderer, ReportCache.ReportType.MONTHLY_OVERVIEW, null, this::writeMonthlyOverview);
+        
+        // Picked anew every time, so it is written after the cached part of the report
+        renderer.section("Financial Tip");
+        renderer.note(getRandomFinancialTip());
+        renderer.endReport();
+    }
+    
+    /**
+     * Compute and write the monthly overview report up to its financial tip
+     * 
+     * @param renderer Renderer to write to
+     * @throws IOException If the renderer cannot write
+     */
+    private void writeMonthlyOverview(ReportRenderer renderer) throws IOException {
+        renderer.beginReport("Monthly Overview Report");
         
         // Get current date info
         Calendar calendar = Calendar.getInstance();
-        int currentMonth = calendar.get(Calendar.MONTH);
-        int currentYear = calendar.get(Calendar.YEAR);
         
         // Format month name
         SimpleDateFormat monthFormat = new SimpleDateFormat("MMMM yyyy");
         Date currentDate = calendar.getTime();
-        
-        // Print report header
-        System.out.println("Month: " + monthFormat.format(currentDate));
-        
-        // Calculate start and end dates for the month
-        Calendar startCal = Calendar.getInstance();
-        startCal.set(currentYear, currentMonth, 1, 0, 0, 0);
-        Date startDate = startCal.getTime();
-        
-        Calendar endCal = Calendar.getInstance();
-        endCal.set(currentYear, currentMonth, endCal.getActualMaximum(Calendar.DAY_OF_MONTH), 23, 59, 59);
-        Date endDate = endCal.getTime();
-        
-        // Get transactions for this month
-        List<Transaction> monthlyTransactions = 
-            transactionManager.getTransactionsByDateRange(startDate, endDate);
-        
-        // Calculate totals
-        double monthlyIncome = 0.0;
-        double monthlyExpenses = 0.0;
-        
-        for (Transaction t : monthlyTransactions) {
-            if (t instanceof Income) {
-                monthlyIncome += t.getAmount();
-            } else if (t instanceof Expense) {
-                monthlyExpenses += t.getAmount();
+        renderer.text("Month", monthFormat.format(currentDate));
+        
+        // Totals for this month only, shared with the savings projection below
+        MonthlyRollups.Rollup thisMonth = rollups.get(YearMonth.now());
+        double monthlyBalance = thisMonth.getNet();
+        renderer.amount("Total Income", Math.round(thisMonth.getIncome() * 100));
+        renderer.amount("Total Expenses", Math.round(thisMonth.getExpenses() * 100));
+        renderer.amount("Balance", Math.round(monthlyBalance * 100));
+        
+        // This month's spending per category, read from the ledger's month by category table
+        Map<String, Double> monthlyByCategory = transactionManager.getExpensesByCategory(thisMonth.getMonth(),
+                thisMonth.getMonth());
+        if (!monthlyByCategory.isEmpty()) {
+            renderer.section("Spending by Category");
+            for (Map.Entry<String, Double> entry : monthlyByCategory.entrySet()) {
+                renderer.amount(entry.getKey(), Math.round(entry.getValue() * 100));
             }
         }
         
-        double monthlyBalance = monthlyIncome - monthlyExpenses;
-        
-        // Print summary
-        System.out.printf("Total Income: $%.2f\n", monthlyIncome);
-        System.out.printf("Total Expenses: $%.2f\n", monthlyExpenses);
-        System.out.printf("Balance: $%.2f\n", monthlyBalance);
-        
         // Estimate trend
-        System.out.println("\nMonthly Analysis:");
+        renderer.section("Monthly Analysis");
         if (monthlyBalance > 0) {
-            System.out.println("- You saved money this month! Great job!");
-            // Using factorial recursion for savings calculation (requirement 10)
-            double savingsPotential = calculateSavingsPotential(5);
-            System.out.printf("- If you maintain this saving rate, you could save approximately $%.2f in 5 months.\n", 
-                             savingsPotential);
+            renderer.note("You saved money this month! Great job!");
+            renderer.amount("Savings At This Rate Over 5 Months", Math.round(calculateSavingsPotential(5) * 100));
         } else {
-            System.out.println("- You spent more than you earned this month.");
-            System.out.println("- Consider reviewing your budget to reduce expenses.");
+            renderer.note("You spent more than you earned this month.");
+            renderer.note("Consider reviewing your budget to reduce expenses.");
         }
-        
-        // Provide a random financial tip
-        System.out.println("\nFinancial Tip: " + getRandomFinancialTip());
     }
     
     /**
-     * Calculate average income per transaction
+     * Project savings over the coming months from the average net of recent months
+     * Months before the ledger has any activity are left out of the average
      * 
-     * @return Average income amount
-     */
-    private double calculateAverageIncomePerTransaction() {
-        List<Transaction> incomes = transactionManager.getTransactionsByType("Income");
-        
-        if (incomes.isEmpty()) {
-            return 0.0;
-        }
-        
-        double total = 0.0;
-        for (Transaction t : incomes) {
-            total += t.getAmount();
-        }
-        
-        return total / incomes.size();
-    }
-    
-    /**
-     * Calculate average expense per transaction
-     * 
-     * @return Average expense amount
+     * @param months Number of months to project
+     * @return Potential savings amount
      */
-    private double calculateAverageExpensePerTransaction() {
-        List<Transaction> expenses = transactionManager.getTransactionsByFilter(t -> t instanceof Expense);
-        
-        if (expenses.isEmpty()) {
-            return 0.0;
+    private double calculateSavingsPotential(int months) {
+        List<MonthlyRollups.Rollup> history = rollups.trailing(YearMonth.now(), TRAILING_MONTHS);
+        int activeMonths = 0;
+        for (MonthlyRollups.Rollup month : history) {
+            if (month.hasActivity()) {
+                activeMonths++;
+            }
         }
-        
-        double total = 0.0;
-        for (Transaction t : expenses) {
-            total += t.getAmount();
+        if (activeMonths == 0) {
+            return 0;
         }
-        
-        return total / expenses.size();
+        return sumNet(history, history.size() - 1) / activeMonths * months;
     }
     
     /**
-     * Calculate potential savings based on current rate
+     * Add up the net amount of the months up to an index
      * Uses recursion (requirement 10)
      * 
-     * @param months Number of months
-     * @return Potential savings amount
+     * @param history Monthly totals, oldest first
+     * @param index Last month to include
+     * @return Total net amount
      */
-    private double calculateSavingsPotential(int months) {
+    private double sumNet(List<MonthlyRollups.Rollup> history, int index) {
         // Base case
-        if (months <= 0) {
+        if (index < 0) {
             return 0;
         }
         
-        // Get current month's balance
-        Calendar calendar = Calendar.getInstance();
-        int currentMonth = calendar.get(Calendar.MONTH);
-        int currentYear = calendar.get(Calendar.YEAR);
-        
-        Calendar startCal = Calendar.getInstance();
-        startCal.set(currentYear, currentMonth, 1, 0, 0, 0);
-        Date startDate = startCal.getTime();
-        
-        Calendar endCal = Calendar.getInstance();
-        endCal.set(currentYear, currentMonth, endCal.getActualMaximum(Calendar.DAY_OF_MONTH), 23, 59, 59);
-        Date endDate = endCal.getTime();
-        
-        List<Transaction> monthlyTransactions = 
-            transactionManager.getTransactionsByDateRange(startDate, endDate);
-        
-        double monthlyIncome = 0.0;
-        double monthlyExpenses = 0.0;
-        
-        for (Transaction t : monthlyTransactions) {
-            if (t instanceof Income) {
-                monthlyIncome += t.getAmount();
-            } else if (t instanceof Expense) {
-                monthlyExpenses += t.getAmount();
-            }
-        }
-        
-        double monthlyBalance = monthlyIncome - monthlyExpenses;
-        
-        // Recursive case - this month's savings plus future months
-        return monthlyBalance + calculateSavingsPotential(months - 1);
+        // Recursive case - this month's net plus the months before it
+        return history.get(index).getNet() + sumNet(history, index - 1);
     }
     
     /**
@@ -0,0 +1,219 @@
+package com.financetracker.util;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.financetracker.interfaces.TransactionStore;
+import com.financetracker.manager.TransactionManager;
+
+/**
+ * Every figure a summary report needs, computed in one pass over the ledger
+ * Totals, counts, averages, the smallest and largest amounts, and per-category sums and counts
+ * are gathered for income and expenses together from the store's primitive columns
+ */
+public class ReportSummary {
+    private final CategoryDictionary categories;
+    private final Side income;
+    private final Side expenses;
+    
+    /**
+     * Constructor for ReportSummary
+     * 
+     * @param categories Dictionary the category IDs refer to
+     */
+    private ReportSummary(CategoryDictionary categories) {
+        this.categories = categories;
+        this.income = new Side(categories.size());
+        this.expenses = new Side(categories.size());
+    }
+    
+    /**
+     * Summarize the whole ledger
+     * 
+     * @param transactionManager Ledger to read
+     * @return Summary of every transaction
+     */
+    public static ReportSummary of(TransactionManager transactionManager) {
+        return of(transactionManager, null, null);
+    }
+    
+    /**
+     * Summarize the transactions dated within a range
+     * Compares whole days, like getTransactionsByDateRange
+     * 
+     * @param transactionManager Ledger to read
+     * @param startDate First day to include, or null for no lower bound
+     * @param endDate Last day to include, or null for no upper bound
+     * @return Summary of the transactions in the range
+     */
+    public static ReportSummary of(TransactionManager transactionManager, Date startDate, Date endDate) {
+        ReportSummary summary = new ReportSummary(transactionManager.getCategoryDictionary());
+        transactionManager.scanSlots(startDate, endDate, null, summary::add);
+        return summary;
+    }
+    
+    /**
+     * Add one slot to the summary
+     * 
+     * @param store Store holding the slot
+     * @param slot Live slot
+     */
+    private void add(TransactionStore store, int slot) {
+        Side side = store.isExpense(slot) ? expenses : income;
+        side.add(store.getCategoryId(slot), store.getAmountCents(slot));
+    }
+    
+    /**
+     * Get the total for one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Total amount
+     */
+    public double getTotal(boolean expenses) {
+        return side(expenses).cents / 100.0;
+    }
+    
+    /**
+     * Get the number of transactions on one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Transaction count
+     */
+    public int getCount(boolean expenses) {
+        return side(expenses).count;
+    }
+    
+    /**
+     * Get the average amount on one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Average amount, or 0 if there are no transactions
+     */
+    public double getAverage(boolean expenses) {
+        Side side = side(expenses);
+        return side.count == 0 ? 0.0 : side.cents / 100.0 / side.count;
+    }
+    
+    /**
+     * Get the smallest amount on one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Smallest amount, or 0 if there are no transactions
+     */
+    public double getSmallest(boolean expenses) {
+        Side side = side(expenses);
+        return side.count == 0 ? 0.0 : side.minCents / 100.0;
+    }
+    
+    /**
+     * Get the largest amount on one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Largest amount, or 0 if there are no transactions
+     */
+    public double getLargest(boolean expenses) {
+        Side side = side(expenses);
+        return side.count == 0 ? 0.0 : side.maxCents / 100.0;
+    }
+    
+    /**
+     * Get income minus expenses
+     * 
+     * @return Balance
+     */
+    public double getBalance() {
+        return (income.cents - expenses.cents) / 100.0;
+    }
+    
+    /**
+     * Get per-category totals for one side of the ledger
+     * Only categories with transactions appear
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Map of category to total amount
+     */
+    public Map<String, Double> getByCategory(boolean expenses) {
+        Side side = side(expenses);
+        Map<String, Double> totals = new HashMap<>();
+        for (int id = 0; id < side.categoryCounts.length; id++) {
+            if (side.categoryCounts[id] > 0) {
+                totals.put(categories.nameOf(id), side.categoryCents[id] / 100.0);
+            }
+        }
+        return totals;
+    }
+    
+    /**
+     * Get per-category transaction counts for one side of the ledger
+     * Only categories with transactions appear
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Map of category to transaction count
+     */
+    public Map<String, Integer> getCountByCategory(boolean expenses) {
+        Side side = side(expenses);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int id = 0; id < side.categoryCounts.length; id++) {
+            if (side.categoryCounts[id] > 0) {
+                counts.put(categories.nameOf(id), side.categoryCounts[id]);
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Get the figures for one side of the ledger
+     * 
+     * @param expenses true for expenses, false for income
+     * @return Income or expense figures
+     */
+    private Side side(boolean expenses) {
+        return expenses ? this.expenses : income;
+    }
+    
+    /**
+     * Running figures for income or for expenses, in cents
+     */
+    private static class Side {
+        long cents;
+        int count;
+        long minCents = Long.MAX_VALUE;
+        long maxCents = Long.MIN_VALUE;
+        long[] categoryCents;
+        int[] categoryCounts;
+        
+        /**
+         * Constructor for Side
+         * 
+         * @param categoryCapacity Number of category IDs to size the arrays for
+         */
+        Side(int categoryCapacity) {
+            this.categoryCents = new long[categoryCapacity];
+            this.categoryCounts = new int[categoryCapacity];
+        }
+        
+        /**
+         * Add one transaction
+         * 
+         * @param categoryId Category ID
+         * @param amountCents Amount in cents
+         */
+        void add(int categoryId, long amountCents) {
+            // Categories interned after the pass started
+            if (categoryId >= categoryCounts.length) {
+                int capacity = Math.max(categoryId + 1, categoryCounts.length * 2);
+                categoryCents = Arrays.copyOf(categoryCents, capacity);
+                categoryCounts = Arrays.copyOf(categoryCounts, capacity);
+            }
+            
+            cents += amountCents;
+            count++;
+            minCents = Math.min(minCents, amountCents);
+            maxCents = Math.max(maxCents, amountCents);
+            categoryCents[categoryId] += amountCents;
+            categoryCounts[categoryId]++;
+        }
+    }
+}
\ No newline at end of file